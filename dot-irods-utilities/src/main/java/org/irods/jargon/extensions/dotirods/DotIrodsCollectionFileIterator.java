@@ -0,0 +1,217 @@
+/**
+ *
+ */
+package org.irods.jargon.extensions.dotirods;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.exception.JargonRuntimeException;
+import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
+import org.irods.jargon.core.pub.io.IRODSFileFactory;
+import org.irods.jargon.core.query.GenQueryBuilderException;
+import org.irods.jargon.core.query.GenQueryOrderByField.OrderByType;
+import org.irods.jargon.core.query.IRODSGenQueryBuilder;
+import org.irods.jargon.core.query.IRODSGenQueryFromBuilder;
+import org.irods.jargon.core.query.IRODSQueryResultRow;
+import org.irods.jargon.core.query.IRODSQueryResultSet;
+import org.irods.jargon.core.query.JargonQueryException;
+import org.irods.jargon.core.query.QueryConditionOperators;
+import org.irods.jargon.core.query.RodsGenQueryEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lazily iterates the contents of a single collection, fetching one page of
+ * GenQuery results at a time, so that callers who stop early never list the
+ * rest of the collection. As with <code>IRODSFile.listFiles()</code>,
+ * subcollections are returned first, followed by data objects, each in name
+ * order. The iterator may instead be limited to the data objects.
+ * <p/>
+ * A collection that does not exist or cannot be read simply has no elements.
+ * Errors talking to iRODS are rethrown as {@link JargonRuntimeException}, as
+ * <code>Iterator</code> cannot throw checked exceptions.
+ *
+ * @author Mike Conway - DICE
+ */
+class DotIrodsCollectionFileIterator implements Iterator<File> {
+
+	public static final Logger log = LoggerFactory
+			.getLogger(DotIrodsCollectionFileIterator.class);
+
+	private final IRODSAccessObjectFactory irodsAccessObjectFactory;
+	private final IRODSAccount irodsAccount;
+	private final String irodsAbsolutePath;
+	private final FilenameFilter filter;
+	private final DotIrodsMetrics dotIrodsMetrics;
+
+	private List<IRODSQueryResultRow> page = Collections.emptyList();
+	private int pageIndex = 0;
+	private int offset = 0;
+	private boolean morePages = true;
+	private boolean listingCollections;
+	private File dirFile = null;
+	private File next = null;
+
+	/**
+	 * @param irodsAccessObjectFactory
+	 *            {@link IRODSAccessObjectFactory}
+	 * @param irodsAccount
+	 *            {@link IRODSAccount}
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the collection to iterate
+	 * @param filter
+	 *            optional <code>FilenameFilter</code>, may be <code>null</code>
+	 * @param dotIrodsMetrics
+	 *            optional {@link DotIrodsMetrics}, may be <code>null</code>
+	 */
+	DotIrodsCollectionFileIterator(
+			final IRODSAccessObjectFactory irodsAccessObjectFactory,
+			final IRODSAccount irodsAccount, final String irodsAbsolutePath,
+			final FilenameFilter filter, final DotIrodsMetrics dotIrodsMetrics) {
+		this(irodsAccessObjectFactory, irodsAccount, irodsAbsolutePath, filter,
+				false, dotIrodsMetrics);
+	}
+
+	/**
+	 * @param irodsAccessObjectFactory
+	 *            {@link IRODSAccessObjectFactory}
+	 * @param irodsAccount
+	 *            {@link IRODSAccount}
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the collection to iterate
+	 * @param filter
+	 *            optional <code>FilenameFilter</code>, may be <code>null</code>
+	 * @param dataObjectsOnly
+	 *            <code>boolean</code> that is <code>true</code> to skip the
+	 *            subcollections and return only data objects
+	 * @param dotIrodsMetrics
+	 *            optional {@link DotIrodsMetrics}, may be <code>null</code>
+	 */
+	DotIrodsCollectionFileIterator(
+			final IRODSAccessObjectFactory irodsAccessObjectFactory,
+			final IRODSAccount irodsAccount, final String irodsAbsolutePath,
+			final FilenameFilter filter, final boolean dataObjectsOnly,
+			final DotIrodsMetrics dotIrodsMetrics) {
+		this.irodsAccessObjectFactory = irodsAccessObjectFactory;
+		this.irodsAccount = irodsAccount;
+		this.irodsAbsolutePath = irodsAbsolutePath;
+		this.filter = filter;
+		listingCollections = !dataObjectsOnly;
+		this.dotIrodsMetrics = dotIrodsMetrics;
+	}
+
+	@Override
+	public boolean hasNext() {
+		try {
+			while (next == null) {
+				if (pageIndex < page.size()) {
+					String name = page.get(pageIndex++).getColumn(0);
+					if (listingCollections) {
+						name = name.substring(name.lastIndexOf('/') + 1);
+					}
+					IRODSFileFactory irodsFileFactory = irodsAccessObjectFactory
+							.getIRODSFileFactory(irodsAccount);
+					if (filter != null) {
+						if (dirFile == null) {
+							dirFile = (File) irodsFileFactory
+									.instanceIRODSFile(irodsAbsolutePath);
+						}
+						if (!filter.accept(dirFile, name)) {
+							continue;
+						}
+					}
+					next = (File) irodsFileFactory.instanceIRODSFile(
+							irodsAbsolutePath, name);
+				} else if (morePages) {
+					fetchNextPage();
+				} else if (listingCollections) {
+					listingCollections = false;
+					offset = 0;
+					morePages = true;
+				} else {
+					return false;
+				}
+			}
+		} catch (JargonException e) {
+			log.error("error iterating files in {}", irodsAbsolutePath, e);
+			throw new JargonRuntimeException("error iterating files", e);
+		}
+
+		return true;
+	}
+
+	@Override
+	public File next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		File returnFile = next;
+		next = null;
+		return returnFile;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove not supported");
+	}
+
+	private void fetchNextPage() throws JargonException {
+		log.debug("fetching {} page at offset {} of {}",
+				listingCollections ? "collection" : "data object", offset,
+				irodsAbsolutePath);
+
+		try {
+			IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true, null);
+			if (listingCollections) {
+				builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+						.addConditionAsGenQueryField(
+								RodsGenQueryEnum.COL_COLL_PARENT_NAME,
+								QueryConditionOperators.EQUAL,
+								irodsAbsolutePath)
+						.addOrderByGenQueryField(
+								RodsGenQueryEnum.COL_COLL_NAME,
+								OrderByType.ASC);
+			} else {
+				builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_NAME)
+						.addConditionAsGenQueryField(
+								RodsGenQueryEnum.COL_COLL_NAME,
+								QueryConditionOperators.EQUAL,
+								irodsAbsolutePath)
+						.addOrderByGenQueryField(
+								RodsGenQueryEnum.COL_DATA_NAME,
+								OrderByType.ASC);
+			}
+
+			IRODSGenQueryFromBuilder query = builder
+					.exportIRODSQueryFromBuilder(irodsAccessObjectFactory
+							.getJargonProperties().getMaxFilesAndDirsQueryMax());
+			IRODSQueryResultSet resultSet = irodsAccessObjectFactory
+					.getIRODSGenQueryExecutor(irodsAccount)
+					.executeIRODSQueryAndCloseResult(query, offset);
+			if (dotIrodsMetrics != null) {
+				dotIrodsMetrics.recordQuery();
+			}
+
+			page = resultSet.getResults();
+			pageIndex = 0;
+			offset += page.size();
+			morePages = resultSet.isHasMoreRecords() && !page.isEmpty();
+
+		} catch (GenQueryBuilderException e) {
+			log.error("error building query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error querying files in {}", irodsAbsolutePath, e);
+			throw new JargonException("error querying files", e);
+		}
+	}
+
+}
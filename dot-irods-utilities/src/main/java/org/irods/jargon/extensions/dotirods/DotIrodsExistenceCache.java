@@ -0,0 +1,87 @@
+/**
+ *
+ */
+package org.irods.jargon.extensions.dotirods;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+
+/**
+ * Cache of whether a .irods collection (or a subdirectory of one) exists at a
+ * given path, as seen by a given account. Both positive and negative answers
+ * are cached.
+ * <p/>
+ * Negative answers are additionally tied to a version, which is bumped
+ * whenever a .irods collection or subdirectory is created, so that creation
+ * never has to find the individual entries it made stale. Callers take the
+ * {@link #currentVersion()} before querying iRODS and pass it to
+ * {@link #record(IRODSAccount, String, boolean, long)}, so that an answer
+ * obtained before a creation is never cached as current.
+ * <p/>
+ * Implementations must be thread safe, as a single cache is typically shared
+ * by every {@link DotIrodsService} in an application.
+ *
+ * @author Mike Conway - DICE
+ */
+public interface DotIrodsExistenceCache {
+
+	/**
+	 * Look up a cached existence answer
+	 *
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} the answer was obtained with
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the absolute path to a .irods
+	 *            collection or one of its subdirectories
+	 * @return <code>Boolean</code> with the cached answer, or <code>null</code>
+	 *         if nothing (unexpired) is cached for the path
+	 */
+	Boolean lookup(IRODSAccount irodsAccount, String irodsAbsolutePath);
+
+	/**
+	 * Get the current version, to be taken before querying iRODS and passed to
+	 * {@link #record(IRODSAccount, String, boolean, long)} with the answer
+	 *
+	 * @return <code>long</code> with the current version
+	 */
+	long currentVersion();
+
+	/**
+	 * Record an existence answer. The answer is dropped if the version has
+	 * been bumped since <code>version</code> was taken, as a .irods collection
+	 * or subdirectory may have been created while iRODS was being queried.
+	 *
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} the answer was obtained with
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the absolute path to a .irods
+	 *            collection or one of its subdirectories
+	 * @param exists
+	 *            <code>boolean</code> indicating whether the path exists
+	 * @param version
+	 *            <code>long</code> with the {@link #currentVersion()} taken
+	 *            before iRODS was queried
+	 */
+	void record(IRODSAccount irodsAccount, String irodsAbsolutePath,
+			boolean exists, long version);
+
+	/**
+	 * Discard any cached answers for the given path and every path beneath it,
+	 * for all accounts
+	 *
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the absolute path that changed
+	 */
+	void invalidate(String irodsAbsolutePath);
+
+	/**
+	 * Discard every cached negative answer, for all paths and accounts. Called
+	 * when a .irods collection or subdirectory is created.
+	 */
+	void bumpVersion();
+
+	/**
+	 * Discard all cached answers
+	 */
+	void invalidateAll();
+
+}
@@ -0,0 +1,272 @@
+/**
+ *
+ */
+package org.irods.jargon.extensions.dotirods;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link DotIrodsExistenceCache}, bounded both by a maximum number of
+ * entries (least recently used entries are evicted first) and by a time to
+ * live for each entry. Negative answers have their own, typically shorter,
+ * time to live, and are only honored if recorded under the current version.
+ * An answer is not recorded at all if the version was bumped while it was
+ * being obtained.
+ * <p/>
+ * Entries are keyed by host, zone and user name, so that answers obtained by
+ * one user are never served to another whose permissions may differ.
+ *
+ * @author Mike Conway - DICE
+ */
+public class DotIrodsExistenceCacheImpl implements DotIrodsExistenceCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	public static final long DEFAULT_TTL_MILLIS = 60000L;
+	public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 10000L;
+
+	public static final Logger log = LoggerFactory
+			.getLogger(DotIrodsExistenceCacheImpl.class);
+
+	private final int maxEntries;
+	private final long ttlMillis;
+	private final long negativeTtlMillis;
+	private final LinkedHashMap<String, CacheEntry> entries;
+	private long version = 0L;
+
+	/**
+	 * Cached answer for one account and path
+	 */
+	private static class CacheEntry {
+		private final String irodsAbsolutePath;
+		private final boolean exists;
+		private final long expiresAt;
+		private final long version;
+
+		CacheEntry(final String irodsAbsolutePath, final boolean exists,
+				final long expiresAt, final long version) {
+			this.irodsAbsolutePath = irodsAbsolutePath;
+			this.exists = exists;
+			this.expiresAt = expiresAt;
+			this.version = version;
+		}
+	}
+
+	/**
+	 * Create a cache with the default size and times to live
+	 */
+	public DotIrodsExistenceCacheImpl() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS,
+				DEFAULT_NEGATIVE_TTL_MILLIS);
+	}
+
+	/**
+	 * Create a cache with the given size and a single time to live for both
+	 * positive and negative answers
+	 *
+	 * @param maxEntries
+	 *            <code>int</code> with the maximum number of cached answers
+	 * @param ttlMillis
+	 *            <code>long</code> with the time in milliseconds an answer
+	 *            remains valid
+	 */
+	public DotIrodsExistenceCacheImpl(final int maxEntries,
+			final long ttlMillis) {
+		this(maxEntries, ttlMillis, ttlMillis);
+	}
+
+	/**
+	 * Create a cache with the given size and times to live
+	 *
+	 * @param maxEntries
+	 *            <code>int</code> with the maximum number of cached answers
+	 * @param ttlMillis
+	 *            <code>long</code> with the time in milliseconds a positive
+	 *            answer remains valid
+	 * @param negativeTtlMillis
+	 *            <code>long</code> with the time in milliseconds a negative
+	 *            answer remains valid
+	 */
+	public DotIrodsExistenceCacheImpl(final int maxEntries,
+			final long ttlMillis, final long negativeTtlMillis) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries must be > 0");
+		}
+
+		if (ttlMillis <= 0) {
+			throw new IllegalArgumentException("ttlMillis must be > 0");
+		}
+
+		if (negativeTtlMillis <= 0) {
+			throw new IllegalArgumentException("negativeTtlMillis must be > 0");
+		}
+
+		this.maxEntries = maxEntries;
+		this.ttlMillis = ttlMillis;
+		this.negativeTtlMillis = negativeTtlMillis;
+		entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, CacheEntry> eldest) {
+				return size() > DotIrodsExistenceCacheImpl.this.maxEntries;
+			}
+		};
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.irods.jargon.extensions.dotirods.DotIrodsExistenceCache#lookup(org
+	 * .irods.jargon.core.connection.IRODSAccount, java.lang.String)
+	 */
+	@Override
+	public synchronized Boolean lookup(final IRODSAccount irodsAccount,
+			final String irodsAbsolutePath) {
+		String key = computeKey(irodsAccount, irodsAbsolutePath);
+		CacheEntry entry = entries.get(key);
+
+		if (entry == null) {
+			return null;
+		}
+
+		if (entry.expiresAt <= currentTimeMillis()
+				|| (!entry.exists && entry.version != version)) {
+			entries.remove(key);
+			return null;
+		}
+
+		return entry.exists;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.irods.jargon.extensions.dotirods.DotIrodsExistenceCache#currentVersion
+	 * ()
+	 */
+	@Override
+	public synchronized long currentVersion() {
+		return version;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.irods.jargon.extensions.dotirods.DotIrodsExistenceCache#record(org
+	 * .irods.jargon.core.connection.IRODSAccount, java.lang.String, boolean,
+	 * long)
+	 */
+	@Override
+	public synchronized void record(final IRODSAccount irodsAccount,
+			final String irodsAbsolutePath, final boolean exists,
+			final long version) {
+		if (version != this.version) {
+			log.debug("version bumped while querying {}, not recorded",
+					irodsAbsolutePath);
+			return;
+		}
+
+		long expiresAt = currentTimeMillis()
+				+ (exists ? ttlMillis : negativeTtlMillis);
+		entries.put(computeKey(irodsAccount, irodsAbsolutePath),
+				new CacheEntry(irodsAbsolutePath, exists, expiresAt, version));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.irods.jargon.extensions.dotirods.DotIrodsExistenceCache#invalidate
+	 * (java.lang.String)
+	 */
+	@Override
+	public synchronized void invalidate(final String irodsAbsolutePath) {
+		if (irodsAbsolutePath == null || irodsAbsolutePath.isEmpty()) {
+			throw new IllegalArgumentException(
+					"null or empty irodsAbsolutePath");
+		}
+
+		log.debug("invalidate:{}", irodsAbsolutePath);
+		String childPrefix = irodsAbsolutePath + "/";
+		Iterator<CacheEntry> iter = entries.values().iterator();
+		while (iter.hasNext()) {
+			CacheEntry entry = iter.next();
+			if (entry.irodsAbsolutePath.equals(irodsAbsolutePath)
+					|| entry.irodsAbsolutePath.startsWith(childPrefix)) {
+				iter.remove();
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.irods.jargon.extensions.dotirods.DotIrodsExistenceCache#bumpVersion()
+	 */
+	@Override
+	public synchronized void bumpVersion() {
+		version++;
+		log.debug("version now:{}", version);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.irods.jargon.extensions.dotirods.DotIrodsExistenceCache#invalidateAll
+	 * ()
+	 */
+	@Override
+	public synchronized void invalidateAll() {
+		entries.clear();
+	}
+
+	/**
+	 * @return <code>int</code> with the number of entries currently held,
+	 *         including any that have expired but not yet been evicted
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	private String computeKey(final IRODSAccount irodsAccount,
+			final String irodsAbsolutePath) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(irodsAccount.getHost());
+		sb.append(':');
+		sb.append(irodsAccount.getZone());
+		sb.append(':');
+		sb.append(irodsAccount.getUserName());
+		sb.append(':');
+		sb.append(irodsAbsolutePath);
+		return sb.toString();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getTtlMillis() {
+		return ttlMillis;
+	}
+
+	public long getNegativeTtlMillis() {
+		return negativeTtlMillis;
+	}
+
+}
@@ -0,0 +1,177 @@
+package org.irods.jargon.extensions.dotirods;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Shared reader for the small configuration files kept in .irods collections
+ * (virtual collections, metadata templates, and so on).
+ * <p/>
+ * Streams are always read to end of file, as a single <code>read()</code>
+ * may return fewer bytes than the file holds, and are always closed, whether
+ * or not the read succeeds. JSON is parsed straight from the stream by a
+ * Jackson <code>JsonParser</code>, with no intermediate <code>String</code>.
+ *
+ * @author Mike Conway - DICE
+ */
+public class DotIrodsFileReader {
+
+	public static final Logger log = LoggerFactory
+			.getLogger(DotIrodsFileReader.class);
+
+	static final int READ_BUFFER_SIZE = 32 * 1024;
+
+	/**
+	 * Read buffer for each thread reading files, reused between files
+	 */
+	private static final ThreadLocal<byte[]> READ_BUFFER = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[READ_BUFFER_SIZE];
+		}
+	};
+
+	private DotIrodsFileReader() {
+	}
+
+	/**
+	 * Read a stream to end of file as a <code>String</code>, closing it when
+	 * done
+	 *
+	 * @param inputStream
+	 *            <code>InputStream</code> to read
+	 * @param encoding
+	 *            <code>String</code> with the character encoding of the
+	 *            contents
+	 * @param remainingBytes
+	 *            <code>AtomicLong</code> with the bytes that may still be read,
+	 *            decremented as this stream is read, or <code>null</code> for
+	 *            no limit
+	 * @return <code>String</code> with the contents of the stream
+	 * @throws IOException
+	 *             if the stream cannot be read, or reading it would exceed
+	 *             <code>remainingBytes</code>
+	 */
+	public static String readFully(final InputStream inputStream,
+			final String encoding, final AtomicLong remainingBytes)
+			throws IOException {
+		return readFully(inputStream, encoding, remainingBytes, null);
+	}
+
+	/**
+	 * Read a stream to end of file as a <code>String</code>, closing it when
+	 * done, and record the bytes read
+	 *
+	 * @param inputStream
+	 *            <code>InputStream</code> to read
+	 * @param encoding
+	 *            <code>String</code> with the character encoding of the
+	 *            contents
+	 * @param remainingBytes
+	 *            <code>AtomicLong</code> with the bytes that may still be read,
+	 *            decremented as this stream is read, or <code>null</code> for
+	 *            no limit
+	 * @param dotIrodsMetrics
+	 *            optional {@link DotIrodsMetrics}, may be <code>null</code>
+	 * @return <code>String</code> with the contents of the stream
+	 * @throws IOException
+	 *             if the stream cannot be read, or reading it would exceed
+	 *             <code>remainingBytes</code>
+	 */
+	public static String readFully(final InputStream inputStream,
+			final String encoding, final AtomicLong remainingBytes,
+			final DotIrodsMetrics dotIrodsMetrics) throws IOException {
+
+		if (inputStream == null) {
+			throw new IllegalArgumentException("null inputStream");
+		}
+
+		if (encoding == null || encoding.isEmpty()) {
+			throw new IllegalArgumentException("null or empty encoding");
+		}
+
+		try {
+			byte[] buffer = READ_BUFFER.get();
+			ByteArrayOutputStream contents = new ByteArrayOutputStream();
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				if (remainingBytes != null
+						&& remainingBytes.addAndGet(-read) < 0) {
+					throw new IOException("byte budget exceeded reading stream");
+				}
+				contents.write(buffer, 0, read);
+			}
+
+			if (dotIrodsMetrics != null) {
+				dotIrodsMetrics.recordBytesRead(contents.size());
+			}
+
+			return contents.toString(encoding);
+		} finally {
+			closeQuietly(inputStream);
+		}
+	}
+
+	/**
+	 * Deserialize JSON straight from a stream, closing it when done
+	 *
+	 * @param inputStream
+	 *            <code>InputStream</code> with JSON content
+	 * @param objectMapper
+	 *            <code>ObjectMapper</code> configured for the type
+	 * @param valueType
+	 *            <code>Class</code> to deserialize to
+	 * @return instance of <code>valueType</code>
+	 * @throws IOException
+	 *             if the stream cannot be read or is not valid JSON for the
+	 *             type
+	 */
+	public static <T> T readJson(final InputStream inputStream,
+			final ObjectMapper objectMapper, final Class<T> valueType)
+			throws IOException {
+
+		if (inputStream == null) {
+			throw new IllegalArgumentException("null inputStream");
+		}
+
+		if (objectMapper == null) {
+			throw new IllegalArgumentException("null objectMapper");
+		}
+
+		if (valueType == null) {
+			throw new IllegalArgumentException("null valueType");
+		}
+
+		JsonParser jsonParser = null;
+		try {
+			jsonParser = objectMapper.getFactory().createParser(inputStream);
+			return objectMapper.readValue(jsonParser, valueType);
+		} finally {
+			if (jsonParser != null) {
+				try {
+					jsonParser.close();
+				} catch (IOException e) {
+					log.warn("error closing JSON parser", e);
+				}
+			}
+			closeQuietly(inputStream);
+		}
+	}
+
+	private static void closeQuietly(final InputStream inputStream) {
+		try {
+			inputStream.close();
+		} catch (IOException e) {
+			log.warn("error closing stream", e);
+		}
+	}
+
+}
@@ -0,0 +1,160 @@
+/**
+ *
+ */
+package org.irods.jargon.extensions.dotirods;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.exception.JargonRuntimeException;
+import org.irods.jargon.core.pub.CollectionAO;
+import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lazily iterates the contents of the .irods collection (or a subdirectory of
+ * it) of a collection and each of its ancestors, leaf first. Each ancestor is
+ * only queried once the files of the ancestors below it have been consumed,
+ * so a caller looking for the first match by name does no more work than
+ * necessary.
+ * <p/>
+ * As in the walk of the hierarchy, iteration ends at the first ancestor that
+ * cannot be accessed (typically for lack of permissions).
+ * <p/>
+ * When resolving conflicts, a file is skipped if a file of the same name was
+ * already returned from lower in the hierarchy.
+ *
+ * @author Mike Conway - DICE
+ */
+class DotIrodsHierarchyFileIterator implements Iterator<File> {
+
+	public static final Logger log = LoggerFactory
+			.getLogger(DotIrodsHierarchyFileIterator.class);
+
+	private final IRODSAccessObjectFactory irodsAccessObjectFactory;
+	private final IRODSAccount irodsAccount;
+	private final List<String> ancestors;
+	private final String subDir;
+	private final FilenameFilter filter;
+	private final Set<String> returnedNames;
+	private final DotIrodsMetrics dotIrodsMetrics;
+
+	private int ancestorIndex = 0;
+	private Iterator<File> current = null;
+	private File next = null;
+
+	/**
+	 * @param irodsAccessObjectFactory
+	 *            {@link IRODSAccessObjectFactory}
+	 * @param irodsAccount
+	 *            {@link IRODSAccount}
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the leaf collection
+	 * @param subDir
+	 *            <code>String</code> with an optional .irods subdirectory, may
+	 *            be <code>null</code> or empty
+	 * @param filter
+	 *            optional <code>FilenameFilter</code>, may be <code>null</code>
+	 * @param resolveConflicts
+	 *            <code>boolean</code> that, if <code>true</code>, returns only
+	 *            the file nearest the leaf for any given name
+	 * @param dotIrodsMetrics
+	 *            optional {@link DotIrodsMetrics}, may be <code>null</code>
+	 */
+	DotIrodsHierarchyFileIterator(
+			final IRODSAccessObjectFactory irodsAccessObjectFactory,
+			final IRODSAccount irodsAccount, final String irodsAbsolutePath,
+			final String subDir, final FilenameFilter filter,
+			final boolean resolveConflicts,
+			final DotIrodsMetrics dotIrodsMetrics) {
+		this.irodsAccessObjectFactory = irodsAccessObjectFactory;
+		this.irodsAccount = irodsAccount;
+		ancestors = DotIrodsHierarchyQuery
+				.computeAncestorPaths(irodsAbsolutePath);
+		this.subDir = subDir;
+		this.filter = filter;
+		returnedNames = resolveConflicts ? new HashSet<String>() : null;
+		this.dotIrodsMetrics = dotIrodsMetrics;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (next == null) {
+			if (current != null && current.hasNext()) {
+				File candidate = current.next();
+				if (returnedNames == null
+						|| returnedNames.add(candidate.getName())) {
+					next = candidate;
+				}
+			} else if (ancestorIndex < ancestors.size()) {
+				String ancestor = ancestors.get(ancestorIndex++);
+				if (!ancestorAccessible(ancestor)) {
+					log.info("cannot access {} (probably lack of permissions), ending iteration",
+							ancestor);
+					ancestorIndex = ancestors.size();
+					current = null;
+					continue;
+				}
+				current = new DotIrodsCollectionFileIterator(
+						irodsAccessObjectFactory, irodsAccount,
+						DotIrodsHierarchyQuery.computeDotIrodsDirUnderParent(
+								ancestor, subDir), filter, dotIrodsMetrics);
+			} else {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public File next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		File returnFile = next;
+		next = null;
+		return returnFile;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove not supported");
+	}
+
+	/**
+	 * Check whether an ancestor can be accessed, the same test that ends the
+	 * walk of the hierarchy
+	 */
+	private boolean ancestorAccessible(final String ancestor) {
+		CollectionAO collectionAO;
+		try {
+			collectionAO = irodsAccessObjectFactory
+					.getCollectionAO(irodsAccount);
+		} catch (JargonException e) {
+			log.error("error getting collectionAO", e);
+			throw new JargonRuntimeException("error getting collectionAO", e);
+		}
+
+		if (dotIrodsMetrics != null) {
+			dotIrodsMetrics.recordQuery();
+		}
+
+		try {
+			collectionAO.findByAbsolutePath(ancestor);
+			return true;
+		} catch (JargonException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/**
+ *
+ */
+package org.irods.jargon.extensions.dotirods;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accumulates the files found in the .irods collections of a hierarchy. The
+ * hierarchy is added from the leaf up, so when resolving name conflicts the
+ * file already in the list takes priority.
+ * <p/>
+ * Files are kept in insertion order, with an index by name so that each
+ * conflict check is constant time rather than a scan of the list so far.
+ *
+ * @author Mike Conway - DICE
+ */
+class DotIrodsHierarchyFileList {
+
+	public static final Logger log = LoggerFactory
+			.getLogger(DotIrodsHierarchyFileList.class);
+
+	private final boolean resolveConflicts;
+	private final List<File> files = new ArrayList<File>();
+	private final Map<String, File> filesByName = new HashMap<String, File>();
+
+	/**
+	 * @param resolveConflicts
+	 *            <code>boolean</code> that, if <code>true</code>, keeps only
+	 *            the first file added for any given name
+	 */
+	DotIrodsHierarchyFileList(final boolean resolveConflicts) {
+		this.resolveConflicts = resolveConflicts;
+	}
+
+	/**
+	 * Add the files found in one .irods collection
+	 *
+	 * @param dirFileList
+	 *            array of <code>File</code> in the collection, may be
+	 *            <code>null</code>
+	 */
+	void addAll(final File[] dirFileList) {
+		if (dirFileList == null) {
+			return;
+		}
+
+		for (File f : dirFileList) {
+			add(f);
+		}
+	}
+
+	/**
+	 * Add a single file, unless conflicts are being resolved and a file of
+	 * the same name was already added
+	 *
+	 * @param file
+	 *            <code>File</code> to add
+	 * @return <code>boolean</code> that is <code>true</code> if the file was
+	 *         added
+	 */
+	boolean add(final File file) {
+		if (resolveConflicts) {
+			File existing = filesByName.get(file.getName());
+			if (existing != null) {
+				log.debug("Name collision with {},\n {} not added to file list",
+						existing.getPath(), file.getPath());
+				return false;
+			}
+			filesByName.put(file.getName(), file);
+		}
+
+		log.debug("{} added to file list", file.getPath());
+		files.add(file);
+		return true;
+	}
+
+	/**
+	 * @return <code>int</code> with the number of files accumulated
+	 */
+	int size() {
+		return files.size();
+	}
+
+	/**
+	 * @return array of the accumulated <code>File</code>, leaf first
+	 */
+	File[] toArray() {
+		return files.toArray(new File[files.size()]);
+	}
+
+}
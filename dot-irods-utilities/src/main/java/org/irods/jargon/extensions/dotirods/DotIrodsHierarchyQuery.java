@@ -0,0 +1,304 @@
+/**
+ *
+ */
+package org.irods.jargon.extensions.dotirods;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
+import org.irods.jargon.core.pub.IRODSGenQueryExecutor;
+import org.irods.jargon.core.pub.io.IRODSFileFactory;
+import org.irods.jargon.core.query.GenQueryBuilderException;
+import org.irods.jargon.core.query.IRODSGenQueryBuilder;
+import org.irods.jargon.core.query.IRODSGenQueryFromBuilder;
+import org.irods.jargon.core.query.IRODSQueryResultRow;
+import org.irods.jargon.core.query.IRODSQueryResultSet;
+import org.irods.jargon.core.query.JargonQueryException;
+import org.irods.jargon.core.query.QueryConditionOperators;
+import org.irods.jargon.core.query.RodsGenQueryEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helper that resolves the contents of the .irods (or .irods/subDir)
+ * collections of every ancestor of a path using batched GenQueries, rather than
+ * walking up the hierarchy one collection at a time.
+ * <p/>
+ * One query finds which ancestors the user can access, one query lists the
+ * data objects in all candidate collections (COLL_NAME IN (...)), and one
+ * query lists any child collections (COLL_PARENT_NAME IN (...)), so the cost
+ * no longer grows with the depth of the path.
+ *
+ * @author Mike Conway - DICE
+ */
+class DotIrodsHierarchyQuery {
+
+	public static final Logger log = LoggerFactory
+			.getLogger(DotIrodsHierarchyQuery.class);
+
+	private final IRODSAccessObjectFactory irodsAccessObjectFactory;
+	private final IRODSAccount irodsAccount;
+	private final DotIrodsMetrics dotIrodsMetrics;
+
+	/**
+	 * @param irodsAccessObjectFactory
+	 *            {@link IRODSAccessObjectFactory}
+	 * @param irodsAccount
+	 *            {@link IRODSAccount}
+	 * @param dotIrodsMetrics
+	 *            optional {@link DotIrodsMetrics}, may be <code>null</code>
+	 */
+	DotIrodsHierarchyQuery(
+			final IRODSAccessObjectFactory irodsAccessObjectFactory,
+			final IRODSAccount irodsAccount,
+			final DotIrodsMetrics dotIrodsMetrics) {
+		this.irodsAccessObjectFactory = irodsAccessObjectFactory;
+		this.irodsAccount = irodsAccount;
+		this.dotIrodsMetrics = dotIrodsMetrics;
+	}
+
+	/**
+	 * Compute the absolute path of the given collection and each of its
+	 * ancestors, ordered from the leaf up to the root
+	 *
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the absolute path of the leaf
+	 *            collection
+	 * @return <code>List</code> of <code>String</code> paths, leaf first
+	 */
+	static List<String> computeAncestorPaths(final String irodsAbsolutePath) {
+		List<String> ancestors = new ArrayList<String>();
+		String current = irodsAbsolutePath;
+		while (current.length() > 1 && current.endsWith("/")) {
+			current = current.substring(0, current.length() - 1);
+		}
+
+		while (!current.isEmpty()) {
+			ancestors.add(current);
+			if (current.equals("/")) {
+				break;
+			}
+			int lastSlash = current.lastIndexOf('/');
+			current = lastSlash <= 0 ? "/" : current.substring(0, lastSlash);
+		}
+
+		return ancestors;
+	}
+
+	/**
+	 * Compute the path to the .irods collection (or a subdirectory of it)
+	 * under the given parent
+	 *
+	 * @param irodsAbsolutePathToParent
+	 *            <code>String</code> with the parent collection
+	 * @param subDir
+	 *            <code>String</code> with an optional subdirectory of .irods,
+	 *            may be <code>null</code> or empty
+	 * @return <code>String</code> with the computed path
+	 */
+	static String computeDotIrodsDirUnderParent(
+			final String irodsAbsolutePathToParent, final String subDir) {
+		StringBuilder sb = new StringBuilder();
+		if (!irodsAbsolutePathToParent.equals("/")) {
+			sb.append(irodsAbsolutePathToParent);
+		}
+		sb.append("/");
+		sb.append(DotIrodsConstants.DOT_IRODS_DIR);
+		if (subDir != null && !subDir.isEmpty()) {
+			sb.append("/");
+			sb.append(subDir);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Find which of the given collections exist and can be seen by the user,
+	 * with a single COLL_NAME IN (...) query
+	 *
+	 * @param collectionPaths
+	 *            <code>List</code> of absolute collection paths
+	 * @return <code>Set</code> of those paths that were found
+	 * @throws JargonException
+	 */
+	Set<String> findAccessibleCollections(final List<String> collectionPaths)
+			throws JargonException {
+
+		log.info("findAccessibleCollections()");
+
+		Set<String> found = new HashSet<String>();
+		if (collectionPaths.isEmpty()) {
+			return found;
+		}
+
+		try {
+			IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true, null);
+			builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+					.addConditionAsMultiValueCondition(
+							RodsGenQueryEnum.COL_COLL_NAME,
+							QueryConditionOperators.IN, collectionPaths);
+
+			for (IRODSQueryResultRow row : executeAllPages(builder)) {
+				found.add(row.getColumn(0));
+			}
+		} catch (GenQueryBuilderException e) {
+			log.error("error building collection query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error executing collection query", e);
+			throw new JargonException("error querying collections", e);
+		}
+
+		return found;
+	}
+
+	/**
+	 * List the contents of the given candidate collections, returning them in
+	 * the same order as the candidates, with child collections before data
+	 * objects and each sorted by name (mirroring <code>IRODSFile.listFiles()</code>
+	 * ). Candidate collections that do not exist or are not readable are
+	 * silently absent from the result.
+	 *
+	 * @param candidateDirs
+	 *            <code>List</code> of absolute collection paths to list
+	 * @param filter
+	 *            optional <code>FilenameFilter</code>, may be <code>null</code>
+	 * @return <code>Map</code> of candidate path to the files found in it,
+	 *         ordered like <code>candidateDirs</code>
+	 * @throws JargonException
+	 */
+	Map<String, List<File>> listFilesInCollections(
+			final List<String> candidateDirs, final FilenameFilter filter)
+			throws JargonException {
+
+		log.info("listFilesInCollections()");
+		log.info("candidateDirs:{}", candidateDirs);
+
+		Map<String, TreeMap<String, String>> collsByDir = new LinkedHashMap<String, TreeMap<String, String>>();
+		Map<String, TreeMap<String, String>> dataByDir = new LinkedHashMap<String, TreeMap<String, String>>();
+
+		for (String dir : candidateDirs) {
+			collsByDir.put(dir, new TreeMap<String, String>());
+			dataByDir.put(dir, new TreeMap<String, String>());
+		}
+
+		if (candidateDirs.isEmpty()) {
+			return new LinkedHashMap<String, List<File>>();
+		}
+
+		try {
+			IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true, null);
+			builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_PARENT_NAME)
+					.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+					.addConditionAsMultiValueCondition(
+							RodsGenQueryEnum.COL_COLL_PARENT_NAME,
+							QueryConditionOperators.IN, candidateDirs);
+
+			for (IRODSQueryResultRow row : executeAllPages(builder)) {
+				String parent = row.getColumn(0);
+				String child = row.getColumn(1);
+				TreeMap<String, String> colls = collsByDir.get(parent);
+				if (colls != null) {
+					colls.put(
+							child.substring(child.lastIndexOf('/') + 1), child);
+				}
+			}
+
+			builder = new IRODSGenQueryBuilder(true, null);
+			builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+					.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_NAME)
+					.addConditionAsMultiValueCondition(
+							RodsGenQueryEnum.COL_COLL_NAME,
+							QueryConditionOperators.IN, candidateDirs);
+
+			for (IRODSQueryResultRow row : executeAllPages(builder)) {
+				String parent = row.getColumn(0);
+				String dataName = row.getColumn(1);
+				TreeMap<String, String> data = dataByDir.get(parent);
+				if (data != null) {
+					data.put(dataName, parent + "/" + dataName);
+				}
+			}
+
+		} catch (GenQueryBuilderException e) {
+			log.error("error building .irods hierarchy query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error executing .irods hierarchy query", e);
+			throw new JargonException("error querying .irods hierarchy", e);
+		}
+
+		IRODSFileFactory irodsFileFactory = irodsAccessObjectFactory
+				.getIRODSFileFactory(irodsAccount);
+		Map<String, List<File>> filesByDir = new LinkedHashMap<String, List<File>>();
+
+		for (String dir : candidateDirs) {
+			TreeMap<String, String> colls = collsByDir.get(dir);
+			TreeMap<String, String> data = dataByDir.get(dir);
+
+			if (colls.isEmpty() && data.isEmpty()) {
+				continue;
+			}
+
+			File dirFile = (File) irodsFileFactory.instanceIRODSFile(dir);
+			List<File> files = new ArrayList<File>();
+
+			for (Map.Entry<String, String> entry : colls.entrySet()) {
+				if (filter == null || filter.accept(dirFile, entry.getKey())) {
+					files.add((File) irodsFileFactory.instanceIRODSFile(entry
+							.getValue()));
+				}
+			}
+
+			for (Map.Entry<String, String> entry : data.entrySet()) {
+				if (filter == null || filter.accept(dirFile, entry.getKey())) {
+					files.add((File) irodsFileFactory.instanceIRODSFile(dir,
+							entry.getKey()));
+				}
+			}
+
+			filesByDir.put(dir, files);
+		}
+
+		return filesByDir;
+	}
+
+	private List<IRODSQueryResultRow> executeAllPages(
+			final IRODSGenQueryBuilder builder)
+			throws GenQueryBuilderException, JargonQueryException,
+			JargonException {
+
+		int maxRows = irodsAccessObjectFactory.getJargonProperties()
+				.getMaxFilesAndDirsQueryMax();
+		IRODSGenQueryFromBuilder query = builder
+				.exportIRODSQueryFromBuilder(maxRows);
+		IRODSGenQueryExecutor executor = irodsAccessObjectFactory
+				.getIRODSGenQueryExecutor(irodsAccount);
+
+		List<IRODSQueryResultRow> rows = new ArrayList<IRODSQueryResultRow>();
+		IRODSQueryResultSet resultSet;
+		int offset = 0;
+
+		do {
+			resultSet = executor.executeIRODSQueryAndCloseResult(query, offset);
+			if (dotIrodsMetrics != null) {
+				dotIrodsMetrics.recordQuery();
+			}
+			rows.addAll(resultSet.getResults());
+			offset += resultSet.getResults().size();
+		} while (resultSet.isHasMoreRecords()
+				&& !resultSet.getResults().isEmpty());
+
+		return rows;
+	}
+
+}
@@ -0,0 +1,48 @@
+/**
+ *
+ */
+package org.irods.jargon.extensions.dotirods;
+
+/**
+ * Instrumentation for the .irods services and the clients built on them (such
+ * as the metadata template resolver): time spent per operation, GenQueries
+ * issued, and bytes read from .irods files.
+ * <p/>
+ * Instrumentation is off unless an implementation is configured, in which
+ * case the only cost on the calling thread is reading the clock and updating
+ * counters. No log messages are built unless the implementation chooses to
+ * log at a level that is enabled.
+ * <p/>
+ * Implementations must be thread safe, as a single instance is typically
+ * shared by every service in an application.
+ *
+ * @author Mike Conway - DICE
+ */
+public interface DotIrodsMetrics {
+
+	/**
+	 * Record that an operation completed, successfully or not
+	 *
+	 * @param operation
+	 *            <code>String</code> with the name of the operation, typically
+	 *            the method name
+	 * @param elapsedNanos
+	 *            <code>long</code> with the time taken, in nanoseconds
+	 */
+	void recordOperation(String operation, long elapsedNanos);
+
+	/**
+	 * Record that a query (one page of a GenQuery, or one AVU query) was sent
+	 * to iRODS
+	 */
+	void recordQuery();
+
+	/**
+	 * Record bytes read from a file
+	 *
+	 * @param bytes
+	 *            <code>long</code> with the number of bytes read
+	 */
+	void recordBytesRead(long bytes);
+
+}
@@ -0,0 +1,115 @@
+/**
+ *
+ */
+package org.irods.jargon.extensions.dotirods;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link DotIrodsMetrics}, keeping running totals in memory for a
+ * monitoring layer to read.
+ * <p/>
+ * Each completed operation is also logged, with its time, at DEBUG. The
+ * message is only built when DEBUG is enabled for this class.
+ *
+ * @author Mike Conway - DICE
+ */
+public class DotIrodsMetricsImpl implements DotIrodsMetrics {
+
+	public static final Logger log = LoggerFactory
+			.getLogger(DotIrodsMetricsImpl.class);
+
+	private final ConcurrentMap<String, OperationTotals> operations = new ConcurrentHashMap<String, OperationTotals>();
+	private final AtomicLong queryCount = new AtomicLong();
+	private final AtomicLong bytesRead = new AtomicLong();
+
+	/**
+	 * Running totals for one operation
+	 */
+	private static class OperationTotals {
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong nanos = new AtomicLong();
+	}
+
+	@Override
+	public void recordOperation(final String operation,
+			final long elapsedNanos) {
+		OperationTotals totals = operations.get(operation);
+		if (totals == null) {
+			OperationTotals newTotals = new OperationTotals();
+			totals = operations.putIfAbsent(operation, newTotals);
+			if (totals == null) {
+				totals = newTotals;
+			}
+		}
+
+		totals.count.incrementAndGet();
+		totals.nanos.addAndGet(elapsedNanos);
+
+		if (log.isDebugEnabled()) {
+			log.debug("{} took {} ms", operation,
+					TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+		}
+	}
+
+	@Override
+	public void recordQuery() {
+		queryCount.incrementAndGet();
+	}
+
+	@Override
+	public void recordBytesRead(final long bytes) {
+		bytesRead.addAndGet(bytes);
+	}
+
+	/**
+	 * @param operation
+	 *            <code>String</code> with the name of an operation
+	 * @return <code>long</code> with the number of times it completed
+	 */
+	public long getOperationCount(final String operation) {
+		OperationTotals totals = operations.get(operation);
+		return totals == null ? 0L : totals.count.get();
+	}
+
+	/**
+	 * @param operation
+	 *            <code>String</code> with the name of an operation
+	 * @return <code>long</code> with the total time spent in it, in
+	 *         nanoseconds
+	 */
+	public long getOperationNanos(final String operation) {
+		OperationTotals totals = operations.get(operation);
+		return totals == null ? 0L : totals.nanos.get();
+	}
+
+	/**
+	 * @return <code>long</code> with the number of queries sent to iRODS
+	 */
+	public long getQueryCount() {
+		return queryCount.get();
+	}
+
+	/**
+	 * @return <code>long</code> with the number of bytes read from files
+	 */
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	/**
+	 * Set every total back to zero
+	 */
+	public void reset() {
+		operations.clear();
+		queryCount.set(0L);
+		bytesRead.set(0L);
+	}
+
+}
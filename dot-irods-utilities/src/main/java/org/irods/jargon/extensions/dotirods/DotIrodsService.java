@@ -5,7 +5,9 @@ import java.io.FilenameFilter;
 
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.irods.jargon.core.exception.FileNotFoundException;
 import org.irods.jargon.core.exception.JargonException;
@@ -100,6 +102,25 @@ public interface DotIrodsService {
 			final String irodsAbsolutePathToParentUnderWhichDotIrodsWillBeCreated)
 			throws JargonException;
 
+	/**
+	 * Create a subdirectory (such as metadataTemplates) under the given .irods
+	 * collection, creating the .irods collection too if needed. Creating
+	 * through this method, rather than directly, keeps any cached existence
+	 * checks current.
+	 * 
+	 * @param irodsAbsolutePathToDotIrods
+	 *            <code>String</code> absolute path to the .irods collection
+	 * @param subDir
+	 *            <code>String</code> with the subdirectory (relative to the
+	 *            .irods directory, no / needed)
+	 * @return <code>boolean</code> that is <code>true</code> if the
+	 *         subdirectory was created
+	 * @throws JargonException
+	 */
+	public abstract boolean createSubDirUnderDotIrods(
+			final String irodsAbsolutePathToDotIrods, final String subDir)
+			throws JargonException;
+
 	/**
 	 * Create a .irods collection in the user home dir if it does not exist, and
 	 * if it does exist just return it.
@@ -333,6 +354,45 @@ public interface DotIrodsService {
 			JargonException;
 
 
+	/**
+	 * Lists all* files (filtered by type) in the specified subdirectories of
+	 * .irods collections found in the hierarchy of parent folders above the
+	 * specified folder, listing each ancestor as a separate task on the given
+	 * <code>ExecutorService</code> so that the latency of a deep hierarchy is
+	 * that of the slowest ancestor rather than the sum of all of them.
+	 * <p/>
+	 * Results are merged leaf first, so the list and the handling of
+	 * <code>resolveConflicts</code> are the same as the sequential version.
+	 * Note that each pool thread obtains its own iRODS connection, which the
+	 * caller is responsible for closing when the pool is shut down.
+	 * 
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the absolute path to an IRODS
+	 *            collection
+	 * @param subDir
+	 *            <code>String</code> with the subdirectory (relative to the
+	 *            .irods directory, no / needed)
+	 * @param filter
+	 *            <code>FilenameFilter</code> a subclass of type FileFilter that
+	 *            returns TRUE if a given file should be considered a match
+	 * @param resolveConflicts
+	 *            <code>boolean</code> True if only one File should be returned
+	 *            for any given filename, False if all files should be returned
+	 * @param executorService
+	 *            <code>ExecutorService</code>, typically a bounded pool, that
+	 *            will list the ancestors
+	 * @return Array of File objects {@link IRODSFileImpl} found in the
+	 *         directory hierarchy's .irods collections
+	 * @throws FileNotFoundException
+	 *             if the specified directory does not exist
+	 * @throws JargonException
+	 */
+	public abstract File[] listFilesOfTypeInDirectoryHierarchyDotIrodsSubDir(
+			final String irodsAbsolutePath, final String subDir,
+			FilenameFilter filter, boolean resolveConflicts,
+			ExecutorService executorService) throws FileNotFoundException,
+			JargonException;
+
 	/**
 	 * TODO: add comment
 	 * @param irodsAbsolutePath
@@ -342,4 +402,118 @@ public interface DotIrodsService {
 	 */
 	public abstract List<String> listStringifiedFilesInDotIrodsCollection(
 			final String irodsAbsolutePath, final String dotIrodsSubdir) throws JargonException;
+
+	/**
+	 * Read the contents of every data object in the given .irods subdirectory,
+	 * using the given <code>ExecutorService</code> to read files concurrently.
+	 * The results are in file name order, regardless of the order in which
+	 * reads complete.
+	 * <p/>
+	 * <code>maxTotalBytes</code> bounds the bytes read across all files in the
+	 * call, so that a very large .irods collection cannot exhaust memory.
+	 * Subcollections of the .irods subdirectory are skipped. Note that each
+	 * pool thread obtains its own iRODS connection, which the caller is
+	 * responsible for closing when the pool is shut down.
+	 * 
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the absolute path to the .irods
+	 *            collection
+	 * @param dotIrodsSubdir
+	 *            <code>String</code> with the subdirectory (relative to the
+	 *            .irods directory, no / needed)
+	 * @param executorService
+	 *            <code>ExecutorService</code>, typically a bounded pool, that
+	 *            will read the files
+	 * @param maxTotalBytes
+	 *            <code>long</code> with the most bytes that may be read in
+	 *            total
+	 * @return <code>List</code> of <code>String</code> with file contents
+	 * @throws JargonException
+	 *             if a file cannot be read, or the byte budget is exceeded
+	 */
+	public abstract List<String> listStringifiedFilesInDotIrodsCollection(
+			final String irodsAbsolutePath, final String dotIrodsSubdir,
+			ExecutorService executorService, long maxTotalBytes)
+			throws JargonException;
+
+	/**
+	 * Lazily iterate the contents of the given .irods subdirectory, paging
+	 * through the catalog as the iterator is consumed rather than listing the
+	 * whole collection up front. As with <code>listFiles()</code>,
+	 * subcollections are returned before data objects.
+	 * <p/>
+	 * Errors while iterating are thrown as <code>JargonRuntimeException</code>
+	 * 
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the absolute path to the .irods
+	 *            collection
+	 * @param dotIrodsSubdir
+	 *            <code>String</code> with the subdirectory (relative to the
+	 *            .irods directory, no / needed)
+	 * @param filter
+	 *            <code>FilenameFilter</code> that returns TRUE if a given file
+	 *            should be considered a match, may be <code>null</code>
+	 * @return <code>Iterator</code> of File objects {@link IRODSFileImpl},
+	 *         subcollections then data objects, each in name order
+	 * @throws JargonException
+	 */
+	public abstract Iterator<File> iterateFilesInDotIrodsCollection(
+			final String irodsAbsolutePath, final String dotIrodsSubdir,
+			FilenameFilter filter) throws JargonException;
+
+	/**
+	 * Lazily iterate the contents of the data objects in the given .irods
+	 * subdirectory. Each file is only opened and read when the iterator
+	 * reaches it, so only one file's contents are held at a time.
+	 * <p/>
+	 * Errors while iterating are thrown as <code>JargonRuntimeException</code>
+	 * 
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the absolute path to the .irods
+	 *            collection
+	 * @param dotIrodsSubdir
+	 *            <code>String</code> with the subdirectory (relative to the
+	 *            .irods directory, no / needed)
+	 * @return <code>Iterator</code> of <code>String</code> with the file
+	 *         contents, in file name order
+	 * @throws JargonException
+	 */
+	public abstract Iterator<String> iterateStringifiedFilesInDotIrodsCollection(
+			final String irodsAbsolutePath, final String dotIrodsSubdir)
+			throws JargonException;
+
+	/**
+	 * Lazily iterate the files (filtered by type) in the .irods collections,
+	 * or the given subdirectory of them, found in the hierarchy of parent
+	 * folders above the specified folder, leaf first. Ancestors are only
+	 * queried as the iterator reaches them, so a caller looking for the first
+	 * match by name can stop without listing the whole hierarchy.
+	 * <p/>
+	 * The files returned, the end of the hierarchy at the first ancestor that
+	 * cannot be accessed, and the <code>resolveConflicts</code> flag are the
+	 * same as in <code>listFilesOfTypeInDirectoryHierarchyDotIrodsSubDir</code>. Errors
+	 * while iterating are thrown as <code>JargonRuntimeException</code>
+	 * 
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the absolute path to an IRODS
+	 *            collection
+	 * @param subDir
+	 *            <code>String</code> with the subdirectory (relative to the
+	 *            .irods directory, no / needed), may be <code>null</code> to
+	 *            iterate the .irods collections themselves
+	 * @param filter
+	 *            <code>FilenameFilter</code> that returns TRUE if a given file
+	 *            should be considered a match, may be <code>null</code>
+	 * @param resolveConflicts
+	 *            <code>boolean</code> True if only one File should be returned
+	 *            for any given filename, False if all files should be returned
+	 * @return <code>Iterator</code> of File objects {@link IRODSFileImpl}
+	 * @throws FileNotFoundException
+	 *             if the specified directory does not exist
+	 * @throws JargonException
+	 */
+	public abstract Iterator<File> iterateFilesInDirectoryHierarchyDotIrods(
+			final String irodsAbsolutePath, final String subDir,
+			FilenameFilter filter, boolean resolveConflicts)
+			throws FileNotFoundException, JargonException;
 }
\ No newline at end of file
@@ -5,9 +5,18 @@ package org.irods.jargon.extensions.dotirods;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.irods.jargon.core.connection.IRODSAccount;
 import org.irods.jargon.core.exception.FileNotFoundException;
@@ -36,6 +45,24 @@ public class DotIrodsServiceImpl extends AbstractJargonService implements
 
 	private final CollectionAO collectionAO;
 
+	/**
+	 * Resolve hierarchy listings with batched GenQueries over all ancestor
+	 * .irods collections rather than walking up one ancestor at a time
+	 */
+	private boolean batchedHierarchyQuery = false;
+
+	/**
+	 * Optional cache of .irods existence checks, <code>null</code> if every
+	 * check should go to iRODS
+	 */
+	private DotIrodsExistenceCache dotIrodsExistenceCache = null;
+
+	/**
+	 * Optional instrumentation, <code>null</code> if operations are not
+	 * measured
+	 */
+	private DotIrodsMetrics dotIrodsMetrics = null;
+
 	public static final Logger log = LoggerFactory
 			.getLogger(DotIrodsServiceImpl.class);
 
@@ -80,27 +107,83 @@ public class DotIrodsServiceImpl extends AbstractJargonService implements
 				.instanceIRODSFile(irodsAbsolutePath, dotIrodsSubdir);
 
 		List<String> stringifiedFiles = new ArrayList<String>();
-		String encoding = this.getIrodsAccessObjectFactory()
-				.getJargonProperties().getEncoding();
-		InputStream inputStream;
 		for (File vcFile : irodsFile.listFiles()) {
-			inputStream = this.getIrodsAccessObjectFactory()
-					.getIRODSFileFactory(getIrodsAccount())
-					.instanceIRODSFileInputStream((IRODSFile) vcFile);
-			try {
-				stringifiedFiles.add(MiscIRODSUtils.convertStreamToString(
-						inputStream, encoding));
-			} catch (Exception e) {
-				log.error("error stringifying file at:{}", vcFile, e);
-				throw new JargonException("unable to get file contents", e);
-			}
-
+			stringifiedFiles.add(stringifyFile(vcFile));
 		}
 
 		return stringifiedFiles;
 
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.irods.jargon.extensions.dotirods.DotIrodsService#
+	 * listStringifiedFilesInDotIrodsCollection(java.lang.String,
+	 * java.lang.String, java.util.concurrent.ExecutorService, long)
+	 */
+	@Override
+	public List<String> listStringifiedFilesInDotIrodsCollection(
+			final String irodsAbsolutePath, final String dotIrodsSubdir,
+			final ExecutorService executorService, final long maxTotalBytes)
+			throws JargonException {
+		log.info("listStringifiedFilesInDotIrodsCollection()");
+
+		if (executorService == null) {
+			throw new IllegalArgumentException("null executorService");
+		}
+
+		if (maxTotalBytes <= 0) {
+			throw new IllegalArgumentException("maxTotalBytes must be > 0");
+		}
+
+		log.info("maxTotalBytes:{}", maxTotalBytes);
+
+		// only data objects, as a subcollection cannot be read as a stream
+		Iterator<File> files = iterateDotIrodsCollection(irodsAbsolutePath,
+				dotIrodsSubdir, null, true);
+		final AtomicLong remainingBytes = new AtomicLong(maxTotalBytes);
+		List<Future<String>> futures = new ArrayList<Future<String>>();
+
+		try {
+			while (files.hasNext()) {
+				final File file = files.next();
+				futures.add(executorService.submit(new Callable<String>() {
+					@Override
+					public String call() throws JargonException {
+						return stringifyFile(file, remainingBytes);
+					}
+				}));
+			}
+
+			List<String> stringifiedFiles = new ArrayList<String>(
+					futures.size());
+			for (Future<String> future : futures) {
+				stringifiedFiles.add(future.get());
+			}
+
+			return stringifiedFiles;
+
+		} catch (JargonRuntimeException e) {
+			log.error("error listing files in .irods collection", e);
+			throw new JargonException("unable to list files", e);
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof JargonException) {
+				throw (JargonException) ee.getCause();
+			}
+			log.error("unexpected error getting file contents", ee);
+			throw new JargonException("unable to get file contents",
+					ee.getCause());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new JargonException("interrupted getting file contents", ie);
+		} finally {
+			for (Future<String> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -125,6 +208,7 @@ public class DotIrodsServiceImpl extends AbstractJargonService implements
 				.getIRODSFileFactory(getIrodsAccount())
 				.instanceIRODSFile(homeDirPath);
 		dotIrodsFile.mkdirs();
+		bumpExistenceCacheVersion();
 		log.info("created");
 
 	}
@@ -153,6 +237,7 @@ public class DotIrodsServiceImpl extends AbstractJargonService implements
 				.getIRODSFileFactory(getIrodsAccount())
 				.instanceIRODSFile(homeDirPath);
 		dotIrodsFile.deleteWithForceOption();
+		invalidateExistenceCache(homeDirPath);
 		log.info("deleted");
 
 	}
@@ -178,6 +263,7 @@ public class DotIrodsServiceImpl extends AbstractJargonService implements
 				.getIRODSFileFactory(getIrodsAccount())
 				.instanceIRODSFile(irodsAbsolutePath);
 		dotIrodsFile.deleteWithForceOption();
+		invalidateExistenceCache(irodsAbsolutePath);
 		log.info("deleted");
 	}
 
@@ -316,10 +402,45 @@ public class DotIrodsServiceImpl extends AbstractJargonService implements
 				.getIRODSFileFactory(getIrodsAccount())
 				.instanceIRODSFile(dotIrodsPath);
 		dotIrodsFile.mkdirs();
+		bumpExistenceCacheVersion();
 		log.info("created");
 
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.irods.jargon.extensions.dotirods.DotIrodsService#
+	 * createSubDirUnderDotIrods(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public boolean createSubDirUnderDotIrods(
+			final String irodsAbsolutePathToDotIrods, final String subDir)
+			throws JargonException {
+		log.info("createSubDirUnderDotIrods()");
+
+		if (irodsAbsolutePathToDotIrods == null
+				|| irodsAbsolutePathToDotIrods.isEmpty()) {
+			throw new IllegalArgumentException(
+					"null or empty irodsAbsolutePathToDotIrods");
+		}
+
+		if (subDir == null || subDir.isEmpty()) {
+			throw new IllegalArgumentException("null or empty subDir");
+		}
+
+		log.info("irodsAbsolutePathToDotIrods:{}", irodsAbsolutePathToDotIrods);
+		log.info("subDir:{}", subDir);
+
+		IRODSFile subDirFile = this.getIrodsAccessObjectFactory()
+				.getIRODSFileFactory(getIrodsAccount())
+				.instanceIRODSFile(irodsAbsolutePathToDotIrods, subDir);
+		boolean created = subDirFile.mkdirs();
+		bumpExistenceCacheVersion();
+		log.info("created:{}", created);
+		return created;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -329,7 +450,7 @@ public class DotIrodsServiceImpl extends AbstractJargonService implements
 	@Override
 	public boolean dotIrodsCollectionPresentInCollection(
 			final String irodsAbsolutePathToParent) throws JargonException {
-		log.info("dotIrodsCollectionPresentInCollection()");
+		log.debug("dotIrodsCollectionPresentInCollection()");
 
 		if (irodsAbsolutePathToParent == null
 				|| irodsAbsolutePathToParent.isEmpty()) {
@@ -337,33 +458,125 @@ public class DotIrodsServiceImpl extends AbstractJargonService implements
 					"null or empty irodsAbsolutePathToParent");
 		}
 
-		log.info("irodsAbsolutePath:{}", irodsAbsolutePathToParent);
+		log.debug("irodsAbsolutePath:{}", irodsAbsolutePathToParent);
+
+		String dotIrodsPath = computeDotIrodsPathUnderParent(irodsAbsolutePathToParent);
+
+		if (dotIrodsExistenceCache != null) {
+			Boolean cached = dotIrodsExistenceCache.lookup(getIrodsAccount(),
+					dotIrodsPath);
+			if (cached != null) {
+				log.debug("cached existence of {}:{}", dotIrodsPath, cached);
+				return cached;
+			}
+		}
+
+		long cacheVersion = dotIrodsExistenceCache == null ? 0L
+				: dotIrodsExistenceCache.currentVersion();
 
+		recordQuery();
 		@SuppressWarnings("unused")
 		Collection collection = collectionAO
 				.findByAbsolutePath(irodsAbsolutePathToParent);
 
-		log.info("{} exists", irodsAbsolutePathToParent);
+		log.debug("{} exists", irodsAbsolutePathToParent);
 
 		boolean retVal = true;
 
 		try {
-			@SuppressWarnings("unused")
-			IRODSFile userHomeAsFile = this
-					.getIrodsAccessObjectFactory()
+			IRODSFile dotIrodsFile = this.getIrodsAccessObjectFactory()
 					.getIRODSFileFactory(getIrodsAccount())
-					.instanceIRODSFile(
-							computeDotIrodsPathUnderParent(irodsAbsolutePathToParent));
+					.instanceIRODSFile(dotIrodsPath);
+			recordQuery();
+			retVal = dotIrodsFile.exists();
 		} catch (JargonException je) {
 			log.info(
 					"JargonException thrown by instanceIRODSFile, {} does not exist",
-					computeDotIrodsPathUnderParent(irodsAbsolutePathToParent));
+					dotIrodsPath);
 			retVal = false;
 		}
 
+		if (dotIrodsExistenceCache != null) {
+			dotIrodsExistenceCache.record(getIrodsAccount(), dotIrodsPath,
+					retVal, cacheVersion);
+		}
+
 		return retVal;
 	}
 
+	/**
+	 * Determine whether the given subdirectory exists under a .irods
+	 * collection, consulting and populating the existence cache if one is
+	 * configured
+	 * 
+	 * @param dotIrodsAbsolutePath
+	 *            <code>String</code> with the absolute path to the .irods
+	 *            collection
+	 * @param subDir
+	 *            <code>String</code> with the subdirectory, or
+	 *            <code>null</code> to check the .irods collection itself
+	 * @return <code>boolean</code> that is <code>true</code> if the
+	 *         subdirectory exists and is accessible
+	 */
+	boolean dotIrodsSubDirPresent(final String dotIrodsAbsolutePath,
+			final String subDir) {
+		String absPathToDir = dotIrodsAbsolutePath;
+		absPathToDir += (subDir == null || subDir.isEmpty()) ? ""
+				: ('/' + subDir);
+
+		if (dotIrodsExistenceCache != null) {
+			Boolean cached = dotIrodsExistenceCache.lookup(getIrodsAccount(),
+					absPathToDir);
+			if (cached != null) {
+				log.debug("cached existence of {}:{}", absPathToDir, cached);
+				return cached;
+			}
+		}
+
+		long cacheVersion = dotIrodsExistenceCache == null ? 0L
+				: dotIrodsExistenceCache.currentVersion();
+		boolean present = true;
+		try {
+			recordQuery();
+			@SuppressWarnings("unused")
+			Collection testCollection = collectionAO
+					.findByAbsolutePath(absPathToDir);
+		} catch (JargonException je) {
+			log.debug("Exception when trying to access subdir (does not exist or lack of permissions)");
+			present = false;
+		}
+
+		if (dotIrodsExistenceCache != null) {
+			dotIrodsExistenceCache.record(getIrodsAccount(), absPathToDir,
+					present, cacheVersion);
+		}
+
+		return present;
+	}
+
+	/**
+	 * Tell the existence cache, if configured, that the given path was
+	 * removed
+	 * 
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the path that changed
+	 */
+	private void invalidateExistenceCache(final String irodsAbsolutePath) {
+		if (dotIrodsExistenceCache != null) {
+			dotIrodsExistenceCache.invalidate(irodsAbsolutePath);
+		}
+	}
+
+	/**
+	 * Tell the existence cache, if configured, that a .irods collection or
+	 * subdirectory was created, so any cached negative answers are stale
+	 */
+	private void bumpExistenceCacheVersion() {
+		if (dotIrodsExistenceCache != null) {
+			dotIrodsExistenceCache.bumpVersion();
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -444,6 +657,8 @@ public class DotIrodsServiceImpl extends AbstractJargonService implements
 			throws FileNotFoundException, JargonException {
 		log.info("listFilesInDirectoryHierarchyDotIrods()");
 
+		long start = System.nanoTime();
+
 		if (irodsAbsolutePath == null || irodsAbsolutePath.isEmpty()) {
 			throw new IllegalArgumentException(
 					"null or empty irodsAbsolutePath");
@@ -451,118 +666,313 @@ public class DotIrodsServiceImpl extends AbstractJargonService implements
 
 		log.info("irodsAbsolutePath:{}", irodsAbsolutePath);
 
-		boolean useSubDir = true;
-		boolean useFilter = true;
-
-		if (subDir == null || subDir.isEmpty()) {
-			useSubDir = false;
-		}
-
-		if (filter == null) {
-			useFilter = false;
-		}
-
 		Collection collection = collectionAO
 				.findByAbsolutePath(irodsAbsolutePath);
 
 		log.info("{} exists", irodsAbsolutePath);
 
+		if (batchedHierarchyQuery) {
+			File[] files = listFilesInDirectoryHierarchyDotIrodsBatched(
+					collection.getAbsolutePath(), subDir, filter,
+					resolveConflicts);
+			recordOperation("listFilesInDirectoryHierarchyDotIrods", start);
+			return files;
+		}
+
 		IRODSFile parent = this.getIrodsAccessObjectFactory()
 				.getIRODSFileFactory(getIrodsAccount())
 				.instanceIRODSFile(collection.getAbsolutePath());
 
-
-		@SuppressWarnings("unused")
-		IRODSFile dotIrodsFile = null;
-
-		IRODSFile dirFile = null;
-		List<File> returnFileList = new ArrayList<File>();
+		DotIrodsHierarchyFileList returnFileList = new DotIrodsHierarchyFileList(
+				resolveConflicts);
 		File[] dirFileList;
 
 		while (parent != null) {
-			boolean dotIrodsCollectionPresent = false;
 			try {
-				dotIrodsCollectionPresent = this
-						.dotIrodsCollectionPresentInCollection(parent
-								.getAbsolutePath());
+				dirFileList = listFilesInDotIrodsDirOfCollection(
+						parent.getAbsolutePath(), subDir, filter);
 			} catch (JargonException je) {
 				log.info("Exception when trying to access parent (probably lack of permissions), ending recursion");
 				break;
 			}
 
-			if (dotIrodsCollectionPresent) {
-				String dotIrodsAbsPath = computeDotIrodsPathUnderParent(parent
-						.getAbsolutePath());
+			returnFileList.addAll(dirFileList);
 
-				log.info(".irods collection exists: {}", dotIrodsAbsPath);
+			log.debug("End of loop, continuing with parent collection {}",
+					parent.getParent());
 
-				dotIrodsFile = this.getIrodsAccessObjectFactory()
-						.getIRODSFileFactory(getIrodsAccount())
-						.instanceIRODSFile(dotIrodsAbsPath);
+			parent = (IRODSFile) parent.getParentFile();
+		}
 
-				String absPathToDir = dotIrodsAbsPath;
-				absPathToDir += useSubDir ? ('/' + subDir) : "";
+		recordOperation("listFilesInDirectoryHierarchyDotIrods", start);
+		return returnFileList.toArray();
+	}
 
-				try {
-					@SuppressWarnings("unused")
-					Collection testCollection = irodsAccessObjectFactory
-							.getCollectionAO(irodsAccount).findByAbsolutePath(
-									absPathToDir);
-
-				} catch (JargonException je) {
-					log.info("Exception when trying to access subdir (does not exist or lack of permissions) - continuing");
-					parent = (IRODSFile) parent.getParentFile();
-					continue;
-				}
+	/**
+	 * List the files in the .irods collection (or the given subdirectory of
+	 * it) directly under one collection in the hierarchy
+	 * 
+	 * @param irodsAbsolutePathToParent
+	 *            <code>String</code> with the collection that may contain a
+	 *            .irods collection
+	 * @param subDir
+	 *            <code>String</code> with an optional .irods subdirectory,
+	 *            may be <code>null</code> or empty
+	 * @param filter
+	 *            optional <code>FilenameFilter</code>, may be <code>null</code>
+	 * @return Array of File objects, empty if there is no .irods collection or
+	 *         subdirectory in the collection
+	 * @throws JargonException
+	 *             if the collection itself cannot be accessed, which ends the
+	 *             hierarchy
+	 */
+	private File[] listFilesInDotIrodsDirOfCollection(
+			final String irodsAbsolutePathToParent, final String subDir,
+			final FilenameFilter filter) throws JargonException {
+
+		if (!dotIrodsCollectionPresentInCollection(irodsAbsolutePathToParent)) {
+			log.debug("No .irods collection found in collection {}",
+					irodsAbsolutePathToParent);
+			return new File[0];
+		}
+
+		String dotIrodsAbsPath = computeDotIrodsPathUnderParent(irodsAbsolutePathToParent);
+		log.debug(".irods collection exists: {}", dotIrodsAbsPath);
+
+		boolean useSubDir = subDir != null && !subDir.isEmpty();
+		String absPathToDir = dotIrodsAbsPath;
+		absPathToDir += useSubDir ? ('/' + subDir) : "";
+
+		if (useSubDir && !dotIrodsSubDirPresent(dotIrodsAbsPath, subDir)) {
+			log.debug("subdir {} not present - continuing", absPathToDir);
+			return new File[0];
+		}
+
+		IRODSFile dirFile = this.getIrodsAccessObjectFactory()
+				.getIRODSFileFactory(getIrodsAccount())
+				.instanceIRODSFile(absPathToDir);
+
+		recordQuery();
+		if (filter != null) {
+			return dirFile.listFiles(filter);
+		} else {
+			return dirFile.listFiles();
+		}
+	}
+
+	/**
+	 * Variant of the hierarchy listing that computes every candidate
+	 * <code>ancestor/.irods/subDir</code> path up front and resolves them all
+	 * with batched GenQueries, rather than querying each ancestor in turn.
+	 * <p/>
+	 * As in the walk, the hierarchy ends at the first ancestor that cannot be
+	 * accessed, and nothing from it or any collection above it is included.
+	 * 
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the absolute path to the leaf
+	 *            collection, which must already be known to exist
+	 * @param subDir
+	 *            <code>String</code> with an optional .irods subdirectory
+	 * @param filter
+	 *            optional <code>FilenameFilter</code>
+	 * @param resolveConflicts
+	 *            <code>boolean</code> indicating whether files of the same
+	 *            name higher in the hierarchy are dropped
+	 * @return Array of File objects found in the hierarchy, leaf first
+	 * @throws JargonException
+	 */
+	File[] listFilesInDirectoryHierarchyDotIrodsBatched(
+			final String irodsAbsolutePath, final String subDir,
+			final FilenameFilter filter, final boolean resolveConflicts)
+			throws JargonException {
+		log.info("listFilesInDirectoryHierarchyDotIrodsBatched()");
+
+		DotIrodsHierarchyQuery hierarchyQuery = new DotIrodsHierarchyQuery(
+				getIrodsAccessObjectFactory(), getIrodsAccount(),
+				dotIrodsMetrics);
 
-				dirFile = this.getIrodsAccessObjectFactory()
-						.getIRODSFileFactory(getIrodsAccount())
-						.instanceIRODSFile(absPathToDir);
+		List<String> ancestors = DotIrodsHierarchyQuery
+				.computeAncestorPaths(irodsAbsolutePath);
+		Set<String> accessible = hierarchyQuery
+				.findAccessibleCollections(ancestors);
 
-				if (useFilter) {
-					dirFileList = dirFile.listFiles(filter);
-				} else {
-					dirFileList = dirFile.listFiles();
+		List<String> candidateDirs = new ArrayList<String>();
+		for (String ancestor : ancestors) {
+			if (!accessible.contains(ancestor)) {
+				log.info("{} cannot be accessed, ending hierarchy", ancestor);
+				break;
+			}
+			candidateDirs.add(DotIrodsHierarchyQuery
+					.computeDotIrodsDirUnderParent(ancestor, subDir));
+		}
+
+		Map<String, List<File>> filesByDir = hierarchyQuery
+				.listFilesInCollections(candidateDirs, filter);
+
+		DotIrodsHierarchyFileList returnFileList = new DotIrodsHierarchyFileList(
+				resolveConflicts);
+		for (List<File> dirFiles : filesByDir.values()) {
+			returnFileList.addAll(dirFiles.toArray(new File[dirFiles.size()]));
+		}
+
+		return returnFileList.toArray();
+	}
+
+	/**
+	 * Variant of the hierarchy listing that lists each ancestor's .irods
+	 * collection (or subdirectory) as a separate task on the given executor,
+	 * then merges the results leaf first, exactly as the sequential walk does.
+	 * <p/>
+	 * As in the walk, an ancestor that cannot be accessed ends the hierarchy,
+	 * and nothing from it or any collection above it is included.
+	 * 
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the absolute path to the leaf
+	 *            collection, which must already be known to exist
+	 * @param subDir
+	 *            <code>String</code> with an optional .irods subdirectory
+	 * @param filter
+	 *            optional <code>FilenameFilter</code>
+	 * @param resolveConflicts
+	 *            <code>boolean</code> indicating whether files of the same
+	 *            name higher in the hierarchy are dropped
+	 * @param executorService
+	 *            <code>ExecutorService</code> that will run one task per
+	 *            ancestor
+	 * @return Array of File objects found in the hierarchy, leaf first
+	 * @throws JargonException
+	 */
+	File[] listFilesInDirectoryHierarchyDotIrodsConcurrently(
+			final String irodsAbsolutePath, final String subDir,
+			final FilenameFilter filter, final boolean resolveConflicts,
+			final ExecutorService executorService) throws JargonException {
+		log.info("listFilesInDirectoryHierarchyDotIrodsConcurrently()");
+
+		List<Future<File[]>> futures = new ArrayList<Future<File[]>>();
+		for (final String ancestor : DotIrodsHierarchyQuery
+				.computeAncestorPaths(irodsAbsolutePath)) {
+			futures.add(executorService.submit(new Callable<File[]>() {
+				@Override
+				public File[] call() throws JargonException {
+					return listFilesInDotIrodsDirOfCollection(ancestor,
+							subDir, filter);
 				}
+			}));
+		}
+
+		DotIrodsHierarchyFileList returnFileList = new DotIrodsHierarchyFileList(
+				resolveConflicts);
 
-				for (File f : dirFileList) {
-					if (resolveConflicts) {
-						// Check if there is already a file with the same name
-						// in the list
-						// Since we start with the leaf and work up, higher
-						// priority will be placed in the list first
-						boolean nameConflict = false;
-						for (File test : returnFileList) {
-							if (f.getName().compareTo(test.getName()) == 0) {
-								log.info(
-										"Name collision with {},\n {} not added to file list",
-										test.getPath(), f.getPath());
-								nameConflict = true;
-								break;
-							}
-						}
-
-						if (!nameConflict) {
-							log.info("{} added to file list", f.getPath());
-							returnFileList.add(f);
-						}
-					} else {
-						log.info("{} added to file list", f.getPath());
-						returnFileList.add(f);
+		try {
+			for (Future<File[]> future : futures) {
+				File[] dirFileList;
+				try {
+					dirFileList = future.get();
+				} catch (ExecutionException ee) {
+					if (ee.getCause() instanceof JargonException) {
+						log.info("Exception when trying to access parent (probably lack of permissions), ending hierarchy");
+						break;
 					}
+					log.error("unexpected error listing .irods hierarchy", ee);
+					throw new JargonException(
+							"error listing .irods hierarchy", ee.getCause());
 				}
-			} else {
-				log.info("No .irods collection found in collection {}",
-						parent.getAbsolutePath());
+
+				returnFileList.addAll(dirFileList);
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new JargonException(
+					"interrupted listing .irods hierarchy", ie);
+		} finally {
+			for (Future<File[]> future : futures) {
+				future.cancel(true);
 			}
+		}
 
-			log.info("End of loop, continuing with parent collection {}",
-					parent.getParent());
+		return returnFileList.toArray();
+	}
 
-			parent = (IRODSFile) parent.getParentFile();
+	/**
+	 * @return <code>boolean</code> indicating whether hierarchy listings are
+	 *         resolved with batched GenQueries rather than a per-ancestor walk
+	 */
+	public boolean isBatchedHierarchyQuery() {
+		return batchedHierarchyQuery;
+	}
+
+	/**
+	 * @param batchedHierarchyQuery
+	 *            <code>boolean</code> that, if <code>true</code>, resolves
+	 *            hierarchy listings with batched GenQueries over all ancestor
+	 *            .irods collections rather than a per-ancestor walk
+	 */
+	public void setBatchedHierarchyQuery(final boolean batchedHierarchyQuery) {
+		this.batchedHierarchyQuery = batchedHierarchyQuery;
+	}
+
+	/**
+	 * @return the {@link DotIrodsExistenceCache}, or <code>null</code> if
+	 *         existence checks are not cached
+	 */
+	public DotIrodsExistenceCache getDotIrodsExistenceCache() {
+		return dotIrodsExistenceCache;
+	}
+
+	/**
+	 * @param dotIrodsExistenceCache
+	 *            {@link DotIrodsExistenceCache} used to remember whether .irods
+	 *            collections and their subdirectories exist. This is typically
+	 *            a single instance shared by all services. May be
+	 *            <code>null</code> to disable caching.
+	 */
+	public void setDotIrodsExistenceCache(
+			final DotIrodsExistenceCache dotIrodsExistenceCache) {
+		this.dotIrodsExistenceCache = dotIrodsExistenceCache;
+	}
+
+	/**
+	 * @return the {@link DotIrodsMetrics}, or <code>null</code> if operations
+	 *         are not measured
+	 */
+	public DotIrodsMetrics getDotIrodsMetrics() {
+		return dotIrodsMetrics;
+	}
+
+	/**
+	 * @param dotIrodsMetrics
+	 *            {@link DotIrodsMetrics} that records operation times, queries
+	 *            and bytes read. This is typically a single instance shared by
+	 *            all services. May be <code>null</code> to disable
+	 *            instrumentation.
+	 */
+	public void setDotIrodsMetrics(final DotIrodsMetrics dotIrodsMetrics) {
+		this.dotIrodsMetrics = dotIrodsMetrics;
+	}
+
+	/**
+	 * Tell the instrumentation, if configured, that an operation finished
+	 * 
+	 * @param operation
+	 *            <code>String</code> with the operation name
+	 * @param start
+	 *            <code>long</code> with the <code>System.nanoTime()</code> at
+	 *            which it started
+	 */
+	private void recordOperation(final String operation, final long start) {
+		if (dotIrodsMetrics != null) {
+			dotIrodsMetrics.recordOperation(operation, System.nanoTime()
+					- start);
 		}
+	}
 
-		return returnFileList.toArray(new File[0]);
+	/**
+	 * Tell the instrumentation, if configured, that a query is being sent
+	 */
+	private void recordQuery() {
+		if (dotIrodsMetrics != null) {
+			dotIrodsMetrics.recordQuery();
+		}
 	}
 
 	/*
@@ -718,4 +1128,212 @@ public class DotIrodsServiceImpl extends AbstractJargonService implements
 		return listFilesInDirectoryHierarchyDotIrods(irodsAbsolutePath, subDir, filter, true);
 
 	}
-}
\ No newline at end of file
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.irods.jargon.extensions.dotirods.DotIrodsService#
+	 * listFilesOfTypeInDirectoryHierarchyDotIrodsSubDir (java.lang.String,
+	 * java.lang.String, java.io.FilenameFilter, boolean,
+	 * java.util.concurrent.ExecutorService)
+	 */
+	@Override
+	public File[] listFilesOfTypeInDirectoryHierarchyDotIrodsSubDir(
+			final String irodsAbsolutePath, final String subDir,
+			final FilenameFilter filter, final boolean resolveConflicts,
+			final ExecutorService executorService)
+			throws FileNotFoundException, JargonException {
+
+		log.info("listFilesOfTypeInDirectoryHierarchyDotIrodsSubDir()");
+
+		if (irodsAbsolutePath == null || irodsAbsolutePath.isEmpty()) {
+			throw new IllegalArgumentException(
+					"null or empty irodsAbsolutePath");
+		}
+
+		if (subDir == null || subDir.isEmpty()) {
+			throw new IllegalArgumentException(
+					"null or empty subDir - if this is intentional, use listFilesOfTypeInDirectoryHierarchyDotIrods() instead");
+		}
+
+		if (filter == null) {
+			throw new IllegalArgumentException("null filter");
+		}
+
+		if (executorService == null) {
+			throw new IllegalArgumentException("null executorService");
+		}
+
+		log.info("irodsAbsolutePath:{}", irodsAbsolutePath);
+		log.info("subDir:{}", subDir);
+
+		Collection collection = collectionAO
+				.findByAbsolutePath(irodsAbsolutePath);
+
+		log.info("{} exists", irodsAbsolutePath);
+
+		long start = System.nanoTime();
+		File[] files = listFilesInDirectoryHierarchyDotIrodsConcurrently(
+				collection.getAbsolutePath(), subDir, filter,
+				resolveConflicts, executorService);
+		recordOperation("listFilesInDirectoryHierarchyDotIrodsConcurrently",
+				start);
+		return files;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.irods.jargon.extensions.dotirods.DotIrodsService#
+	 * iterateFilesInDotIrodsCollection(java.lang.String, java.lang.String,
+	 * java.io.FilenameFilter)
+	 */
+	@Override
+	public Iterator<File> iterateFilesInDotIrodsCollection(
+			final String irodsAbsolutePath, final String dotIrodsSubdir,
+			final FilenameFilter filter) throws JargonException {
+		log.info("iterateFilesInDotIrodsCollection()");
+		return iterateDotIrodsCollection(irodsAbsolutePath, dotIrodsSubdir,
+				filter, false);
+	}
+
+	private Iterator<File> iterateDotIrodsCollection(
+			final String irodsAbsolutePath, final String dotIrodsSubdir,
+			final FilenameFilter filter, final boolean dataObjectsOnly) {
+		if (irodsAbsolutePath == null || irodsAbsolutePath.isEmpty()) {
+			throw new IllegalArgumentException(
+					"null or empty irodsAbsolutePath");
+		}
+
+		if (dotIrodsSubdir == null || dotIrodsSubdir.isEmpty()) {
+			throw new IllegalArgumentException("null or empty dotIrodsSubdir");
+		}
+
+		log.info("irodsAbsolutePath:{}", irodsAbsolutePath);
+		log.info("dotIrodsSubdir:{}", dotIrodsSubdir);
+
+		return new DotIrodsCollectionFileIterator(
+				getIrodsAccessObjectFactory(), getIrodsAccount(),
+				irodsAbsolutePath + "/" + dotIrodsSubdir, filter,
+				dataObjectsOnly, dotIrodsMetrics);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.irods.jargon.extensions.dotirods.DotIrodsService#
+	 * iterateStringifiedFilesInDotIrodsCollection(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public Iterator<String> iterateStringifiedFilesInDotIrodsCollection(
+			final String irodsAbsolutePath, final String dotIrodsSubdir)
+			throws JargonException {
+		log.info("iterateStringifiedFilesInDotIrodsCollection()");
+
+		final Iterator<File> files = iterateFilesInDotIrodsCollection(
+				irodsAbsolutePath, dotIrodsSubdir, null);
+
+		return new Iterator<String>() {
+
+			@Override
+			public boolean hasNext() {
+				return files.hasNext();
+			}
+
+			@Override
+			public String next() {
+				File file = files.next();
+				try {
+					return stringifyFile(file);
+				} catch (JargonException e) {
+					throw new JargonRuntimeException(
+							"unable to get file contents", e);
+				}
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("remove not supported");
+			}
+		};
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.irods.jargon.extensions.dotirods.DotIrodsService#
+	 * iterateFilesInDirectoryHierarchyDotIrods(java.lang.String,
+	 * java.lang.String, java.io.FilenameFilter, boolean)
+	 */
+	@Override
+	public Iterator<File> iterateFilesInDirectoryHierarchyDotIrods(
+			final String irodsAbsolutePath, final String subDir,
+			final FilenameFilter filter, final boolean resolveConflicts)
+			throws FileNotFoundException, JargonException {
+		log.info("iterateFilesInDirectoryHierarchyDotIrods()");
+
+		if (irodsAbsolutePath == null || irodsAbsolutePath.isEmpty()) {
+			throw new IllegalArgumentException(
+					"null or empty irodsAbsolutePath");
+		}
+
+		log.info("irodsAbsolutePath:{}", irodsAbsolutePath);
+		log.info("subDir:{}", subDir);
+
+		Collection collection = collectionAO
+				.findByAbsolutePath(irodsAbsolutePath);
+
+		return new DotIrodsHierarchyFileIterator(getIrodsAccessObjectFactory(),
+				getIrodsAccount(), collection.getAbsolutePath(), subDir,
+				filter, resolveConflicts, dotIrodsMetrics);
+	}
+
+	/**
+	 * Read the contents of a file as a <code>String</code> in the configured
+	 * encoding, closing the stream when done
+	 * 
+	 * @param file
+	 *            <code>File</code>, which must be an <code>IRODSFile</code>
+	 * @return <code>String</code> with the file contents
+	 * @throws JargonException
+	 */
+	String stringifyFile(final File file) throws JargonException {
+		return stringifyFile(file, null);
+	}
+
+	/**
+	 * Read the contents of a file as a <code>String</code> in the configured
+	 * encoding, closing the stream when done
+	 * 
+	 * @param file
+	 *            <code>File</code>, which must be an <code>IRODSFile</code>
+	 * @param remainingBytes
+	 *            <code>AtomicLong</code> with the bytes that may still be read,
+	 *            shared by every file in the call and decremented as this
+	 *            file is read, or <code>null</code> for no limit
+	 * @return <code>String</code> with the file contents
+	 * @throws JargonException
+	 *             if the file cannot be read, or reading it would exceed
+	 *             <code>remainingBytes</code>
+	 */
+	String stringifyFile(final File file, final AtomicLong remainingBytes)
+			throws JargonException {
+		long start = System.nanoTime();
+
+		String encoding = this.getIrodsAccessObjectFactory()
+				.getJargonProperties().getEncoding();
+		InputStream inputStream = this.getIrodsAccessObjectFactory()
+				.getIRODSFileFactory(getIrodsAccount())
+				.instanceIRODSFileInputStream((IRODSFile) file);
+		try {
+			String contents = DotIrodsFileReader.readFully(inputStream,
+					encoding, remainingBytes, dotIrodsMetrics);
+			recordOperation("stringifyFile", start);
+			return contents;
+		} catch (IOException e) {
+			log.error("error stringifying file at:{}", file, e);
+			throw new JargonException("unable to get file contents", e);
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package org.irods.jargon.extensions.dotirods;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DotIrodsExistenceCacheImplTest {
+
+	private static class SettableClockCache extends DotIrodsExistenceCacheImpl {
+		private long now = 1000L;
+
+		SettableClockCache(final int maxEntries, final long ttlMillis) {
+			super(maxEntries, ttlMillis);
+		}
+
+		SettableClockCache(final int maxEntries, final long ttlMillis,
+				final long negativeTtlMillis) {
+			super(maxEntries, ttlMillis, negativeTtlMillis);
+		}
+
+		@Override
+		long currentTimeMillis() {
+			return now;
+		}
+	}
+
+	private static IRODSAccount buildAccount(final String userName)
+			throws Exception {
+		return IRODSAccount.instance("host", 1247, userName, "password",
+				"/zone/home/" + userName, "zone", "");
+	}
+
+	@Test
+	public void testRecordAndLookupPositiveAndNegative() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		DotIrodsExistenceCacheImpl cache = new DotIrodsExistenceCacheImpl();
+		cache.record(irodsAccount, "/zone/home/test1/.irods", true,
+				cache.currentVersion());
+		cache.record(irodsAccount, "/zone/home/test1/a/.irods", false,
+				cache.currentVersion());
+		Assert.assertEquals(Boolean.TRUE,
+				cache.lookup(irodsAccount, "/zone/home/test1/.irods"));
+		Assert.assertEquals(Boolean.FALSE,
+				cache.lookup(irodsAccount, "/zone/home/test1/a/.irods"));
+		Assert.assertNull(cache.lookup(irodsAccount, "/zone/home/test1/b/.irods"));
+	}
+
+	@Test
+	public void testLookupIsPerAccount() throws Exception {
+		DotIrodsExistenceCacheImpl cache = new DotIrodsExistenceCacheImpl();
+		cache.record(buildAccount("test1"), "/zone/home/.irods", true,
+				cache.currentVersion());
+		Assert.assertNull("answer leaked to another user",
+				cache.lookup(buildAccount("test2"), "/zone/home/.irods"));
+	}
+
+	@Test
+	public void testEntryExpires() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		SettableClockCache cache = new SettableClockCache(10, 100L);
+		cache.record(irodsAccount, "/zone/home/test1/.irods", true,
+				cache.currentVersion());
+		cache.now += 99L;
+		Assert.assertEquals(Boolean.TRUE,
+				cache.lookup(irodsAccount, "/zone/home/test1/.irods"));
+		cache.now += 1L;
+		Assert.assertNull(cache.lookup(irodsAccount, "/zone/home/test1/.irods"));
+	}
+
+	@Test
+	public void testSizeBounded() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		DotIrodsExistenceCacheImpl cache = new DotIrodsExistenceCacheImpl(2,
+				60000L);
+		cache.record(irodsAccount, "/a/.irods", true,
+				cache.currentVersion());
+		cache.record(irodsAccount, "/b/.irods", true,
+				cache.currentVersion());
+		cache.lookup(irodsAccount, "/a/.irods");
+		cache.record(irodsAccount, "/c/.irods", true,
+				cache.currentVersion());
+		Assert.assertEquals(2, cache.size());
+		Assert.assertNull("least recently used entry not evicted",
+				cache.lookup(irodsAccount, "/b/.irods"));
+		Assert.assertNotNull(cache.lookup(irodsAccount, "/a/.irods"));
+	}
+
+	@Test
+	public void testInvalidateRemovesPathAndChildren() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		DotIrodsExistenceCacheImpl cache = new DotIrodsExistenceCacheImpl();
+		cache.record(irodsAccount, "/a/.irods", false,
+				cache.currentVersion());
+		cache.record(irodsAccount, "/a/.irods/metadataTemplates", false,
+				cache.currentVersion());
+		cache.record(buildAccount("test2"), "/a/.irods", false,
+				cache.currentVersion());
+		cache.record(irodsAccount, "/a/.irodsother", false,
+				cache.currentVersion());
+		cache.invalidate("/a/.irods");
+		Assert.assertNull(cache.lookup(irodsAccount, "/a/.irods"));
+		Assert.assertNull(cache.lookup(irodsAccount,
+				"/a/.irods/metadataTemplates"));
+		Assert.assertNull(cache.lookup(buildAccount("test2"), "/a/.irods"));
+		Assert.assertNotNull("sibling with common prefix invalidated",
+				cache.lookup(irodsAccount, "/a/.irodsother"));
+	}
+
+	@Test
+	public void testNegativeEntryUsesShorterTtl() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		SettableClockCache cache = new SettableClockCache(10, 1000L, 100L);
+		cache.record(irodsAccount, "/a/.irods", true,
+				cache.currentVersion());
+		cache.record(irodsAccount, "/a/.irods/metadataTemplates", false,
+				cache.currentVersion());
+		cache.now += 100L;
+		Assert.assertNull("negative entry should have expired",
+				cache.lookup(irodsAccount, "/a/.irods/metadataTemplates"));
+		Assert.assertEquals(Boolean.TRUE,
+				cache.lookup(irodsAccount, "/a/.irods"));
+	}
+
+	@Test
+	public void testBumpVersionDiscardsOnlyNegativeEntries() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		DotIrodsExistenceCacheImpl cache = new DotIrodsExistenceCacheImpl();
+		cache.record(irodsAccount, "/a/.irods", true,
+				cache.currentVersion());
+		cache.record(irodsAccount, "/a/.irods/metadataTemplates", false,
+				cache.currentVersion());
+		cache.bumpVersion();
+		Assert.assertNull("negative entry survived version bump",
+				cache.lookup(irodsAccount, "/a/.irods/metadataTemplates"));
+		Assert.assertEquals(Boolean.TRUE,
+				cache.lookup(irodsAccount, "/a/.irods"));
+		cache.record(irodsAccount, "/a/.irods/metadataTemplates", false,
+				cache.currentVersion());
+		Assert.assertEquals("negative entry recorded after bump should hold",
+				Boolean.FALSE,
+				cache.lookup(irodsAccount, "/a/.irods/metadataTemplates"));
+	}
+
+	@Test
+	public void testAnswerObtainedAcrossVersionBumpNotRecorded()
+			throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		DotIrodsExistenceCacheImpl cache = new DotIrodsExistenceCacheImpl();
+		// a lookup misses and takes the version before querying iRODS...
+		long version = cache.currentVersion();
+		// ...another thread creates the subdirectory and bumps the version...
+		cache.bumpVersion();
+		// ...and the now stale negative answer arrives
+		cache.record(irodsAccount, "/a/.irods/metadataTemplates", false,
+				version);
+		Assert.assertNull("stale negative answer recorded",
+				cache.lookup(irodsAccount, "/a/.irods/metadataTemplates"));
+		Assert.assertEquals(0, cache.size());
+	}
+
+}
@@ -0,0 +1,110 @@
+package org.irods.jargon.extensions.dotirods;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class DotIrodsFileReaderTest {
+
+	/**
+	 * Stream that hands back at most a few bytes per read, as a network
+	 * stream may, and remembers whether it was closed
+	 */
+	private static class ShortReadInputStream extends ByteArrayInputStream {
+		private boolean closed = false;
+
+		ShortReadInputStream(final byte[] contents) {
+			super(contents);
+		}
+
+		@Override
+		public synchronized int read(final byte[] b, final int off,
+				final int len) {
+			return super.read(b, off, Math.min(len, 3));
+		}
+
+		@Override
+		public int read(final byte[] b) {
+			return read(b, 0, b.length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+			super.close();
+		}
+	}
+
+	@Test
+	public void testReadFullyLoopsOnShortReads() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < DotIrodsFileReader.READ_BUFFER_SIZE / 4; i++) {
+			sb.append("abc\u00e9");
+		}
+		String expected = sb.toString();
+		ShortReadInputStream inputStream = new ShortReadInputStream(
+				expected.getBytes("UTF-8"));
+
+		String actual = DotIrodsFileReader.readFully(inputStream, "UTF-8",
+				null);
+
+		Assert.assertEquals(expected, actual);
+		Assert.assertTrue("stream not closed", inputStream.closed);
+	}
+
+	@Test
+	public void testReadFullyOverBudgetClosesStream() throws Exception {
+		ShortReadInputStream inputStream = new ShortReadInputStream(
+				"0123456789".getBytes("UTF-8"));
+
+		try {
+			DotIrodsFileReader.readFully(inputStream, "UTF-8", new AtomicLong(
+					5L));
+			Assert.fail("byte budget should have been exceeded");
+		} catch (IOException e) {
+			// expected
+		}
+
+		Assert.assertTrue("stream not closed", inputStream.closed);
+	}
+
+	@Test
+	public void testReadJsonFromStream() throws Exception {
+		ShortReadInputStream inputStream = new ShortReadInputStream(
+				"{\"name\":\"vc1\",\"description\":\"a \\u00e9 vc\"}"
+						.getBytes("UTF-8"));
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> actual = DotIrodsFileReader.readJson(inputStream,
+				new ObjectMapper(), Map.class);
+
+		Assert.assertEquals("vc1", actual.get("name"));
+		Assert.assertEquals("a \u00e9 vc", actual.get("description"));
+		Assert.assertTrue("stream not closed", inputStream.closed);
+	}
+
+	@Test
+	public void testReadJsonInvalidClosesStream() throws Exception {
+		InputStream inputStream = new ShortReadInputStream(
+				"{\"name\":".getBytes("UTF-8"));
+
+		try {
+			DotIrodsFileReader.readJson(inputStream, new ObjectMapper(),
+					Map.class);
+			Assert.fail("invalid JSON should not parse");
+		} catch (IOException e) {
+			// expected
+		}
+
+		Assert.assertTrue("stream not closed",
+				((ShortReadInputStream) inputStream).closed);
+	}
+
+}
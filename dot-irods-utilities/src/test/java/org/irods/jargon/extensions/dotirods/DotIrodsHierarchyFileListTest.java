@@ -0,0 +1,98 @@
+package org.irods.jargon.extensions.dotirods;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DotIrodsHierarchyFileListTest {
+
+	/**
+	 * Counts the name lookups made by conflict resolution
+	 */
+	private static class NameCountingFile extends File {
+		private static final long serialVersionUID = 1L;
+		private final int[] nameCalls;
+
+		NameCountingFile(final String pathname, final int[] nameCalls) {
+			super(pathname);
+			this.nameCalls = nameCalls;
+		}
+
+		@Override
+		public String getName() {
+			nameCalls[0]++;
+			return super.getName();
+		}
+	}
+
+	@Test
+	public void testLeafWinsWhenResolvingConflicts() throws Exception {
+		DotIrodsHierarchyFileList fileList = new DotIrodsHierarchyFileList(true);
+		fileList.addAll(new File[] { new File("/zone/a/b/.irods/x.mdtemplate") });
+		fileList.addAll(new File[] { new File("/zone/a/.irods/x.mdtemplate"),
+				new File("/zone/a/.irods/y.mdtemplate") });
+		File[] actual = fileList.toArray();
+		Assert.assertEquals(2, actual.length);
+		Assert.assertEquals("/zone/a/b/.irods/x.mdtemplate", actual[0].getPath());
+		Assert.assertEquals("/zone/a/.irods/y.mdtemplate", actual[1].getPath());
+	}
+
+	@Test
+	public void testKeepsDuplicatesWhenNotResolvingConflicts()
+			throws Exception {
+		DotIrodsHierarchyFileList fileList = new DotIrodsHierarchyFileList(
+				false);
+		fileList.addAll(new File[] { new File("/zone/a/b/.irods/x.mdtemplate") });
+		fileList.addAll(new File[] { new File("/zone/a/.irods/x.mdtemplate") });
+		Assert.assertEquals(2, fileList.size());
+	}
+
+	@Test
+	public void testAddAllNullIgnored() throws Exception {
+		DotIrodsHierarchyFileList fileList = new DotIrodsHierarchyFileList(true);
+		fileList.addAll(null);
+		Assert.assertEquals(0, fileList.toArray().length);
+	}
+
+	/**
+	 * 10k files spread over a 100 deep hierarchy, with every name repeated at
+	 * each level, should keep only the leaf copies, in leaf order. Conflict
+	 * resolution should look at each added file's name a fixed number of
+	 * times, rather than comparing it with every file kept so far.
+	 */
+	@Test
+	public void testLargeDeepHierarchy() throws Exception {
+		int depth = 100;
+		int filesPerLevel = 100;
+		DotIrodsHierarchyFileList fileList = new DotIrodsHierarchyFileList(true);
+		int[] nameCalls = new int[1];
+
+		StringBuilder path = new StringBuilder("/zone");
+		for (int level = 0; level < depth; level++) {
+			path.append("/c");
+		}
+		String leafPath = path.toString();
+
+		for (int level = 0; level < depth; level++) {
+			File[] dirFileList = new File[filesPerLevel];
+			for (int i = 0; i < filesPerLevel; i++) {
+				dirFileList[i] = new NameCountingFile(path + "/.irods/t" + i
+						+ ".mdtemplate", nameCalls);
+			}
+			fileList.addAll(dirFileList);
+			path.setLength(path.length() - 2);
+		}
+
+		Assert.assertTrue("name lookups grew faster than the files added:"
+				+ nameCalls[0], nameCalls[0] <= 2 * depth * filesPerLevel);
+
+		File[] actual = fileList.toArray();
+		Assert.assertEquals(filesPerLevel, actual.length);
+		for (int i = 0; i < filesPerLevel; i++) {
+			Assert.assertEquals("leaf copy should be kept", leafPath
+					+ "/.irods/t" + i + ".mdtemplate", actual[i].getPath());
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+package org.irods.jargon.extensions.dotirods;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DotIrodsMetricsImplTest {
+
+	@Test
+	public void testRecordOperationTotals() {
+		DotIrodsMetricsImpl metrics = new DotIrodsMetricsImpl();
+		metrics.recordOperation("op", 1000L);
+		metrics.recordOperation("op", 2000L);
+		metrics.recordOperation("other", 5L);
+
+		Assert.assertEquals(2L, metrics.getOperationCount("op"));
+		Assert.assertEquals(3000L, metrics.getOperationNanos("op"));
+		Assert.assertEquals(1L, metrics.getOperationCount("other"));
+		Assert.assertEquals(0L, metrics.getOperationCount("unknown"));
+	}
+
+	@Test
+	public void testQueriesAndBytesAndReset() throws Exception {
+		DotIrodsMetricsImpl metrics = new DotIrodsMetricsImpl();
+		metrics.recordQuery();
+		metrics.recordQuery();
+		DotIrodsFileReader.readFully(new ByteArrayInputStream("hello"
+				.getBytes("UTF-8")), "UTF-8", null, metrics);
+
+		Assert.assertEquals(2L, metrics.getQueryCount());
+		Assert.assertEquals("bytes read by the reader not recorded", 5L,
+				metrics.getBytesRead());
+
+		metrics.reset();
+		Assert.assertEquals(0L, metrics.getQueryCount());
+		Assert.assertEquals(0L, metrics.getBytesRead());
+	}
+
+}
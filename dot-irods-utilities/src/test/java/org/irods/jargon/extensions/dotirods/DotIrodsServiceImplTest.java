@@ -1,11 +1,19 @@
 package org.irods.jargon.extensions.dotirods;
 
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Assert;
 
 import org.irods.jargon.core.connection.IRODSAccount;
 import org.irods.jargon.core.exception.FileNotFoundException;
+import org.irods.jargon.core.exception.JargonException;
 import org.irods.jargon.core.pub.IRODSFileSystem;
 import org.irods.jargon.core.pub.io.IRODSFile;
 import org.irods.jargon.core.utils.MiscIRODSUtils;
@@ -200,4 +208,298 @@ public class DotIrodsServiceImplTest {
 
 	}
 
+	@Test
+	public void listFilesInDirectoryHierarchyDotIrodsBatchedMatchesWalk()
+			throws Exception {
+
+		String testSubdir = "listFilesInDirectoryHierarchyDotIrodsBatchedMatchesWalk";
+		String targetIrodsCollection = testingPropertiesHelper
+				.buildIRODSCollectionAbsolutePathFromTestProperties(
+						testingProperties, IRODS_TEST_SUBDIR_PATH + '/'
+								+ testSubdir);
+		String leafCollection = targetIrodsCollection + "/child/grandchild";
+
+		IRODSAccount irodsAccount = testingPropertiesHelper
+				.buildIRODSAccountFromTestProperties(testingProperties);
+
+		IRODSFile targetFile = irodsFileSystem.getIRODSFileFactory(
+				irodsAccount).instanceIRODSFile(targetIrodsCollection);
+		targetFile.deleteWithForceOption();
+
+		String[] dotIrodsSubDirs = {
+				targetIrodsCollection + "/.irods/"
+						+ DotIrodsConstants.METADATA_TEMPLATES_SUBDIR,
+				leafCollection + "/.irods/"
+						+ DotIrodsConstants.METADATA_TEMPLATES_SUBDIR };
+
+		for (String subDir : dotIrodsSubDirs) {
+			IRODSFile subDirFile = irodsFileSystem.getIRODSFileFactory(
+					irodsAccount).instanceIRODSFile(subDir);
+			subDirFile.mkdirs();
+			irodsFileSystem.getIRODSFileFactory(irodsAccount)
+					.instanceIRODSFile(subDir, "shared.mdtemplate")
+					.createNewFile();
+		}
+
+		irodsFileSystem.getIRODSFileFactory(irodsAccount)
+				.instanceIRODSFile(dotIrodsSubDirs[0], "top.mdtemplate")
+				.createNewFile();
+
+		DotIrodsServiceImpl dotIrodsService = new DotIrodsServiceImpl(
+				irodsFileSystem.getIRODSAccessObjectFactory(), irodsAccount);
+		File[] walked = dotIrodsService
+				.listFilesInDirectoryHierarchyDotIrods(leafCollection,
+						DotIrodsConstants.METADATA_TEMPLATES_SUBDIR, null, true);
+
+		dotIrodsService.setBatchedHierarchyQuery(true);
+		File[] batched = dotIrodsService
+				.listFilesInDirectoryHierarchyDotIrods(leafCollection,
+						DotIrodsConstants.METADATA_TEMPLATES_SUBDIR, null, true);
+
+		Assert.assertEquals("batched and walked listings differ in size",
+				walked.length, batched.length);
+		for (int i = 0; i < walked.length; i++) {
+			Assert.assertEquals("batched and walked listings differ",
+					walked[i].getAbsolutePath(), batched[i].getAbsolutePath());
+		}
+		Assert.assertEquals("leaf file should win the name conflict",
+				dotIrodsSubDirs[1] + "/shared.mdtemplate",
+				batched[0].getAbsolutePath());
+
+	}
+
+	@Test
+	public void listFilesOfTypeInDirectoryHierarchyDotIrodsSubDirConcurrentMatchesWalk()
+			throws Exception {
+
+		String testSubdir = "listFilesOfTypeInDirectoryHierarchyDotIrodsSubDirConcurrentMatchesWalk";
+		String targetIrodsCollection = testingPropertiesHelper
+				.buildIRODSCollectionAbsolutePathFromTestProperties(
+						testingProperties, IRODS_TEST_SUBDIR_PATH + '/'
+								+ testSubdir);
+		String leafCollection = targetIrodsCollection + "/child/grandchild";
+
+		IRODSAccount irodsAccount = testingPropertiesHelper
+				.buildIRODSAccountFromTestProperties(testingProperties);
+
+		IRODSFile targetFile = irodsFileSystem.getIRODSFileFactory(
+				irodsAccount).instanceIRODSFile(targetIrodsCollection);
+		targetFile.deleteWithForceOption();
+
+		String[] dotIrodsSubDirs = {
+				targetIrodsCollection + "/.irods/"
+						+ DotIrodsConstants.METADATA_TEMPLATES_SUBDIR,
+				leafCollection + "/.irods/"
+						+ DotIrodsConstants.METADATA_TEMPLATES_SUBDIR };
+
+		for (String subDir : dotIrodsSubDirs) {
+			IRODSFile subDirFile = irodsFileSystem.getIRODSFileFactory(
+					irodsAccount).instanceIRODSFile(subDir);
+			subDirFile.mkdirs();
+			irodsFileSystem.getIRODSFileFactory(irodsAccount)
+					.instanceIRODSFile(subDir, "shared.mdtemplate")
+					.createNewFile();
+		}
+
+		irodsFileSystem.getIRODSFileFactory(irodsAccount)
+				.instanceIRODSFile(dotIrodsSubDirs[0], "top.mdtemplate")
+				.createNewFile();
+
+		FilenameFilter filter = new FilenameFilter() {
+			@Override
+			public boolean accept(final File dir, final String name) {
+				return name.endsWith(".mdtemplate");
+			}
+		};
+
+		DotIrodsService dotIrodsService = new DotIrodsServiceImpl(
+				irodsFileSystem.getIRODSAccessObjectFactory(), irodsAccount);
+		File[] walked = dotIrodsService
+				.listFilesOfTypeInDirectoryHierarchyDotIrodsSubDir(
+						leafCollection,
+						DotIrodsConstants.METADATA_TEMPLATES_SUBDIR, filter,
+						true);
+
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		File[] concurrent;
+		try {
+			concurrent = dotIrodsService
+					.listFilesOfTypeInDirectoryHierarchyDotIrodsSubDir(
+							leafCollection,
+							DotIrodsConstants.METADATA_TEMPLATES_SUBDIR,
+							filter, true, executorService);
+		} finally {
+			executorService.shutdown();
+		}
+
+		Assert.assertEquals("concurrent and walked listings differ in size",
+				walked.length, concurrent.length);
+		for (int i = 0; i < walked.length; i++) {
+			Assert.assertEquals("concurrent and walked listings differ",
+					walked[i].getAbsolutePath(),
+					concurrent[i].getAbsolutePath());
+		}
+		Assert.assertEquals("leaf file should win the name conflict",
+				dotIrodsSubDirs[1] + "/shared.mdtemplate",
+				concurrent[0].getAbsolutePath());
+
+	}
+
+	@Test
+	public void iterateFilesInDirectoryHierarchyDotIrodsMatchesList()
+			throws Exception {
+
+		String testSubdir = "iterateFilesInDirectoryHierarchyDotIrodsMatchesList";
+		String targetIrodsCollection = testingPropertiesHelper
+				.buildIRODSCollectionAbsolutePathFromTestProperties(
+						testingProperties, IRODS_TEST_SUBDIR_PATH + '/'
+								+ testSubdir);
+		String leafCollection = targetIrodsCollection + "/child/grandchild";
+
+		IRODSAccount irodsAccount = testingPropertiesHelper
+				.buildIRODSAccountFromTestProperties(testingProperties);
+
+		IRODSFile targetFile = irodsFileSystem.getIRODSFileFactory(
+				irodsAccount).instanceIRODSFile(targetIrodsCollection);
+		targetFile.deleteWithForceOption();
+
+		String[] dotIrodsSubDirs = {
+				targetIrodsCollection + "/.irods/"
+						+ DotIrodsConstants.METADATA_TEMPLATES_SUBDIR,
+				leafCollection + "/.irods/"
+						+ DotIrodsConstants.METADATA_TEMPLATES_SUBDIR };
+
+		for (String subDir : dotIrodsSubDirs) {
+			IRODSFile subDirFile = irodsFileSystem.getIRODSFileFactory(
+					irodsAccount).instanceIRODSFile(subDir);
+			subDirFile.mkdirs();
+			irodsFileSystem.getIRODSFileFactory(irodsAccount)
+					.instanceIRODSFile(subDir, "shared.mdtemplate")
+					.createNewFile();
+		}
+
+		irodsFileSystem.getIRODSFileFactory(irodsAccount)
+				.instanceIRODSFile(dotIrodsSubDirs[0], "top.mdtemplate")
+				.createNewFile();
+		irodsFileSystem.getIRODSFileFactory(irodsAccount)
+				.instanceIRODSFile(dotIrodsSubDirs[1], "nested").mkdirs();
+
+		FilenameFilter filter = new FilenameFilter() {
+			@Override
+			public boolean accept(final File dir, final String name) {
+				return true;
+			}
+		};
+
+		DotIrodsService dotIrodsService = new DotIrodsServiceImpl(
+				irodsFileSystem.getIRODSAccessObjectFactory(), irodsAccount);
+		File[] listed = dotIrodsService
+				.listFilesOfTypeInDirectoryHierarchyDotIrodsSubDir(
+						leafCollection,
+						DotIrodsConstants.METADATA_TEMPLATES_SUBDIR, filter,
+						true);
+
+		Iterator<File> iterator = dotIrodsService
+				.iterateFilesInDirectoryHierarchyDotIrods(leafCollection,
+						DotIrodsConstants.METADATA_TEMPLATES_SUBDIR, filter,
+						true);
+
+		int count = 0;
+		while (iterator.hasNext()) {
+			Assert.assertEquals("iterated and listed files differ",
+					listed[count].getAbsolutePath(), iterator.next()
+							.getAbsolutePath());
+			count++;
+		}
+		Assert.assertEquals("iterated and listed counts differ",
+				listed.length, count);
+
+		Iterator<String> contents = dotIrodsService
+				.iterateStringifiedFilesInDotIrodsCollection(
+						targetIrodsCollection + "/.irods",
+						DotIrodsConstants.METADATA_TEMPLATES_SUBDIR);
+		count = 0;
+		while (contents.hasNext()) {
+			Assert.assertNotNull("null contents", contents.next());
+			count++;
+		}
+		Assert.assertEquals("should have read both files", 2, count);
+
+	}
+
+	@Test
+	public void listStringifiedFilesInDotIrodsCollectionConcurrent()
+			throws Exception {
+
+		String testSubdir = "listStringifiedFilesInDotIrodsCollectionConcurrent";
+		String targetIrodsCollection = testingPropertiesHelper
+				.buildIRODSCollectionAbsolutePathFromTestProperties(
+						testingProperties, IRODS_TEST_SUBDIR_PATH + '/'
+								+ testSubdir);
+		String dotIrodsPath = targetIrodsCollection + "/.irods";
+
+		IRODSAccount irodsAccount = testingPropertiesHelper
+				.buildIRODSAccountFromTestProperties(testingProperties);
+
+		IRODSFile targetFile = irodsFileSystem.getIRODSFileFactory(
+				irodsAccount).instanceIRODSFile(targetIrodsCollection);
+		targetFile.deleteWithForceOption();
+
+		IRODSFile subDirFile = irodsFileSystem.getIRODSFileFactory(
+				irodsAccount).instanceIRODSFile(dotIrodsPath,
+				DotIrodsConstants.METADATA_TEMPLATES_SUBDIR);
+		subDirFile.mkdirs();
+
+		for (int i = 0; i < 5; i++) {
+			IRODSFile file = irodsFileSystem.getIRODSFileFactory(irodsAccount)
+					.instanceIRODSFile(subDirFile.getAbsolutePath(),
+							"file" + i + ".txt");
+			OutputStream outputStream = irodsFileSystem.getIRODSFileFactory(
+					irodsAccount).instanceIRODSFileOutputStream(file);
+			outputStream.write(("contents of file " + i).getBytes("UTF-8"));
+			outputStream.close();
+		}
+
+		DotIrodsService dotIrodsService = new DotIrodsServiceImpl(
+				irodsFileSystem.getIRODSAccessObjectFactory(), irodsAccount);
+		List<String> sequential = dotIrodsService
+				.listStringifiedFilesInDotIrodsCollection(dotIrodsPath,
+						DotIrodsConstants.METADATA_TEMPLATES_SUBDIR);
+
+		ExecutorService executorService = Executors.newFixedThreadPool(3);
+		try {
+			List<String> concurrent = dotIrodsService
+					.listStringifiedFilesInDotIrodsCollection(dotIrodsPath,
+							DotIrodsConstants.METADATA_TEMPLATES_SUBDIR,
+							executorService, 1024L);
+			Assert.assertEquals("concurrent and sequential contents differ",
+					sequential, concurrent);
+			Assert.assertEquals("contents of file 0", concurrent.get(0));
+
+			IRODSFile nestedDir = irodsFileSystem.getIRODSFileFactory(
+					irodsAccount).instanceIRODSFile(
+					subDirFile.getAbsolutePath(), "nested");
+			nestedDir.mkdirs();
+			List<String> withNested = dotIrodsService
+					.listStringifiedFilesInDotIrodsCollection(dotIrodsPath,
+							DotIrodsConstants.METADATA_TEMPLATES_SUBDIR,
+							executorService, 1024L);
+			Assert.assertEquals("subcollection should be skipped", concurrent,
+					withNested);
+
+			try {
+				dotIrodsService.listStringifiedFilesInDotIrodsCollection(
+						dotIrodsPath,
+						DotIrodsConstants.METADATA_TEMPLATES_SUBDIR,
+						executorService, 20L);
+				Assert.fail("byte budget should have been exceeded");
+			} catch (JargonException e) {
+				// expected
+			}
+		} finally {
+			executorService.shutdown();
+		}
+
+	}
+
 }
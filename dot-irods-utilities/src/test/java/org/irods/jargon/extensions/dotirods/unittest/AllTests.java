@@ -1,12 +1,19 @@
 package org.irods.jargon.extensions.dotirods.unittest;
 
+import org.irods.jargon.extensions.dotirods.DotIrodsExistenceCacheImplTest;
+import org.irods.jargon.extensions.dotirods.DotIrodsFileReaderTest;
+import org.irods.jargon.extensions.dotirods.DotIrodsHierarchyFileListTest;
+import org.irods.jargon.extensions.dotirods.DotIrodsMetricsImplTest;
 import org.irods.jargon.extensions.dotirods.DotIrodsServiceImplTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({DotIrodsServiceImplTest.class})
+@SuiteClasses({DotIrodsServiceImplTest.class,
+		DotIrodsExistenceCacheImplTest.class,
+		DotIrodsHierarchyFileListTest.class,
+		DotIrodsFileReaderTest.class, DotIrodsMetricsImplTest.class})
 public class AllTests {
 
 }
@@ -3,25 +3,35 @@ package org.irods.jargon.metadatatemplate;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.irods.jargon.core.connection.IRODSAccount;
 import org.irods.jargon.core.exception.JargonException;
-import org.irods.jargon.core.pub.CollectionAO;
-import org.irods.jargon.core.pub.DataObjectAO;
-import org.irods.jargon.core.pub.FileCatalogObjectAO;
+import org.irods.jargon.core.exception.JargonRuntimeException;
+import org.irods.jargon.core.pub.BulkAVUOperationResponse;
 import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
 import org.irods.jargon.core.pub.domain.AvuData;
 import org.irods.jargon.core.pub.domain.Collection;
 import org.irods.jargon.core.pub.domain.ObjStat;
 import org.irods.jargon.core.pub.io.IRODSFile;
+import org.irods.jargon.core.pub.io.IRODSFileFactory;
 import org.irods.jargon.core.pub.io.IRODSFileFactoryImpl;
 import org.irods.jargon.core.pub.io.IRODSFileImpl;
-import org.irods.jargon.core.pub.io.IRODSFileInputStream;
 import org.irods.jargon.core.pub.io.IRODSFileOutputStream;
 import org.irods.jargon.core.query.AVUQueryElement;
 import org.irods.jargon.core.query.JargonQueryException;
@@ -29,6 +39,8 @@ import org.irods.jargon.core.query.MetaDataAndDomainData;
 import org.irods.jargon.core.query.QueryConditionOperators;
 import org.irods.jargon.core.utils.LocalFileUtils;
 import org.irods.jargon.extensions.dotirods.DotIrodsConstants;
+import org.irods.jargon.extensions.dotirods.DotIrodsFileReader;
+import org.irods.jargon.extensions.dotirods.DotIrodsMetrics;
 import org.irods.jargon.extensions.dotirods.DotIrodsService;
 import org.irods.jargon.extensions.dotirods.DotIrodsServiceImpl;
 import org.slf4j.Logger;
@@ -40,10 +52,59 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 
 	static private TemplateParserSingleton parser = TemplateParserSingleton.PARSER;
 
+	/**
+	 * Number of objects handed to a pool thread at a time when applying a
+	 * template to a collection tree
+	 */
+	static final int TREE_APPLY_BATCH_SIZE = 100;
+
+	/**
+	 * Number of batches that may be outstanding at once when applying a
+	 * template to a collection tree
+	 */
+	static final int MAX_TREE_APPLY_BATCHES_IN_FLIGHT = 16;
+
 	private final IRODSAccount irodsAccount;
-	private final DotIrodsService dotIrodsService;
+	private DotIrodsService dotIrodsService;
 	private final IRODSAccessObjectFactory irodsAccessObjectFactory;
 
+	/**
+	 * Optional cache of template files already read, <code>null</code> if
+	 * every template should be read from iRODS
+	 */
+	private MetadataTemplateCache metadataTemplateCache = null;
+
+	/**
+	 * Optional index of template UUID to fqName, <code>null</code> if every
+	 * UUID should be looked up in the catalog
+	 */
+	private MetadataTemplateUuidIndex metadataTemplateUuidIndex = null;
+
+	/**
+	 * Optional index of the templates in effect for each collection,
+	 * <code>null</code> if the hierarchy should be walked for every lookup
+	 */
+	private MetadataTemplateHierarchyIndex metadataTemplateHierarchyIndex = null;
+
+	/**
+	 * Optional executor on which public templates are loaded in parallel,
+	 * <code>null</code> to load them one at a time on the calling thread
+	 */
+	private ExecutorService templateExecutorService = null;
+
+	/**
+	 * If <code>true</code>, reading templates never writes to the catalog, and
+	 * a template file without a UUID AVU gets a UUID derived from its path
+	 * until it is registered with <code>registerTemplates</code>
+	 */
+	private boolean readOnly = false;
+
+	/**
+	 * Optional instrumentation, <code>null</code> if operations are not
+	 * measured
+	 */
+	private DotIrodsMetrics dotIrodsMetrics = null;
+
 	// private DataProfileAccessorServiceImpl dataProfileAccessor = null;
 
 	/**
@@ -86,28 +147,31 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 	 * WARNING: If the same template name appears in multiple public template
 	 * directories, only one is returned; determined by the list order of
 	 * publicTemplateLocations.
+	 * </p>
+	 * <p>
+	 * If a template <code>ExecutorService</code> is configured, the locations
+	 * are listed, and their files parsed, in parallel on it. The result is the
+	 * same as loading them one at a time. If the calling thread is interrupted
+	 * while waiting, a <code>JargonRuntimeException</code> is thrown rather
+	 * than returning a partial list.
 	 * 
 	 * @return List of {@link MetadataTemplate}
 	 */
 	@Override
 	public List<MetadataTemplate> listPublicTemplates() {
+		if (templateExecutorService != null) {
+			return listPublicTemplatesConcurrently();
+		}
+
 		List<MetadataTemplate> tempList = new ArrayList<MetadataTemplate>();
+		Set<String> templateNames = new HashSet<String>();
 
 		for (String dir : this.getPublicTemplateLocations()) {
 			try {
 				for (MetadataTemplate newMT : listTemplatesInCollection(dir)) {
-					boolean isDuplicate = false;
-
-					for (MetadataTemplate existingMT : tempList) {
-						if (newMT.getName().compareTo(existingMT.getName()) == 0) {
-							// Another template of the same name has already
-							// been found
-							isDuplicate = true;
-							break;
-						}
-					}
-
-					if (!isDuplicate)
+					// If another template of the same name has already been
+					// found, it takes priority
+					if (templateNames.add(newMT.getName()))
 						tempList.add(newMT);
 				}
 			} catch (JargonException je) {
@@ -133,6 +197,10 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 	 * template "specialMetadata", the template that is returned will be the one
 	 * specified in the parent directory, and the template specified in the
 	 * grandparent directory will not appear in the list.)
+	 * <p>
+	 * If a {@link MetadataTemplateHierarchyIndex} is configured, the template
+	 * files are found in the index, which is built on first use, rather than
+	 * by listing each .irods collection above the path.
 	 * 
 	 * @param absolutePath
 	 *            {@link String} containing a fully-qualified iRODS path
@@ -141,16 +209,20 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 	@Override
 	public List<MetadataTemplate> listTemplatesInDirectoryHierarchyAbovePath(
 			String absolutePath) throws IOException {
-		log.info("listTemplatesInDirectoryHierarchyAbovePath");
+		log.debug("listTemplatesInDirectoryHierarchyAbovePath");
 		List<MetadataTemplate> templateList = null;
 		File[] templateFiles = {};
 
 		try {
-			templateFiles = dotIrodsService
-					.listFilesOfTypeInDirectoryHierarchyDotIrodsSubDir(
-							absolutePath,
-							DotIrodsConstants.METADATA_TEMPLATES_SUBDIR,
-							new MetadataTemplateFileFilter());
+			if (metadataTemplateHierarchyIndex != null) {
+				templateFiles = listTemplateFilesFromHierarchyIndex(absolutePath);
+			} else {
+				templateFiles = dotIrodsService
+						.listFilesOfTypeInDirectoryHierarchyDotIrodsSubDir(
+								absolutePath,
+								DotIrodsConstants.METADATA_TEMPLATES_SUBDIR,
+								new MetadataTemplateFileFilter());
+			}
 		} catch (JargonException je) {
 			log.error("JargonException when listing files in directory", je);
 			return templateList;
@@ -199,7 +271,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			throws FileNotFoundException, IOException,
 			MetadataTemplateProcessingException,
 			MetadataTemplateParsingException {
-		log.info("findTemplateByName()");
+		log.debug("findTemplateByName()");
 
 		if (name == null || name.isEmpty()) {
 			throw new IllegalArgumentException("name is null or empty");
@@ -218,13 +290,13 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 		// If null, no template was found in directory hierarchy
 		// Look in public locations
 		if (returnTemplate == null) {
-			log.info("No match in directory hierarchy, trying public locations");
+			log.debug("No match in directory hierarchy, trying public locations");
 
 			returnTemplate = this.findTemplateByNameInPublicTemplates(name);
 		}
 
 		if (returnTemplate == null) {
-			log.info("No match found for name {}, returning null", name);
+			log.debug("No match found for name {}, returning null", name);
 		}
 
 		return returnTemplate;
@@ -235,7 +307,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			String activeDir) throws FileNotFoundException, IOException,
 			MetadataTemplateProcessingException,
 			MetadataTemplateParsingException {
-		log.info("findTemplateByNameInDirectoryHierarchy()");
+		log.debug("findTemplateByNameInDirectoryHierarchy()");
 
 		if (name == null || name.isEmpty()) {
 			throw new IllegalArgumentException("name is null or empty");
@@ -246,44 +318,82 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 		}
 
 		MetadataTemplate returnTemplate = null;
-		File[] templateFilesInHierarchy = new File[0];
+		File templateFile = null;
 
 		try {
-			templateFilesInHierarchy = dotIrodsService
-					.listFilesOfTypeInDirectoryHierarchyDotIrodsSubDir(
-							activeDir,
-							DotIrodsConstants.METADATA_TEMPLATES_SUBDIR,
-							new MetadataTemplateFileFilter());
+			templateFile = findTemplateFileByNameInDirectoryHierarchy(name,
+					activeDir);
 		} catch (JargonException je) {
-			log.error("JargonException when listing files in directory", je);
-			log.info("Error getting file list, not searching in hierarchy");
+			log.error("JargonException when looking for template file", je);
+			log.debug("Error looking for template file, not searching in hierarchy");
 		}
 
-		if (templateFilesInHierarchy.length > 0) {
-			for (File f : templateFilesInHierarchy) {
-				String nameFromFilename = LocalFileUtils
-						.getFileNameUpToExtension(f.getName());
+		if (templateFile != null) {
+			log.debug("Name matched: {}", templateFile.getAbsolutePath());
 
-				if (nameFromFilename.equalsIgnoreCase(name)) {
-					log.info("Name matched: {}", f.getAbsolutePath());
+			try {
+				returnTemplate = this.processFileToMetadataTemplate(templateFile);
+			} catch (JargonException je) {
+				log.error("JargonException in processFileToMetadataTemplate",
+						je);
+				log.debug("Matched {} with {}, but file could not be processed",
+						name, templateFile.getAbsolutePath());
+				returnTemplate = null;
+			}
+		}
 
-					try {
-						returnTemplate = this.processFileToMetadataTemplate(f);
-					} catch (JargonException je) {
-						log.error(
-								"JargonException in processFileToMetadataTemplate",
-								je);
-						log.info(
-								"Matched {} with {}, but file could not be processed",
-								name, f.getAbsolutePath());
-						returnTemplate = null;
-					}
-					break;
+		return returnTemplate;
+	}
+
+	/**
+	 * Find the template file for a name nearest to <code>activeDir</code>,
+	 * matching the name ignoring case, as a listing would be. With a hierarchy
+	 * index, the indexed files are matched. Otherwise, one query checks every
+	 * ancestor's .irods/metadataTemplates collection for the name, and the
+	 * nearest hit wins, so no collection is listed. Only if no ancestor has
+	 * the exact name are their template files fetched and matched ignoring
+	 * case. Ancestors the user cannot read are skipped rather than ending the
+	 * search.
+	 * 
+	 * @return <code>File</code> for the template, or <code>null</code> if no
+	 *         ancestor has one of that name
+	 */
+	private File findTemplateFileByNameInDirectoryHierarchy(String name,
+			String activeDir) throws JargonException {
+		if (metadataTemplateHierarchyIndex != null) {
+			for (File f : listTemplateFilesFromHierarchyIndex(activeDir)) {
+				if (LocalFileUtils.getFileNameUpToExtension(f.getName())
+						.equalsIgnoreCase(name)) {
+					return f;
 				}
 			}
+			return null;
 		}
 
-		return returnTemplate;
+		// leaf first
+		List<String> ancestors = new ArrayList<String>();
+		String path = activeDir.length() > 1 && activeDir.endsWith("/") ? activeDir
+				.substring(0, activeDir.length() - 1) : activeDir;
+		ancestors.add(path);
+		while (!path.equals("/")) {
+			path = MetadataTemplateCatalogQuery.computeParent(path);
+			ancestors.add(path);
+		}
+
+		Map<String, String> found = new MetadataTemplateCatalogQuery(
+				irodsAccessObjectFactory, irodsAccount, dotIrodsMetrics)
+				.findTemplateFilesNamed(ancestors, name
+						+ MetadataTemplateConstants.TEMPLATE_FILE_EXT);
+
+		for (String ancestor : ancestors) {
+			String fqName = found.get(ancestor);
+			if (fqName != null) {
+				return (File) irodsAccessObjectFactory.getIRODSFileFactory(
+						irodsAccount).instanceIRODSFile(fqName);
+			}
+		}
+
+		return null;
 	}
 
 	@Override
@@ -291,7 +401,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			throws FileNotFoundException, IOException,
 			MetadataTemplateProcessingException,
 			MetadataTemplateParsingException {
-		log.info("findTemplateByNameInPublicTemplates()");
+		log.debug("findTemplateByNameInPublicTemplates()");
 
 		if (name == null || name.isEmpty()) {
 			throw new IllegalArgumentException("name is null or empty");
@@ -309,7 +419,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			} catch (JargonException je) {
 				log.error("JargonException when opening {} as IRODSFile",
 						publicDir, je);
-				log.info("Could not open {}, skipping to next public dir",
+				log.debug("Could not open {}, skipping to next public dir",
 						publicDir);
 				continue;
 			}
@@ -320,7 +430,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 						.getFileNameUpToExtension(f.getName());
 
 				if (nameFromFilename.equalsIgnoreCase(name)) {
-					log.info("Name matched: {}", f.getAbsolutePath());
+					log.debug("Name matched: {}", f.getAbsolutePath());
 
 					try {
 						returnTemplate = this.processFileToMetadataTemplate(f);
@@ -329,7 +439,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 						log.error(
 								"JargonException in processFileToMetadataTemplate",
 								je);
-						log.info(
+						log.debug(
 								"Matched {} with {}, but file could not be processed",
 								name, f.getAbsolutePath());
 						returnTemplate = null;
@@ -358,7 +468,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			throws FileNotFoundException, IOException,
 			MetadataTemplateProcessingException,
 			MetadataTemplateParsingException {
-		log.info("findTemplateByFqName()");
+		log.debug("findTemplateByFqName()");
 
 		MetadataTemplate returnTemplate = null;
 
@@ -391,7 +501,15 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 	 */
 	@Override
 	public String getFqNameForUUID(UUID uuid) {
-		log.info("getFqNameForUUID()");
+		log.debug("getFqNameForUUID()");
+
+		if (metadataTemplateUuidIndex != null) {
+			String fqName = lookupTemplateUuidIndex(uuid);
+			if (fqName != null && templateUuidStillOnFile(uuid, fqName)) {
+				log.debug("UUID found in index: {}", fqName);
+				return fqName;
+			}
+		}
 
 		List<AVUQueryElement> queryElements = new ArrayList<AVUQueryElement>();
 		List<MetaDataAndDomainData> queryResult = null;
@@ -400,7 +518,12 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			queryElements.add(AVUQueryElement.instanceForValueQuery(
 					AVUQueryElement.AVUQueryPart.VALUE,
 					QueryConditionOperators.EQUAL, uuid.toString()));
+			queryElements.add(AVUQueryElement.instanceForValueQuery(
+					AVUQueryElement.AVUQueryPart.UNITS,
+					QueryConditionOperators.EQUAL,
+					JargonMetadataTemplateConstants.MD_TEMPLATE_UNIT));
 
+			recordQuery();
 			queryResult = irodsAccessObjectFactory
 					.getDataObjectAO(irodsAccount)
 					.findMetadataValuesByMetadataQuery(queryElements);
@@ -421,12 +544,73 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			log.error(
 					"{} matches for specified UUID! This should be impossible!",
 					queryResult.size());
-			log.info("Returning the fully-qualified name for only the first matched file.");
+			log.debug("Returning the fully-qualified name for only the first matched file.");
+		}
+
+		if (metadataTemplateUuidIndex != null) {
+			metadataTemplateUuidIndex.record(irodsAccount, uuid, queryResult
+					.get(0).getDomainObjectUniqueName());
 		}
 
 		return queryResult.get(0).getDomainObjectUniqueName();
 	}
 
+	/**
+	 * Check that an indexed template file still carries the UUID, as the file
+	 * may since have been removed, moved, or given a new UUID by another
+	 * client. A stale entry is evicted so the caller can query the catalog.
+	 * This is a query on the one file, rather than the catalog-wide AVU query
+	 * the index saves.
+	 */
+	private boolean templateUuidStillOnFile(final UUID uuid,
+			final String fqName) {
+		try {
+			for (MetaDataAndDomainData avu : queryTemplateAVUForFile(fqName)) {
+				if (uuid.toString().equals(avu.getAvuValue())) {
+					return true;
+				}
+			}
+		} catch (JargonQueryException jqe) {
+			log.warn("AvuQuery for UUID on indexed file failed", jqe);
+		} catch (JargonException je) {
+			log.debug("indexed template file not found: {}", fqName);
+		}
+
+		log.debug("UUID index entry for {} is stale, evicting", fqName);
+		metadataTemplateUuidIndex.invalidate(fqName);
+		return false;
+	}
+
+	/**
+	 * Look a UUID up in the index, first loading every template UUID on the
+	 * grid into the index if that has not been done yet
+	 */
+	private String lookupTemplateUuidIndex(final UUID uuid) {
+		String fqName = metadataTemplateUuidIndex.lookup(irodsAccount, uuid);
+
+		if (fqName != null || metadataTemplateUuidIndex.isWarmed(irodsAccount)) {
+			return fqName;
+		}
+
+		log.debug("warming template UUID index");
+
+		try {
+			Map<UUID, String> uuids = new MetadataTemplateCatalogQuery(
+					irodsAccessObjectFactory, irodsAccount, dotIrodsMetrics)
+					.findAllTemplateUuids();
+			for (Map.Entry<UUID, String> entry : uuids.entrySet()) {
+				metadataTemplateUuidIndex.record(irodsAccount, entry.getKey(),
+						entry.getValue());
+			}
+			metadataTemplateUuidIndex.markWarmed(irodsAccount);
+			fqName = uuids.get(uuid);
+		} catch (JargonException je) {
+			log.error("JargonException warming template UUID index", je);
+		}
+
+		return fqName;
+	}
+
 	/**
 	 * Save this metadata template to a JSON file for use later.
 	 * 
@@ -514,6 +698,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			}
 		}
 
+		invalidateTemplateCache(absolutePath);
 		log.info("saved");
 
 		return absolutePath;
@@ -609,6 +794,9 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 					log.error("Adding AVU failed!", je);
 				}
 			}
+
+			invalidateTemplateCache(fqName);
+			invalidateTemplateCache(newFqName);
 		}
 
 		return retVal;
@@ -782,6 +970,8 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			log.error("JargonException when trying to write String to file");
 			log.info("Template file not updated");
 			return false;
+		} finally {
+			invalidateTemplateCache(fqName);
 		}
 
 		return true;
@@ -820,22 +1010,30 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			return false;
 		}
 
-		return inFile.delete();
+		boolean deleted = inFile.delete();
+		invalidateTemplateCache(fqName);
+		return deleted;
 	}
 
 	/**
 	 * Save the values in the MetadataTemplate onto the object in the system
 	 * metadata table.
-	 * 
+	 * <p/>
+	 * All of the template's AVUs are written with a single bulk AVU operation.
+	 * A failure to add one AVU (for example, because an identical AVU is
+	 * already present) does not prevent the others from being added; each
+	 * element's outcome is reported in the returned list.
 	 * 
 	 * @param metadataTemplate
 	 * @param pathToObject
+	 * @return <code>List</code> of {@link BulkAVUOperationResponse}, one for
+	 *         each element with a non-empty current value
 	 * 
 	 * @throws FileNotFoundException
 	 * @throws JargonException
 	 * 
 	 */
-	public void saveTemplateToSystemMetadataOnObject(
+	public List<BulkAVUOperationResponse> saveTemplateToSystemMetadataOnObject(
 			MetadataTemplate metadataTemplate, String pathToObject)
 			throws FileNotFoundException, JargonException {
 		log.info("saveTemplateToSystemMetadataOnObject()");
@@ -848,45 +1046,374 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			throw new IllegalArgumentException("metadataTemplate is null");
 		}
 
-		IRODSFile irodsObject = irodsAccessObjectFactory.getIRODSFileFactory(
-				irodsAccount).instanceIRODSFile(pathToObject);
-
-		if (!irodsObject.exists()) {
+		ObjStat objStat;
+		try {
+			objStat = irodsAccessObjectFactory.getIRODSFileSystemAO(
+					irodsAccount).getObjStat(pathToObject);
+		} catch (org.irods.jargon.core.exception.FileNotFoundException fnfe) {
 			throw new FileNotFoundException(
 					"pathToObject does not resolve to an iRODS object");
 		}
 
-		FileCatalogObjectAO objectAO = null;
+		return saveAvusToObject(pathToObject, objStat,
+				buildAvusFromTemplate(metadataTemplate));
+	}
 
-		if (irodsObject.isFile()) {
-			objectAO = irodsAccessObjectFactory.getDataObjectAO(irodsAccount);
-		} else if (irodsObject.isDirectory()) {
-			objectAO = irodsAccessObjectFactory.getCollectionAO(irodsAccount);
-		} else {
+	/**
+	 * Build the AVUs that record a template's current values on an object
+	 * 
+	 * @param metadataTemplate
+	 *            {@link MetadataTemplate} with current values
+	 * @return <code>List</code> of {@link AvuData}, one for each element with
+	 *         a non-empty current value
+	 * @throws JargonException
+	 */
+	List<AvuData> buildAvusFromTemplate(MetadataTemplate metadataTemplate)
+			throws JargonException {
+		List<AvuData> avus = new ArrayList<AvuData>();
+
+		if (metadataTemplate.getType() == TemplateTypeEnum.FORM_BASED) {
+			String unit = JargonMetadataTemplateConstants.AVU_UNIT_PREFIX
+					+ metadataTemplate.getUuid().toString();
+			for (MetadataElement me : ((FormBasedMetadataTemplate) metadataTemplate)
+					.getElements()) {
+				if (!me.getCurrentValue().isEmpty()) {
+					avus.add(AvuData.instance(me.getName(),
+							me.getCurrentValue(), unit));
+				}
+			}
+		} // TODO else if for different TemplateTypeEnum types
+
+		return avus;
+	}
+
+	/**
+	 * Add AVUs to an object with one bulk operation, using the type already
+	 * known from <code>objStat</code>
+	 * 
+	 * @param pathToObject
+	 *            <code>String</code> with the path to a data object or
+	 *            collection
+	 * @param objStat
+	 *            {@link ObjStat} for the object
+	 * @param avus
+	 *            <code>List</code> of {@link AvuData} to add
+	 * @return <code>List</code> of {@link BulkAVUOperationResponse}, one per
+	 *         AVU
+	 * @throws JargonException
+	 */
+	List<BulkAVUOperationResponse> saveAvusToObject(String pathToObject,
+			ObjStat objStat, List<AvuData> avus) throws JargonException {
+		if (avus.isEmpty()) {
+			return new ArrayList<BulkAVUOperationResponse>();
+		}
+
+		if (!objStat.isSomeTypeOfDataObject()
+				&& !objStat.isSomeTypeOfCollection()) {
 			throw new IllegalArgumentException(
 					"object at "
 							+ pathToObject
 							+ " is neither a data object nor a collection - the JargonMetadataResolver currently only supports these types of objects");
 		}
 
-		if (metadataTemplate.getType() == TemplateTypeEnum.FORM_BASED) {
-			for (MetadataElement me : ((FormBasedMetadataTemplate) metadataTemplate)
-					.getElements()) {
-				if (!me.getCurrentValue().isEmpty()) {
-					AvuData avuData = AvuData.instance(me.getName(),
-							me.getCurrentValue(),
-							JargonMetadataTemplateConstants.AVU_UNIT_PREFIX
-									+ metadataTemplate.getUuid().toString());
-					if (irodsObject.isFile()) {
-						((DataObjectAO) objectAO).addAVUMetadata(pathToObject,
-								avuData);
-					} else if (irodsObject.isDirectory()) {
-						((CollectionAO) objectAO).addAVUMetadata(pathToObject,
-								avuData);
+		return saveAvusToObject(pathToObject,
+				!objStat.isSomeTypeOfDataObject(), avus);
+	}
+
+	private List<BulkAVUOperationResponse> saveAvusToObject(
+			String pathToObject, boolean isCollection, List<AvuData> avus)
+			throws JargonException {
+		List<BulkAVUOperationResponse> responses;
+
+		if (isCollection) {
+			responses = irodsAccessObjectFactory.getCollectionAO(irodsAccount)
+					.addBulkAVUMetadataToCollection(pathToObject, avus);
+		} else {
+			responses = irodsAccessObjectFactory.getDataObjectAO(irodsAccount)
+					.addBulkAVUMetadataToDataObject(pathToObject, avus);
+		}
+
+		for (BulkAVUOperationResponse response : responses) {
+			if (response.getResultStatus() != BulkAVUOperationResponse.ResultStatus.OK) {
+				log.warn("AVU {} not added to {}: {} {}", new Object[] {
+						response.getAvuData().getAttribute(), pathToObject,
+						response.getResultStatus(), response.getMessage() });
+			}
+		}
+
+		return responses;
+	}
+
+	/**
+	 * Save the values in the MetadataTemplate onto every collection and data
+	 * object in a collection tree, including the top collection itself.
+	 * Anything inside a .irods collection is left alone.
+	 * <p/>
+	 * The tree is enumerated with paged GenQueries, collections first and then
+	 * data objects, in a stable catalog order. Objects are handed to
+	 * <code>executorService</code> in batches of
+	 * <code>TREE_APPLY_BATCH_SIZE</code>, and each object gets all of the
+	 * template's AVUs in one bulk AVU operation. Each pool thread talks to
+	 * iRODS over its own connection, so the size of the pool sets the number
+	 * of connections used.
+	 * <p/>
+	 * An object that already has the template's AVUs is counted as applied, so
+	 * re-running the operation is harmless. A failure on one object is
+	 * reported and does not stop the others. After any other failure, the
+	 * last checkpoint given to <code>listener</code> may be passed as
+	 * <code>resumeAfterPath</code> to carry on where the operation stopped.
+	 * 
+	 * @param metadataTemplate
+	 *            {@link MetadataTemplate} with current values
+	 * @param irodsAbsolutePathToCollection
+	 *            <code>String</code> with the top collection of the tree
+	 * @param resumeAfterPath
+	 *            <code>String</code> with a checkpoint from an earlier run,
+	 *            every object up to and including it is skipped. May be
+	 *            <code>null</code> to process the whole tree.
+	 * @param executorService
+	 *            <code>ExecutorService</code> that will write the AVUs
+	 * @param listener
+	 *            optional {@link MetadataTemplateApplyListener}, may be
+	 *            <code>null</code>
+	 * @return {@link MetadataTemplateApplyResult}
+	 * @throws FileNotFoundException
+	 *             if the collection, or the <code>resumeAfterPath</code>, does
+	 *             not exist
+	 * @throws JargonException
+	 */
+	public MetadataTemplateApplyResult applyTemplateToCollectionTree(
+			MetadataTemplate metadataTemplate,
+			String irodsAbsolutePathToCollection, String resumeAfterPath,
+			ExecutorService executorService,
+			MetadataTemplateApplyListener listener)
+			throws FileNotFoundException, JargonException {
+		log.info("applyTemplateToCollectionTree()");
+
+		if (metadataTemplate == null) {
+			throw new IllegalArgumentException("metadataTemplate is null");
+		}
+
+		if (irodsAbsolutePathToCollection == null
+				|| irodsAbsolutePathToCollection.isEmpty()) {
+			throw new IllegalArgumentException(
+					"irodsAbsolutePathToCollection is null or empty");
+		}
+
+		if (executorService == null) {
+			throw new IllegalArgumentException("null executorService");
+		}
+
+		log.info("irodsAbsolutePathToCollection:{}",
+				irodsAbsolutePathToCollection);
+		log.info("resumeAfterPath:{}", resumeAfterPath);
+
+		if (!statTreeObject(irodsAbsolutePathToCollection)
+				.isSomeTypeOfCollection()) {
+			throw new IllegalArgumentException(
+					"irodsAbsolutePathToCollection is not a collection");
+		}
+
+		/*
+		 * A collection checkpoint is found among the collections; a data
+		 * object checkpoint means every collection is already done
+		 */
+		String skipUntilCollection = null;
+		String skipUntilDataObject = null;
+		if (resumeAfterPath != null && !resumeAfterPath.isEmpty()) {
+			if (!resumeAfterPath.equals(irodsAbsolutePathToCollection)
+					&& !resumeAfterPath.startsWith(irodsAbsolutePathToCollection
+							+ "/")) {
+				throw new IllegalArgumentException(
+						"resumeAfterPath is not in the collection tree");
+			}
+
+			if (statTreeObject(resumeAfterPath).isSomeTypeOfCollection()) {
+				skipUntilCollection = resumeAfterPath;
+			} else {
+				skipUntilDataObject = resumeAfterPath;
+			}
+		}
+
+		MetadataTemplateApplyResult result = new MetadataTemplateApplyResult();
+		final List<AvuData> avus = buildAvusFromTemplate(metadataTemplate);
+		if (avus.isEmpty()) {
+			log.info("template has no values, nothing to apply");
+			return result;
+		}
+
+		LinkedList<TreeApplyBatch> inFlight = new LinkedList<TreeApplyBatch>();
+
+		try {
+			if (skipUntilDataObject == null) {
+				submitTreeApplyBatches(new MetadataTreeObjectIterator(
+						irodsAccessObjectFactory, irodsAccount,
+						irodsAbsolutePathToCollection, true, dotIrodsMetrics),
+						skipUntilCollection, true, avus, executorService,
+						inFlight, result, listener);
+			}
+
+			submitTreeApplyBatches(new MetadataTreeObjectIterator(
+					irodsAccessObjectFactory, irodsAccount,
+					irodsAbsolutePathToCollection, false, dotIrodsMetrics),
+					skipUntilDataObject, false, avus, executorService,
+					inFlight, result, listener);
+
+			while (!inFlight.isEmpty()) {
+				completeTreeApplyBatch(inFlight.removeFirst(), result,
+						listener);
+			}
+
+		} catch (JargonRuntimeException e) {
+			log.error("error enumerating collection tree", e);
+			throw new JargonException("unable to enumerate collection tree", e);
+		} finally {
+			for (TreeApplyBatch batch : inFlight) {
+				batch.future.cancel(true);
+			}
+		}
+
+		log.info("applied template to {} objects, {} failed",
+				result.getObjectsApplied(), result.getFailedPaths().size());
+
+		return result;
+	}
+
+	/**
+	 * The paths of one batch of tree objects, and the pending outcome of
+	 * writing AVUs to them
+	 */
+	private static class TreeApplyBatch {
+		private final List<String> paths;
+		private final Future<Map<String, String>> future;
+
+		TreeApplyBatch(final List<String> paths,
+				final Future<Map<String, String>> future) {
+			this.paths = paths;
+			this.future = future;
+		}
+	}
+
+	private ObjStat statTreeObject(String path) throws FileNotFoundException,
+			JargonException {
+		try {
+			return irodsAccessObjectFactory.getIRODSFileSystemAO(irodsAccount)
+					.getObjStat(path);
+		} catch (org.irods.jargon.core.exception.FileNotFoundException fnfe) {
+			throw new FileNotFoundException(path
+					+ " does not resolve to an iRODS object");
+		}
+	}
+
+	/**
+	 * Submit the objects from <code>paths</code> in batches, skipping
+	 * everything up to and including <code>skipUntilPath</code> if given.
+	 * Once <code>MAX_TREE_APPLY_BATCHES_IN_FLIGHT</code> batches are
+	 * outstanding the oldest is waited for, so progress is reported in
+	 * enumeration order and the tree is never held in memory.
+	 */
+	private void submitTreeApplyBatches(Iterator<String> paths,
+			String skipUntilPath, final boolean isCollection,
+			final List<AvuData> avus, ExecutorService executorService,
+			LinkedList<TreeApplyBatch> inFlight,
+			MetadataTemplateApplyResult result,
+			MetadataTemplateApplyListener listener) throws JargonException {
+
+		boolean skipping = skipUntilPath != null;
+		List<String> batchPaths = new ArrayList<String>();
+
+		while (paths.hasNext()) {
+			String path = paths.next();
+			if (skipping) {
+				skipping = !path.equals(skipUntilPath);
+				continue;
+			}
+
+			batchPaths.add(path);
+			if (batchPaths.size() == TREE_APPLY_BATCH_SIZE || !paths.hasNext()) {
+				final List<String> submitPaths = batchPaths;
+				batchPaths = new ArrayList<String>();
+
+				inFlight.addLast(new TreeApplyBatch(submitPaths,
+						executorService.submit(new Callable<Map<String, String>>() {
+							@Override
+							public Map<String, String> call() {
+								return applyAvusToBatch(submitPaths,
+										isCollection, avus);
+							}
+						})));
+
+				if (inFlight.size() >= MAX_TREE_APPLY_BATCHES_IN_FLIGHT) {
+					completeTreeApplyBatch(inFlight.removeFirst(), result,
+							listener);
+				}
+			}
+		}
+
+		if (skipping) {
+			log.warn("resume path {} was not found in the tree", skipUntilPath);
+		}
+	}
+
+	/**
+	 * Write the AVUs to each object in a batch, on a pool thread
+	 * 
+	 * @return <code>Map</code> of path to failure reason, for the objects in
+	 *         the batch that failed
+	 */
+	private Map<String, String> applyAvusToBatch(List<String> paths,
+			boolean isCollection, List<AvuData> avus) {
+		Map<String, String> failures = new LinkedHashMap<String, String>();
+
+		for (String path : paths) {
+			try {
+				for (BulkAVUOperationResponse response : saveAvusToObject(path,
+						isCollection, avus)) {
+					if (response.getResultStatus() != BulkAVUOperationResponse.ResultStatus.OK
+							&& response.getResultStatus() != BulkAVUOperationResponse.ResultStatus.DUPLICATE_AVU) {
+						failures.put(path, response.getMessage());
+						break;
 					}
 				}
+			} catch (JargonException e) {
+				log.warn("unable to apply template to {}", path, e);
+				failures.put(path, e.getMessage());
 			}
-		} // TODO else if for different TemplateTypeEnum types
+		}
+
+		return failures;
+	}
+
+	private void completeTreeApplyBatch(TreeApplyBatch batch,
+			MetadataTemplateApplyResult result,
+			MetadataTemplateApplyListener listener) throws JargonException {
+		Map<String, String> failures;
+		try {
+			failures = batch.future.get();
+		} catch (ExecutionException ee) {
+			log.error("unexpected error applying template", ee);
+			throw new JargonException("unable to apply template",
+					ee.getCause());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new JargonException("interrupted applying template", ie);
+		}
+
+		for (Map.Entry<String, String> failure : failures.entrySet()) {
+			result.getFailedPaths().add(failure.getKey());
+			if (listener != null) {
+				listener.objectFailed(failure.getKey(), failure.getValue());
+			}
+		}
+
+		result.setObjectsApplied(result.getObjectsApplied()
+				+ batch.paths.size() - failures.size());
+		result.setCheckpointPath(batch.paths.get(batch.paths.size() - 1));
+
+		if (listener != null) {
+			listener.progress(result.getObjectsApplied(), result
+					.getFailedPaths().size(), result.getCheckpointPath());
+		}
 	}
 
 	/**
@@ -914,7 +1441,9 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			throws org.irods.jargon.core.exception.FileNotFoundException,
 			JargonException, JargonQueryException, FileNotFoundException,
 			IOException {
-		log.info("getAndMergeTemplateListForPath()");
+		log.debug("getAndMergeTemplateListForPath()");
+
+		long start = System.nanoTime();
 
 		ObjStat pathObjStat = irodsAccessObjectFactory.getIRODSFileSystemAO(
 				irodsAccount).getObjStat(irodsAbsolutePath);
@@ -926,7 +1455,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 
 		for (MetadataTemplate mt : this
 				.listAllRequiredTemplates(templateSearchPath)) {
-			log.info("Required template found: {}", mt.getName());
+			log.debug("Required template found: {}", mt.getName());
 			// TODO Right now, only supports searching by UUID
 			// nameUUID would be more general
 			// i.e. dublinCore01234567-0123-0123-0123-0123456789ab
@@ -935,6 +1464,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 		}
 
 		List<MetaDataAndDomainData> avuList;
+		recordQuery();
 		if (pathObjStat.isSomeTypeOfCollection()) {
 			avuList = irodsAccessObjectFactory.getCollectionAO(irodsAccount)
 					.findMetadataValuesForCollection(irodsAbsolutePath);
@@ -943,109 +1473,357 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 					.findMetadataValuesForDataObject(irodsAbsolutePath);
 		}
 
+		recordOperation("getAndMergeTemplateListForPath", start);
 		return mergeTemplateListAndAVUs(templateMap, avuList, irodsAbsolutePath);
 	}
 
-	MetadataMergeResult mergeTemplateListAndAVUs(
-			Map<String, MetadataTemplate> templateMap,
-			List<MetaDataAndDomainData> avuList, String irodsAbsolutePath)
+	/**
+	 * Bulk form of <code>getAndMergeTemplateListForPath</code>, for listing
+	 * many objects at once.
+	 * <p/>
+	 * The type of every path and the AVUs on every object are found with a
+	 * few GenQueries, rather than a stat and an AVU query per path. Required
+	 * templates are resolved once per distinct template search path (the
+	 * collection itself, or the parent of a data object), and templates
+	 * referenced only by AVUs are looked up once for all paths. Each result
+	 * holds its own copies of the templates.
+	 * 
+	 * @param irodsAbsolutePaths
+	 *            <code>Collection</code> of absolute paths to data objects or
+	 *            collections
+	 * @return <code>Map</code> of path to {@link MetadataMergeResult}, in the
+	 *         iteration order of <code>irodsAbsolutePaths</code>. Paths that do
+	 *         not exist are absent.
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 * @throws JargonException
+	 */
+	public Map<String, MetadataMergeResult> getAndMergeTemplateListForPaths(
+			java.util.Collection<String> irodsAbsolutePaths)
 			throws FileNotFoundException, IOException, JargonException {
-		log.info("mergeTemplateListAndAVUs()");
+		log.debug("getAndMergeTemplateListForPaths()");
 
-		List<MetaDataAndDomainData> orphans = new ArrayList<MetaDataAndDomainData>();
+		long start = System.nanoTime();
 
-		boolean matched = false;
-		MetadataTemplate tempMt = null;
-		int unitIndex = 0;
-		int uuidStart = 0;
+		if (irodsAbsolutePaths == null) {
+			throw new IllegalArgumentException("null irodsAbsolutePaths");
+		}
 
-		/*
-		 * 
-		 * for (MetaDataAndDomainData avu : avuList) { if
-		 * (avu.getAvuUnit().contains(
-		 * JargonMetadataTemplateConstants.AVU_UNIT_PREFIX)) {
-		 * log.info("unit contains a template UUID"); unitIndex =
-		 * avu.getAvuUnit().indexOf(
-		 * JargonMetadataTemplateConstants.AVU_UNIT_PREFIX); uuidStart =
-		 * unitIndex + JargonMetadataTemplateConstants.AVU_UNIT_PREFIX
-		 * .length();
-		 * 
-		 * // The unit string might contain, e.g., //
-		 * "fromTemplate:01234567-01234-01234-01234-0123456789ab" String uuid =
-		 * avu.getAvuUnit().substring(uuidStart);
-		 * 
-		 * // See if the template is already in the hash map if
-		 * (templateMap.containsKey(uuid)) {
-		 * log.info("avu belongs to a template already in the map"); tempMt =
-		 * templateMap.get(uuid);
-		 * 
-		 * if (tempMt.getType() == TemplateTypeEnum.FORM_BASED) {
-		 * FormBasedMetadataTemplate tempFbmt = (FormBasedMetadataTemplate)
-		 * tempMt; for (MetadataElement me : tempFbmt.getElements()) { if
-		 * (avu.getAvuAttribute().equalsIgnoreCase( me.getName())) { // Not a
-		 * REF_IRODS_QUERY type, set current // value to raw value
-		 * me.setCurrentValue(avu.getAvuValue());
-		 * me.setDisplayValue(avu.getAvuValue());
-		 * 
-		 * matched = true; break; } } } // XXX else if (tempMt is a different
-		 * kind of template)
-		 * 
-		 * if (!matched) { log.info(
-		 * "AVU claims to be from template {}, but name not matched", uuid);
-		 * log.info( "AVU: {}", avu.getAvuAttribute() + ", " + avu.getAvuValue()
-		 * + ", " + avu.getAvuUnit()); } } else {
-		 * log.info("avu belongs to a template not in the map"); tempMt =
-		 * this.findTemplateByUUID(uuid); if (tempMt == null) {
-		 * log.info("no template found for UUID {}", uuid); } else if
-		 * (tempMt.getType() == TemplateTypeEnum.FORM_BASED) {
-		 * FormBasedMetadataTemplate tempFbmt = (FormBasedMetadataTemplate)
-		 * tempMt; for (MetadataElement me : tempFbmt.getElements()) { if
-		 * (avu.getAvuAttribute().equalsIgnoreCase( me.getName())) { // Not a
-		 * REF_IRODS_QUERY type, set current // value to raw value
-		 * me.setCurrentValue(avu.getAvuValue());
-		 * me.setDisplayValue(avu.getAvuValue());
-		 * 
-		 * matched = true; break; } } } // XXX else if (tempMt is a different
-		 * kind of template)
-		 * 
-		 * if (!matched) { log.info(
-		 * "AVU claims to be from template {}, but name not matched", uuid);
-		 * log.info( "AVU: {}", avu.getAvuAttribute() + ", " + avu.getAvuValue()
-		 * + ", " + avu.getAvuUnit()); } else {
-		 * log.info("AVU matched with new template {}", uuid);
-		 * log.info("Adding template to map"); templateMap.put(uuid, tempMt); }
-		 * } }
-		 * 
-		 * if (!matched) {
-		 * log.info("AVU not matched with any template, adding to orphans list"
-		 * ); orphans.add(avu); }
-		 * 
-		 * matched = false; tempMt = null; unitIndex = 0; uuidStart = 0; }
-		 * 
-		 * List<MetadataTemplate> returnList = new
-		 * ArrayList<MetadataTemplate>();
-		 * returnList.addAll(templateMap.values());
-		 * 
-		 * for (MetadataTemplate mt : returnList) { if (mt.getType() ==
-		 * TemplateTypeEnum.FORM_BASED) { for (MetadataElement me :
-		 * ((FormBasedMetadataTemplate) mt) .getElements()) { if (me.getType()
-		 * == ElementTypeEnum.REF_IRODS_QUERY) {
-		 * me.setDisplayValue(getValueFromRefQuery( me.getCurrentValue(),
-		 * irodsAbsolutePath)); } } } }
-		 */
-		// return new MetadataMergeResult(returnList, orphans);
-		return null;
-	}
+		log.debug("number of paths: {}", irodsAbsolutePaths.size());
 
-	String getValueFromRefQuery(String refQuery, String irodsAbsolutePath) {
-		String returnString = "";
-		/*
-		 * try { // Check if need to reinitialize dataProfileAccessor if
-		 * (dataProfileAccessor == null ||
-		 * !dataProfileAccessor.getIrodsAbsolutePath()
-		 * .equalsIgnoreCase(irodsAbsolutePath) ||
-		 * !dataProfileAccessor.getIrodsUserName()
-		 * .equalsIgnoreCase(irodsAccount.getUserName())) {
+		Map<String, MetadataMergeResult> results = new LinkedHashMap<String, MetadataMergeResult>();
+
+		if (irodsAbsolutePaths.isEmpty()) {
+			recordOperation("getAndMergeTemplateListForPaths", start);
+			return results;
+		}
+
+		Set<String> paths = new LinkedHashSet<String>(irodsAbsolutePaths);
+		MetadataAvuBulkQuery bulkQuery = new MetadataAvuBulkQuery(
+				irodsAccessObjectFactory, irodsAccount, dotIrodsMetrics);
+
+		Set<String> collections = bulkQuery.findCollections(paths);
+		Set<String> dataObjectCandidates = new LinkedHashSet<String>(paths);
+		dataObjectCandidates.removeAll(collections);
+		Set<String> dataObjects = bulkQuery
+				.findDataObjects(dataObjectCandidates);
+
+		Map<String, List<MetaDataAndDomainData>> avusByPath = new HashMap<String, List<MetaDataAndDomainData>>();
+		avusByPath.putAll(bulkQuery.findCollectionAvus(collections));
+		avusByPath.putAll(bulkQuery.findDataObjectAvus(dataObjects));
+
+		// Required templates, once per search path, keyed by UUID
+		Map<String, Map<String, MetadataTemplate>> requiredBySearchPath = new HashMap<String, Map<String, MetadataTemplate>>();
+		Map<String, MetadataTemplate> sharedTemplates = new HashMap<String, MetadataTemplate>();
+
+		for (String path : paths) {
+			if (!collections.contains(path) && !dataObjects.contains(path)) {
+				continue;
+			}
+
+			String templateSearchPath = collections.contains(path) ? path
+					: this.getPathFromFqName(path);
+
+			if (!requiredBySearchPath.containsKey(templateSearchPath)) {
+				Map<String, MetadataTemplate> required = new HashMap<String, MetadataTemplate>();
+				for (MetadataTemplate mt : this
+						.listAllRequiredTemplates(templateSearchPath)) {
+					log.debug("Required template found: {}", mt.getName());
+					required.put(mt.getUuid().toString(), mt);
+				}
+				requiredBySearchPath.put(templateSearchPath, required);
+				sharedTemplates.putAll(required);
+			}
+		}
+
+		// Templates referenced by AVUs and not required anywhere, all at once
+		Set<UUID> referencedUuids = new HashSet<UUID>();
+		int prefixLength = JargonMetadataTemplateConstants.AVU_UNIT_PREFIX
+				.length();
+		for (List<MetaDataAndDomainData> avuList : avusByPath.values()) {
+			for (MetaDataAndDomainData avu : avuList) {
+				String unit = avu.getAvuUnit();
+				if (unit == null
+						|| !unit.startsWith(JargonMetadataTemplateConstants.AVU_UNIT_PREFIX)) {
+					continue;
+				}
+				String uuid = unit.substring(prefixLength);
+				if (sharedTemplates.containsKey(uuid)) {
+					continue;
+				}
+				try {
+					referencedUuids.add(UUID.fromString(uuid));
+				} catch (IllegalArgumentException iae) {
+					// left for the merge to report as unmatched
+				}
+			}
+		}
+		sharedTemplates.putAll(findTemplatesByUuid(referencedUuids));
+
+		for (String path : paths) {
+			if (!collections.contains(path) && !dataObjects.contains(path)) {
+				log.warn("path does not exist, skipping: {}", path);
+				continue;
+			}
+
+			String templateSearchPath = collections.contains(path) ? path
+					: this.getPathFromFqName(path);
+
+			Map<String, MetadataTemplate> templateMap = new HashMap<String, MetadataTemplate>();
+			for (Map.Entry<String, MetadataTemplate> entry : requiredBySearchPath
+					.get(templateSearchPath).entrySet()) {
+				templateMap.put(entry.getKey(), entry.getValue().deepCopy());
+			}
+
+			List<MetaDataAndDomainData> avuList = avusByPath.get(path);
+			if (avuList == null) {
+				avuList = new ArrayList<MetaDataAndDomainData>();
+			}
+
+			results.put(path, mergeTemplateListAndAVUs(templateMap, avuList,
+					path, sharedTemplates));
+		}
+
+		recordOperation("getAndMergeTemplateListForPaths", start);
+		return results;
+	}
+
+	/**
+	 * Merge a list of AVUs into the templates they were created from, in a
+	 * single pass over the AVUs.
+	 * <p/>
+	 * AVUs whose unit names a template UUID (see
+	 * <code>JargonMetadataTemplateConstants.AVU_UNIT_PREFIX</code>) populate
+	 * the <code>currentValue</code> of the element of the same name, compared
+	 * case-insensitively. Templates referenced by AVUs but not already in
+	 * <code>templateMap</code> are looked up together, with one query, and
+	 * added to the result if at least one AVU matches one of their elements.
+	 * All other AVUs are returned as unmatched.
+	 * 
+	 * @param templateMap
+	 *            <code>Map</code> of template UUID (as a <code>String</code>)
+	 *            to {@link MetadataTemplate}. Templates in the map are
+	 *            populated in place, and further templates may be added.
+	 * @param avuList
+	 *            <code>List</code> of {@link MetaDataAndDomainData} found on
+	 *            the object
+	 * @param irodsAbsolutePath
+	 *            <code>String</code> with the path of the object the AVUs were
+	 *            found on
+	 * @return {@link MetadataMergeResult}
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 * @throws JargonException
+	 */
+	MetadataMergeResult mergeTemplateListAndAVUs(
+			Map<String, MetadataTemplate> templateMap,
+			List<MetaDataAndDomainData> avuList, String irodsAbsolutePath)
+			throws FileNotFoundException, IOException, JargonException {
+		return mergeTemplateListAndAVUs(templateMap, avuList,
+				irodsAbsolutePath, null);
+	}
+
+	/**
+	 * As <code>mergeTemplateListAndAVUs(Map, List, String)</code>, but
+	 * optionally taking templates referenced by AVUs from
+	 * <code>sharedTemplates</code> instead of looking them up. Shared templates
+	 * are copied before being populated.
+	 */
+	private MetadataMergeResult mergeTemplateListAndAVUs(
+			final Map<String, MetadataTemplate> templateMap,
+			final List<MetaDataAndDomainData> avuList,
+			final String irodsAbsolutePath,
+			final Map<String, MetadataTemplate> sharedTemplates)
+			throws JargonException {
+		log.debug("mergeTemplateListAndAVUs()");
+
+		if (templateMap == null) {
+			throw new IllegalArgumentException("null templateMap");
+		}
+
+		if (avuList == null) {
+			throw new IllegalArgumentException("null avuList");
+		}
+
+		log.debug("irodsAbsolutePath: {}", irodsAbsolutePath);
+
+		List<MetaDataAndDomainData> orphans = new ArrayList<MetaDataAndDomainData>();
+
+		// Bucket the AVUs by the template UUID in their unit
+		Map<String, List<MetaDataAndDomainData>> avusByUuid = new HashMap<String, List<MetaDataAndDomainData>>();
+		Set<UUID> missingUuids = new HashSet<UUID>();
+		int prefixLength = JargonMetadataTemplateConstants.AVU_UNIT_PREFIX
+				.length();
+
+		for (MetaDataAndDomainData avu : avuList) {
+			String unit = avu.getAvuUnit();
+			if (unit == null
+					|| !unit.startsWith(JargonMetadataTemplateConstants.AVU_UNIT_PREFIX)) {
+				orphans.add(avu);
+				continue;
+			}
+
+			String uuid = unit.substring(prefixLength);
+			List<MetaDataAndDomainData> bucket = avusByUuid.get(uuid);
+			if (bucket == null) {
+				if (!templateMap.containsKey(uuid)) {
+					try {
+						missingUuids.add(UUID.fromString(uuid));
+					} catch (IllegalArgumentException iae) {
+						log.debug("AVU unit has a malformed template UUID: {}",
+								unit);
+						orphans.add(avu);
+						continue;
+					}
+				}
+				bucket = new ArrayList<MetaDataAndDomainData>();
+				avusByUuid.put(uuid, bucket);
+			}
+			bucket.add(avu);
+		}
+
+		// Look up every template referenced but not already known at once
+		Map<String, MetadataTemplate> foundTemplates = sharedTemplates != null ? sharedTemplates
+				: findTemplatesByUuid(missingUuids);
+
+		for (Map.Entry<String, List<MetaDataAndDomainData>> entry : avusByUuid
+				.entrySet()) {
+			String uuid = entry.getKey();
+			boolean known = templateMap.containsKey(uuid);
+			MetadataTemplate template = known ? templateMap.get(uuid)
+					: foundTemplates.get(uuid);
+
+			if (template == null) {
+				log.debug("no template found for UUID {}", uuid);
+				orphans.addAll(entry.getValue());
+				continue;
+			}
+
+			if (!known && sharedTemplates != null) {
+				template = template.deepCopy();
+			}
+
+			Map<String, MetadataElement> elementsByName = indexElementsByName(template);
+			boolean matched = false;
+
+			for (MetaDataAndDomainData avu : entry.getValue()) {
+				MetadataElement me = elementsByName.get(avu.getAvuAttribute()
+						.toLowerCase());
+				if (me == null) {
+					log.debug(
+							"AVU claims to be from template {}, but name not matched",
+							uuid);
+					orphans.add(avu);
+				} else {
+					me.setCurrentValue(avu.getAvuValue());
+					me.setDisplayValue(avu.getAvuValue());
+					matched = true;
+				}
+			}
+
+			if (!known && matched) {
+				log.debug("AVU matched with new template {}", uuid);
+				templateMap.put(uuid, template);
+			}
+		}
+
+		return new MetadataMergeResult(new ArrayList<MetadataTemplate>(
+				templateMap.values()), orphans);
+	}
+
+	/**
+	 * Find and parse the templates with the given UUIDs, using one query to
+	 * locate all of them. Templates that cannot be found or parsed are
+	 * absent from the result.
+	 * 
+	 * @return <code>Map</code> of UUID (as a <code>String</code>) to
+	 *         {@link MetadataTemplate}
+	 */
+	private Map<String, MetadataTemplate> findTemplatesByUuid(
+			final Set<UUID> uuids) throws JargonException {
+		Map<String, MetadataTemplate> templates = new HashMap<String, MetadataTemplate>();
+
+		if (uuids.isEmpty()) {
+			return templates;
+		}
+
+		Map<UUID, MetadataTemplateCatalogQuery.Entry> catalogEntries = new MetadataTemplateCatalogQuery(
+				irodsAccessObjectFactory, irodsAccount, dotIrodsMetrics)
+				.findCatalogEntriesForUuids(uuids);
+
+		for (MetadataTemplateCatalogQuery.Entry catalogEntry : catalogEntries
+				.values()) {
+			File templateFile = (File) irodsAccessObjectFactory
+					.getIRODSFileFactory(irodsAccount).instanceIRODSFile(
+							catalogEntry.getFqName());
+			try {
+				templates.put(catalogEntry.getUuid().toString(),
+						processFileToMetadataTemplate(templateFile,
+								catalogEntry.getUuid(),
+								catalogEntry.getObjStat()));
+			} catch (JargonException je) {
+				log.error("JargonException reading template {}",
+						catalogEntry.getFqName(), je);
+			} catch (IOException ioe) {
+				log.error("IOException reading template {}",
+						catalogEntry.getFqName(), ioe);
+			}
+		}
+
+		return templates;
+	}
+
+	/**
+	 * @return <code>Map</code> of lower-cased element name to
+	 *         {@link MetadataElement} for a template
+	 */
+	private Map<String, MetadataElement> indexElementsByName(
+			final MetadataTemplate metadataTemplate) {
+		Map<String, MetadataElement> elementsByName = new HashMap<String, MetadataElement>();
+
+		if (metadataTemplate.getType() == TemplateTypeEnum.FORM_BASED) {
+			for (MetadataElement me : ((FormBasedMetadataTemplate) metadataTemplate)
+					.getElements()) {
+				String key = me.getName().toLowerCase();
+				// first element of a given name wins, as in a linear search
+				if (!elementsByName.containsKey(key)) {
+					elementsByName.put(key, me);
+				}
+			}
+		} // XXX else if (metadataTemplate is a different kind of template)
+
+		return elementsByName;
+	}
+
+	String getValueFromRefQuery(String refQuery, String irodsAbsolutePath) {
+		String returnString = "";
+		/*
+		 * try { // Check if need to reinitialize dataProfileAccessor if
+		 * (dataProfileAccessor == null ||
+		 * !dataProfileAccessor.getIrodsAbsolutePath()
+		 * .equalsIgnoreCase(irodsAbsolutePath) ||
+		 * !dataProfileAccessor.getIrodsUserName()
+		 * .equalsIgnoreCase(irodsAccount.getUserName())) {
 		 * log.info("XXXXX Initializing dataProfileAccessor");
 		 * dataProfileAccessor = new DataProfileAccessorServiceImpl(
 		 * irodsAccount, irodsAccessObjectFactory, irodsAbsolutePath); }
@@ -1064,8 +1842,8 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 
 	/**
 	 * Parse an array of File objects to a list of MetadataTemplate objects.
-	 * Calls <code>processFileToMetadataTemplate</code> iteratively for each
-	 * <code>File</code>.
+	 * The UUIDs and timestamps of all of the files are fetched with a single
+	 * query, then each <code>File</code> is read and parsed in turn.
 	 * 
 	 * @param inFileArray
 	 *            an array of File objects
@@ -1078,12 +1856,25 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			throws JargonException, IOException,
 			MetadataTemplateProcessingException,
 			MetadataTemplateParsingException {
-		log.info("processFilesToMetadataTemplates()");
+		log.debug("processFilesToMetadataTemplates()");
+
+		long start = System.nanoTime();
 
 		List<MetadataTemplate> returnList = new ArrayList<MetadataTemplate>();
 
-		List<String> templateNames = new ArrayList<String>();
+		// Fetch the UUIDs and timestamps for all of the files at once
+		List<String> fqNames = new ArrayList<String>();
+		for (File f : inFileArray) {
+			fqNames.add(f.getAbsolutePath());
+		}
+
+		Map<String, MetadataTemplateCatalogQuery.Entry> catalogEntries = new MetadataTemplateCatalogQuery(
+				irodsAccessObjectFactory, irodsAccount, dotIrodsMetrics)
+				.findCatalogEntries(fqNames);
+
+		Set<String> templateNames = new HashSet<String>();
 		String fileNameWithoutExtension = null;
+		MetadataTemplateCatalogQuery.Entry catalogEntry = null;
 
 		for (File f : inFileArray) {
 			// Handle "list order" for TemplatesInCollection and Public
@@ -1093,10 +1884,12 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			if (templateNames.contains(fileNameWithoutExtension))
 				break;
 
-			returnList.add(processFileToMetadataTemplate(f));
+			catalogEntry = catalogEntries.get(f.getAbsolutePath());
+			returnList.add(processFileToMetadataTemplate(f, catalogEntry));
 			templateNames.add(returnList.get(returnList.size() - 1).getName());
 		}
 
+		recordOperation("processFilesToMetadataTemplates", start);
 		return returnList;
 	}
 
@@ -1107,7 +1900,8 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 	 * <p>
 	 * If the file does not already have a UUID associated with it, this
 	 * function will generate one and add an AVU containing it to the file as a
-	 * side effect.</p
+	 * side effect, unless the resolver is read only, in which case the UUID is
+	 * derived from the path and nothing is written.</p
 	 * 
 	 * @param inFile
 	 *            {@link File}
@@ -1119,82 +1913,370 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			throws JargonException, IOException,
 			MetadataTemplateProcessingException,
 			MetadataTemplateParsingException {
-		log.info("processFileToMetadataTemplate()");
-
-		MetadataTemplate returnTemplate = null;
-		IRODSFileInputStream fis = null;
-		byte[] b = null;
+		log.debug("processFileToMetadataTemplate()");
 
-		fis = irodsAccessObjectFactory.getIRODSFileFactory(irodsAccount)
-				.instanceIRODSFileInputStream((IRODSFileImpl) inFile);
+		// Also establishes that the file exists
+		String fqName = inFile.getAbsolutePath();
+		ObjStat objStat = irodsAccessObjectFactory.getIRODSFileSystemAO(
+				irodsAccount).getObjStat(fqName);
 
 		// If a template does not have a UUID assigned on opening, generate a
 		// new one and apply it.
 		//
-		// By checking here, we already know that the File must exist due to
-		// .instanceIRODSFileInputStream()
-		//
 		// By convention, a metadata template file must have an associated AVU
 		// s.t.
 		// Attribute = Template Name, Value = UUID, and unit = iRODS:MDTemplate
 		List<MetaDataAndDomainData> queryResult = new ArrayList<MetaDataAndDomainData>();
 
-		log.info("AvuQuery to see if file has UUID already");
+		log.debug("AvuQuery to see if file has UUID already");
 
 		try {
-			queryResult = this
-					.queryTemplateAVUForFile(inFile.getAbsolutePath());
+			queryResult = this.queryTemplateAVUForFile(fqName);
 		} catch (JargonQueryException jqe) {
 			log.error("AvuQuery for UUID failed!", jqe);
 		}
 
+		if (queryResult.isEmpty() && readOnly) {
+			log.debug("MDTemplate AVU not found, read only, using path UUID");
+			return processFileToMetadataTemplate(inFile,
+					computeTemplateUuidForPath(fqName), objStat);
+		}
+
 		if (queryResult.isEmpty()) {
 			log.info("MDTemplate AVU not found. Generating new one...");
 			addMdTemplateAVUToFile(
 					LocalFileUtils.getFileNameUpToExtension(inFile.getName()),
-					inFile.getAbsolutePath());
+					fqName);
 
 			try {
-				queryResult = this.queryTemplateAVUForFile(inFile
-						.getAbsolutePath());
+				queryResult = this.queryTemplateAVUForFile(fqName);
 			} catch (JargonQueryException jqe) {
 				log.error("AvuQuery for UUID failed!", jqe);
 			}
 		} else {
-			log.info("MDTemplate AVU present. continuing...");
+			log.debug("MDTemplate AVU present. continuing...");
 		}
 
-		b = new byte[fis.available()];
+		return processFileToMetadataTemplate(inFile,
+				UUID.fromString(queryResult.get(0).getAvuValue()), objStat);
+	}
+
+	/**
+	 * Parse a File object to a MetadataTemplate object, given the UUID and
+	 * catalog data for the file that the caller has already looked up
+	 * 
+	 * @param inFile
+	 *            {@link File}
+	 * @param uuid
+	 *            <code>UUID</code> from the file's iRODS:MDTemplate AVU
+	 * @param objStat
+	 *            {@link ObjStat} for the file
+	 * @return a <code>MetadataTemplate</code>
+	 * @throws JargonException
+	 * @throws IOException
+	 */
+	private MetadataTemplate processFileToMetadataTemplate(File inFile,
+			UUID uuid, ObjStat objStat) throws JargonException, IOException,
+			MetadataTemplateProcessingException,
+			MetadataTemplateParsingException {
+		long start = System.nanoTime();
+
+		MetadataTemplate returnTemplate = null;
+
+		String fqName = inFile.getAbsolutePath();
+
+		if (metadataTemplateUuidIndex != null) {
+			metadataTemplateUuidIndex.record(irodsAccount, uuid, fqName);
+		}
 
-		log.info("Size of file in bytes: {}", b.length);
+		if (metadataTemplateCache != null) {
+			returnTemplate = metadataTemplateCache.lookup(irodsAccount, fqName,
+					objStat);
+			if (returnTemplate != null) {
+				log.debug("template unchanged since cached: {}", fqName);
+				// the UUID AVU is not part of the cached stat, so decorate
+				// with the one just read rather than the one cached
+				returnTemplate.setFqName(fqName);
+				returnTemplate.setUuid(uuid);
+				recordOperation("processFileToMetadataTemplate", start);
+				return returnTemplate;
+			}
+		}
 
-		fis.read(b);
+		// the stream is read to end of file and closed by the reader
+		String decoded = DotIrodsFileReader.readFully(irodsAccessObjectFactory
+				.getIRODSFileFactory(irodsAccount).instanceIRODSFileInputStream(
+						(IRODSFileImpl) inFile), "UTF-8", null, dotIrodsMetrics);
 
-		String decoded = new String(b, "UTF-8");
+		log.debug("Size of file in bytes: {}", objStat.getObjSize());
 
-		log.info("Decoded string rep of byte array:\n{}", decoded);
+		if (log.isTraceEnabled()) {
+			log.trace("template JSON for {}:\n{}", fqName, decoded);
+		}
 
 		returnTemplate = parser.createMetadataTemplateFromJSON(decoded);
 
 		// Decorate with data stored in iRODS db, not in file text
 
 		// fqName
-		returnTemplate.setFqName(inFile.getAbsolutePath());
+		returnTemplate.setFqName(fqName);
 
 		// UUID
-		returnTemplate.setUuid(UUID
-				.fromString(queryResult.get(0).getAvuValue()));
+		returnTemplate.setUuid(uuid);
 
 		// Date created, dateModified
-		irodsAccessObjectFactory.getIRODSFileSystemAO(irodsAccount);
-		ObjStat objStat = irodsAccessObjectFactory.getIRODSFileSystemAO(
-				irodsAccount).getObjStat(inFile.getAbsolutePath());
 		returnTemplate.getCreated().setTime(objStat.getCreatedAt().getTime());
 		returnTemplate.getModified().setTime(objStat.getModifiedAt().getTime());
 
+		if (metadataTemplateCache != null) {
+			metadataTemplateCache.record(irodsAccount, fqName, objStat,
+					returnTemplate);
+		}
+
+		recordOperation("processFileToMetadataTemplate", start);
 		return returnTemplate;
 	}
 
+	/**
+	 * Parse a File object to a MetadataTemplate object, using its catalog data
+	 * if already looked up
+	 * 
+	 * @param inFile
+	 *            {@link File}
+	 * @param catalogEntry
+	 *            catalog data for the file, or <code>null</code> if the file
+	 *            has no iRODS:MDTemplate AVU yet
+	 * @return a <code>MetadataTemplate</code>
+	 * @throws JargonException
+	 * @throws IOException
+	 */
+	private MetadataTemplate processFileToMetadataTemplate(File inFile,
+			MetadataTemplateCatalogQuery.Entry catalogEntry)
+			throws JargonException, IOException,
+			MetadataTemplateProcessingException,
+			MetadataTemplateParsingException {
+		// Files without a UUID AVU yet go the long way, which adds one
+		if (catalogEntry == null) {
+			return processFileToMetadataTemplate(inFile);
+		}
+
+		return processFileToMetadataTemplate(inFile, catalogEntry.getUuid(),
+				catalogEntry.getObjStat());
+	}
+
+	/**
+	 * Template files found in one public template location, with their
+	 * catalog data
+	 */
+	private static class PublicTemplateLocation {
+		private final File[] files;
+		private final Map<String, MetadataTemplateCatalogQuery.Entry> catalogEntries;
+
+		PublicTemplateLocation(final File[] files,
+				final Map<String, MetadataTemplateCatalogQuery.Entry> catalogEntries) {
+			this.files = files;
+			this.catalogEntries = catalogEntries;
+		}
+	}
+
+	/**
+	 * <code>listPublicTemplates</code> on the template executor. Every
+	 * location is listed at once, and as soon as a location is listed, the
+	 * files that already have catalog data are parsed speculatively, which
+	 * only reads. Results are then gathered on the calling thread in location
+	 * and file order, so the first location still wins, and a location that
+	 * fails is skipped as a whole, just as when loading one at a time. Files
+	 * without a UUID AVU, whose parse writes one, are only parsed on the
+	 * calling thread once the ordering rules have reached them, so they have
+	 * the same side effects as when loading one at a time.
+	 */
+	private List<MetadataTemplate> listPublicTemplatesConcurrently() {
+		log.debug("listPublicTemplatesConcurrently()");
+
+		List<String> locations = this.getPublicTemplateLocations();
+
+		List<Future<PublicTemplateLocation>> listings = new ArrayList<Future<PublicTemplateLocation>>();
+		List<Future<MetadataTemplate>> submitted = new ArrayList<Future<MetadataTemplate>>();
+
+		try {
+			for (final String dir : locations) {
+				listings.add(templateExecutorService
+						.submit(new Callable<PublicTemplateLocation>() {
+							@Override
+							public PublicTemplateLocation call()
+									throws JargonException {
+								return listPublicTemplateLocation(dir);
+							}
+						}));
+			}
+
+			List<List<Future<MetadataTemplate>>> parses = new ArrayList<List<Future<MetadataTemplate>>>();
+			List<File[]> locationFiles = new ArrayList<File[]>();
+			for (int i = 0; i < locations.size(); i++) {
+				PublicTemplateLocation location = awaitPublicTemplateTask(
+						listings.get(i), locations.get(i));
+				if (location == null) {
+					parses.add(null);
+					locationFiles.add(null);
+					continue;
+				}
+
+				// a null parse is deferred to the calling thread
+				List<Future<MetadataTemplate>> locationParses = new ArrayList<Future<MetadataTemplate>>();
+				for (final File f : location.files) {
+					final MetadataTemplateCatalogQuery.Entry catalogEntry = location.catalogEntries
+							.get(f.getAbsolutePath());
+					if (catalogEntry == null) {
+						locationParses.add(null);
+						continue;
+					}
+
+					Future<MetadataTemplate> parse = templateExecutorService
+							.submit(new Callable<MetadataTemplate>() {
+								@Override
+								public MetadataTemplate call() throws Exception {
+									return processFileToMetadataTemplate(f,
+											catalogEntry);
+								}
+							});
+					locationParses.add(parse);
+					submitted.add(parse);
+				}
+				parses.add(locationParses);
+				locationFiles.add(location.files);
+			}
+
+			List<MetadataTemplate> tempList = new ArrayList<MetadataTemplate>();
+			Set<String> templateNames = new HashSet<String>();
+
+			for (int i = 0; i < locations.size(); i++) {
+				if (parses.get(i) == null) {
+					continue;
+				}
+
+				// Same "list order" rule as processFilesToMetadataTemplates
+				List<MetadataTemplate> locationTemplates = new ArrayList<MetadataTemplate>();
+				Set<String> locationNames = new HashSet<String>();
+				boolean failed = false;
+				for (int j = 0; j < parses.get(i).size(); j++) {
+					File f = locationFiles.get(i)[j];
+					if (locationNames.contains(LocalFileUtils
+							.getFileNameUpToExtension(f.getName()))) {
+						break;
+					}
+
+					MetadataTemplate newMT;
+					if (parses.get(i).get(j) != null) {
+						newMT = awaitPublicTemplateTask(parses.get(i).get(j),
+								locations.get(i));
+					} else {
+						newMT = processDeferredPublicTemplate(f,
+								locations.get(i));
+					}
+					if (newMT == null) {
+						failed = true;
+						break;
+					}
+					locationTemplates.add(newMT);
+					locationNames.add(newMT.getName());
+				}
+
+				if (failed) {
+					continue;
+				}
+
+				for (MetadataTemplate newMT : locationTemplates) {
+					// If another template of the same name has already been
+					// found, it takes priority
+					if (templateNames.add(newMT.getName()))
+						tempList.add(newMT);
+				}
+			}
+
+			return tempList;
+
+		} finally {
+			// parses past a break or a failure are not needed
+			for (Future<PublicTemplateLocation> listing : listings) {
+				listing.cancel(true);
+			}
+			for (Future<MetadataTemplate> parse : submitted) {
+				parse.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Parse a public template file that has no UUID AVU yet, on the calling
+	 * thread, as doing so may write one
+	 * 
+	 * @return the template, or <code>null</code> if it failed, in which case
+	 *         the error is logged
+	 */
+	private MetadataTemplate processDeferredPublicTemplate(final File f,
+			final String dir) {
+		try {
+			return processFileToMetadataTemplate(f);
+		} catch (JargonException je) {
+			log.error("JargonException when processing templates in {}", dir,
+					je);
+		} catch (IOException ie) {
+			log.error("IOException when processing templates in {}", dir, ie);
+		}
+		return null;
+	}
+
+	/**
+	 * List the template files in a public template location, and fetch their
+	 * catalog data with one query
+	 */
+	private PublicTemplateLocation listPublicTemplateLocation(final String dir)
+			throws JargonException {
+		log.debug("listPublicTemplateLocation:{}", dir);
+
+		File[] files = irodsAccessObjectFactory
+				.getIRODSFileFactory(irodsAccount).instanceIRODSFile(dir)
+				.listFiles(new MetadataTemplateFileFilter());
+		if (files == null) {
+			files = new File[0];
+		}
+
+		List<String> fqNames = new ArrayList<String>();
+		for (File f : files) {
+			fqNames.add(f.getAbsolutePath());
+		}
+
+		return new PublicTemplateLocation(files,
+				new MetadataTemplateCatalogQuery(irodsAccessObjectFactory,
+						irodsAccount, dotIrodsMetrics)
+						.findCatalogEntries(fqNames));
+	}
+
+	/**
+	 * Wait for a public template task
+	 * 
+	 * @return the result of the task, or <code>null</code> if it failed, in
+	 *         which case the error is logged
+	 * @throws JargonRuntimeException
+	 *             if the calling thread is interrupted, rather than returning
+	 *             a partial list
+	 */
+	private <T> T awaitPublicTemplateTask(final Future<T> future,
+			final String dir) {
+		try {
+			return future.get();
+		} catch (ExecutionException ee) {
+			log.error("Exception when processing templates in {}", dir,
+					ee.getCause());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			log.error("interrupted when processing templates in {}", dir, ie);
+			throw new JargonRuntimeException(
+					"interrupted listing public templates", ie);
+		}
+		return null;
+	}
+
 	/**
 	 * 
 	 */
@@ -1202,7 +2284,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 			String irodsAbsolutePathToCollection) throws IOException,
 			JargonException, MetadataTemplateProcessingException,
 			MetadataTemplateParsingException {
-		log.info("listTemplatesInCollection()");
+		log.debug("listTemplatesInCollection()");
 
 		if (irodsAbsolutePathToCollection == null
 				|| irodsAbsolutePathToCollection.isEmpty()) {
@@ -1210,7 +2292,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 					"null or empty irodsAbsolutePathToCollection");
 		}
 
-		log.info("irodsAbsolutePathToCollection: {}",
+		log.debug("irodsAbsolutePathToCollection: {}",
 				irodsAbsolutePathToCollection);
 
 		IRODSFile collectionIrodsFile = null;
@@ -1237,8 +2319,21 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 	 */
 	void addMdTemplateAVUToFile(String name, String path)
 			throws JargonException {
+		addMdTemplateAVUToFile(name, path, UUID.randomUUID());
+	}
+
+	/**
+	 * Adds an AVU with the given UUID to a metadata template file denoting the
+	 * template itself
+	 * 
+	 * @param name
+	 * @param path
+	 * @param uuid
+	 * @throws JargonException
+	 */
+	void addMdTemplateAVUToFile(String name, String path, UUID uuid)
+			throws JargonException {
 		log.info("addMdTemplateAVUToFile, name = {}", name);
-		UUID uuid = UUID.randomUUID();
 		AvuData avuData = AvuData.instance(name, uuid.toString(),
 				JargonMetadataTemplateConstants.MD_TEMPLATE_UNIT);
 		irodsAccessObjectFactory.getDataObjectAO(irodsAccount).addAVUMetadata(
@@ -1373,20 +2468,9 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 
 		log.info("irodsAbsolutePathToParent: {}", irodsAbsolutePathToParent);
 
-		String metadataTemplatesPath = this
-				.computeMetadataTemplatesPathUnderParent(irodsAbsolutePathToParent);
-		log.info("metadataTemplatesPath computed to be:{}",
-				metadataTemplatesPath);
-
-		IRODSFile dotIrodsFile = this.getPathAsIrodsFile(metadataTemplatesPath);
-		if (dotIrodsFile == null) {
-			// A JargonException was caught in getPathAsIrodsFile
-			throw new JargonException(
-					"JargonException thrown by instanceIRODSFile in getPathAsIrodsFile");
-		}
-		log.info("created");
-
-		return dotIrodsFile.mkdirs();
+		return dotIrodsService.createSubDirUnderDotIrods(
+				computeDotIrodsPathUnderParent(irodsAbsolutePathToParent),
+				DotIrodsConstants.METADATA_TEMPLATES_SUBDIR);
 	}
 
 	boolean createMetadataTemplatesCollectionUnderDotIrods(
@@ -1401,25 +2485,13 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 
 		log.info("irodsAbsolutePathToDotIrods: {}", irodsAbsolutePathToDotIrods);
 
-		String metadataTemplatesPath = this
-				.computeMetadataTemplatesPathUnderDotIrods(irodsAbsolutePathToDotIrods);
-		log.info("metadataTemplatesPath computed to be:{}",
-				metadataTemplatesPath);
-
-		IRODSFile metadataTemplatesFile = this
-				.getPathAsIrodsFile(metadataTemplatesPath);
-		if (metadataTemplatesFile == null) {
-			// A JargonException was caught in getPathAsIrodsFile
-			throw new JargonException(
-					"JargonException thrown by instanceIRODSFile in getPathAsIrodsFile");
-		}
-		log.info("created");
-
-		return metadataTemplatesFile.mkdirs();
+		return dotIrodsService.createSubDirUnderDotIrods(
+				irodsAbsolutePathToDotIrods,
+				DotIrodsConstants.METADATA_TEMPLATES_SUBDIR);
 	}
 
 	String computeDotIrodsPathUnderParent(final String irodsAbsolutePathToParent) {
-		log.info("computeDotIrodsPathUnderParent");
+		log.debug("computeDotIrodsPathUnderParent");
 
 		if (irodsAbsolutePathToParent == null
 				|| irodsAbsolutePathToParent.isEmpty()) {
@@ -1435,7 +2507,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 
 	String computeMetadataTemplatesPathUnderParent(
 			final String irodsAbsolutePathToParent) {
-		log.info("computeMetadataTemplatesPathUnderParent");
+		log.debug("computeMetadataTemplatesPathUnderParent");
 
 		if (irodsAbsolutePathToParent == null
 				|| irodsAbsolutePathToParent.isEmpty()) {
@@ -1451,7 +2523,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 
 	String computeMetadataTemplatesPathUnderDotIrods(
 			final String irodsAbsolutePathToDotIrods) {
-		log.info("computeMetadataTemplatesPathUnderDotIrods");
+		log.debug("computeMetadataTemplatesPathUnderDotIrods");
 
 		if (irodsAbsolutePathToDotIrods == null
 				|| irodsAbsolutePathToDotIrods.isEmpty()) {
@@ -1467,27 +2539,27 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 
 	boolean isMetadataTemplatesCollectionPresentUnderParentCollection(
 			String irodsAbsolutePath) {
-		log.info("isMetadataTemplatesCollectionPresentUnderParentCollection()");
+		log.debug("isMetadataTemplatesCollectionPresentUnderParentCollection()");
 
 		if (irodsAbsolutePath == null || irodsAbsolutePath.isEmpty()) {
 			throw new IllegalArgumentException(
 					"null or empty irodsAbsolutePath");
 		}
 
-		log.info("irodsAbsolutePath:{}", irodsAbsolutePath);
+		log.debug("irodsAbsolutePath:{}", irodsAbsolutePath);
 
 		try {
 			@SuppressWarnings("unused")
 			Collection collection = irodsAccessObjectFactory.getCollectionAO(
 					irodsAccount).findByAbsolutePath(irodsAbsolutePath);
 		} catch (JargonException je) {
-			log.info(
+			log.debug(
 					"JargonException thrown by findByAbsolutePath, {} does not exist or {} does not have sufficient permissions",
 					irodsAbsolutePath, irodsAccount);
 			return false;
 		}
 
-		log.info("{} exists", irodsAbsolutePath);
+		log.debug("{} exists", irodsAbsolutePath);
 
 		IRODSFile metadataTemplatesCollectionAsFile = this
 				.getPathAsIrodsFile(this
@@ -1498,7 +2570,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 
 	boolean isMetadataTemplatesCollectionPresentUnderDotIrodsCollection(
 			String irodsAbsolutePathToDotIrods) {
-		log.info("isMetadataTemplatesCollectionPresentUnderParentCollection()");
+		log.debug("isMetadataTemplatesCollectionPresentUnderParentCollection()");
 
 		if (irodsAbsolutePathToDotIrods == null
 				|| irodsAbsolutePathToDotIrods.isEmpty()) {
@@ -1506,7 +2578,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 					"null or empty irodsAbsolutePathToDotIrods");
 		}
 
-		log.info("irodsAbsolutePathToDotIrods:{}", irodsAbsolutePathToDotIrods);
+		log.debug("irodsAbsolutePathToDotIrods:{}", irodsAbsolutePathToDotIrods);
 
 		try {
 			@SuppressWarnings("unused")
@@ -1514,13 +2586,13 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 					irodsAccount).findByAbsolutePath(
 					irodsAbsolutePathToDotIrods);
 		} catch (JargonException je) {
-			log.info(
+			log.debug(
 					"JargonException thrown by findByAbsolutePath, {} does not exist or {} does not have sufficient permissions",
 					irodsAbsolutePathToDotIrods, irodsAccount);
 			return false;
 		}
 
-		log.info("{} exists", irodsAbsolutePathToDotIrods);
+		log.debug("{} exists", irodsAbsolutePathToDotIrods);
 
 		IRODSFile metadataTemplatesCollectionAsFile = this
 				.getPathAsIrodsFile(this
@@ -1530,58 +2602,50 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 	}
 
 	boolean isDotIrodsCollectionPresentInCollection(String irodsAbsolutePath) {
-		log.info("isDotIrodsCollectionPresentInCollection()");
+		log.debug("isDotIrodsCollectionPresentInCollection()");
 
 		if (irodsAbsolutePath == null || irodsAbsolutePath.isEmpty()) {
 			throw new IllegalArgumentException(
 					"null or empty irodsAbsolutePath");
 		}
 
-		log.info("irodsAbsolutePath:{}", irodsAbsolutePath);
+		log.debug("irodsAbsolutePath:{}", irodsAbsolutePath);
 
 		try {
-			@SuppressWarnings("unused")
-			Collection collection = irodsAccessObjectFactory.getCollectionAO(
-					irodsAccount).findByAbsolutePath(irodsAbsolutePath);
+			return dotIrodsService
+					.dotIrodsCollectionPresentInCollection(irodsAbsolutePath);
 		} catch (JargonException je) {
-			log.info(
-					"JargonException thrown by findByAbsolutePath, {} does not exist or {} does not have sufficient permissions",
+			log.debug(
+					"JargonException thrown by dotIrodsCollectionPresentInCollection, {} does not exist or {} does not have sufficient permissions",
 					computeDotIrodsPathUnderParent(irodsAbsolutePath),
 					irodsAccount);
 			return false;
 		}
-
-		log.info("{} exists", irodsAbsolutePath);
-
-		IRODSFile dotIrodsCollectionAsFile = this.getPathAsIrodsFile(this
-				.computeDotIrodsPathUnderParent(irodsAbsolutePath));
-
-		return (dotIrodsCollectionAsFile != null);
 	}
 
 	boolean isMetadataTemplatesCollection(String irodsAbsolutePath) {
-		log.info("isMetadataTemplatesCollection()");
+		log.debug("isMetadataTemplatesCollection()");
 
 		if (irodsAbsolutePath == null || irodsAbsolutePath.isEmpty()) {
 			throw new IllegalArgumentException(
 					"null or empty irodsAbsolutePath");
 		}
 
-		log.info("irodsAbsolutePath:{}", irodsAbsolutePath);
+		log.debug("irodsAbsolutePath:{}", irodsAbsolutePath);
 
 		try {
 			@SuppressWarnings("unused")
 			Collection collection = irodsAccessObjectFactory.getCollectionAO(
 					irodsAccount).findByAbsolutePath(irodsAbsolutePath);
 		} catch (JargonException je) {
-			log.info(
+			log.debug(
 					"JargonException thrown by findByAbsolutePath, {} does not exist or {} does not have sufficient permissions",
 					computeDotIrodsPathUnderParent(irodsAbsolutePath),
 					irodsAccount);
 			return false;
 		}
 
-		log.info("{} exists", irodsAbsolutePath);
+		log.debug("{} exists", irodsAbsolutePath);
 
 		boolean retVal = false;
 
@@ -1602,28 +2666,28 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 	}
 
 	boolean isDotIrodsCollection(String irodsAbsolutePath) {
-		log.info("isDotIrodsCollection()");
+		log.debug("isDotIrodsCollection()");
 
 		if (irodsAbsolutePath == null || irodsAbsolutePath.isEmpty()) {
 			throw new IllegalArgumentException(
 					"null or empty irodsAbsolutePath");
 		}
 
-		log.info("irodsAbsolutePath:{}", irodsAbsolutePath);
+		log.debug("irodsAbsolutePath:{}", irodsAbsolutePath);
 
 		try {
 			@SuppressWarnings("unused")
 			Collection collection = irodsAccessObjectFactory.getCollectionAO(
 					irodsAccount).findByAbsolutePath(irodsAbsolutePath);
 		} catch (JargonException je) {
-			log.info(
+			log.debug(
 					"JargonException thrown by findByAbsolutePath, {} does not exist or {} does not have sufficient permissions",
 					computeDotIrodsPathUnderParent(irodsAbsolutePath),
 					irodsAccount);
 			return false;
 		}
 
-		log.info("{} exists", irodsAbsolutePath);
+		log.debug("{} exists", irodsAbsolutePath);
 
 		boolean retVal = false;
 
@@ -1643,7 +2707,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 	}
 
 	IRODSFile getPathAsIrodsFile(String irodsAbsolutePath) {
-		log.info("getPathAsIrodsFile()");
+		log.debug("getPathAsIrodsFile()");
 
 		IRODSFile retFile = null;
 
@@ -1691,7 +2755,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 	List<MetaDataAndDomainData> queryTemplateAVUForFile(
 			String irodsAbsolutePathToFile) throws JargonQueryException,
 			JargonException {
-		log.info("queryTemplateAVUForFile()");
+		log.debug("queryTemplateAVUForFile()");
 
 		List<AVUQueryElement> queryElements = new ArrayList<AVUQueryElement>();
 		List<MetaDataAndDomainData> queryResult = new ArrayList<MetaDataAndDomainData>();
@@ -1701,6 +2765,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 				QueryConditionOperators.EQUAL,
 				JargonMetadataTemplateConstants.MD_TEMPLATE_UNIT));
 
+		recordQuery();
 		queryResult = irodsAccessObjectFactory.getDataObjectAO(irodsAccount)
 				.findMetadataValuesForDataObjectUsingAVUQuery(queryElements,
 						irodsAbsolutePathToFile);
@@ -1711,7 +2776,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 	List<MetaDataAndDomainData> queryElementAVUForFile(
 			String irodsAbsolutePathToFile) throws JargonQueryException,
 			JargonException {
-		log.info("queryElementAVUForFile()");
+		log.debug("queryElementAVUForFile()");
 
 		List<AVUQueryElement> queryElements = new ArrayList<AVUQueryElement>();
 		List<MetaDataAndDomainData> queryResult = new ArrayList<MetaDataAndDomainData>();
@@ -1721,6 +2786,7 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 				QueryConditionOperators.EQUAL,
 				JargonMetadataTemplateConstants.MD_ELEMENT_UNIT));
 
+		recordQuery();
 		queryResult = irodsAccessObjectFactory.getDataObjectAO(irodsAccount)
 				.findMetadataValuesForDataObjectUsingAVUQuery(queryElements,
 						irodsAbsolutePathToFile);
@@ -1728,6 +2794,61 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 		return queryResult;
 	}
 
+	/**
+	 * Give each of the given template files that does not have one yet an
+	 * iRODS:MDTemplate AVU. This is the explicit counterpart of read only
+	 * mode: the files that already have a UUID are found with one query, and
+	 * each of the others is given the same path-derived UUID that read only
+	 * resolution reported for it, so AVUs already saved against that UUID
+	 * still match.
+	 * 
+	 * @param fqNames
+	 *            <code>List</code> of absolute paths to template files
+	 * @return <code>Map</code> of absolute path to UUID, for the files
+	 *         registered by this call
+	 * @throws JargonException
+	 */
+	public Map<String, UUID> registerTemplates(List<String> fqNames)
+			throws JargonException {
+		log.info("registerTemplates()");
+
+		if (fqNames == null) {
+			throw new IllegalArgumentException("null fqNames");
+		}
+
+		Set<String> unique = new LinkedHashSet<String>(fqNames);
+		Map<String, MetadataTemplateCatalogQuery.Entry> catalogEntries = new MetadataTemplateCatalogQuery(
+				irodsAccessObjectFactory, irodsAccount, dotIrodsMetrics)
+				.findCatalogEntries(new ArrayList<String>(unique));
+
+		Map<String, UUID> registered = new LinkedHashMap<String, UUID>();
+		for (String fqName : unique) {
+			if (catalogEntries.containsKey(fqName)) {
+				continue;
+			}
+
+			UUID uuid = computeTemplateUuidForPath(fqName);
+			addMdTemplateAVUToFile(getLocalFileNameWithoutExtension(fqName),
+					fqName, uuid);
+			registered.put(fqName, uuid);
+		}
+
+		log.info("registered {} of {} templates", registered.size(),
+				unique.size());
+
+		return registered;
+	}
+
+	/**
+	 * UUID for a template file that has no iRODS:MDTemplate AVU, derived from
+	 * its path so that it is the same every time the file is read, until the
+	 * file is moved
+	 */
+	static UUID computeTemplateUuidForPath(String fqName) {
+		return UUID.nameUUIDFromBytes((JargonMetadataTemplateConstants.MD_TEMPLATE_UNIT
+				+ ':' + fqName).getBytes(StandardCharsets.UTF_8));
+	}
+
 	String getLocalFileNameWithoutExtension(String inFileName) {
 		String localFileName;
 		int lastSlash = inFileName.lastIndexOf('/');
@@ -1739,6 +2860,241 @@ public class JargonMetadataResolver extends AbstractMetadataResolver {
 		return LocalFileUtils.getFileNameUpToExtension(localFileName);
 	}
 
+	/**
+	 * @return the {@link DotIrodsService} used to discover .irods collections
+	 */
+	public DotIrodsService getDotIrodsService() {
+		return dotIrodsService;
+	}
+
+	/**
+	 * @param dotIrodsService
+	 *            the {@link DotIrodsService} used to discover .irods
+	 *            collections, for example one configured with a shared
+	 *            existence cache
+	 */
+	public void setDotIrodsService(DotIrodsService dotIrodsService) {
+		this.dotIrodsService = dotIrodsService;
+	}
+
+	/**
+	 * Tell the template cache, UUID index and hierarchy index, if configured,
+	 * that a template file was written, renamed or deleted
+	 */
+	private void invalidateTemplateCache(final String fqName) {
+		if (metadataTemplateCache != null) {
+			metadataTemplateCache.invalidate(fqName);
+		}
+
+		if (metadataTemplateUuidIndex != null) {
+			metadataTemplateUuidIndex.invalidate(fqName);
+		}
+
+		if (metadataTemplateHierarchyIndex != null) {
+			refreshTemplateHierarchyIndex(fqName);
+		}
+	}
+
+	/**
+	 * Find the template files in effect for a path in the hierarchy index,
+	 * building the index for this user first if need be
+	 */
+	private File[] listTemplateFilesFromHierarchyIndex(
+			final String absolutePath) throws JargonException {
+		List<String> fqNames = metadataTemplateHierarchyIndex.lookup(
+				irodsAccount, absolutePath);
+
+		if (fqNames == null) {
+			log.debug("building template hierarchy index");
+			metadataTemplateHierarchyIndex.build(irodsAccount,
+					new MetadataTemplateCatalogQuery(irodsAccessObjectFactory,
+							irodsAccount, dotIrodsMetrics)
+							.findTemplateFilesInDotIrods(null));
+			fqNames = metadataTemplateHierarchyIndex.lookup(irodsAccount,
+					absolutePath);
+		}
+
+		IRODSFileFactory irodsFileFactory = irodsAccessObjectFactory
+				.getIRODSFileFactory(irodsAccount);
+		File[] templateFiles = new File[fqNames.size()];
+		for (int i = 0; i < templateFiles.length; i++) {
+			templateFiles[i] = (File) irodsFileFactory
+					.instanceIRODSFile(fqNames.get(i));
+		}
+
+		return templateFiles;
+	}
+
+	/**
+	 * Re-list the templates of the collection holding a template file that
+	 * was written, renamed or deleted, so that the hierarchy index reflects
+	 * the change. If that fails, the index is discarded and rebuilt on next
+	 * use.
+	 */
+	private void refreshTemplateHierarchyIndex(final String fqName) {
+		String owner = MetadataTemplateCatalogQuery
+				.computeTemplateDirOwner(MetadataTemplateCatalogQuery
+						.computeParent(fqName));
+		if (owner == null
+				|| !metadataTemplateHierarchyIndex.isBuilt(irodsAccount)) {
+			return;
+		}
+
+		log.debug("refreshing template hierarchy index for {}", owner);
+
+		try {
+			List<String> templateFiles = new MetadataTemplateCatalogQuery(
+					irodsAccessObjectFactory, irodsAccount, dotIrodsMetrics)
+					.findTemplateFilesInDotIrods(owner).get(owner);
+			metadataTemplateHierarchyIndex.updateCollection(irodsAccount,
+					owner, templateFiles == null ? new ArrayList<String>()
+							: templateFiles);
+		} catch (JargonException je) {
+			log.warn("unable to refresh template hierarchy index, discarding",
+					je);
+			metadataTemplateHierarchyIndex.invalidateAll();
+		}
+	}
+
+	/**
+	 * @return the {@link MetadataTemplateCache}, or <code>null</code> if
+	 *         templates are not cached
+	 */
+	public MetadataTemplateCache getMetadataTemplateCache() {
+		return metadataTemplateCache;
+	}
+
+	/**
+	 * @param metadataTemplateCache
+	 *            {@link MetadataTemplateCache} holding templates already read.
+	 *            This is typically a single instance shared by all resolvers.
+	 *            May be <code>null</code> to disable caching.
+	 */
+	public void setMetadataTemplateCache(
+			final MetadataTemplateCache metadataTemplateCache) {
+		this.metadataTemplateCache = metadataTemplateCache;
+	}
+
+	/**
+	 * @return the {@link MetadataTemplateUuidIndex}, or <code>null</code> if
+	 *         template UUIDs are not indexed
+	 */
+	public MetadataTemplateUuidIndex getMetadataTemplateUuidIndex() {
+		return metadataTemplateUuidIndex;
+	}
+
+	/**
+	 * @param metadataTemplateUuidIndex
+	 *            {@link MetadataTemplateUuidIndex} used to find templates by
+	 *            UUID. This is typically a single instance shared by all
+	 *            resolvers. May be <code>null</code> to always query the
+	 *            catalog.
+	 */
+	public void setMetadataTemplateUuidIndex(
+			final MetadataTemplateUuidIndex metadataTemplateUuidIndex) {
+		this.metadataTemplateUuidIndex = metadataTemplateUuidIndex;
+	}
+
+	/**
+	 * @return the {@link MetadataTemplateHierarchyIndex}, or <code>null</code>
+	 *         if the hierarchy is walked for every lookup
+	 */
+	public MetadataTemplateHierarchyIndex getMetadataTemplateHierarchyIndex() {
+		return metadataTemplateHierarchyIndex;
+	}
+
+	/**
+	 * @param metadataTemplateHierarchyIndex
+	 *            {@link MetadataTemplateHierarchyIndex} used to find the
+	 *            templates in effect for a path. This is typically a single
+	 *            instance shared by all resolvers. May be <code>null</code> to
+	 *            walk the hierarchy for every lookup.
+	 */
+	public void setMetadataTemplateHierarchyIndex(
+			final MetadataTemplateHierarchyIndex metadataTemplateHierarchyIndex) {
+		this.metadataTemplateHierarchyIndex = metadataTemplateHierarchyIndex;
+	}
+
+	/**
+	 * @return the <code>ExecutorService</code> on which public templates are
+	 *         loaded, or <code>null</code> if they are loaded on the calling
+	 *         thread
+	 */
+	public ExecutorService getTemplateExecutorService() {
+		return templateExecutorService;
+	}
+
+	/**
+	 * @param templateExecutorService
+	 *            bounded <code>ExecutorService</code> on which public template
+	 *            locations are listed, and their files parsed, in parallel.
+	 *            Each pool thread talks to iRODS on its own connection, so the
+	 *            size of the pool limits the connections used. May be
+	 *            <code>null</code> to load templates on the calling thread.
+	 */
+	public void setTemplateExecutorService(
+			final ExecutorService templateExecutorService) {
+		this.templateExecutorService = templateExecutorService;
+	}
+
+	/**
+	 * @return <code>boolean</code> that is <code>true</code> if reading
+	 *         templates never writes to the catalog
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * @param readOnly
+	 *            <code>boolean</code> that, if <code>true</code>, stops reads
+	 *            from writing UUID AVUs to template files that lack them. Such
+	 *            templates get a UUID derived from their path instead, until
+	 *            <code>registerTemplates</code> is called for them. Required
+	 *            for users without write access to the template files.
+	 */
+	public void setReadOnly(final boolean readOnly) {
+		this.readOnly = readOnly;
+	}
+
+	/**
+	 * @return the {@link DotIrodsMetrics}, or <code>null</code> if operations
+	 *         are not measured
+	 */
+	public DotIrodsMetrics getDotIrodsMetrics() {
+		return dotIrodsMetrics;
+	}
+
+	/**
+	 * @param dotIrodsMetrics
+	 *            {@link DotIrodsMetrics} that records operation times, queries
+	 *            and bytes read, typically the same instance given to the
+	 *            {@link DotIrodsServiceImpl}. May be <code>null</code> to
+	 *            disable instrumentation.
+	 */
+	public void setDotIrodsMetrics(final DotIrodsMetrics dotIrodsMetrics) {
+		this.dotIrodsMetrics = dotIrodsMetrics;
+	}
+
+	/**
+	 * Tell the instrumentation, if configured, that an operation finished
+	 */
+	private void recordOperation(final String operation, final long start) {
+		if (dotIrodsMetrics != null) {
+			dotIrodsMetrics.recordOperation(operation, System.nanoTime()
+					- start);
+		}
+	}
+
+	/**
+	 * Tell the instrumentation, if configured, that a query is being sent
+	 */
+	private void recordQuery() {
+		if (dotIrodsMetrics != null) {
+			dotIrodsMetrics.recordQuery();
+		}
+	}
+
 	String getPathFromFqName(String inFileName) {
 		String path;
 		int lastSlash = inFileName.lastIndexOf('/');
@@ -0,0 +1,291 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
+import org.irods.jargon.core.query.GenQueryBuilderException;
+import org.irods.jargon.core.query.IRODSGenQueryBuilder;
+import org.irods.jargon.core.query.IRODSQueryResultRow;
+import org.irods.jargon.core.query.JargonQueryException;
+import org.irods.jargon.core.query.MetaDataAndDomainData;
+import org.irods.jargon.core.query.MetaDataAndDomainData.MetadataDomain;
+import org.irods.jargon.core.query.QueryConditionOperators;
+import org.irods.jargon.core.query.RodsGenQueryEnum;
+import org.irods.jargon.extensions.dotirods.DotIrodsMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helper that finds which of many paths are collections or data objects, and
+ * the AVUs on all of them, with a few GenQueries (COLL_NAME IN (...) and
+ * DATA_NAME IN (...)) rather than a stat and an AVU query per path.
+ * <p/>
+ * Paths are sent to iRODS in batches of <code>IN_BATCH_SIZE</code>, to keep
+ * each query within the catalog's limits on condition length.
+ *
+ * @author rskarbez
+ *
+ */
+class MetadataAvuBulkQuery {
+
+	static final int IN_BATCH_SIZE = 50;
+
+	static private Logger log = LoggerFactory
+			.getLogger(MetadataAvuBulkQuery.class);
+
+	private final IRODSAccessObjectFactory irodsAccessObjectFactory;
+	private final IRODSAccount irodsAccount;
+	private final DotIrodsMetrics dotIrodsMetrics;
+
+	/**
+	 * @param irodsAccessObjectFactory
+	 *            {@link IRODSAccessObjectFactory}
+	 * @param irodsAccount
+	 *            {@link IRODSAccount}
+	 * @param dotIrodsMetrics
+	 *            optional {@link DotIrodsMetrics}, may be <code>null</code>
+	 */
+	MetadataAvuBulkQuery(
+			final IRODSAccessObjectFactory irodsAccessObjectFactory,
+			final IRODSAccount irodsAccount,
+			final DotIrodsMetrics dotIrodsMetrics) {
+		this.irodsAccessObjectFactory = irodsAccessObjectFactory;
+		this.irodsAccount = irodsAccount;
+		this.dotIrodsMetrics = dotIrodsMetrics;
+	}
+
+	/**
+	 * @param paths
+	 *            <code>Collection</code> of absolute paths
+	 * @return <code>Set</code> of those paths that are collections
+	 * @throws JargonException
+	 */
+	Set<String> findCollections(final Collection<String> paths)
+			throws JargonException {
+		log.info("findCollections()");
+
+		Set<String> collections = new HashSet<String>();
+
+		try {
+			for (List<String> batch : batch(new ArrayList<String>(paths))) {
+				IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true,
+						null);
+				builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+						.addConditionAsMultiValueCondition(
+								RodsGenQueryEnum.COL_COLL_NAME,
+								QueryConditionOperators.IN, batch);
+
+				for (IRODSQueryResultRow row : executeAllPages(builder)) {
+					collections.add(row.getColumn(0));
+				}
+			}
+		} catch (GenQueryBuilderException e) {
+			log.error("error building collection query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error executing collection query", e);
+			throw new JargonException("error querying collections", e);
+		}
+
+		return collections;
+	}
+
+	/**
+	 * @param paths
+	 *            <code>Collection</code> of absolute paths
+	 * @return <code>Set</code> of those paths that are data objects
+	 * @throws JargonException
+	 */
+	Set<String> findDataObjects(final Collection<String> paths)
+			throws JargonException {
+		log.info("findDataObjects()");
+
+		Set<String> wanted = new HashSet<String>(paths);
+		Set<String> dataObjects = new HashSet<String>();
+
+		try {
+			for (List<String> batch : batch(new ArrayList<String>(paths))) {
+				IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true,
+						null);
+				builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+						.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_NAME);
+				addDataObjectConditions(builder, batch);
+
+				for (IRODSQueryResultRow row : executeAllPages(builder)) {
+					String path = MetadataTemplateCatalogQuery.computeFqName(
+							row.getColumn(0), row.getColumn(1));
+					if (wanted.contains(path)) {
+						dataObjects.add(path);
+					}
+				}
+			}
+		} catch (GenQueryBuilderException e) {
+			log.error("error building data object query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error executing data object query", e);
+			throw new JargonException("error querying data objects", e);
+		}
+
+		return dataObjects;
+	}
+
+	/**
+	 * @param paths
+	 *            <code>Collection</code> of absolute paths to collections
+	 * @return <code>Map</code> of path to the AVUs on that collection. Paths
+	 *         with no AVUs are absent.
+	 * @throws JargonException
+	 */
+	Map<String, List<MetaDataAndDomainData>> findCollectionAvus(
+			final Collection<String> paths) throws JargonException {
+		log.info("findCollectionAvus()");
+
+		Map<String, List<MetaDataAndDomainData>> avus = new HashMap<String, List<MetaDataAndDomainData>>();
+
+		try {
+			for (List<String> batch : batch(new ArrayList<String>(paths))) {
+				IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true,
+						null);
+				builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_ID)
+						.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+						.addSelectAsGenQueryValue(
+								RodsGenQueryEnum.COL_META_COLL_ATTR_NAME)
+						.addSelectAsGenQueryValue(
+								RodsGenQueryEnum.COL_META_COLL_ATTR_VALUE)
+						.addSelectAsGenQueryValue(
+								RodsGenQueryEnum.COL_META_COLL_ATTR_UNITS)
+						.addConditionAsMultiValueCondition(
+								RodsGenQueryEnum.COL_COLL_NAME,
+								QueryConditionOperators.IN, batch);
+
+				for (IRODSQueryResultRow row : executeAllPages(builder)) {
+					String path = row.getColumn(1);
+					addAvu(avus, path, MetaDataAndDomainData.instance(
+							MetadataDomain.COLLECTION, row.getColumn(0), path,
+							row.getColumn(2), row.getColumn(3),
+							row.getColumn(4)));
+				}
+			}
+		} catch (GenQueryBuilderException e) {
+			log.error("error building collection AVU query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error executing collection AVU query", e);
+			throw new JargonException("error querying collection AVUs", e);
+		}
+
+		return avus;
+	}
+
+	/**
+	 * @param paths
+	 *            <code>Collection</code> of absolute paths to data objects
+	 * @return <code>Map</code> of path to the AVUs on that data object. Paths
+	 *         with no AVUs are absent.
+	 * @throws JargonException
+	 */
+	Map<String, List<MetaDataAndDomainData>> findDataObjectAvus(
+			final Collection<String> paths) throws JargonException {
+		log.info("findDataObjectAvus()");
+
+		Set<String> wanted = new HashSet<String>(paths);
+		Map<String, List<MetaDataAndDomainData>> avus = new HashMap<String, List<MetaDataAndDomainData>>();
+
+		try {
+			for (List<String> batch : batch(new ArrayList<String>(paths))) {
+				IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true,
+						null);
+				builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_D_DATA_ID)
+						.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+						.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_NAME)
+						.addSelectAsGenQueryValue(
+								RodsGenQueryEnum.COL_META_DATA_ATTR_NAME)
+						.addSelectAsGenQueryValue(
+								RodsGenQueryEnum.COL_META_DATA_ATTR_VALUE)
+						.addSelectAsGenQueryValue(
+								RodsGenQueryEnum.COL_META_DATA_ATTR_UNITS);
+				addDataObjectConditions(builder, batch);
+
+				for (IRODSQueryResultRow row : executeAllPages(builder)) {
+					String path = MetadataTemplateCatalogQuery.computeFqName(
+							row.getColumn(1), row.getColumn(2));
+					if (!wanted.contains(path)) {
+						continue;
+					}
+					addAvu(avus, path, MetaDataAndDomainData.instance(
+							MetadataDomain.DATA, row.getColumn(0), path,
+							row.getColumn(3), row.getColumn(4),
+							row.getColumn(5)));
+				}
+			}
+		} catch (GenQueryBuilderException e) {
+			log.error("error building data object AVU query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error executing data object AVU query", e);
+			throw new JargonException("error querying data object AVUs", e);
+		}
+
+		return avus;
+	}
+
+	/**
+	 * Limit a query to the given data object paths. The query matches any
+	 * combination of their parents and names, so results must still be
+	 * filtered by full path.
+	 */
+	private void addDataObjectConditions(final IRODSGenQueryBuilder builder,
+			final List<String> paths) throws GenQueryBuilderException {
+		Set<String> parents = new LinkedHashSet<String>();
+		Set<String> names = new LinkedHashSet<String>();
+		for (String path : paths) {
+			parents.add(MetadataTemplateCatalogQuery.computeParent(path));
+			names.add(path.substring(path.lastIndexOf('/') + 1));
+		}
+
+		builder.addConditionAsMultiValueCondition(
+				RodsGenQueryEnum.COL_COLL_NAME, QueryConditionOperators.IN,
+				new ArrayList<String>(parents)).addConditionAsMultiValueCondition(
+				RodsGenQueryEnum.COL_DATA_NAME, QueryConditionOperators.IN,
+				new ArrayList<String>(names));
+	}
+
+	private void addAvu(final Map<String, List<MetaDataAndDomainData>> avus,
+			final String path, final MetaDataAndDomainData avu) {
+		List<MetaDataAndDomainData> pathAvus = avus.get(path);
+		if (pathAvus == null) {
+			pathAvus = new ArrayList<MetaDataAndDomainData>();
+			avus.put(path, pathAvus);
+		}
+		pathAvus.add(avu);
+	}
+
+	private List<IRODSQueryResultRow> executeAllPages(
+			final IRODSGenQueryBuilder builder)
+			throws GenQueryBuilderException, JargonQueryException,
+			JargonException {
+		return MetadataTemplateCatalogQuery.executeAllPages(
+				irodsAccessObjectFactory, irodsAccount, dotIrodsMetrics,
+				builder);
+	}
+
+	static List<List<String>> batch(final List<String> values) {
+		List<List<String>> batches = new ArrayList<List<String>>();
+		for (int i = 0; i < values.size(); i += IN_BATCH_SIZE) {
+			batches.add(values.subList(i,
+					Math.min(i + IN_BATCH_SIZE, values.size())));
+		}
+		return batches;
+	}
+
+}
@@ -0,0 +1,45 @@
+package org.irods.jargon.metadatatemplate;
+
+/**
+ * Callback for progress while a template is applied to every object in a
+ * collection tree by
+ * {@link JargonMetadataResolver#applyTemplateToCollectionTree(MetadataTemplate, String, String, java.util.concurrent.ExecutorService, MetadataTemplateApplyListener)}
+ * <p/>
+ * Callbacks are made from the thread that called the resolver, never from a
+ * pool thread, and in the order the objects were enumerated.
+ *
+ * @author rskarbez
+ *
+ */
+public interface MetadataTemplateApplyListener {
+
+	/**
+	 * Called when the template could not be applied to an object. The
+	 * operation carries on with the remaining objects.
+	 *
+	 * @param path
+	 *            <code>String</code> with the absolute path to the object
+	 * @param reason
+	 *            <code>String</code> describing the failure
+	 */
+	void objectFailed(String path, String reason);
+
+	/**
+	 * Called after each batch of objects has been processed
+	 *
+	 * @param objectsApplied
+	 *            <code>long</code> with the number of objects the template has
+	 *            been applied to so far
+	 * @param objectsFailed
+	 *            <code>long</code> with the number of objects that have failed
+	 *            so far
+	 * @param checkpointPath
+	 *            <code>String</code> with the path of the last object
+	 *            processed. Every object enumerated before it has also been
+	 *            processed, so this may be passed as the
+	 *            <code>resumeAfterPath</code> to pick up after a failure.
+	 */
+	void progress(long objectsApplied, long objectsFailed,
+			String checkpointPath);
+
+}
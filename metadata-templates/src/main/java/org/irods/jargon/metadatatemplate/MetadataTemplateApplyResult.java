@@ -0,0 +1,53 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of applying a template to every object in a collection tree
+ *
+ * @author rskarbez
+ *
+ */
+public class MetadataTemplateApplyResult {
+	private long objectsApplied = 0;
+	private List<String> failedPaths = new ArrayList<String>();
+	private String checkpointPath = null;
+
+	/**
+	 * @return <code>long</code> with the number of objects the template was
+	 *         applied to
+	 */
+	public long getObjectsApplied() {
+		return objectsApplied;
+	}
+
+	public void setObjectsApplied(long objectsApplied) {
+		this.objectsApplied = objectsApplied;
+	}
+
+	/**
+	 * @return <code>List</code> of the paths the template could not be applied
+	 *         to
+	 */
+	public List<String> getFailedPaths() {
+		return failedPaths;
+	}
+
+	public void setFailedPaths(List<String> failedPaths) {
+		this.failedPaths = failedPaths;
+	}
+
+	/**
+	 * @return <code>String</code> with the path of the last object processed,
+	 *         or <code>null</code> if there were none
+	 */
+	public String getCheckpointPath() {
+		return checkpointPath;
+	}
+
+	public void setCheckpointPath(String checkpointPath) {
+		this.checkpointPath = checkpointPath;
+	}
+
+}
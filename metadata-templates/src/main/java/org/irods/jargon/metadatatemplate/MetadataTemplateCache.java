@@ -0,0 +1,68 @@
+package org.irods.jargon.metadatatemplate;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.pub.domain.ObjStat;
+
+/**
+ * Cache of metadata templates that have already been read and parsed, keyed
+ * by the fully-qualified name of the template file. An entry is only served
+ * while the file's catalog information (modify time, size and checksum) still
+ * matches what was cached, so edits made outside of the resolver are always
+ * seen.
+ * <p/>
+ * Templates are mutable, so implementations store and return copies.
+ * <p/>
+ * Implementations must be thread safe, as a single cache is typically shared
+ * by every {@link JargonMetadataResolver} in an application.
+ * 
+ * @author rskarbez
+ * 
+ */
+public interface MetadataTemplateCache {
+
+	/**
+	 * Look up a cached template
+	 * 
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} identifying the grid the file is on
+	 * @param fqName
+	 *            <code>String</code> with the iRODS path to the template file
+	 * @param objStat
+	 *            {@link ObjStat} for the file as it is now
+	 * @return a copy of the cached {@link MetadataTemplate}, or
+	 *         <code>null</code> if nothing is cached or the file has changed
+	 *         since it was cached
+	 */
+	MetadataTemplate lookup(IRODSAccount irodsAccount, String fqName,
+			ObjStat objStat);
+
+	/**
+	 * Record a template that has just been read and parsed
+	 * 
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} identifying the grid the file is on
+	 * @param fqName
+	 *            <code>String</code> with the iRODS path to the template file
+	 * @param objStat
+	 *            {@link ObjStat} for the file when it was read
+	 * @param metadataTemplate
+	 *            {@link MetadataTemplate} parsed from the file, of which a
+	 *            copy is cached
+	 */
+	void record(IRODSAccount irodsAccount, String fqName, ObjStat objStat,
+			MetadataTemplate metadataTemplate);
+
+	/**
+	 * Discard any cached entry for the given template file
+	 * 
+	 * @param fqName
+	 *            <code>String</code> with the iRODS path to the template file
+	 */
+	void invalidate(String fqName);
+
+	/**
+	 * Discard all cached entries
+	 */
+	void invalidateAll();
+
+}
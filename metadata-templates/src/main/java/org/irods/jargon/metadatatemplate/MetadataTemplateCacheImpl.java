@@ -0,0 +1,167 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.pub.domain.ObjStat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link MetadataTemplateCache}, bounded by a maximum number of
+ * entries, with the least recently used entries evicted first.
+ * <p/>
+ * Entries are keyed by host, zone and fully-qualified name. They are not
+ * keyed by user, because every lookup is made with a fresh {@link ObjStat},
+ * which the user could only obtain if they can read the file.
+ * 
+ * @author rskarbez
+ * 
+ */
+public class MetadataTemplateCacheImpl implements MetadataTemplateCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	static private Logger log = LoggerFactory
+			.getLogger(MetadataTemplateCacheImpl.class);
+
+	private final int maxEntries;
+	private final LinkedHashMap<String, CacheEntry> entries;
+
+	/**
+	 * Cached template, along with the catalog information it is valid for
+	 */
+	private static class CacheEntry {
+		private final String fqName;
+		private final long modifiedAt;
+		private final long size;
+		private final String checksum;
+		private final MetadataTemplate metadataTemplate;
+
+		CacheEntry(final String fqName, final ObjStat objStat,
+				final MetadataTemplate metadataTemplate) {
+			this.fqName = fqName;
+			modifiedAt = objStat.getModifiedAt().getTime();
+			size = objStat.getObjSize();
+			checksum = objStat.getChecksum();
+			this.metadataTemplate = metadataTemplate;
+		}
+
+		boolean matches(final ObjStat objStat) {
+			if (modifiedAt != objStat.getModifiedAt().getTime()
+					|| size != objStat.getObjSize()) {
+				return false;
+			}
+
+			if (checksum == null || checksum.isEmpty()) {
+				return objStat.getChecksum() == null
+						|| objStat.getChecksum().isEmpty();
+			}
+
+			return checksum.equals(objStat.getChecksum());
+		}
+	}
+
+	/**
+	 * Create a cache with the default size
+	 */
+	public MetadataTemplateCacheImpl() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Create a cache with the given size
+	 * 
+	 * @param maxEntries
+	 *            <code>int</code> with the maximum number of cached templates
+	 */
+	public MetadataTemplateCacheImpl(final int maxEntries) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries must be > 0");
+		}
+
+		this.maxEntries = maxEntries;
+		entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, CacheEntry> eldest) {
+				return size() > MetadataTemplateCacheImpl.this.maxEntries;
+			}
+		};
+	}
+
+	@Override
+	public synchronized MetadataTemplate lookup(
+			final IRODSAccount irodsAccount, final String fqName,
+			final ObjStat objStat) {
+		String key = computeKey(irodsAccount, fqName);
+		CacheEntry entry = entries.get(key);
+
+		if (entry == null) {
+			return null;
+		}
+
+		if (!entry.matches(objStat)) {
+			log.debug("{} changed since cached", fqName);
+			entries.remove(key);
+			return null;
+		}
+
+		return entry.metadataTemplate.deepCopy();
+	}
+
+	@Override
+	public synchronized void record(final IRODSAccount irodsAccount,
+			final String fqName, final ObjStat objStat,
+			final MetadataTemplate metadataTemplate) {
+		entries.put(computeKey(irodsAccount, fqName), new CacheEntry(fqName,
+				objStat, metadataTemplate.deepCopy()));
+	}
+
+	@Override
+	public synchronized void invalidate(final String fqName) {
+		if (fqName == null || fqName.isEmpty()) {
+			throw new IllegalArgumentException("null or empty fqName");
+		}
+
+		log.debug("invalidate:{}", fqName);
+		Iterator<CacheEntry> iter = entries.values().iterator();
+		while (iter.hasNext()) {
+			if (iter.next().fqName.equals(fqName)) {
+				iter.remove();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void invalidateAll() {
+		entries.clear();
+	}
+
+	/**
+	 * @return <code>int</code> with the number of templates currently cached
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	private String computeKey(final IRODSAccount irodsAccount,
+			final String fqName) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(irodsAccount.getHost());
+		sb.append(':');
+		sb.append(irodsAccount.getZone());
+		sb.append(':');
+		sb.append(fqName);
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,604 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
+import org.irods.jargon.core.pub.IRODSGenQueryExecutor;
+import org.irods.jargon.core.pub.domain.ObjStat;
+import org.irods.jargon.core.query.GenQueryBuilderException;
+import org.irods.jargon.core.query.GenQueryOrderByField.OrderByType;
+import org.irods.jargon.core.query.IRODSGenQueryBuilder;
+import org.irods.jargon.core.query.IRODSGenQueryFromBuilder;
+import org.irods.jargon.core.query.IRODSQueryResultRow;
+import org.irods.jargon.core.query.IRODSQueryResultSet;
+import org.irods.jargon.core.query.JargonQueryException;
+import org.irods.jargon.core.query.QueryConditionOperators;
+import org.irods.jargon.core.query.RodsGenQueryEnum;
+import org.irods.jargon.extensions.dotirods.DotIrodsConstants;
+import org.irods.jargon.extensions.dotirods.DotIrodsMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helper that fetches the catalog data used to decorate parsed metadata
+ * templates (the UUID stored in the iRODS:MDTemplate AVU, plus the create and
+ * modify times, size and checksum) for many template files with one
+ * GenQuery, rather than an AVU query and a stat per file.
+ * <p/>
+ * Files without an iRODS:MDTemplate AVU are absent from the result, and must
+ * be handled one at a time so that an AVU can be generated for them.
+ * <p/>
+ * As in {@link MetadataAvuBulkQuery}, <code>IN</code> conditions are sent in
+ * batches of <code>IN_BATCH_SIZE</code> values.
+ * <p/>
+ * Also finds template files by UUID, both for a given set of UUIDs and for
+ * every template on the grid (to warm a {@link MetadataTemplateUuidIndex}),
+ * and lists the template files in .irods collections (to build a
+ * {@link MetadataTemplateHierarchyIndex}) or checks which of them hold a
+ * template file of a given name.
+ *
+ * @author rskarbez
+ *
+ */
+class MetadataTemplateCatalogQuery {
+
+	static private Logger log = LoggerFactory
+			.getLogger(MetadataTemplateCatalogQuery.class);
+
+	private final IRODSAccessObjectFactory irodsAccessObjectFactory;
+	private final IRODSAccount irodsAccount;
+	private final DotIrodsMetrics dotIrodsMetrics;
+
+	/**
+	 * Catalog data for one template file
+	 */
+	static class Entry {
+		private final String fqName;
+		private final UUID uuid;
+		private final ObjStat objStat;
+
+		Entry(final String fqName, final UUID uuid, final ObjStat objStat) {
+			this.fqName = fqName;
+			this.uuid = uuid;
+			this.objStat = objStat;
+		}
+
+		/**
+		 * @return <code>String</code> with the absolute path to the template
+		 *         file
+		 */
+		String getFqName() {
+			return fqName;
+		}
+
+		/**
+		 * @return <code>UUID</code> from the template's iRODS:MDTemplate AVU
+		 */
+		UUID getUuid() {
+			return uuid;
+		}
+
+		/**
+		 * @return {@link ObjStat} holding the absolute path, create and modify
+		 *         times, size and checksum of the template file
+		 */
+		ObjStat getObjStat() {
+			return objStat;
+		}
+	}
+
+	/**
+	 * @param irodsAccessObjectFactory
+	 *            {@link IRODSAccessObjectFactory}
+	 * @param irodsAccount
+	 *            {@link IRODSAccount}
+	 * @param dotIrodsMetrics
+	 *            optional {@link DotIrodsMetrics}, may be <code>null</code>
+	 */
+	MetadataTemplateCatalogQuery(
+			final IRODSAccessObjectFactory irodsAccessObjectFactory,
+			final IRODSAccount irodsAccount,
+			final DotIrodsMetrics dotIrodsMetrics) {
+		this.irodsAccessObjectFactory = irodsAccessObjectFactory;
+		this.irodsAccount = irodsAccount;
+		this.dotIrodsMetrics = dotIrodsMetrics;
+	}
+
+	/**
+	 * Find the catalog data for each of the given template files
+	 *
+	 * @param fqNames
+	 *            <code>List</code> of absolute paths to template files
+	 * @return <code>Map</code> of absolute path to {@link Entry}, for those
+	 *         files that have an iRODS:MDTemplate AVU
+	 * @throws JargonException
+	 */
+	Map<String, Entry> findCatalogEntries(final List<String> fqNames)
+			throws JargonException {
+		log.info("findCatalogEntries()");
+
+		Map<String, Entry> entries = new HashMap<String, Entry>();
+
+		if (fqNames.isEmpty()) {
+			return entries;
+		}
+
+		Set<String> wanted = new LinkedHashSet<String>(fqNames);
+		Set<String> parents = new LinkedHashSet<String>();
+		for (String fqName : wanted) {
+			parents.add(computeParent(fqName));
+		}
+
+		log.info("querying template AVUs in collections:{}", parents);
+
+		try {
+			for (List<String> batch : MetadataAvuBulkQuery
+					.batch(new ArrayList<String>(parents))) {
+				IRODSGenQueryBuilder builder = buildCatalogEntryQuery();
+				builder.addConditionAsMultiValueCondition(
+						RodsGenQueryEnum.COL_COLL_NAME,
+						QueryConditionOperators.IN, batch);
+
+				for (IRODSQueryResultRow row : executeAllPages(builder)) {
+					String fqName = computeFqName(row.getColumn(0),
+							row.getColumn(1));
+
+					// one row per replica; the first is as good as any
+					if (!wanted.contains(fqName)
+							|| entries.containsKey(fqName)) {
+						continue;
+					}
+
+					Entry entry = buildEntryFromRow(row);
+					if (entry != null) {
+						entries.put(fqName, entry);
+					}
+				}
+			}
+
+		} catch (GenQueryBuilderException e) {
+			log.error("error building template AVU query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error executing template AVU query", e);
+			throw new JargonException("error querying template AVUs", e);
+		}
+
+		log.info("found catalog data for {} of {} templates", entries.size(),
+				wanted.size());
+
+		return entries;
+	}
+
+	/**
+	 * Find the catalog data for the template files with the given UUIDs
+	 *
+	 * @param uuids
+	 *            <code>Collection</code> of template UUIDs
+	 * @return <code>Map</code> of UUID to {@link Entry}, for those UUIDs that
+	 *         belong to a template file
+	 * @throws JargonException
+	 */
+	Map<UUID, Entry> findCatalogEntriesForUuids(final Collection<UUID> uuids)
+			throws JargonException {
+		log.info("findCatalogEntriesForUuids()");
+
+		Map<UUID, Entry> entries = new HashMap<UUID, Entry>();
+
+		if (uuids.isEmpty()) {
+			return entries;
+		}
+
+		List<String> values = new ArrayList<String>();
+		for (UUID uuid : uuids) {
+			values.add(uuid.toString());
+		}
+
+		log.info("querying template AVUs for UUIDs:{}", values);
+
+		try {
+			for (List<String> batch : MetadataAvuBulkQuery.batch(values)) {
+				IRODSGenQueryBuilder builder = buildCatalogEntryQuery();
+				builder.addConditionAsMultiValueCondition(
+						RodsGenQueryEnum.COL_META_DATA_ATTR_VALUE,
+						QueryConditionOperators.IN, batch);
+
+				for (IRODSQueryResultRow row : executeAllPages(builder)) {
+					Entry entry = buildEntryFromRow(row);
+					if (entry != null
+							&& !entries.containsKey(entry.getUuid())) {
+						entries.put(entry.getUuid(), entry);
+					}
+				}
+			}
+
+		} catch (GenQueryBuilderException e) {
+			log.error("error building template UUID query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error executing template UUID query", e);
+			throw new JargonException("error querying template UUIDs", e);
+		}
+
+		log.info("found catalog data for {} of {} UUIDs", entries.size(),
+				uuids.size());
+
+		return entries;
+	}
+
+	/**
+	 * Find the UUID and location of every template file on the grid, using a
+	 * query constrained to the iRODS:MDTemplate unit
+	 *
+	 * @return <code>Map</code> of template UUID to absolute path
+	 * @throws JargonException
+	 */
+	Map<UUID, String> findAllTemplateUuids() throws JargonException {
+		log.info("findAllTemplateUuids()");
+
+		Map<UUID, String> uuids = new HashMap<UUID, String>();
+
+		try {
+			IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true, null);
+			builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+					.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_NAME)
+					.addSelectAsGenQueryValue(
+							RodsGenQueryEnum.COL_META_DATA_ATTR_VALUE)
+					.addConditionAsGenQueryField(
+							RodsGenQueryEnum.COL_META_DATA_ATTR_UNITS,
+							QueryConditionOperators.EQUAL,
+							JargonMetadataTemplateConstants.MD_TEMPLATE_UNIT);
+
+			for (IRODSQueryResultRow row : executeAllPages(builder)) {
+				try {
+					uuids.put(UUID.fromString(row.getColumn(2)),
+							computeFqName(row.getColumn(0), row.getColumn(1)));
+				} catch (IllegalArgumentException iae) {
+					log.warn("malformed template UUID on {}/{}, skipping",
+							row.getColumn(0), row.getColumn(1));
+				}
+			}
+
+		} catch (GenQueryBuilderException e) {
+			log.error("error building template UUID query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error executing template UUID query", e);
+			throw new JargonException("error querying template UUIDs", e);
+		}
+
+		log.info("found {} template UUIDs", uuids.size());
+
+		return uuids;
+	}
+
+	/**
+	 * Find the template files in .irods/metadataTemplates collections, either
+	 * in every collection on the grid or in one collection only
+	 *
+	 * @param collectionPath
+	 *            <code>String</code> with the absolute path to the collection
+	 *            whose own templates are wanted, or <code>null</code> for
+	 *            every collection
+	 * @return <code>Map</code> of the absolute path to each collection with
+	 *         templates (not its .irods collection) to the absolute paths of
+	 *         its template files, in name order
+	 * @throws JargonException
+	 */
+	Map<String, List<String>> findTemplateFilesInDotIrods(
+			final String collectionPath) throws JargonException {
+		log.info("findTemplateFilesInDotIrods()");
+
+		Map<String, Set<String>> files = new LinkedHashMap<String, Set<String>>();
+
+		try {
+			IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true, null);
+			builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+					.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_NAME)
+					.addConditionAsGenQueryField(
+							RodsGenQueryEnum.COL_DATA_NAME,
+							QueryConditionOperators.LIKE,
+							"%" + MetadataTemplateConstants.TEMPLATE_FILE_EXT);
+			if (collectionPath == null) {
+				builder.addConditionAsGenQueryField(
+						RodsGenQueryEnum.COL_COLL_NAME,
+						QueryConditionOperators.LIKE,
+						"%/" + DotIrodsConstants.METADATA_TEMPLATES_DIR);
+			} else {
+				builder.addConditionAsGenQueryField(
+						RodsGenQueryEnum.COL_COLL_NAME,
+						QueryConditionOperators.EQUAL,
+						computeFqName(collectionPath,
+								DotIrodsConstants.METADATA_TEMPLATES_DIR));
+			}
+			builder.addOrderByGenQueryField(RodsGenQueryEnum.COL_COLL_NAME,
+					OrderByType.ASC).addOrderByGenQueryField(
+					RodsGenQueryEnum.COL_DATA_NAME, OrderByType.ASC);
+
+			for (IRODSQueryResultRow row : executeAllPages(builder)) {
+				String owner = computeTemplateDirOwner(row.getColumn(0));
+				if (owner == null) {
+					continue;
+				}
+
+				Set<String> ownerFiles = files.get(owner);
+				if (ownerFiles == null) {
+					ownerFiles = new LinkedHashSet<String>();
+					files.put(owner, ownerFiles);
+				}
+				// one row per replica, so the set drops repeats
+				ownerFiles.add(computeFqName(row.getColumn(0), row.getColumn(1)));
+			}
+
+		} catch (GenQueryBuilderException e) {
+			log.error("error building template file query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error executing template file query", e);
+			throw new JargonException("error querying template files", e);
+		}
+
+		Map<String, List<String>> filesByCollection = new LinkedHashMap<String, List<String>>();
+		for (Map.Entry<String, Set<String>> entry : files.entrySet()) {
+			filesByCollection.put(entry.getKey(), new ArrayList<String>(
+					entry.getValue()));
+		}
+
+		log.info("found templates in {} collections", filesByCollection.size());
+
+		return filesByCollection;
+	}
+
+	/**
+	 * Find which of the given collections hold a template file of the given
+	 * name in their .irods/metadataTemplates collection, with one query rather
+	 * than a listing of each. The name is matched ignoring case, as when
+	 * matching a listing. The query is first for the name as given and in
+	 * lower case; only if no collection holds either are the template files
+	 * of the collections queried and matched here, so a differently cased
+	 * name is found only when no collection has an exact match.
+	 * <p/>
+	 * Collections the user cannot read are skipped, rather than ending the
+	 * search as a walk up the hierarchy would.
+	 *
+	 * @param collectionPaths
+	 *            <code>List</code> of absolute paths to collections
+	 * @param fileName
+	 *            <code>String</code> with the template file name, including
+	 *            its extension
+	 * @return <code>Map</code> of the absolute path to each collection that
+	 *         holds a match (not its .irods collection) to the absolute path
+	 *         of the match, the first in name order if there is more than one
+	 * @throws JargonException
+	 */
+	Map<String, String> findTemplateFilesNamed(
+			final List<String> collectionPaths, final String fileName)
+			throws JargonException {
+		log.info("findTemplateFilesNamed()");
+
+		List<String> templateDirs = new ArrayList<String>();
+		for (String collectionPath : collectionPaths) {
+			templateDirs.add(computeFqName(collectionPath,
+					DotIrodsConstants.METADATA_TEMPLATES_DIR));
+		}
+
+		List<String> candidates = new ArrayList<String>();
+		candidates.add(fileName);
+		if (!fileName.equals(fileName.toLowerCase())) {
+			candidates.add(fileName.toLowerCase());
+		}
+
+		Map<String, String> found = queryTemplateFilesNamed(templateDirs,
+				candidates, fileName);
+		if (found.isEmpty()) {
+			log.debug("no exact match for {}, matching ignoring case",
+					fileName);
+			found = queryTemplateFilesNamed(templateDirs, null, fileName);
+		}
+
+		return found;
+	}
+
+	/**
+	 * Query the template files in the given .irods/metadataTemplates
+	 * collections named one of <code>candidates</code>, or, if
+	 * <code>candidates</code> is <code>null</code>, every template file, and
+	 * keep the first in name order per collection that matches
+	 * <code>fileName</code> ignoring case
+	 */
+	private Map<String, String> queryTemplateFilesNamed(
+			final List<String> templateDirs, final List<String> candidates,
+			final String fileName) throws JargonException {
+
+		Map<String, String> found = new HashMap<String, String>();
+
+		try {
+			for (List<String> batch : MetadataAvuBulkQuery.batch(templateDirs)) {
+				IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true,
+						null);
+				builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+						.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_NAME)
+						.addConditionAsMultiValueCondition(
+								RodsGenQueryEnum.COL_COLL_NAME,
+								QueryConditionOperators.IN, batch);
+				if (candidates == null) {
+					builder.addConditionAsGenQueryField(
+							RodsGenQueryEnum.COL_DATA_NAME,
+							QueryConditionOperators.LIKE,
+							"%" + MetadataTemplateConstants.TEMPLATE_FILE_EXT);
+				} else if (candidates.size() == 1) {
+					builder.addConditionAsGenQueryField(
+							RodsGenQueryEnum.COL_DATA_NAME,
+							QueryConditionOperators.EQUAL, candidates.get(0));
+				} else {
+					builder.addConditionAsMultiValueCondition(
+							RodsGenQueryEnum.COL_DATA_NAME,
+							QueryConditionOperators.IN, candidates);
+				}
+				builder.addOrderByGenQueryField(RodsGenQueryEnum.COL_COLL_NAME,
+						OrderByType.ASC).addOrderByGenQueryField(
+						RodsGenQueryEnum.COL_DATA_NAME, OrderByType.ASC);
+
+				for (IRODSQueryResultRow row : executeAllPages(builder)) {
+					if (!row.getColumn(1).equalsIgnoreCase(fileName)) {
+						continue;
+					}
+
+					String owner = computeTemplateDirOwner(row.getColumn(0));
+					if (owner != null && !found.containsKey(owner)) {
+						found.put(owner,
+								computeFqName(row.getColumn(0), row.getColumn(1)));
+					}
+				}
+			}
+
+		} catch (GenQueryBuilderException e) {
+			log.error("error building template file query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error executing template file query", e);
+			throw new JargonException("error querying template files", e);
+		}
+
+		return found;
+	}
+
+	/**
+	 * Start a query for the columns read by <code>buildEntryFromRow</code>,
+	 * limited to template UUID AVUs
+	 */
+	private IRODSGenQueryBuilder buildCatalogEntryQuery()
+			throws GenQueryBuilderException {
+		IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true, null);
+		builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+				.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_NAME)
+				.addSelectAsGenQueryValue(
+						RodsGenQueryEnum.COL_META_DATA_ATTR_VALUE)
+				.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_D_CREATE_TIME)
+				.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_D_MODIFY_TIME)
+				.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_SIZE)
+				.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_D_DATA_CHECKSUM)
+				.addConditionAsGenQueryField(
+						RodsGenQueryEnum.COL_META_DATA_ATTR_UNITS,
+						QueryConditionOperators.EQUAL,
+						JargonMetadataTemplateConstants.MD_TEMPLATE_UNIT);
+		return builder;
+	}
+
+	/**
+	 * @return {@link Entry} for a row of <code>buildCatalogEntryQuery</code>,
+	 *         or <code>null</code> if the UUID is malformed
+	 */
+	private Entry buildEntryFromRow(final IRODSQueryResultRow row)
+			throws JargonException {
+		String fqName = computeFqName(row.getColumn(0), row.getColumn(1));
+
+		UUID uuid;
+		try {
+			uuid = UUID.fromString(row.getColumn(2));
+		} catch (IllegalArgumentException iae) {
+			log.warn("malformed template UUID on {}, skipping", fqName);
+			return null;
+		}
+
+		ObjStat objStat = new ObjStat();
+		objStat.setAbsolutePath(fqName);
+		objStat.setCreatedAt(timestampToDate(row.getColumn(3)));
+		objStat.setModifiedAt(timestampToDate(row.getColumn(4)));
+		objStat.setObjSize(Long.parseLong(row.getColumn(5)));
+		objStat.setChecksum(row.getColumn(6));
+
+		return new Entry(fqName, uuid, objStat);
+	}
+
+	private List<IRODSQueryResultRow> executeAllPages(
+			final IRODSGenQueryBuilder builder)
+			throws GenQueryBuilderException, JargonQueryException,
+			JargonException {
+		return executeAllPages(irodsAccessObjectFactory, irodsAccount,
+				dotIrodsMetrics, builder);
+	}
+
+	/**
+	 * Run a query built with <code>builder</code>, collecting every page of
+	 * results, and counting each page in <code>dotIrodsMetrics</code> if it
+	 * is not <code>null</code>
+	 */
+	static List<IRODSQueryResultRow> executeAllPages(
+			final IRODSAccessObjectFactory irodsAccessObjectFactory,
+			final IRODSAccount irodsAccount,
+			final DotIrodsMetrics dotIrodsMetrics,
+			final IRODSGenQueryBuilder builder)
+			throws GenQueryBuilderException, JargonQueryException,
+			JargonException {
+
+		int maxRows = irodsAccessObjectFactory.getJargonProperties()
+				.getMaxFilesAndDirsQueryMax();
+		IRODSGenQueryFromBuilder query = builder
+				.exportIRODSQueryFromBuilder(maxRows);
+		IRODSGenQueryExecutor executor = irodsAccessObjectFactory
+				.getIRODSGenQueryExecutor(irodsAccount);
+
+		List<IRODSQueryResultRow> rows = new ArrayList<IRODSQueryResultRow>();
+		IRODSQueryResultSet resultSet;
+		int offset = 0;
+
+		do {
+			resultSet = executor.executeIRODSQueryAndCloseResult(query, offset);
+			if (dotIrodsMetrics != null) {
+				dotIrodsMetrics.recordQuery();
+			}
+			rows.addAll(resultSet.getResults());
+			offset += resultSet.getResults().size();
+		} while (resultSet.isHasMoreRecords()
+				&& !resultSet.getResults().isEmpty());
+
+		return rows;
+	}
+
+	static String computeParent(final String fqName) {
+		int lastSlash = fqName.lastIndexOf('/');
+		return lastSlash <= 0 ? "/" : fqName.substring(0, lastSlash);
+	}
+
+	/**
+	 * @return <code>String</code> with the collection holding the given
+	 *         .irods/metadataTemplates collection, or <code>null</code> if
+	 *         the path is not a .irods/metadataTemplates collection
+	 */
+	static String computeTemplateDirOwner(final String templateDirPath) {
+		String suffix = "/" + DotIrodsConstants.METADATA_TEMPLATES_DIR;
+		if (!templateDirPath.endsWith(suffix)) {
+			return null;
+		}
+
+		String owner = templateDirPath.substring(0, templateDirPath.length()
+				- suffix.length());
+		return owner.isEmpty() ? "/" : owner;
+	}
+
+	static String computeFqName(final String collName, final String dataName) {
+		return collName.equals("/") ? "/" + dataName : collName + "/"
+				+ dataName;
+	}
+
+	/**
+	 * iRODS stores timestamps as seconds since the epoch
+	 */
+	static Date timestampToDate(final String timestamp) {
+		return new Date(Long.parseLong(timestamp.trim()) * 1000L);
+	}
+
+}
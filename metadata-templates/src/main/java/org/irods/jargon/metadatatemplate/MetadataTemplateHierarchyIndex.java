@@ -0,0 +1,88 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+
+/**
+ * In-process index of the metadata templates in effect for any collection, so
+ * that resolving the templates above a path does not walk up the hierarchy
+ * listing each .irods/metadataTemplates collection on the way.
+ * <p/>
+ * For every collection that has a .irods/metadataTemplates collection of its
+ * own, the index holds the effective template files for that collection: its
+ * own templates plus those of its ancestors, with the nearest template of any
+ * given file name winning. The templates for any other path are those of its
+ * nearest indexed ancestor, found by a longest-prefix match in memory.
+ * <p/>
+ * The index for a user is built all at once from a catalog query, and kept
+ * up to date one collection at a time as templates are saved, renamed or
+ * deleted through the resolver. Which templates are visible depends on
+ * permissions, so entries are kept per user.
+ * <p/>
+ * Implementations must be thread safe, as a single index is typically shared
+ * by every {@link JargonMetadataResolver} in an application.
+ *
+ * @author rskarbez
+ *
+ */
+public interface MetadataTemplateHierarchyIndex {
+
+	/**
+	 * Look up the template files in effect for a path
+	 *
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} identifying the grid and user
+	 * @param absolutePath
+	 *            <code>String</code> with the iRODS path to a collection
+	 * @return <code>List</code> of absolute paths to template files, nearest
+	 *         first, or <code>null</code> if the index has not been built for
+	 *         this user
+	 */
+	List<String> lookup(IRODSAccount irodsAccount, String absolutePath);
+
+	/**
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} identifying the grid and user
+	 * @return <code>boolean</code> that is <code>true</code> if the index has
+	 *         been built for this user
+	 */
+	boolean isBuilt(IRODSAccount irodsAccount);
+
+	/**
+	 * Build the index for a user, replacing anything already indexed
+	 *
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} identifying the grid and user
+	 * @param templateFilesByCollection
+	 *            <code>Map</code> of the absolute path to every collection
+	 *            that has templates to the absolute paths of its own template
+	 *            files
+	 */
+	void build(IRODSAccount irodsAccount,
+			Map<String, List<String>> templateFilesByCollection);
+
+	/**
+	 * Replace the templates of one collection, and recompute the effective
+	 * templates for it and every indexed collection below it. Ignored if the
+	 * index has not been built for this user.
+	 *
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} identifying the grid and user
+	 * @param collectionPath
+	 *            <code>String</code> with the absolute path to the collection
+	 *            holding the .irods collection
+	 * @param templateFiles
+	 *            <code>List</code> of the absolute paths to the collection's
+	 *            own template files, empty if it no longer has any
+	 */
+	void updateCollection(IRODSAccount irodsAccount, String collectionPath,
+			List<String> templateFiles);
+
+	/**
+	 * Discard the index for every user
+	 */
+	void invalidateAll();
+
+}
@@ -0,0 +1,213 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link MetadataTemplateHierarchyIndex}, holding the effective
+ * template files of each indexed collection in a map. A lookup walks up from
+ * the given path, one map lookup per level, until it reaches an indexed
+ * collection.
+ * <p/>
+ * Entries are keyed by host, zone and user name.
+ *
+ * @author rskarbez
+ *
+ */
+public class MetadataTemplateHierarchyIndexImpl implements
+		MetadataTemplateHierarchyIndex {
+
+	static private Logger log = LoggerFactory
+			.getLogger(MetadataTemplateHierarchyIndexImpl.class);
+
+	/**
+	 * Shallower collections first, so that ancestors are recomputed before
+	 * their descendants
+	 */
+	private static final Comparator<String> BY_DEPTH = new Comparator<String>() {
+		@Override
+		public int compare(final String o1, final String o2) {
+			return o1.length() - o2.length();
+		}
+	};
+
+	/**
+	 * Index for one user on one grid
+	 */
+	private static class UserIndex {
+		private final Map<String, List<String>> ownFiles = new HashMap<String, List<String>>();
+		private final Map<String, List<String>> effectiveFiles = new HashMap<String, List<String>>();
+	}
+
+	private final Map<String, UserIndex> indexes = new HashMap<String, UserIndex>();
+
+	@Override
+	public synchronized List<String> lookup(final IRODSAccount irodsAccount,
+			final String absolutePath) {
+		if (absolutePath == null || absolutePath.isEmpty()) {
+			throw new IllegalArgumentException("null or empty absolutePath");
+		}
+
+		UserIndex index = indexes.get(computeKey(irodsAccount));
+		if (index == null) {
+			return null;
+		}
+
+		String path = normalize(absolutePath);
+		while (true) {
+			List<String> files = index.effectiveFiles.get(path);
+			if (files != null) {
+				return files;
+			}
+			if (path.equals("/")) {
+				return Collections.emptyList();
+			}
+			path = MetadataTemplateCatalogQuery.computeParent(path);
+		}
+	}
+
+	@Override
+	public synchronized boolean isBuilt(final IRODSAccount irodsAccount) {
+		return indexes.containsKey(computeKey(irodsAccount));
+	}
+
+	@Override
+	public synchronized void build(final IRODSAccount irodsAccount,
+			final Map<String, List<String>> templateFilesByCollection) {
+		if (templateFilesByCollection == null) {
+			throw new IllegalArgumentException(
+					"null templateFilesByCollection");
+		}
+
+		log.debug("build() with {} collections",
+				templateFilesByCollection.size());
+
+		UserIndex index = new UserIndex();
+		for (Map.Entry<String, List<String>> entry : templateFilesByCollection
+				.entrySet()) {
+			if (!entry.getValue().isEmpty()) {
+				index.ownFiles.put(normalize(entry.getKey()),
+						Collections.unmodifiableList(new ArrayList<String>(
+								entry.getValue())));
+			}
+		}
+
+		List<String> collections = new ArrayList<String>(
+				index.ownFiles.keySet());
+		Collections.sort(collections, BY_DEPTH);
+		for (String collection : collections) {
+			recompute(index, collection);
+		}
+
+		indexes.put(computeKey(irodsAccount), index);
+	}
+
+	@Override
+	public synchronized void updateCollection(final IRODSAccount irodsAccount,
+			final String collectionPath, final List<String> templateFiles) {
+		if (collectionPath == null || collectionPath.isEmpty()) {
+			throw new IllegalArgumentException("null or empty collectionPath");
+		}
+
+		if (templateFiles == null) {
+			throw new IllegalArgumentException("null templateFiles");
+		}
+
+		UserIndex index = indexes.get(computeKey(irodsAccount));
+		if (index == null) {
+			return;
+		}
+
+		String collection = normalize(collectionPath);
+		log.debug("updateCollection():{}", collection);
+
+		if (templateFiles.isEmpty()) {
+			index.ownFiles.remove(collection);
+			index.effectiveFiles.remove(collection);
+		} else {
+			index.ownFiles.put(collection, Collections
+					.unmodifiableList(new ArrayList<String>(templateFiles)));
+		}
+
+		String prefix = collection.equals("/") ? "/" : collection + "/";
+		List<String> affected = new ArrayList<String>();
+		for (String indexed : index.ownFiles.keySet()) {
+			if (indexed.equals(collection) || indexed.startsWith(prefix)) {
+				affected.add(indexed);
+			}
+		}
+
+		Collections.sort(affected, BY_DEPTH);
+		for (String indexed : affected) {
+			recompute(index, indexed);
+		}
+	}
+
+	@Override
+	public synchronized void invalidateAll() {
+		indexes.clear();
+	}
+
+	/**
+	 * Merge a collection's own templates over the effective templates of its
+	 * nearest indexed ancestor, which must already be up to date
+	 */
+	private void recompute(final UserIndex index, final String collection) {
+		Map<String, String> filesByName = new LinkedHashMap<String, String>();
+		addByName(filesByName, index.ownFiles.get(collection));
+
+		String path = collection;
+		while (!path.equals("/")) {
+			path = MetadataTemplateCatalogQuery.computeParent(path);
+			List<String> inherited = index.effectiveFiles.get(path);
+			if (inherited != null) {
+				addByName(filesByName, inherited);
+				break;
+			}
+		}
+
+		index.effectiveFiles.put(collection, Collections
+				.unmodifiableList(new ArrayList<String>(filesByName.values())));
+	}
+
+	/**
+	 * Add files whose name is not already present, so that earlier (nearer)
+	 * files take priority
+	 */
+	private void addByName(final Map<String, String> filesByName,
+			final List<String> files) {
+		for (String file : files) {
+			String name = file.substring(file.lastIndexOf('/') + 1);
+			if (!filesByName.containsKey(name)) {
+				filesByName.put(name, file);
+			}
+		}
+	}
+
+	private String normalize(final String path) {
+		if (path.length() > 1 && path.endsWith("/")) {
+			return path.substring(0, path.length() - 1);
+		}
+		return path;
+	}
+
+	private String computeKey(final IRODSAccount irodsAccount) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(irodsAccount.getHost());
+		sb.append(':');
+		sb.append(irodsAccount.getZone());
+		sb.append(':');
+		sb.append(irodsAccount.getUserName());
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,79 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.UUID;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+
+/**
+ * In-process index from template UUID to the fully-qualified name of the
+ * template file, so that resolving the template referenced by an AVU does not
+ * need a catalog-wide AVU query.
+ * <p/>
+ * The index is filled as templates are parsed, and may be warmed for a zone
+ * all at once. A UUID missing from the index says nothing about whether the
+ * template exists; callers fall back to querying the catalog. Entries are not
+ * told about changes made by other clients, so callers check that the file
+ * still carries the UUID before trusting a hit, and invalidate it if not.
+ * <p/>
+ * Implementations must be thread safe, as a single index is typically shared
+ * by every {@link JargonMetadataResolver} in an application.
+ *
+ * @author rskarbez
+ *
+ */
+public interface MetadataTemplateUuidIndex {
+
+	/**
+	 * Look up the template file for a UUID
+	 *
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} identifying the grid the template is on
+	 * @param uuid
+	 *            <code>UUID</code> of the template
+	 * @return <code>String</code> with the iRODS path to the template file, or
+	 *         <code>null</code> if the UUID is not indexed
+	 */
+	String lookup(IRODSAccount irodsAccount, UUID uuid);
+
+	/**
+	 * Record the template file for a UUID
+	 *
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} identifying the grid the template is on
+	 * @param uuid
+	 *            <code>UUID</code> of the template
+	 * @param fqName
+	 *            <code>String</code> with the iRODS path to the template file
+	 */
+	void record(IRODSAccount irodsAccount, UUID uuid, String fqName);
+
+	/**
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} identifying a grid
+	 * @return <code>boolean</code> that is <code>true</code> if every template
+	 *         on the grid has already been loaded into the index
+	 */
+	boolean isWarmed(IRODSAccount irodsAccount);
+
+	/**
+	 * Note that every template on a grid has been loaded into the index
+	 *
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} identifying a grid
+	 */
+	void markWarmed(IRODSAccount irodsAccount);
+
+	/**
+	 * Discard any entry pointing at the given template file
+	 *
+	 * @param fqName
+	 *            <code>String</code> with the iRODS path to the template file
+	 */
+	void invalidate(String fqName);
+
+	/**
+	 * Discard all entries, and forget that any grid was warmed
+	 */
+	void invalidateAll();
+
+}
@@ -0,0 +1,130 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link MetadataTemplateUuidIndex}, bounded by a maximum number of
+ * entries, with the least recently used entries evicted first. An evicted
+ * UUID is simply looked up in the catalog again.
+ * <p/>
+ * Entries are keyed by host, zone and UUID.
+ *
+ * @author rskarbez
+ *
+ */
+public class MetadataTemplateUuidIndexImpl implements MetadataTemplateUuidIndex {
+
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	static private Logger log = LoggerFactory
+			.getLogger(MetadataTemplateUuidIndexImpl.class);
+
+	private final int maxEntries;
+	private final LinkedHashMap<String, String> entries;
+	private final Set<String> warmedGrids = new HashSet<String>();
+
+	/**
+	 * Create an index with the default size
+	 */
+	public MetadataTemplateUuidIndexImpl() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Create an index with the given size
+	 *
+	 * @param maxEntries
+	 *            <code>int</code> with the maximum number of indexed UUIDs
+	 */
+	public MetadataTemplateUuidIndexImpl(final int maxEntries) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries must be > 0");
+		}
+
+		this.maxEntries = maxEntries;
+		entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, String> eldest) {
+				return size() > MetadataTemplateUuidIndexImpl.this.maxEntries;
+			}
+		};
+	}
+
+	@Override
+	public synchronized String lookup(final IRODSAccount irodsAccount,
+			final UUID uuid) {
+		return entries.get(computeKey(irodsAccount, uuid.toString()));
+	}
+
+	@Override
+	public synchronized void record(final IRODSAccount irodsAccount,
+			final UUID uuid, final String fqName) {
+		entries.put(computeKey(irodsAccount, uuid.toString()), fqName);
+	}
+
+	@Override
+	public synchronized boolean isWarmed(final IRODSAccount irodsAccount) {
+		return warmedGrids.contains(computeKey(irodsAccount, ""));
+	}
+
+	@Override
+	public synchronized void markWarmed(final IRODSAccount irodsAccount) {
+		warmedGrids.add(computeKey(irodsAccount, ""));
+	}
+
+	@Override
+	public synchronized void invalidate(final String fqName) {
+		if (fqName == null || fqName.isEmpty()) {
+			throw new IllegalArgumentException("null or empty fqName");
+		}
+
+		log.debug("invalidate:{}", fqName);
+		Iterator<String> iter = entries.values().iterator();
+		while (iter.hasNext()) {
+			if (iter.next().equals(fqName)) {
+				iter.remove();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void invalidateAll() {
+		entries.clear();
+		warmedGrids.clear();
+	}
+
+	/**
+	 * @return <code>int</code> with the number of UUIDs currently indexed
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	private String computeKey(final IRODSAccount irodsAccount,
+			final String uuid) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(irodsAccount.getHost());
+		sb.append(':');
+		sb.append(irodsAccount.getZone());
+		sb.append(':');
+		sb.append(uuid);
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,184 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.exception.JargonRuntimeException;
+import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
+import org.irods.jargon.core.query.GenQueryBuilderException;
+import org.irods.jargon.core.query.GenQueryOrderByField.OrderByType;
+import org.irods.jargon.core.query.IRODSGenQueryBuilder;
+import org.irods.jargon.core.query.IRODSGenQueryFromBuilder;
+import org.irods.jargon.core.query.IRODSQueryResultRow;
+import org.irods.jargon.core.query.IRODSQueryResultSet;
+import org.irods.jargon.core.query.JargonQueryException;
+import org.irods.jargon.core.query.QueryConditionOperators;
+import org.irods.jargon.core.query.RodsGenQueryEnum;
+import org.irods.jargon.extensions.dotirods.DotIrodsConstants;
+import org.irods.jargon.extensions.dotirods.DotIrodsMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lazily iterates the absolute paths of either the collections or the data
+ * objects in a collection tree (the collection itself and everything below
+ * it), fetching one page of GenQuery results at a time, so that very large
+ * trees are never listed into memory all at once.
+ * <p/>
+ * Paths are returned in catalog order (by collection name, then data name),
+ * which is stable between runs, so a caller can resume after a given path.
+ * Anything inside a .irods collection is skipped.
+ * <p/>
+ * Errors talking to iRODS are rethrown as {@link JargonRuntimeException}, as
+ * <code>Iterator</code> cannot throw checked exceptions.
+ *
+ * @author rskarbez
+ *
+ */
+class MetadataTreeObjectIterator implements Iterator<String> {
+
+	static private Logger log = LoggerFactory
+			.getLogger(MetadataTreeObjectIterator.class);
+
+	private final IRODSAccessObjectFactory irodsAccessObjectFactory;
+	private final IRODSAccount irodsAccount;
+	private final String rootPath;
+	private final boolean collections;
+	private final DotIrodsMetrics dotIrodsMetrics;
+
+	private List<IRODSQueryResultRow> page = Collections.emptyList();
+	private int pageIndex = 0;
+	private int offset = 0;
+	private boolean morePages = true;
+	private String next = null;
+
+	/**
+	 * @param irodsAccessObjectFactory
+	 *            {@link IRODSAccessObjectFactory}
+	 * @param irodsAccount
+	 *            {@link IRODSAccount}
+	 * @param rootPath
+	 *            <code>String</code> with the absolute path to the top
+	 *            collection of the tree
+	 * @param collections
+	 *            <code>boolean</code> that is <code>true</code> to iterate
+	 *            the collections in the tree, <code>false</code> to iterate
+	 *            the data objects
+	 * @param dotIrodsMetrics
+	 *            optional {@link DotIrodsMetrics}, may be <code>null</code>
+	 */
+	MetadataTreeObjectIterator(
+			final IRODSAccessObjectFactory irodsAccessObjectFactory,
+			final IRODSAccount irodsAccount, final String rootPath,
+			final boolean collections, final DotIrodsMetrics dotIrodsMetrics) {
+		this.irodsAccessObjectFactory = irodsAccessObjectFactory;
+		this.irodsAccount = irodsAccount;
+		this.rootPath = rootPath;
+		this.collections = collections;
+		this.dotIrodsMetrics = dotIrodsMetrics;
+	}
+
+	@Override
+	public boolean hasNext() {
+		try {
+			while (next == null) {
+				if (pageIndex < page.size()) {
+					IRODSQueryResultRow row = page.get(pageIndex++);
+					String collName = row.getColumn(0);
+					if (!isInTree(collName)) {
+						continue;
+					}
+					next = collections ? collName : MetadataTemplateCatalogQuery
+							.computeFqName(collName, row.getColumn(1));
+				} else if (morePages) {
+					fetchNextPage();
+				} else {
+					return false;
+				}
+			}
+		} catch (JargonException e) {
+			log.error("error iterating objects under {}", rootPath, e);
+			throw new JargonRuntimeException("error iterating objects", e);
+		}
+
+		return true;
+	}
+
+	@Override
+	public String next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		String returnPath = next;
+		next = null;
+		return returnPath;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove not supported");
+	}
+
+	/**
+	 * The LIKE condition also matches siblings that share the root's name as a
+	 * prefix, and the .irods collections, so both are dropped here
+	 */
+	private boolean isInTree(final String collName) {
+		String prefix = rootPath.endsWith("/") ? rootPath : rootPath + "/";
+		if (!collName.equals(rootPath) && !collName.startsWith(prefix)) {
+			return false;
+		}
+
+		String dotIrods = "/" + DotIrodsConstants.DOT_IRODS_DIR;
+		return !collName.endsWith(dotIrods)
+				&& !collName.contains(dotIrods + "/");
+	}
+
+	private void fetchNextPage() throws JargonException {
+		log.debug("fetching page at offset {} under {}", offset, rootPath);
+
+		try {
+			IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true, null);
+			builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME);
+			if (!collections) {
+				builder.addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_NAME);
+			}
+			builder.addConditionAsGenQueryField(RodsGenQueryEnum.COL_COLL_NAME,
+					QueryConditionOperators.LIKE, rootPath + "%")
+					.addOrderByGenQueryField(RodsGenQueryEnum.COL_COLL_NAME,
+							OrderByType.ASC);
+			if (!collections) {
+				builder.addOrderByGenQueryField(RodsGenQueryEnum.COL_DATA_NAME,
+						OrderByType.ASC);
+			}
+
+			IRODSGenQueryFromBuilder query = builder
+					.exportIRODSQueryFromBuilder(irodsAccessObjectFactory
+							.getJargonProperties().getMaxFilesAndDirsQueryMax());
+			IRODSQueryResultSet resultSet = irodsAccessObjectFactory
+					.getIRODSGenQueryExecutor(irodsAccount)
+					.executeIRODSQueryAndCloseResult(query, offset);
+			if (dotIrodsMetrics != null) {
+				dotIrodsMetrics.recordQuery();
+			}
+
+			page = resultSet.getResults();
+			pageIndex = 0;
+			offset += page.size();
+			morePages = resultSet.isHasMoreRecords() && !page.isEmpty();
+
+		} catch (GenQueryBuilderException e) {
+			log.error("error building query", e);
+			throw new JargonException("error building query", e);
+		} catch (JargonQueryException e) {
+			log.error("error querying objects under {}", rootPath, e);
+			throw new JargonException("error querying objects", e);
+		}
+	}
+
+}
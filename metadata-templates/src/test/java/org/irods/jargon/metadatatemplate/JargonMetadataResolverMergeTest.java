@@ -0,0 +1,112 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
+import org.irods.jargon.core.query.MetaDataAndDomainData;
+import org.irods.jargon.testutils.TestingPropertiesHelper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class JargonMetadataResolverMergeTest {
+
+	private static final String TEMPLATE_FILE_NAME2 = "src/test/resources/templates/test2.mdtemplate";
+
+	private static MetaDataAndDomainData mockAvu(final String attribute,
+			final String value, final String unit) {
+		MetaDataAndDomainData avu = Mockito.mock(MetaDataAndDomainData.class);
+		Mockito.when(avu.getAvuAttribute()).thenReturn(attribute);
+		Mockito.when(avu.getAvuValue()).thenReturn(value);
+		Mockito.when(avu.getAvuUnit()).thenReturn(unit);
+		return avu;
+	}
+
+	private static FormBasedMetadataTemplate loadTemplate(final UUID uuid)
+			throws Exception {
+		String json = new String(Files.readAllBytes(new File(
+				TEMPLATE_FILE_NAME2).toPath()), "UTF-8");
+		FormBasedMetadataTemplate template = (FormBasedMetadataTemplate) TemplateParserSingleton.PARSER
+				.createMetadataTemplateFromJSON(json);
+		template.setUuid(uuid);
+		return template;
+	}
+
+	@Test
+	public void testMergeManyAvusWithKnownTemplate() throws Exception {
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+		JargonMetadataResolver resolver = new JargonMetadataResolver(
+				irodsAccount, irodsAccessObjectFactory);
+
+		UUID uuid = UUID.randomUUID();
+		String unit = JargonMetadataTemplateConstants.AVU_UNIT_PREFIX
+				+ uuid.toString();
+		Map<String, MetadataTemplate> templateMap = new HashMap<String, MetadataTemplate>();
+		templateMap.put(uuid.toString(), loadTemplate(uuid));
+
+		int orphanCount = 500;
+		List<MetaDataAndDomainData> avuList = new ArrayList<MetaDataAndDomainData>();
+		for (int i = 0; i < orphanCount; i++) {
+			avuList.add(mockAvu("orphan" + i, "value" + i, ""));
+		}
+		avuList.add(mockAvu("attribute3", "test_value", unit));
+		avuList.add(mockAvu("OPTIONAL2", "42", unit));
+		avuList.add(mockAvu("notAnElement", "x", unit));
+
+		MetadataMergeResult result = resolver.mergeTemplateListAndAVUs(
+				templateMap, avuList, "/zone/home/test1/data.txt");
+
+		Assert.assertEquals("wrong number of templates", 1, result
+				.getTemplates().size());
+		Assert.assertEquals("wrong number of orphan AVUs", orphanCount + 1,
+				result.getUnmatchedAvus().size());
+
+		FormBasedMetadataTemplate merged = (FormBasedMetadataTemplate) result
+				.getTemplates().get(0);
+		for (MetadataElement me : merged.getElements()) {
+			if (me.getName().equals("attribute3")) {
+				Assert.assertEquals("test_value", me.getCurrentValue());
+				Assert.assertEquals("test_value", me.getDisplayValue());
+			} else if (me.getName().equals("optional2")) {
+				Assert.assertEquals("element names should match ignoring case",
+						"42", me.getCurrentValue());
+				Assert.assertEquals("42", me.getDisplayValue());
+			}
+		}
+
+		Mockito.verify(irodsAccessObjectFactory, Mockito.never())
+				.getIRODSGenQueryExecutor(irodsAccount);
+	}
+
+	@Test
+	public void testMergeMalformedTemplateUuidIsOrphan() throws Exception {
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+		JargonMetadataResolver resolver = new JargonMetadataResolver(
+				irodsAccount, irodsAccessObjectFactory);
+
+		List<MetaDataAndDomainData> avuList = new ArrayList<MetaDataAndDomainData>();
+		avuList.add(mockAvu("attribute3", "test_value",
+				JargonMetadataTemplateConstants.AVU_UNIT_PREFIX + "notAUuid"));
+
+		MetadataMergeResult result = resolver.mergeTemplateListAndAVUs(
+				new HashMap<String, MetadataTemplate>(), avuList,
+				"/zone/home/test1/data.txt");
+
+		Assert.assertTrue(result.getTemplates().isEmpty());
+		Assert.assertEquals(1, result.getUnmatchedAvus().size());
+	}
+
+}
@@ -1,12 +1,17 @@
 package org.irods.jargon.metadatatemplate;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.pub.BulkAVUOperationResponse;
 import org.irods.jargon.core.pub.DataTransferOperations;
 import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
 import org.irods.jargon.core.pub.IRODSFileSystem;
@@ -181,6 +186,100 @@ public class JargonMetadataResolverTest {
 				metadataTemplates.get(0).getFqName().equals(firstTemplateFqName));
 	}
 
+	@Test
+	public void listPublicTemplatesConcurrentlyMatchesSequential() throws Exception {
+		String testDirName1 = "listPublicTemplatesConcurrentlyDir1";
+		String testDirName2 = "listPublicTemplatesConcurrentlyDir2";
+
+		String targetIrodsCollection1 = testingPropertiesHelper.buildIRODSCollectionAbsolutePathFromTestProperties(
+				testingProperties, IRODS_TEST_SUBDIR_PATH + '/' + testDirName1);
+		String targetIrodsCollection2 = testingPropertiesHelper.buildIRODSCollectionAbsolutePathFromTestProperties(
+				testingProperties, IRODS_TEST_SUBDIR_PATH + '/' + testDirName2);
+
+		IRODSAccount irodsAccount = testingPropertiesHelper.buildIRODSAccountFromTestProperties(testingProperties);
+
+		IRODSAccessObjectFactory accessObjectFactory = irodsFileSystem.getIRODSAccessObjectFactory();
+
+		accessObjectFactory.getIRODSFileFactory(irodsAccount).instanceIRODSFile(targetIrodsCollection1).mkdirs();
+		accessObjectFactory.getIRODSFileFactory(irodsAccount).instanceIRODSFile(targetIrodsCollection2).mkdirs();
+
+		DataTransferOperations dataTransferOperations = irodsFileSystem.getIRODSAccessObjectFactory()
+				.getDataTransferOperations(irodsAccount);
+
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME1, targetIrodsCollection1,
+				irodsAccount.getDefaultStorageResource(), null, null);
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME1, targetIrodsCollection2,
+				irodsAccount.getDefaultStorageResource(), null, null);
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME2, targetIrodsCollection2,
+				irodsAccount.getDefaultStorageResource(), null, null);
+
+		JargonMetadataResolver resolver = new JargonMetadataResolver(irodsAccount, accessObjectFactory);
+		resolver.setPublicTemplateLocations(Arrays.asList(targetIrodsCollection1, targetIrodsCollection2));
+
+		List<MetadataTemplate> sequential = resolver.listPublicTemplates();
+
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			resolver.setTemplateExecutorService(executorService);
+			List<MetadataTemplate> concurrent = resolver.listPublicTemplates();
+
+			Assert.assertEquals("wrong number of templates", sequential.size(), concurrent.size());
+			for (int i = 0; i < sequential.size(); i++) {
+				Assert.assertEquals("order differs from sequential load", sequential.get(i).getFqName(),
+						concurrent.get(i).getFqName());
+			}
+			Assert.assertEquals("first appearance of template name not kept",
+					targetIrodsCollection1 + '/' + TEMPLATE_NOPATH1, concurrent.get(0).getFqName());
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	@Test
+	public void listTemplatesInCollectionBatchedMatchesSingleFile() throws Exception {
+		String testDirName = "listTemplatesInCollectionBatchedMatchesSingleFile";
+
+		String targetIrodsCollection = testingPropertiesHelper.buildIRODSCollectionAbsolutePathFromTestProperties(
+				testingProperties, IRODS_TEST_SUBDIR_PATH + '/' + testDirName);
+
+		IRODSAccount irodsAccount = testingPropertiesHelper.buildIRODSAccountFromTestProperties(testingProperties);
+
+		IRODSAccessObjectFactory accessObjectFactory = irodsFileSystem.getIRODSAccessObjectFactory();
+
+		IRODSFile targetCollectionAsFile = accessObjectFactory.getIRODSFileFactory(irodsAccount)
+				.instanceIRODSFile(targetIrodsCollection);
+		targetCollectionAsFile.mkdirs();
+
+		DataTransferOperations dataTransferOperations = irodsFileSystem.getIRODSAccessObjectFactory()
+				.getDataTransferOperations(irodsAccount);
+
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME1, targetIrodsCollection,
+				irodsAccount.getDefaultStorageResource(), null, null);
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME2, targetIrodsCollection,
+				irodsAccount.getDefaultStorageResource(), null, null);
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME3, targetIrodsCollection,
+				irodsAccount.getDefaultStorageResource(), null, null);
+
+		JargonMetadataResolver resolver = new JargonMetadataResolver(irodsAccount, accessObjectFactory);
+
+		// first listing generates the UUID AVUs, second one finds them in bulk
+		resolver.listTemplatesInCollection(targetIrodsCollection);
+		List<MetadataTemplate> metadataTemplates = resolver.listTemplatesInCollection(targetIrodsCollection);
+
+		Assert.assertEquals("wrong list returned from listTemplatesInCollection", 3, metadataTemplates.size());
+
+		for (MetadataTemplate batched : metadataTemplates) {
+			MetadataTemplate single = resolver.processFileToMetadataTemplate(
+					(File) accessObjectFactory.getIRODSFileFactory(irodsAccount)
+							.instanceIRODSFile(batched.getFqName()));
+			Assert.assertEquals("UUID differs from single file lookup", single.getUuid(), batched.getUuid());
+			Assert.assertEquals("created differs from single file lookup", single.getCreated(),
+					batched.getCreated());
+			Assert.assertEquals("modified differs from single file lookup", single.getModified(),
+					batched.getModified());
+		}
+	}
+
 	@Test
 	public void listTemplatesInDirectoryHierarchyAbovePathNoDuplicates() throws Exception {
 		String testDirName1 = "listPublicTemplatesNoDuplicatesDir";
@@ -665,6 +764,91 @@ public class JargonMetadataResolverTest {
 				metadataTemplate);
 	}
 
+	@Test
+	public void findTemplateByNameInDirectoryHierarchyLeafFirstIgnoringCase() throws Exception {
+		// Put a template of the same name at the top and the bottom of a
+		// hierarchy, and look it up by name in a different case, with and
+		// without a hierarchy index
+		// Assert that both find the template nearest the leaf
+
+		String testDirName1 = "findTemplateByNameInDirectoryHierarchyLeafFirstIgnoringCaseDir";
+		String testDirName2 = "SubDir";
+		String testDirName3 = "StartDir";
+
+		String targetIrodsCollection1 = testingPropertiesHelper.buildIRODSCollectionAbsolutePathFromTestProperties(
+				testingProperties, IRODS_TEST_SUBDIR_PATH + '/' + testDirName1);
+		String targetIrodsCollection3 = targetIrodsCollection1 + '/' + testDirName2 + '/' + testDirName3;
+
+		IRODSAccount irodsAccount = testingPropertiesHelper.buildIRODSAccountFromTestProperties(testingProperties);
+
+		IRODSAccessObjectFactory accessObjectFactory = irodsFileSystem.getIRODSAccessObjectFactory();
+
+		accessObjectFactory.getIRODSFileFactory(irodsAccount).instanceIRODSFile(targetIrodsCollection3).mkdirs();
+
+		JargonMetadataResolver resolver = new JargonMetadataResolver(irodsAccount, accessObjectFactory);
+
+		String mdTemplatePath1 = resolver.findOrCreateMetadataTemplatesCollection(targetIrodsCollection1);
+		String mdTemplatePath3 = resolver.findOrCreateMetadataTemplatesCollection(targetIrodsCollection3);
+
+		DataTransferOperations dataTransferOperations = irodsFileSystem.getIRODSAccessObjectFactory()
+				.getDataTransferOperations(irodsAccount);
+
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME1, mdTemplatePath1,
+				irodsAccount.getDefaultStorageResource(), null, null);
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME1, mdTemplatePath3,
+				irodsAccount.getDefaultStorageResource(), null, null);
+
+		String templateFqName = mdTemplatePath3 + '/' + TEMPLATE_NOPATH1;
+
+		MetadataTemplate queried = resolver.findTemplateByNameInDirectoryHierarchy("TEST1", targetIrodsCollection3);
+
+		JargonMetadataResolver indexedResolver = new JargonMetadataResolver(irodsAccount, accessObjectFactory);
+		indexedResolver.setMetadataTemplateHierarchyIndex(new MetadataTemplateHierarchyIndexImpl());
+		MetadataTemplate indexed = indexedResolver.findTemplateByNameInDirectoryHierarchy("TEST1",
+				targetIrodsCollection3);
+
+		Assert.assertNotNull("no template returned by query", queried);
+		Assert.assertEquals("leaf template should win by query", templateFqName, queried.getFqName());
+		Assert.assertNotNull("no template returned by index", indexed);
+		Assert.assertEquals("leaf template should win by index", templateFqName, indexed.getFqName());
+	}
+
+	@Test
+	public void findTemplateByNameInDirectoryHierarchyFileAbsentIndexed() throws Exception {
+		// As findTemplateByNameInDirectoryHierarchyFileAbsent, with a
+		// hierarchy index
+
+		String testDirName1 = "findTemplateByNameInDirectoryHierarchyFileAbsentIndexedDir";
+		String testDirName2 = "SubDir";
+
+		String targetIrodsCollection1 = testingPropertiesHelper.buildIRODSCollectionAbsolutePathFromTestProperties(
+				testingProperties, IRODS_TEST_SUBDIR_PATH + '/' + testDirName1);
+		String targetIrodsCollection2 = targetIrodsCollection1 + '/' + testDirName2;
+
+		IRODSAccount irodsAccount = testingPropertiesHelper.buildIRODSAccountFromTestProperties(testingProperties);
+
+		IRODSAccessObjectFactory accessObjectFactory = irodsFileSystem.getIRODSAccessObjectFactory();
+
+		accessObjectFactory.getIRODSFileFactory(irodsAccount).instanceIRODSFile(targetIrodsCollection2).mkdirs();
+
+		JargonMetadataResolver resolver = new JargonMetadataResolver(irodsAccount, accessObjectFactory);
+		resolver.setMetadataTemplateHierarchyIndex(new MetadataTemplateHierarchyIndexImpl());
+
+		String mdTemplatePath1 = resolver.findOrCreateMetadataTemplatesCollection(targetIrodsCollection1);
+
+		DataTransferOperations dataTransferOperations = irodsFileSystem.getIRODSAccessObjectFactory()
+				.getDataTransferOperations(irodsAccount);
+
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME1, mdTemplatePath1,
+				irodsAccount.getDefaultStorageResource(), null, null);
+
+		MetadataTemplate metadataTemplate = resolver.findTemplateByNameInDirectoryHierarchy("notGoingToBeFound",
+				targetIrodsCollection2);
+
+		Assert.assertNull("findTemplateByNameInDirectoryHierarchy should have returned null for no match",
+				metadataTemplate);
+	}
+
 	@Test
 	public void findTemplateByNameInPublicTemplatesFilePresent() throws Exception {
 		// Create M public template dirs
@@ -809,6 +993,48 @@ public class JargonMetadataResolverTest {
 		Assert.assertNotNull("no template returned from findTemplateByName", metadataTemplate);
 	}
 
+	@Test
+	public void findTemplateByFqNameReadOnlyWritesNoAvuUntilRegistered() throws Exception {
+		String testDirName1 = "findTemplateByFqNameReadOnlyDir";
+
+		String targetIrodsCollection1 = testingPropertiesHelper.buildIRODSCollectionAbsolutePathFromTestProperties(
+				testingProperties, IRODS_TEST_SUBDIR_PATH + '/' + testDirName1);
+
+		IRODSAccount irodsAccount = testingPropertiesHelper.buildIRODSAccountFromTestProperties(testingProperties);
+
+		IRODSAccessObjectFactory accessObjectFactory = irodsFileSystem.getIRODSAccessObjectFactory();
+
+		accessObjectFactory.getIRODSFileFactory(irodsAccount).instanceIRODSFile(targetIrodsCollection1).mkdirs();
+
+		JargonMetadataResolver resolver = new JargonMetadataResolver(irodsAccount, accessObjectFactory);
+		resolver.setReadOnly(true);
+
+		String mdTemplatePath1 = resolver.findOrCreateMetadataTemplatesCollection(targetIrodsCollection1);
+
+		DataTransferOperations dataTransferOperations = irodsFileSystem.getIRODSAccessObjectFactory()
+				.getDataTransferOperations(irodsAccount);
+
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME1, mdTemplatePath1,
+				irodsAccount.getDefaultStorageResource(), null, null);
+
+		String templateFqName = mdTemplatePath1 + '/' + TEMPLATE_NOPATH1;
+		UUID expectedUuid = JargonMetadataResolver.computeTemplateUuidForPath(templateFqName);
+
+		MetadataTemplate metadataTemplate = resolver.findTemplateByFqName(templateFqName);
+		Assert.assertEquals("UUID not derived from path", expectedUuid, metadataTemplate.getUuid());
+		Assert.assertEquals("UUID not stable between reads", expectedUuid,
+				resolver.findTemplateByFqName(templateFqName).getUuid());
+		Assert.assertTrue("read only lookup wrote a UUID AVU",
+				resolver.queryTemplateAVUForFile(templateFqName).isEmpty());
+
+		Map<String, UUID> registered = resolver.registerTemplates(Arrays.asList(templateFqName));
+		Assert.assertEquals("template not registered", expectedUuid, registered.get(templateFqName));
+		Assert.assertEquals("registered UUID differs from read only UUID", expectedUuid.toString(),
+				resolver.queryTemplateAVUForFile(templateFqName).get(0).getAvuValue());
+		Assert.assertTrue("registered template registered again",
+				resolver.registerTemplates(Arrays.asList(templateFqName)).isEmpty());
+	}
+
 	@Test
 	public void findTemplateByFqNameInvalid() throws Exception {
 		// Call findTemplateByFqName with the fully-qualified name of a file
@@ -1567,6 +1793,78 @@ public class JargonMetadataResolverTest {
 				template.getElements().get(0).getCurrentValue());
 	}
 
+	@Test
+	public void getAndMergeTemplateListForPathsMatchesSinglePath() throws Exception {
+		String testDirName1 = "getAndMergeTemplateListForPathsDir1";
+		String testDirName2 = "getAndMergeTemplateListForPathsDir2";
+
+		String targetIrodsCollection1 = testingPropertiesHelper.buildIRODSCollectionAbsolutePathFromTestProperties(
+				testingProperties, IRODS_TEST_SUBDIR_PATH + '/' + testDirName1);
+		String targetIrodsCollection2 = testingPropertiesHelper.buildIRODSCollectionAbsolutePathFromTestProperties(
+				testingProperties, IRODS_TEST_SUBDIR_PATH + '/' + testDirName2);
+
+		IRODSAccount irodsAccount = testingPropertiesHelper.buildIRODSAccountFromTestProperties(testingProperties);
+
+		IRODSAccessObjectFactory accessObjectFactory = irodsFileSystem.getIRODSAccessObjectFactory();
+
+		accessObjectFactory.getIRODSFileFactory(irodsAccount).instanceIRODSFile(targetIrodsCollection1).mkdirs();
+		accessObjectFactory.getIRODSFileFactory(irodsAccount).instanceIRODSFile(targetIrodsCollection2).mkdirs();
+
+		JargonMetadataResolver resolver = new JargonMetadataResolver(irodsAccount, accessObjectFactory);
+
+		String mdTemplatePath1 = resolver.findOrCreateMetadataTemplatesCollection(targetIrodsCollection1);
+
+		DataTransferOperations dataTransferOperations = irodsFileSystem.getIRODSAccessObjectFactory()
+				.getDataTransferOperations(irodsAccount);
+
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME1, mdTemplatePath1,
+				irodsAccount.getDefaultStorageResource(), null, null);
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME2, targetIrodsCollection2,
+				irodsAccount.getDefaultStorageResource(), null, null);
+
+		String templateFqName2 = targetIrodsCollection2 + '/' + TEMPLATE_NOPATH2;
+		resolver.setPublicTemplateLocations(Arrays.asList(targetIrodsCollection2));
+
+		UUID uuid2 = UUID.randomUUID();
+		AvuData avuData = AvuData.instance("test2", uuid2.toString(), JargonMetadataTemplateConstants.MD_TEMPLATE_UNIT);
+		accessObjectFactory.getDataObjectAO(irodsAccount).addAVUMetadata(templateFqName2, avuData);
+
+		// Two files sharing a collection, plus the collection itself
+		dataTransferOperations.putOperation(TEST_FILE_NAME, targetIrodsCollection1,
+				irodsAccount.getDefaultStorageResource(), null, null);
+		String testFileNameFQ = targetIrodsCollection1 + '/' + TEST_FILE_NOPATH;
+		String secondFileNameFQ = targetIrodsCollection1 + "/second" + TEST_FILE_NOPATH;
+		dataTransferOperations.copy(testFileNameFQ, irodsAccount.getDefaultStorageResource(), secondFileNameFQ,
+				null, null);
+
+		avuData = AvuData.instance("attribute3", "test_value",
+				JargonMetadataTemplateConstants.AVU_UNIT_PREFIX + uuid2.toString());
+		accessObjectFactory.getDataObjectAO(irodsAccount).addAVUMetadata(testFileNameFQ, avuData);
+		avuData = AvuData.instance("orphan1", "littleOrphanAnnie", "");
+		accessObjectFactory.getDataObjectAO(irodsAccount).addAVUMetadata(secondFileNameFQ, avuData);
+		avuData = AvuData.instance("attribute3", "coll_value",
+				JargonMetadataTemplateConstants.AVU_UNIT_PREFIX + uuid2.toString());
+		accessObjectFactory.getCollectionAO(irodsAccount).addAVUMetadata(targetIrodsCollection1, avuData);
+
+		List<String> paths = Arrays.asList(testFileNameFQ, secondFileNameFQ, targetIrodsCollection1,
+				targetIrodsCollection1 + "/doesNotExist");
+
+		Map<String, MetadataMergeResult> results = resolver.getAndMergeTemplateListForPaths(paths);
+
+		Assert.assertEquals("wrong number of results", 3, results.size());
+		Assert.assertFalse("missing path should be absent",
+				results.containsKey(targetIrodsCollection1 + "/doesNotExist"));
+
+		for (String path : paths.subList(0, 3)) {
+			MetadataMergeResult single = resolver.getAndMergeTemplateListForPath(path);
+			MetadataMergeResult bulk = results.get(path);
+			Assert.assertEquals("template count differs for " + path, single.getTemplates().size(),
+					bulk.getTemplates().size());
+			Assert.assertEquals("unmatched AVU count differs for " + path, single.getUnmatchedAvus().size(),
+					bulk.getUnmatchedAvus().size());
+		}
+	}
+
 	@Test
 	public void getAndMergeTemplateListForCollection() throws Exception {
 		String testDirName1 = "getAndMergeTemplateListForCollectionDir1";
@@ -1863,6 +2161,15 @@ public class JargonMetadataResolverTest {
 		for (MetaDataAndDomainData mdd : queryResult) {
 			Assert.assertEquals("attribute2 has wrong value", "optional_value1", mdd.getAvuValue());
 		}
+
+		// saving again reports each duplicate AVU rather than failing
+		List<BulkAVUOperationResponse> responses = resolver.saveTemplateToSystemMetadataOnObject(fbmt,
+				testFileNameFQ);
+		Assert.assertFalse("no responses for second save", responses.isEmpty());
+		for (BulkAVUOperationResponse response : responses) {
+			Assert.assertTrue("duplicate AVU reported as added",
+					response.getResultStatus() != BulkAVUOperationResponse.ResultStatus.OK);
+		}
 	}
 
 	@Test
@@ -1969,4 +2276,99 @@ public class JargonMetadataResolverTest {
 			Assert.assertEquals("attribute2 has wrong value", "optional_value1", mdd.getAvuValue());
 		}
 	}
+
+	@Test
+	public void applyTemplateToCollectionTree() throws Exception {
+		String testDirName1 = "applyTemplateToCollectionTreeDir";
+
+		String targetIrodsCollection1 = testingPropertiesHelper.buildIRODSCollectionAbsolutePathFromTestProperties(
+				testingProperties, IRODS_TEST_SUBDIR_PATH + '/' + testDirName1);
+		String subCollection1 = targetIrodsCollection1 + "/subdir";
+
+		IRODSAccount irodsAccount = testingPropertiesHelper.buildIRODSAccountFromTestProperties(testingProperties);
+
+		IRODSAccessObjectFactory accessObjectFactory = irodsFileSystem.getIRODSAccessObjectFactory();
+
+		IRODSFile subCollectionAsFile1 = accessObjectFactory.getIRODSFileFactory(irodsAccount)
+				.instanceIRODSFile(subCollection1);
+
+		subCollectionAsFile1.mkdirs();
+
+		JargonMetadataResolver resolver = new JargonMetadataResolver(irodsAccount, accessObjectFactory);
+
+		String mdTemplatePath1 = resolver.findOrCreateMetadataTemplatesCollection(targetIrodsCollection1);
+
+		DataTransferOperations dataTransferOperations = irodsFileSystem.getIRODSAccessObjectFactory()
+				.getDataTransferOperations(irodsAccount);
+
+		dataTransferOperations.putOperation(TEMPLATE_FILE_NAME1, mdTemplatePath1,
+				irodsAccount.getDefaultStorageResource(), null, null);
+		dataTransferOperations.putOperation(TEST_FILE_NAME, targetIrodsCollection1,
+				irodsAccount.getDefaultStorageResource(), null, null);
+		dataTransferOperations.putOperation(TEST_FILE_NAME, subCollection1,
+				irodsAccount.getDefaultStorageResource(), null, null);
+
+		String templateFqName1 = mdTemplatePath1 + '/' + TEMPLATE_NOPATH1;
+		String testFileNameFQ = subCollection1 + '/' + TEST_FILE_NOPATH;
+
+		FormBasedMetadataTemplate fbmt = (FormBasedMetadataTemplate) resolver.findTemplateByFqName(templateFqName1);
+
+		for (MetadataElement me : fbmt.getElements()) {
+			if (me.getName().equalsIgnoreCase("attribute1")) {
+				me.setCurrentValue("value1");
+			} else if (me.getName().equalsIgnoreCase("attribute2")) {
+				me.setCurrentValue("42");
+			}
+		}
+
+		final List<String> checkpoints = new ArrayList<>();
+		MetadataTemplateApplyListener listener = new MetadataTemplateApplyListener() {
+			@Override
+			public void objectFailed(String path, String reason) {
+				Assert.fail("template not applied to " + path + ": " + reason);
+			}
+
+			@Override
+			public void progress(long objectsApplied, long objectsFailed, String checkpointPath) {
+				checkpoints.add(checkpointPath);
+			}
+		};
+
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		try {
+			// two collections and two data objects, the .irods collection and
+			// template file are left alone
+			MetadataTemplateApplyResult result = resolver.applyTemplateToCollectionTree(fbmt, targetIrodsCollection1,
+					null, executorService, listener);
+
+			Assert.assertEquals("wrong number of objects", 4, result.getObjectsApplied());
+			Assert.assertTrue("unexpected failures", result.getFailedPaths().isEmpty());
+			Assert.assertFalse("no progress reported", checkpoints.isEmpty());
+			Assert.assertEquals("wrong final checkpoint", result.getCheckpointPath(),
+					checkpoints.get(checkpoints.size() - 1));
+
+			List<AVUQueryElement> queryElements = new ArrayList<>();
+			queryElements.add(AVUQueryElement.instanceForValueQuery(AVUQueryElement.AVUQueryPart.ATTRIBUTE,
+					QueryConditionOperators.EQUAL, "attribute1"));
+
+			List<MetaDataAndDomainData> queryResult = accessObjectFactory.getDataObjectAO(irodsAccount)
+					.findMetadataValuesForDataObjectUsingAVUQuery(queryElements, testFileNameFQ);
+			Assert.assertFalse("attribute1 not applied to data object", queryResult.isEmpty());
+
+			queryResult = accessObjectFactory.getCollectionAO(irodsAccount)
+					.findMetadataValuesByMetadataQueryForCollection(queryElements, subCollection1);
+			Assert.assertFalse("attribute1 not applied to subcollection", queryResult.isEmpty());
+
+			queryResult = accessObjectFactory.getDataObjectAO(irodsAccount)
+					.findMetadataValuesForDataObjectUsingAVUQuery(queryElements, templateFqName1);
+			Assert.assertTrue("template applied inside .irods", queryResult.isEmpty());
+
+			// resuming after the last collection only revisits the data objects
+			result = resolver.applyTemplateToCollectionTree(fbmt, targetIrodsCollection1, subCollection1,
+					executorService, null);
+			Assert.assertEquals("wrong number of objects on resume", 2, result.getObjectsApplied());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
 }
@@ -0,0 +1,144 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.Date;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.pub.domain.ObjStat;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetadataTemplateCacheImplTest {
+
+	private static IRODSAccount buildAccount() throws Exception {
+		return IRODSAccount.instance("host", 1247, "test1", "password",
+				"/zone/home/test1", "zone", "");
+	}
+
+	private static ObjStat buildObjStat(final long modifiedAt,
+			final long size, final String checksum) {
+		ObjStat objStat = new ObjStat();
+		objStat.setModifiedAt(new Date(modifiedAt));
+		objStat.setObjSize(size);
+		objStat.setChecksum(checksum);
+		return objStat;
+	}
+
+	private static MetadataTemplate buildTemplate(final String name) {
+		MetadataTemplate metadataTemplate = new FormBasedMetadataTemplate();
+		metadataTemplate.setName(name);
+		return metadataTemplate;
+	}
+
+	@Test
+	public void testRecordAndLookup() throws Exception {
+		IRODSAccount irodsAccount = buildAccount();
+		MetadataTemplateCacheImpl cache = new MetadataTemplateCacheImpl();
+		cache.record(irodsAccount, "/zone/a.mdtemplate",
+				buildObjStat(1000L, 10L, "sum"), buildTemplate("a"));
+		MetadataTemplate actual = cache.lookup(irodsAccount,
+				"/zone/a.mdtemplate", buildObjStat(1000L, 10L, "sum"));
+		Assert.assertNotNull("template should be cached", actual);
+		Assert.assertEquals("a", actual.getName());
+		Assert.assertNull(cache.lookup(irodsAccount, "/zone/b.mdtemplate",
+				buildObjStat(1000L, 10L, "sum")));
+	}
+
+	@Test
+	public void testChangedStatMissesAndEvicts() throws Exception {
+		IRODSAccount irodsAccount = buildAccount();
+		MetadataTemplateCacheImpl cache = new MetadataTemplateCacheImpl();
+		cache.record(irodsAccount, "/zone/a.mdtemplate",
+				buildObjStat(1000L, 10L, "sum"), buildTemplate("a"));
+		cache.record(irodsAccount, "/zone/b.mdtemplate",
+				buildObjStat(1000L, 10L, "sum"), buildTemplate("b"));
+		cache.record(irodsAccount, "/zone/c.mdtemplate",
+				buildObjStat(1000L, 10L, "sum"), buildTemplate("c"));
+
+		Assert.assertNull("modify time changed", cache.lookup(irodsAccount,
+				"/zone/a.mdtemplate", buildObjStat(2000L, 10L, "sum")));
+		Assert.assertNull("size changed", cache.lookup(irodsAccount,
+				"/zone/b.mdtemplate", buildObjStat(1000L, 11L, "sum")));
+		Assert.assertNull("checksum changed", cache.lookup(irodsAccount,
+				"/zone/c.mdtemplate", buildObjStat(1000L, 10L, "other")));
+		Assert.assertEquals("mismatched entries should be evicted", 0,
+				cache.size());
+		Assert.assertNull("evicted entry served for the original stat",
+				cache.lookup(irodsAccount, "/zone/a.mdtemplate",
+						buildObjStat(1000L, 10L, "sum")));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws Exception {
+		IRODSAccount irodsAccount = buildAccount();
+		ObjStat objStat = buildObjStat(1000L, 10L, null);
+		MetadataTemplateCacheImpl cache = new MetadataTemplateCacheImpl(2);
+		cache.record(irodsAccount, "/zone/a.mdtemplate", objStat,
+				buildTemplate("a"));
+		cache.record(irodsAccount, "/zone/b.mdtemplate", objStat,
+				buildTemplate("b"));
+		cache.lookup(irodsAccount, "/zone/a.mdtemplate", objStat);
+		cache.record(irodsAccount, "/zone/c.mdtemplate", objStat,
+				buildTemplate("c"));
+		Assert.assertEquals(2, cache.size());
+		Assert.assertNull(cache.lookup(irodsAccount, "/zone/b.mdtemplate",
+				objStat));
+		Assert.assertNotNull(cache.lookup(irodsAccount, "/zone/a.mdtemplate",
+				objStat));
+		Assert.assertNotNull(cache.lookup(irodsAccount, "/zone/c.mdtemplate",
+				objStat));
+	}
+
+	@Test
+	public void testInvalidateAndInvalidateAll() throws Exception {
+		IRODSAccount irodsAccount = buildAccount();
+		ObjStat objStat = buildObjStat(1000L, 10L, "sum");
+		MetadataTemplateCacheImpl cache = new MetadataTemplateCacheImpl();
+		cache.record(irodsAccount, "/zone/a.mdtemplate", objStat,
+				buildTemplate("a"));
+		cache.record(irodsAccount, "/zone/b.mdtemplate", objStat,
+				buildTemplate("b"));
+
+		cache.invalidate("/zone/a.mdtemplate");
+		Assert.assertNull(cache.lookup(irodsAccount, "/zone/a.mdtemplate",
+				objStat));
+		Assert.assertNotNull(cache.lookup(irodsAccount, "/zone/b.mdtemplate",
+				objStat));
+
+		cache.invalidateAll();
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testRecordAndLookupCopy() throws Exception {
+		IRODSAccount irodsAccount = buildAccount();
+		ObjStat objStat = buildObjStat(1000L, 10L, "sum");
+		MetadataTemplateCacheImpl cache = new MetadataTemplateCacheImpl();
+		MetadataTemplate recorded = buildTemplate("a");
+		cache.record(irodsAccount, "/zone/a.mdtemplate", objStat, recorded);
+		recorded.setName("changedAfterRecord");
+
+		MetadataTemplate first = cache.lookup(irodsAccount,
+				"/zone/a.mdtemplate", objStat);
+		Assert.assertEquals("record should store a copy", "a",
+				first.getName());
+		first.setName("changedAfterLookup");
+
+		MetadataTemplate second = cache.lookup(irodsAccount,
+				"/zone/a.mdtemplate", objStat);
+		Assert.assertEquals("lookup should return a copy", "a",
+				second.getName());
+		Assert.assertNotSame("lookup should return a new copy", first,
+				second);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidateNullFqName() throws Exception {
+		new MetadataTemplateCacheImpl().invalidate(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroMaxEntries() throws Exception {
+		new MetadataTemplateCacheImpl(0);
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetadataTemplateHierarchyIndexImplTest {
+
+	private static final String HOME = "/zone/home/test1";
+	private static final String TEMPLATES = "/.irods/metadataTemplates/";
+
+	private static IRODSAccount buildAccount(final String userName)
+			throws Exception {
+		return IRODSAccount.instance("host", 1247, userName, "password",
+				"/zone/home/" + userName, "zone", "");
+	}
+
+	private static Map<String, List<String>> buildHierarchy() {
+		Map<String, List<String>> files = new HashMap<String, List<String>>();
+		files.put(HOME, Arrays.asList(HOME + TEMPLATES + "a.mdtemplate", HOME
+				+ TEMPLATES + "b.mdtemplate"));
+		files.put(HOME + "/sub", Arrays.asList(HOME + "/sub" + TEMPLATES
+				+ "b.mdtemplate"));
+		return files;
+	}
+
+	@Test
+	public void testLookupNearestWinsByName() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		MetadataTemplateHierarchyIndexImpl index = new MetadataTemplateHierarchyIndexImpl();
+		index.build(irodsAccount, buildHierarchy());
+
+		List<String> files = index.lookup(irodsAccount, HOME
+				+ "/sub/deeper/leaf");
+		Assert.assertEquals(Arrays.asList(HOME + "/sub" + TEMPLATES
+				+ "b.mdtemplate", HOME + TEMPLATES + "a.mdtemplate"), files);
+
+		Assert.assertEquals("sibling with a common prefix matched", 2, index
+				.lookup(irodsAccount, HOME + "/subway").size());
+		Assert.assertEquals(HOME + TEMPLATES + "b.mdtemplate", index
+				.lookup(irodsAccount, HOME + "/subway").get(1));
+		Assert.assertTrue(index.lookup(irodsAccount, "/zone/home").isEmpty());
+	}
+
+	@Test
+	public void testLookupBeforeBuildAndPerUser() throws Exception {
+		MetadataTemplateHierarchyIndexImpl index = new MetadataTemplateHierarchyIndexImpl();
+		Assert.assertNull(index.lookup(buildAccount("test1"), HOME));
+
+		index.build(buildAccount("test1"), buildHierarchy());
+		Assert.assertTrue(index.isBuilt(buildAccount("test1")));
+		Assert.assertNull("index leaked to another user",
+				index.lookup(buildAccount("test2"), HOME));
+
+		index.invalidateAll();
+		Assert.assertFalse(index.isBuilt(buildAccount("test1")));
+	}
+
+	@Test
+	public void testUpdateCollectionRecomputesDescendants() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		MetadataTemplateHierarchyIndexImpl index = new MetadataTemplateHierarchyIndexImpl();
+		index.build(irodsAccount, buildHierarchy());
+
+		index.updateCollection(irodsAccount, HOME,
+				Arrays.asList(HOME + TEMPLATES + "c.mdtemplate"));
+		List<String> files = index.lookup(irodsAccount, HOME + "/sub");
+		Assert.assertEquals(Arrays.asList(HOME + "/sub" + TEMPLATES
+				+ "b.mdtemplate", HOME + TEMPLATES + "c.mdtemplate"), files);
+
+		index.updateCollection(irodsAccount, HOME + "/sub",
+				new ArrayList<String>());
+		Assert.assertEquals(Arrays.asList(HOME + TEMPLATES + "c.mdtemplate"),
+				index.lookup(irodsAccount, HOME + "/sub"));
+
+		index.updateCollection(irodsAccount, HOME + "/new/",
+				Arrays.asList(HOME + "/new" + TEMPLATES + "c.mdtemplate"));
+		Assert.assertEquals(Arrays.asList(HOME + "/new" + TEMPLATES
+				+ "c.mdtemplate"), index.lookup(irodsAccount, HOME + "/new/x"));
+	}
+
+}
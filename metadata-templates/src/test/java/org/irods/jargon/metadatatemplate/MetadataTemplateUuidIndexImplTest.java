@@ -0,0 +1,87 @@
+package org.irods.jargon.metadatatemplate;
+
+import java.util.UUID;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetadataTemplateUuidIndexImplTest {
+
+	private static IRODSAccount buildAccount(final String host,
+			final String zone) throws Exception {
+		return IRODSAccount.instance(host, 1247, "test1", "password", "/"
+				+ zone + "/home/test1", zone, "");
+	}
+
+	@Test
+	public void testRecordAndLookup() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("host", "zone");
+		UUID uuid = UUID.randomUUID();
+		MetadataTemplateUuidIndexImpl index = new MetadataTemplateUuidIndexImpl();
+		index.record(irodsAccount, uuid, "/zone/home/test1/a.mdtemplate");
+		Assert.assertEquals("/zone/home/test1/a.mdtemplate",
+				index.lookup(irodsAccount, uuid));
+		Assert.assertNull(index.lookup(irodsAccount, UUID.randomUUID()));
+	}
+
+	@Test
+	public void testLookupIsPerZone() throws Exception {
+		UUID uuid = UUID.randomUUID();
+		MetadataTemplateUuidIndexImpl index = new MetadataTemplateUuidIndexImpl();
+		index.record(buildAccount("host", "zone"), uuid,
+				"/zone/home/test1/a.mdtemplate");
+		Assert.assertNull("entry leaked to another zone",
+				index.lookup(buildAccount("host", "otherZone"), uuid));
+	}
+
+	@Test
+	public void testInvalidateByFqName() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("host", "zone");
+		UUID uuid1 = UUID.randomUUID();
+		UUID uuid2 = UUID.randomUUID();
+		MetadataTemplateUuidIndexImpl index = new MetadataTemplateUuidIndexImpl();
+		index.record(irodsAccount, uuid1, "/zone/home/test1/a.mdtemplate");
+		index.record(irodsAccount, uuid2, "/zone/home/test1/b.mdtemplate");
+		index.invalidate("/zone/home/test1/a.mdtemplate");
+		Assert.assertNull(index.lookup(irodsAccount, uuid1));
+		Assert.assertEquals("/zone/home/test1/b.mdtemplate",
+				index.lookup(irodsAccount, uuid2));
+	}
+
+	@Test
+	public void testWarmedIsPerZoneAndClearedByInvalidateAll()
+			throws Exception {
+		IRODSAccount irodsAccount = buildAccount("host", "zone");
+		MetadataTemplateUuidIndexImpl index = new MetadataTemplateUuidIndexImpl();
+		Assert.assertFalse(index.isWarmed(irodsAccount));
+		index.markWarmed(irodsAccount);
+		Assert.assertTrue(index.isWarmed(irodsAccount));
+		Assert.assertFalse(index.isWarmed(buildAccount("host", "otherZone")));
+		index.invalidateAll();
+		Assert.assertFalse(index.isWarmed(irodsAccount));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("host", "zone");
+		UUID uuid1 = UUID.randomUUID();
+		UUID uuid2 = UUID.randomUUID();
+		UUID uuid3 = UUID.randomUUID();
+		MetadataTemplateUuidIndexImpl index = new MetadataTemplateUuidIndexImpl(
+				2);
+		index.record(irodsAccount, uuid1, "/zone/a.mdtemplate");
+		index.record(irodsAccount, uuid2, "/zone/b.mdtemplate");
+		index.lookup(irodsAccount, uuid1);
+		index.record(irodsAccount, uuid3, "/zone/c.mdtemplate");
+		Assert.assertEquals(2, index.size());
+		Assert.assertNull(index.lookup(irodsAccount, uuid2));
+		Assert.assertNotNull(index.lookup(irodsAccount, uuid1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidateNullFqName() throws Exception {
+		new MetadataTemplateUuidIndexImpl().invalidate(null);
+	}
+
+}
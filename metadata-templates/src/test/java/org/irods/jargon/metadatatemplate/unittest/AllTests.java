@@ -1,12 +1,20 @@
 package org.irods.jargon.metadatatemplate.unittest;
 
+import org.irods.jargon.metadatatemplate.JargonMetadataResolverMergeTest;
 import org.irods.jargon.metadatatemplate.JargonMetadataResolverTest;
+import org.irods.jargon.metadatatemplate.MetadataTemplateCacheImplTest;
+import org.irods.jargon.metadatatemplate.MetadataTemplateHierarchyIndexImplTest;
+import org.irods.jargon.metadatatemplate.MetadataTemplateUuidIndexImplTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ JargonMetadataResolverTest.class })
+@SuiteClasses({ JargonMetadataResolverTest.class,
+		JargonMetadataResolverMergeTest.class,
+		MetadataTemplateUuidIndexImplTest.class,
+		MetadataTemplateHierarchyIndexImplTest.class,
+		MetadataTemplateCacheImplTest.class })
 public class AllTests {
 
 }
@@ -16,7 +16,6 @@ import org.irods.jargon.core.pub.domain.AvuData;
 import org.irods.jargon.core.pub.domain.Collection;
 import org.irods.jargon.core.pub.domain.DataObject;
 import org.irods.jargon.core.pub.io.IRODSFile;
-import org.irods.jargon.core.pub.io.IRODSFileInputStream;
 import org.irods.jargon.core.pub.io.IRODSFileOutputStream;
 import org.irods.jargon.core.query.AVUQueryElement;
 import org.irods.jargon.core.query.AVUQueryElement.AVUQueryPart;
@@ -25,6 +24,7 @@ import org.irods.jargon.core.query.QueryConditionOperators;
 import org.irods.jargon.core.service.AbstractJargonService;
 import org.irods.jargon.core.utils.MiscIRODSUtils;
 import org.irods.jargon.extensions.dotirods.DotIrodsConstants;
+import org.irods.jargon.extensions.dotirods.DotIrodsFileReader;
 import org.irods.jargon.extensions.dotirods.DotIrodsService;
 import org.irods.jargon.extensions.dotirods.DotIrodsServiceImpl;
 import org.irods.jargon.vircoll.CollectionTypes;
@@ -34,6 +34,7 @@ import org.irods.jargon.vircoll.VirtualCollectionMaintenanceService;
 import org.irods.jargon.vircoll.VirtualCollectionMarshalingException;
 import org.irods.jargon.vircoll.exception.VirtualCollectionException;
 import org.irods.jargon.vircoll.exception.VirtualCollectionRuntimeException;
+import org.irods.jargon.vircoll.types.MetadataQueryResultCache;
 import org.irods.jargon.vircoll.types.MetadataQueryVirtualCollection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +48,12 @@ public abstract class AbstractVirtualCollectionMaintenanceService extends
 	private DotIrodsService dotIrodsService;
 	private ObjectMapper objectMapper = new ObjectMapper();
 
+	/**
+	 * Optional cache of metadata query results, invalidated when a virtual
+	 * collection is updated or deleted
+	 */
+	private MetadataQueryResultCache metadataQueryResultCache = null;
+
 	static Logger log = LoggerFactory
 			.getLogger(AbstractVirtualCollectionMaintenanceService.class);
 
@@ -86,6 +93,8 @@ public abstract class AbstractVirtualCollectionMaintenanceService extends
 			throw new VirtualCollectionException(
 					"Exception saving JSON to file", e);
 		}
+
+		invalidateCachedResults(configurableVirtualCollection.getUniqueName());
 	}
 
 	@Override
@@ -223,17 +232,11 @@ public abstract class AbstractVirtualCollectionMaintenanceService extends
 					+ vcAbsolutePath);
 		}
 
-		IRODSFileInputStream irodsFileInputStream = null;
-		byte[] b = null;
 		try {
-			irodsFileInputStream = irodsAccessObjectFactory
+			// parsed straight from the stream, which the reader always closes
+			return DotIrodsFileReader.readJson(irodsAccessObjectFactory
 					.getIRODSFileFactory(irodsAccount)
-					.instanceIRODSFileInputStream(vcFile);
-			b = new byte[irodsFileInputStream.available()];
-			irodsFileInputStream.read(b);
-			String decoded = new String(b, "UTF-8");
-
-			return objectMapper.readValue(decoded,
+					.instanceIRODSFileInputStream(vcFile), objectMapper,
 					MetadataQueryVirtualCollection.class);
 
 		} catch (JargonException e) {
@@ -247,12 +250,6 @@ public abstract class AbstractVirtualCollectionMaintenanceService extends
 					e);
 			throw new VirtualCollectionException(
 					"Cannot deserialize virtual collection from JSON", e);
-		} finally {
-			try {
-				irodsFileInputStream.close();
-			} catch (Exception e) {
-				// ignore
-			}
 		}
 	}
 
@@ -312,6 +309,14 @@ public abstract class AbstractVirtualCollectionMaintenanceService extends
 			// ignore
 		}
 
+		invalidateCachedResults(uniqueName);
+	}
+
+	private void invalidateCachedResults(final String uniqueName) {
+		if (metadataQueryResultCache != null) {
+			log.info("invalidating cached results for:{}", uniqueName);
+			metadataQueryResultCache.invalidate(uniqueName);
+		}
 	}
 
 	protected boolean isDotIrodsCollectionPresentInCollection(
@@ -326,23 +331,15 @@ public abstract class AbstractVirtualCollectionMaintenanceService extends
 		log.info("irodsAbsolutePath:{}", irodsAbsolutePath);
 
 		try {
-			@SuppressWarnings("unused")
-			Collection collection = irodsAccessObjectFactory.getCollectionAO(
-					irodsAccount).findByAbsolutePath(irodsAbsolutePath);
+			return dotIrodsService
+					.dotIrodsCollectionPresentInCollection(irodsAbsolutePath);
 		} catch (JargonException je) {
 			log.info(
-					"JargonException thrown by findByAbsolutePath, {} does not exist or {} does not have sufficient permissions",
+					"JargonException thrown by dotIrodsCollectionPresentInCollection, {} does not exist or {} does not have sufficient permissions",
 					computeDotIrodsPathUnderParent(irodsAbsolutePath),
 					irodsAccount);
 			return false;
 		}
-
-		log.info("{} exists", irodsAbsolutePath);
-
-		IRODSFile dotIrodsCollectionAsFile = this.getPathAsIrodsFile(this
-				.computeDotIrodsPathUnderParent(irodsAbsolutePath));
-
-		return (dotIrodsCollectionAsFile != null);
 	}
 
 	protected boolean isDotIrodsCollection(String irodsAbsolutePath) {
@@ -513,6 +510,25 @@ public abstract class AbstractVirtualCollectionMaintenanceService extends
 		this.dotIrodsService = dotIrodsService;
 	}
 
+	/**
+	 * @return the {@link MetadataQueryResultCache} invalidated on update, or
+	 *         <code>null</code> if there is none
+	 */
+	public MetadataQueryResultCache getMetadataQueryResultCache() {
+		return metadataQueryResultCache;
+	}
+
+	/**
+	 * @param metadataQueryResultCache
+	 *            {@link MetadataQueryResultCache} shared with the executors,
+	 *            whose results for a virtual collection are discarded when it
+	 *            is updated or deleted. May be <code>null</code>.
+	 */
+	public void setMetadataQueryResultCache(
+			final MetadataQueryResultCache metadataQueryResultCache) {
+		this.metadataQueryResultCache = metadataQueryResultCache;
+	}
+
 	/**
 	 * @return the objectMapper
 	 */
@@ -35,7 +35,11 @@ public abstract class VirtualCollectionExecutorImpl<T extends AbstractVirtualCol
 	static Logger log = LoggerFactory
 			.getLogger(VirtualCollectionExecutorImpl.class);
 
-	private final VirtualCollectionExecutorFactory virtualCollectionExecutorFactory;
+	/**
+	 * Factory used to defer path queries to a collection based executor,
+	 * created on first use unless set by the factory that built this executor
+	 */
+	private VirtualCollectionExecutorFactory virtualCollectionExecutorFactory = null;
 
 	/**
 	 * Default constructor includes iRODS access information
@@ -46,9 +50,6 @@ public abstract class VirtualCollectionExecutorImpl<T extends AbstractVirtualCol
 	public VirtualCollectionExecutorImpl(IRODSAccount irodsAccount,
 			IRODSAccessObjectFactory irodsAccessObjectFactory, T collection) {
 		super(collection, irodsAccessObjectFactory, irodsAccount);
-
-		this.virtualCollectionExecutorFactory = new VirtualCollectionFactoryImpl(
-				irodsAccessObjectFactory, irodsAccount);
 	}
 
 	/**
@@ -140,7 +141,7 @@ public abstract class VirtualCollectionExecutorImpl<T extends AbstractVirtualCol
 			String path, int offset) throws VirtualCollectionException {
 		AbstractVirtualCollectionExecutor<?> exec;
 		try {
-			exec = this.virtualCollectionExecutorFactory
+			exec = getVirtualCollectionExecutorFactory()
 					.instanceCollectionBasedVirtualCollectionExecutorAtRoot();
 		} catch (JargonException e) {
 			log.error("exception deferring to a colledction query", e);
@@ -150,4 +151,28 @@ public abstract class VirtualCollectionExecutorImpl<T extends AbstractVirtualCol
 		return exec.queryAll(path, offset);
 	}
 
+	/**
+	 * @return the {@link VirtualCollectionExecutorFactory} used to defer path
+	 *         queries, creating one for this executor's account if none was
+	 *         set
+	 */
+	public synchronized VirtualCollectionExecutorFactory getVirtualCollectionExecutorFactory() {
+		if (virtualCollectionExecutorFactory == null) {
+			virtualCollectionExecutorFactory = new VirtualCollectionFactoryImpl(
+					getIrodsAccessObjectFactory(), getIrodsAccount());
+		}
+		return virtualCollectionExecutorFactory;
+	}
+
+	/**
+	 * @param virtualCollectionExecutorFactory
+	 *            {@link VirtualCollectionExecutorFactory} used to defer path
+	 *            queries, typically the factory that built this executor, so
+	 *            that its cached executors are shared
+	 */
+	public synchronized void setVirtualCollectionExecutorFactory(
+			final VirtualCollectionExecutorFactory virtualCollectionExecutorFactory) {
+		this.virtualCollectionExecutorFactory = virtualCollectionExecutorFactory;
+	}
+
 }
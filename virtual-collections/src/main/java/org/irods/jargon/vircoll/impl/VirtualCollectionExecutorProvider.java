@@ -0,0 +1,55 @@
+/**
+ *
+ */
+package org.irods.jargon.vircoll.impl;
+
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.vircoll.AbstractVirtualCollection;
+import org.irods.jargon.vircoll.AbstractVirtualCollectionExecutor;
+
+/**
+ * Service provider interface that supplies the executor for one type of
+ * virtual collection. Providers are discovered with
+ * <code>java.util.ServiceLoader</code> the first time
+ * {@link VirtualCollectionFactoryImpl} is used, so a new type of virtual
+ * collection can be added by shipping a jar that contains the provider and a
+ * <code>META-INF/services/org.irods.jargon.vircoll.impl.VirtualCollectionExecutorProvider</code>
+ * file naming it.
+ * <p/>
+ * A discovered provider for one of the built in types (collection, starred,
+ * metadata query) replaces the built in executor for that type.
+ * Implementations must be public, have a public no-argument constructor, and
+ * be thread safe, as one instance serves every factory.
+ * 
+ * @author Mike Conway - DICE
+ * 
+ */
+public interface VirtualCollectionExecutorProvider {
+
+	/**
+	 * @return <code>String</code> with the virtual collection type handled by
+	 *         this provider, as returned by
+	 *         {@link AbstractVirtualCollection#getType()}
+	 */
+	String getType();
+
+	/**
+	 * Build an executor for a virtual collection of this provider's type
+	 * 
+	 * @param virtualCollection
+	 *            {@link AbstractVirtualCollection} of the type returned by
+	 *            {@link #getType()}
+	 * @param virtualCollectionFactory
+	 *            {@link VirtualCollectionFactoryImpl} asking for the executor,
+	 *            which supplies the <code>IRODSAccessObjectFactory</code> and
+	 *            <code>IRODSAccount</code> to use
+	 * @return {@link AbstractVirtualCollectionExecutor} for the virtual
+	 *         collection
+	 * @throws JargonException
+	 */
+	AbstractVirtualCollectionExecutor<?> instanceExecutor(
+			AbstractVirtualCollection virtualCollection,
+			VirtualCollectionFactoryImpl virtualCollectionFactory)
+			throws JargonException;
+
+}
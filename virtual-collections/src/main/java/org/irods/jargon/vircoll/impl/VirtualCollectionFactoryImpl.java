@@ -3,6 +3,20 @@
  */
 package org.irods.jargon.vircoll.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
 import org.irods.jargon.core.connection.IRODSAccount;
 import org.irods.jargon.core.exception.DataNotFoundException;
 import org.irods.jargon.core.exception.JargonException;
@@ -12,9 +26,11 @@ import org.irods.jargon.usertagging.starring.IRODSStarringService;
 import org.irods.jargon.usertagging.starring.IRODSStarringServiceImpl;
 import org.irods.jargon.vircoll.AbstractVirtualCollection;
 import org.irods.jargon.vircoll.AbstractVirtualCollectionExecutor;
+import org.irods.jargon.vircoll.ConfigurableVirtualCollection;
 import org.irods.jargon.vircoll.VirtualCollectionExecutorFactory;
 import org.irods.jargon.vircoll.types.CollectionBasedVirtualCollection;
 import org.irods.jargon.vircoll.types.CollectionBasedVirtualCollectionExecutor;
+import org.irods.jargon.vircoll.types.MetadataQueryResultCache;
 import org.irods.jargon.vircoll.types.MetadataQueryVirtualCollection;
 import org.irods.jargon.vircoll.types.MetadataQueryVirtualCollectionExecutor;
 import org.irods.jargon.vircoll.types.StarredFoldersVirtualCollection;
@@ -24,6 +40,22 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Factory implementation for virtual collections.
+ * <p/>
+ * Executors are built by a registry of
+ * {@link VirtualCollectionExecutorProvider} keyed by virtual collection type,
+ * holding the built in providers and any discovered with
+ * <code>ServiceLoader</code> when this class is loaded. See
+ * {@link VirtualCollectionExecutorProvider} for adding a new type.
+ * <p/>
+ * Executors are cached per account and virtual collection unique name, and
+ * reused as long as the definition they were built for has not changed, so a
+ * factory kept for the life of a session hands out the same executor for each
+ * listing of the same virtual collection. Stateless services shared by
+ * executors, such as the starring service, are likewise built once per
+ * account.
+ * <p/>
+ * If an <code>ExecutorService</code> is set, it is given to the executors that
+ * can run their queries in parallel, such as the starred folders executor.
  * 
  * @author Mike Conway - DICE
  * 
@@ -34,6 +66,33 @@ public class VirtualCollectionFactoryImpl extends AbstractJargonService
 	static Logger log = LoggerFactory
 			.getLogger(VirtualCollectionFactoryImpl.class);
 
+	/**
+	 * Providers keyed by virtual collection type, discovered once
+	 */
+	private static final Map<String, VirtualCollectionExecutorProvider> EXECUTOR_PROVIDERS = loadExecutorProviders();
+
+	/**
+	 * Executors keyed by account and virtual collection unique name
+	 */
+	private final ConcurrentMap<String, AbstractVirtualCollectionExecutor<?>> executors = new ConcurrentHashMap<String, AbstractVirtualCollectionExecutor<?>>();
+
+	/**
+	 * Starring services keyed by account
+	 */
+	private final ConcurrentMap<String, IRODSStarringService> starringServices = new ConcurrentHashMap<String, IRODSStarringService>();
+
+	/**
+	 * Optional cache of metadata query results given to metadata query
+	 * executors, <code>null</code> to run queries every time
+	 */
+	private volatile MetadataQueryResultCache metadataQueryResultCache = null;
+
+	/**
+	 * Optional pool given to executors that run queries in parallel,
+	 * <code>null</code> to run every query on the calling thread
+	 */
+	private volatile ExecutorService executorService = null;
+
 	/**
 	 * Public constructor necessary (argh) for grails mocking, sorry, don't use
 	 * this
@@ -52,12 +111,7 @@ public class VirtualCollectionFactoryImpl extends AbstractJargonService
 		super(irodsAccessObjectFactory, irodsAccount);
 	}
 
-	/**
-	 * TODO: this needs refactoring to a pluggable discovery mechanism with the
-	 * ability to dynamically load and discover the collections/executors. Right
-	 * now this is all done in code
-	 */
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings("rawtypes")
 	@Override
 	public AbstractVirtualCollectionExecutor instanceExecutorBasedOnVirtualCollection(
 			AbstractVirtualCollection virtualCollection)
@@ -73,30 +127,35 @@ public class VirtualCollectionFactoryImpl extends AbstractJargonService
 
 		log.info("finding executor for vc...");
 
-		if (virtualCollection.getType().equals(
-				CollectionBasedVirtualCollection.MY_TYPE)) {
+		VirtualCollectionExecutorProvider provider = EXECUTOR_PROVIDERS
+				.get(virtualCollection.getType());
+		if (provider == null) {
+			log.error("no executor provider for type:{}",
+					virtualCollection.getType());
+			throw new DataNotFoundException("no executor for collection type:"
+					+ virtualCollection.getType() + ", supported types are:"
+					+ getSupportedTypes());
+		}
 
-			return new CollectionBasedVirtualCollectionExecutor(
-					(CollectionBasedVirtualCollection) virtualCollection,
-					getIrodsAccessObjectFactory(), getIrodsAccount());
-		} else if (virtualCollection.getType().equals(
-				StarredFoldersVirtualCollection.MY_TYPE)) {
-			// TODO: refactor into executor code
-			IRODSStarringService irodsStarringService = new IRODSStarringServiceImpl(
-					getIrodsAccessObjectFactory(), getIrodsAccount());
-			return new StarredFoldersVirtualCollectionExecutor(
-					(StarredFoldersVirtualCollection) virtualCollection,
-					getIrodsAccessObjectFactory(), getIrodsAccount(),
-					irodsStarringService);
-		} else if (virtualCollection.getType().equals(
-				MetadataQueryVirtualCollection.MY_TYPE)) {
-			return new MetadataQueryVirtualCollectionExecutor(
-					(MetadataQueryVirtualCollection) virtualCollection,
-					getIrodsAccessObjectFactory(), getIrodsAccount());
-		} else {
-			throw new UnsupportedOperationException(
-					"cannot support collection type yet");
+		if (virtualCollection.getUniqueName() == null
+				|| virtualCollection.getUniqueName().isEmpty()) {
+			log.debug("no unique name, executor will not be cached");
+			return provider.instanceExecutor(virtualCollection, this);
+		}
+
+		String key = computeKey(getIrodsAccount()) + ":"
+				+ virtualCollection.getUniqueName();
+		AbstractVirtualCollectionExecutor<?> executor = executors.get(key);
+		if (executor != null
+				&& isSameDefinition(executor.getCollection(),
+						virtualCollection)) {
+			log.debug("using cached executor for {}", key);
+			return executor;
 		}
+
+		executor = provider.instanceExecutor(virtualCollection, this);
+		executors.put(key, executor);
+		return executor;
 	}
 
 	@SuppressWarnings("rawtypes")
@@ -108,4 +167,259 @@ public class VirtualCollectionFactoryImpl extends AbstractJargonService
 				"root", "/");
 		return instanceExecutorBasedOnVirtualCollection(virColl);
 	}
+
+	/**
+	 * Drop the cached executor for a virtual collection, so that the next
+	 * request builds a new one from the current definition
+	 * 
+	 * @param uniqueName
+	 *            <code>String</code> with the unique name of the virtual
+	 *            collection
+	 */
+	public void removeCachedExecutor(final String uniqueName) {
+		log.info("removeCachedExecutor()");
+
+		if (uniqueName == null || uniqueName.isEmpty()) {
+			throw new IllegalArgumentException("null or empty uniqueName");
+		}
+
+		log.info("uniqueName:{}", uniqueName);
+		executors.remove(computeKey(getIrodsAccount()) + ":" + uniqueName);
+	}
+
+	/**
+	 * Drop every cached executor and service
+	 */
+	public void clearCache() {
+		log.info("clearCache()");
+		executors.clear();
+		starringServices.clear();
+	}
+
+	/**
+	 * @return the {@link MetadataQueryResultCache} given to metadata query
+	 *         executors, or <code>null</code> if results are not cached
+	 */
+	public MetadataQueryResultCache getMetadataQueryResultCache() {
+		return metadataQueryResultCache;
+	}
+
+	/**
+	 * Set the cache given to metadata query executors. Cached executors are
+	 * dropped, so that every executor handed out afterwards uses it.
+	 * 
+	 * @param metadataQueryResultCache
+	 *            {@link MetadataQueryResultCache} to hold query results, may
+	 *            be <code>null</code> to run queries every time
+	 */
+	public void setMetadataQueryResultCache(
+			final MetadataQueryResultCache metadataQueryResultCache) {
+		this.metadataQueryResultCache = metadataQueryResultCache;
+		executors.clear();
+	}
+
+	/**
+	 * @return the <code>ExecutorService</code> given to executors that run
+	 *         queries in parallel, or <code>null</code> if every query runs on
+	 *         the calling thread
+	 */
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+
+	/**
+	 * Set the pool given to executors that run queries in parallel. Cached
+	 * executors are dropped, so that every executor handed out afterwards
+	 * uses it. Note that each pool thread obtains its own iRODS connection,
+	 * which the caller is responsible for closing when the pool is shut down.
+	 * 
+	 * @param executorService
+	 *            <code>ExecutorService</code> to run queries on, may be
+	 *            <code>null</code> to run every query on the calling thread
+	 */
+	public void setExecutorService(final ExecutorService executorService) {
+		this.executorService = executorService;
+		executors.clear();
+	}
+
+	/**
+	 * @return {@link IRODSStarringService} for the current account, built on
+	 *         first use and then shared by every starred folders executor
+	 */
+	IRODSStarringService getIrodsStarringService() {
+		String key = computeKey(getIrodsAccount());
+		IRODSStarringService irodsStarringService = starringServices.get(key);
+		if (irodsStarringService == null) {
+			irodsStarringService = new IRODSStarringServiceImpl(
+					getIrodsAccessObjectFactory(), getIrodsAccount());
+			IRODSStarringService existing = starringServices.putIfAbsent(key,
+					irodsStarringService);
+			if (existing != null) {
+				irodsStarringService = existing;
+			}
+		}
+		return irodsStarringService;
+	}
+
+	/**
+	 * A cached executor may only be reused if it was built for a virtual
+	 * collection of the same type that lists the same thing
+	 */
+	private boolean isSameDefinition(final AbstractVirtualCollection cached,
+			final AbstractVirtualCollection virtualCollection) {
+		if (cached == virtualCollection) {
+			return true;
+		}
+
+		if (!cached.getType().equals(virtualCollection.getType())) {
+			return false;
+		}
+
+		if (cached instanceof CollectionBasedVirtualCollection) {
+			return ((CollectionBasedVirtualCollection) cached).getRootPath()
+					.equals(((CollectionBasedVirtualCollection) virtualCollection)
+							.getRootPath());
+		} else if (cached instanceof ConfigurableVirtualCollection) {
+			String cachedQuery = ((ConfigurableVirtualCollection) cached)
+					.getQueryString();
+			String query = ((ConfigurableVirtualCollection) virtualCollection)
+					.getQueryString();
+			return cachedQuery == null ? query == null : cachedQuery
+					.equals(query);
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return <code>Set</code> of the virtual collection types that have an
+	 *         executor, built in or discovered
+	 */
+	public static Set<String> getSupportedTypes() {
+		return EXECUTOR_PROVIDERS.keySet();
+	}
+
+	/**
+	 * Register the built in providers, then any found by
+	 * <code>ServiceLoader</code>, which replace a built in provider of the
+	 * same type. A provider that cannot be loaded is logged and skipped.
+	 */
+	private static Map<String, VirtualCollectionExecutorProvider> loadExecutorProviders() {
+		Map<String, VirtualCollectionExecutorProvider> providers = new HashMap<String, VirtualCollectionExecutorProvider>();
+		for (VirtualCollectionExecutorProvider provider : builtInExecutorProviders()) {
+			providers.put(provider.getType(), provider);
+		}
+
+		Set<String> discoveredTypes = new HashSet<String>();
+		Iterator<VirtualCollectionExecutorProvider> iterator = ServiceLoader
+				.load(VirtualCollectionExecutorProvider.class,
+						VirtualCollectionFactoryImpl.class.getClassLoader())
+				.iterator();
+		while (true) {
+			VirtualCollectionExecutorProvider provider;
+			try {
+				if (!iterator.hasNext()) {
+					break;
+				}
+				provider = iterator.next();
+			} catch (ServiceConfigurationError e) {
+				log.error("unable to load a virtual collection executor provider",
+						e);
+				continue;
+			}
+
+			String type = provider.getType();
+			if (type == null || type.isEmpty()) {
+				log.error("provider {} has no type, ignored", provider
+						.getClass().getName());
+			} else if (!discoveredTypes.add(type)) {
+				log.warn("provider {} duplicates type {}, ignored", provider
+						.getClass().getName(), type);
+			} else {
+				if (providers.containsKey(type)) {
+					log.warn("provider {} replaces the built in executor for type {}",
+							provider.getClass().getName(), type);
+				} else {
+					log.info("provider {} registered for type {}", provider
+							.getClass().getName(), type);
+				}
+				providers.put(type, provider);
+			}
+		}
+
+		return Collections.unmodifiableMap(providers);
+	}
+
+	private static List<VirtualCollectionExecutorProvider> builtInExecutorProviders() {
+		List<VirtualCollectionExecutorProvider> providers = new ArrayList<VirtualCollectionExecutorProvider>();
+		providers.add(new VirtualCollectionExecutorProvider() {
+			@Override
+			public String getType() {
+				return CollectionBasedVirtualCollection.MY_TYPE;
+			}
+
+			@Override
+			public AbstractVirtualCollectionExecutor<?> instanceExecutor(
+					final AbstractVirtualCollection virtualCollection,
+					final VirtualCollectionFactoryImpl factory) {
+				return new CollectionBasedVirtualCollectionExecutor(
+						(CollectionBasedVirtualCollection) virtualCollection,
+						factory.getIrodsAccessObjectFactory(), factory
+								.getIrodsAccount());
+			}
+		});
+		providers.add(new VirtualCollectionExecutorProvider() {
+			@Override
+			public String getType() {
+				return StarredFoldersVirtualCollection.MY_TYPE;
+			}
+
+			@Override
+			public AbstractVirtualCollectionExecutor<?> instanceExecutor(
+					final AbstractVirtualCollection virtualCollection,
+					final VirtualCollectionFactoryImpl factory) {
+				StarredFoldersVirtualCollectionExecutor executor = new StarredFoldersVirtualCollectionExecutor(
+						(StarredFoldersVirtualCollection) virtualCollection,
+						factory.getIrodsAccessObjectFactory(), factory
+								.getIrodsAccount(), factory
+								.getIrodsStarringService());
+				executor.setVirtualCollectionExecutorFactory(factory);
+				executor.setExecutorService(factory.getExecutorService());
+				return executor;
+			}
+		});
+		providers.add(new VirtualCollectionExecutorProvider() {
+			@Override
+			public String getType() {
+				return MetadataQueryVirtualCollection.MY_TYPE;
+			}
+
+			@Override
+			public AbstractVirtualCollectionExecutor<?> instanceExecutor(
+					final AbstractVirtualCollection virtualCollection,
+					final VirtualCollectionFactoryImpl factory) {
+				MetadataQueryVirtualCollectionExecutor executor = new MetadataQueryVirtualCollectionExecutor(
+						(MetadataQueryVirtualCollection) virtualCollection,
+						factory.getIrodsAccessObjectFactory(), factory
+								.getIrodsAccount());
+				executor.setVirtualCollectionExecutorFactory(factory);
+				executor.setMetadataQueryResultCache(factory
+						.getMetadataQueryResultCache());
+				return executor;
+			}
+		});
+		return providers;
+	}
+
+	private String computeKey(final IRODSAccount irodsAccount) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(irodsAccount.getHost());
+		sb.append(':');
+		sb.append(irodsAccount.getPort());
+		sb.append(':');
+		sb.append(irodsAccount.getZone());
+		sb.append(':');
+		sb.append(irodsAccount.getUserName());
+		return sb.toString();
+	}
 }
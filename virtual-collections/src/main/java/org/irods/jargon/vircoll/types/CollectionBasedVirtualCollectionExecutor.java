@@ -3,11 +3,17 @@
  */
 package org.irods.jargon.vircoll.types;
 
+import java.util.List;
+
 import org.irods.jargon.core.connection.IRODSAccount;
 import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.pub.CollectionAndDataObjectListAndSearchAO;
 import org.irods.jargon.core.pub.CollectionPagerAO;
 import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
+import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry;
 import org.irods.jargon.core.query.PagingAwareCollectionListing;
+import org.irods.jargon.core.query.PagingAwareCollectionListing.PagingStyle;
+import org.irods.jargon.core.query.PagingAwareCollectionListingDescriptor;
 import org.irods.jargon.vircoll.AbstractVirtualCollectionExecutor;
 import org.irods.jargon.vircoll.exception.VirtualCollectionException;
 import org.slf4j.Logger;
@@ -56,28 +62,25 @@ public class CollectionBasedVirtualCollectionExecutor extends
 			throws JargonException {
 
 		log.info("queryAll() with offset");
-
-		log.info("offset:{}", offset);
-
-		log.info("collection parent:{}", getCollection().getRootPath());
-		CollectionPagerAO collectionPager = getIrodsAccessObjectFactory()
-				.getCollectionPagerAO(irodsAccount);
-		return collectionPager.retrieveFirstPageUnderParent(getCollection()
-				.getRootPath());
-
-		// FIXME: see https://github.com/DICE-UNC/jargon-extensions/issues/7
-
+		return queryAll("", offset);
 	}
 
 	public String getCollectionParentAbsolutePath() {
 		return getCollection().getRootPath();
 	}
 
-	/*
-	 * (non-Javadoc)
+	/**
+	 * Query a page of the collection. The offset counts collections first and
+	 * then data objects, so an offset past the number of subcollections starts
+	 * part way into the data objects.
+	 * <p/>
+	 * Each page is a single offset GenQuery, so pages deep into a large
+	 * collection cost the same as the first. To walk forward page by page,
+	 * prefer {@link #queryNextPage(PagingAwareCollectionListingDescriptor)}
+	 * with the descriptor of the previous page.
 	 * 
 	 * @see org.irods.jargon.vircoll.PathHintable#queryAll(java.lang.String,
-	 * int)
+	 *      int)
 	 */
 	@Override
 	public PagingAwareCollectionListing queryAll(String path, int offset)
@@ -88,30 +91,150 @@ public class CollectionBasedVirtualCollectionExecutor extends
 			throw new IllegalArgumentException("null path");
 		}
 
+		if (offset < 0) {
+			throw new IllegalArgumentException("offset must be 0 or greater");
+		}
+
 		log.info("offset:{}", offset);
 		log.info("path:{}", path);
 
+		String myPath = resolvePath(path);
+		log.info("using myPath:{}", myPath);
+
+		try {
+			if (offset == 0) {
+				CollectionPagerAO collectionPager = getIrodsAccessObjectFactory()
+						.getCollectionPagerAO(irodsAccount);
+				return collectionPager.retrieveFirstPageUnderParent(myPath);
+			}
+			return queryFromOffset(myPath, offset);
+		} catch (JargonException e) {
+			log.error("exception in collection query", e);
+			throw new VirtualCollectionException("error in jargon query", e);
+		}
+	}
+
+	/**
+	 * Query the page following the one described by the given descriptor. The
+	 * descriptor, as returned with any page from this executor, serves as a
+	 * page token holding the collection and data object offsets to continue
+	 * from.
+	 * 
+	 * @param descriptor
+	 *            {@link PagingAwareCollectionListingDescriptor} from the
+	 *            previous page
+	 * @return {@link PagingAwareCollectionListing} with the next page
+	 * @throws VirtualCollectionException
+	 */
+	public PagingAwareCollectionListing queryNextPage(
+			final PagingAwareCollectionListingDescriptor descriptor)
+			throws VirtualCollectionException {
+		log.info("queryNextPage()");
+
+		if (descriptor == null) {
+			throw new IllegalArgumentException("null descriptor");
+		}
+
+		if (descriptor.getParentAbsolutePath() == null
+				|| descriptor.getParentAbsolutePath().isEmpty()) {
+			throw new IllegalArgumentException(
+					"descriptor has no parent absolute path");
+		}
+
+		resolvePath(descriptor.getParentAbsolutePath());
+		log.info("descriptor:{}", descriptor);
+
+		try {
+			CollectionPagerAO collectionPager = getIrodsAccessObjectFactory()
+					.getCollectionPagerAO(irodsAccount);
+			return collectionPager.retrieveNextPage(descriptor);
+		} catch (JargonException e) {
+			log.error("exception in collection query", e);
+			throw new VirtualCollectionException("error in jargon query", e);
+		}
+	}
+
+	/**
+	 * Resolve a path hint to the path to list, which must be at or under the
+	 * root of this virtual collection
+	 */
+	private String resolvePath(final String path)
+			throws VirtualCollectionException {
 		log.info("collection parent:{}", getCollection().getRootPath());
-		String myPath;
 		if (path.isEmpty()) {
-			myPath = getCollection().getRootPath();
+			return getCollection().getRootPath();
 		} else if (path.indexOf(getCollection().getRootPath()) != 0) {
 			log.error("my given path is not under the root path");
 			throw new VirtualCollectionException(
 					"given path is not under root path of virtual collection");
 		} else {
-			myPath = path;
+			return path;
 		}
+	}
 
-		log.info("using myPath:{}", myPath);
+	/**
+	 * Build a split page starting at a combined offset. Collections are listed
+	 * from the offset; once they run out, the remainder of the page comes from
+	 * the data objects. If the offset is past the collections, only the data
+	 * objects are queried, from the offset less the number of collections.
+	 */
+	private PagingAwareCollectionListing queryFromOffset(final String path,
+			final int offset) throws JargonException {
+		log.info("queryFromOffset()");
+
+		CollectionAndDataObjectListAndSearchAO listAndSearchAO = getIrodsAccessObjectFactory()
+				.getCollectionAndDataObjectListAndSearchAO(irodsAccount);
+		PagingAwareCollectionListing listing = buildInitialPagingAwareCollectionListing();
+		PagingAwareCollectionListingDescriptor descriptor = listing
+				.getPagingAwareCollectionListingDescriptor();
+		descriptor.setParentAbsolutePath(path);
+		descriptor.setPagingStyle(PagingStyle.SPLIT_COLLECTIONS_AND_FILES);
+
+		List<CollectionAndDataObjectListingEntry> collections = listAndSearchAO
+				.listCollectionsUnderPath(path, offset);
+
+		if (!collections.isEmpty()) {
+			log.debug("{} collections from offset {}", collections.size(),
+					offset);
+			addAndCharacterizeCollectionListingForSplitListing(listing,
+					collections);
+			if (collections.get(collections.size() - 1).isLastResult()) {
+				addDataObjectsFromOffset(listing, listAndSearchAO, path, 0);
+			}
+			return listing;
+		}
 
-		try {
-			CollectionPagerAO collectionPager = getIrodsAccessObjectFactory()
-					.getCollectionPagerAO(irodsAccount);
-			return collectionPager.retrieveFirstPageUnderParent(myPath);
-		} catch (JargonException e) {
-			log.error("exception in collection query", e);
-			throw new VirtualCollectionException("error in jargon query", e);
+		int collectionCount = listAndSearchAO.countCollectionsUnderPath(path);
+		log.debug("offset is past the {} collections", collectionCount);
+		descriptor.setOffset(collectionCount);
+		descriptor.setCount(0);
+		descriptor.setTotalRecords(collectionCount);
+		descriptor.setCollectionsComplete(true);
+
+		addDataObjectsFromOffset(listing, listAndSearchAO, path,
+				Math.max(offset - collectionCount, 0));
+		return listing;
+	}
+
+	private void addDataObjectsFromOffset(
+			final PagingAwareCollectionListing listing,
+			final CollectionAndDataObjectListAndSearchAO listAndSearchAO,
+			final String path, final int offset) throws JargonException {
+		List<CollectionAndDataObjectListingEntry> dataObjects = listAndSearchAO
+				.listDataObjectsUnderPath(path, offset);
+
+		if (!dataObjects.isEmpty()) {
+			log.debug("{} data objects from offset {}", dataObjects.size(),
+					offset);
+			addAndCharacterizeDataObjectListingForSplitListing(listing,
+					dataObjects);
+			return;
 		}
+
+		PagingAwareCollectionListingDescriptor descriptor = listing
+				.getPagingAwareCollectionListingDescriptor();
+		descriptor.setDataObjectsOffset(offset);
+		descriptor.setDataObjectsCount(0);
+		descriptor.setDataObjectsComplete(true);
 	}
 }
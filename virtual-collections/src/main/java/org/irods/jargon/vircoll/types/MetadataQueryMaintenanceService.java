@@ -286,20 +286,9 @@ public class MetadataQueryMaintenanceService extends
 
 		log.info("irodsAbsolutePathToDotIrods: {}", irodsAbsolutePathToDotIrods);
 
-		String metadataQueryPath = this
-				.computeTempMetadataQueryPathUnderDotIrods(irodsAbsolutePathToDotIrods);
-		log.info("metadataQueryPath computed to be:{}", metadataQueryPath);
-
-		IRODSFile metadataQueryFile = this
-				.getPathAsIrodsFile(metadataQueryPath);
-		if (metadataQueryFile == null) {
-			// A JargonException was caught in getPathAsIrodsFile
-			throw new JargonException(
-					"JargonException thrown by instanceIRODSFile in getPathAsIrodsFile");
-		}
-		log.info("created");
-
-		return metadataQueryFile.mkdirs();
+		return getDotIrodsService().createSubDirUnderDotIrods(
+				irodsAbsolutePathToDotIrods,
+				GeneralParameterConstants.USER_VC_TEMP_RECENT_VC_QUERIES);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+/**
+ *
+ */
+package org.irods.jargon.vircoll.types;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.query.PagingAwareCollectionListing;
+
+/**
+ * Cache of the results of metadata query virtual collections, so that opening
+ * a saved query again does not run the query again. Results are held per
+ * account, virtual collection, query string and offset.
+ * <p/>
+ * Lookups return a copy of the cached listing, which callers may modify. The
+ * listing entries are shared, and must not be modified.
+ * <p/>
+ * {@link MetadataQueryVirtualCollectionExecutor} records the complete results
+ * of the query under whatever offset was asked for, as the metadata query
+ * service does not page its results.
+ * <p/>
+ * Implementations must be thread safe, as a single cache is typically shared
+ * by every {@link MetadataQueryVirtualCollectionExecutor} in an application.
+ * 
+ * @author Mike Conway - DICE
+ * 
+ */
+public interface MetadataQueryResultCache {
+
+	/**
+	 * Look up cached results
+	 * 
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} the query was run as
+	 * @param uniqueName
+	 *            <code>String</code> with the unique name of the virtual
+	 *            collection, may be <code>null</code> for an unsaved query
+	 * @param queryString
+	 *            <code>String</code> with the query
+	 * @param offset
+	 *            <code>int</code> with the offset the query was run at
+	 * @return {@link PagingAwareCollectionListing} with a copy of the cached
+	 *         results, or <code>null</code> if nothing (unexpired) is cached
+	 */
+	PagingAwareCollectionListing lookup(IRODSAccount irodsAccount,
+			String uniqueName, String queryString, int offset);
+
+	/**
+	 * Record the results of a query. Results too large to cache are ignored.
+	 * 
+	 * @param irodsAccount
+	 *            {@link IRODSAccount} the query was run as
+	 * @param uniqueName
+	 *            <code>String</code> with the unique name of the virtual
+	 *            collection, may be <code>null</code> for an unsaved query
+	 * @param queryString
+	 *            <code>String</code> with the query
+	 * @param offset
+	 *            <code>int</code> with the offset the query was run at
+	 * @param listing
+	 *            {@link PagingAwareCollectionListing} with the results
+	 */
+	void record(IRODSAccount irodsAccount, String uniqueName,
+			String queryString, int offset, PagingAwareCollectionListing listing);
+
+	/**
+	 * Discard the cached results of a virtual collection, for all accounts.
+	 * Called when the virtual collection is updated or deleted.
+	 * 
+	 * @param uniqueName
+	 *            <code>String</code> with the unique name of the virtual
+	 *            collection
+	 */
+	void invalidate(String uniqueName);
+
+	/**
+	 * Discard all cached results
+	 */
+	void invalidateAll();
+
+}
@@ -0,0 +1,324 @@
+/**
+ *
+ */
+package org.irods.jargon.vircoll.types;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry;
+import org.irods.jargon.core.query.PagingAwareCollectionListing;
+import org.irods.jargon.core.query.PagingAwareCollectionListingDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link MetadataQueryResultCache}, bounded by a maximum number of
+ * cached listings (least recently used listings are evicted first), by a time
+ * to live for each listing, and by a maximum number of entries in any one
+ * listing, so that very large results are always queried rather than held.
+ * <p/>
+ * Listings are keyed by host, zone and user name, virtual collection unique
+ * name, offset and query string. The query string is normalized by dropping
+ * whitespace outside of quoted strings, so that JSON queries differing only
+ * in formatting share an entry.
+ * <p/>
+ * A copy of the listing and its descriptor is held, and a new copy is handed
+ * out by each lookup, so callers may page or re-sort what they get back
+ * without disturbing the cached results. The listing entries themselves are
+ * shared, and must not be modified.
+ * 
+ * @author Mike Conway - DICE
+ * 
+ */
+public class MetadataQueryResultCacheImpl implements MetadataQueryResultCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 500;
+	public static final long DEFAULT_TTL_MILLIS = 60000L;
+	public static final int DEFAULT_MAX_RESULT_SIZE = 5000;
+
+	static Logger log = LoggerFactory
+			.getLogger(MetadataQueryResultCacheImpl.class);
+
+	private final int maxEntries;
+	private final long ttlMillis;
+	private final int maxResultSize;
+	private final LinkedHashMap<String, CacheEntry> entries;
+
+	/**
+	 * Cached listing for one account, virtual collection, query and offset
+	 */
+	private static class CacheEntry {
+		private final String uniqueName;
+		private final PagingAwareCollectionListing listing;
+		private final long expiresAt;
+
+		CacheEntry(final String uniqueName,
+				final PagingAwareCollectionListing listing, final long expiresAt) {
+			this.uniqueName = uniqueName;
+			this.listing = listing;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * Create a cache with the default size, time to live and maximum result
+	 * size
+	 */
+	public MetadataQueryResultCacheImpl() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS, DEFAULT_MAX_RESULT_SIZE);
+	}
+
+	/**
+	 * Create a cache with the given size, time to live and maximum result size
+	 * 
+	 * @param maxEntries
+	 *            <code>int</code> with the maximum number of cached listings
+	 * @param ttlMillis
+	 *            <code>long</code> with the time in milliseconds a listing
+	 *            remains valid
+	 * @param maxResultSize
+	 *            <code>int</code> with the maximum number of entries in a
+	 *            listing that will be cached
+	 */
+	public MetadataQueryResultCacheImpl(final int maxEntries,
+			final long ttlMillis, final int maxResultSize) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries must be > 0");
+		}
+
+		if (ttlMillis <= 0) {
+			throw new IllegalArgumentException("ttlMillis must be > 0");
+		}
+
+		if (maxResultSize <= 0) {
+			throw new IllegalArgumentException("maxResultSize must be > 0");
+		}
+
+		this.maxEntries = maxEntries;
+		this.ttlMillis = ttlMillis;
+		this.maxResultSize = maxResultSize;
+		entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, CacheEntry> eldest) {
+				return size() > MetadataQueryResultCacheImpl.this.maxEntries;
+			}
+		};
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.irods.jargon.vircoll.types.MetadataQueryResultCache#lookup(org.irods
+	 * .jargon.core.connection.IRODSAccount, java.lang.String,
+	 * java.lang.String, int)
+	 */
+	@Override
+	public synchronized PagingAwareCollectionListing lookup(
+			final IRODSAccount irodsAccount, final String uniqueName,
+			final String queryString, final int offset) {
+		if (queryString == null) {
+			throw new IllegalArgumentException("null queryString");
+		}
+
+		String key = computeKey(irodsAccount, uniqueName, queryString, offset);
+		CacheEntry entry = entries.get(key);
+
+		if (entry == null) {
+			return null;
+		}
+
+		if (entry.expiresAt <= currentTimeMillis()) {
+			entries.remove(key);
+			return null;
+		}
+
+		return copyListing(entry.listing);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.irods.jargon.vircoll.types.MetadataQueryResultCache#record(org.irods
+	 * .jargon.core.connection.IRODSAccount, java.lang.String,
+	 * java.lang.String, int,
+	 * org.irods.jargon.core.query.PagingAwareCollectionListing)
+	 */
+	@Override
+	public synchronized void record(final IRODSAccount irodsAccount,
+			final String uniqueName, final String queryString,
+			final int offset, final PagingAwareCollectionListing listing) {
+		if (queryString == null) {
+			throw new IllegalArgumentException("null queryString");
+		}
+
+		if (listing == null) {
+			throw new IllegalArgumentException("null listing");
+		}
+
+		int size = listing.getCollectionAndDataObjectListingEntries().size();
+		if (size > maxResultSize) {
+			log.debug("not caching {} results for {}", size, uniqueName);
+			return;
+		}
+
+		entries.put(computeKey(irodsAccount, uniqueName, queryString, offset),
+				new CacheEntry(uniqueName, copyListing(listing), currentTimeMillis()
+						+ ttlMillis));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.irods.jargon.vircoll.types.MetadataQueryResultCache#invalidate(java
+	 * .lang.String)
+	 */
+	@Override
+	public synchronized void invalidate(final String uniqueName) {
+		if (uniqueName == null || uniqueName.isEmpty()) {
+			throw new IllegalArgumentException("null or empty uniqueName");
+		}
+
+		log.debug("invalidate:{}", uniqueName);
+		Iterator<CacheEntry> iter = entries.values().iterator();
+		while (iter.hasNext()) {
+			if (uniqueName.equals(iter.next().uniqueName)) {
+				iter.remove();
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.irods.jargon.vircoll.types.MetadataQueryResultCache#invalidateAll()
+	 */
+	@Override
+	public synchronized void invalidateAll() {
+		entries.clear();
+	}
+
+	/**
+	 * @return <code>int</code> with the number of listings currently held,
+	 *         including any that have expired but not yet been evicted
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Drop whitespace outside of double quoted strings, honoring backslash
+	 * escapes inside them
+	 */
+	static String normalizeQuery(final String queryString) {
+		StringBuilder sb = new StringBuilder(queryString.length());
+		boolean inString = false;
+		boolean escaped = false;
+		for (int i = 0; i < queryString.length(); i++) {
+			char c = queryString.charAt(i);
+			if (inString) {
+				if (escaped) {
+					escaped = false;
+				} else if (c == '\\') {
+					escaped = true;
+				} else if (c == '"') {
+					inString = false;
+				}
+			} else if (c == '"') {
+				inString = true;
+			} else if (Character.isWhitespace(c)) {
+				continue;
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Copy the listing, its entry list and its descriptor, the entries
+	 * themselves are shared
+	 */
+	static PagingAwareCollectionListing copyListing(
+			final PagingAwareCollectionListing listing) {
+		PagingAwareCollectionListing copy = new PagingAwareCollectionListing();
+		copy.setCollectionAndDataObjectListingEntries(
+				new ArrayList<CollectionAndDataObjectListingEntry>(listing
+						.getCollectionAndDataObjectListingEntries()));
+
+		PagingAwareCollectionListingDescriptor descriptor = listing
+				.getPagingAwareCollectionListingDescriptor();
+		if (descriptor != null) {
+			PagingAwareCollectionListingDescriptor copyDescriptor = new PagingAwareCollectionListingDescriptor();
+			copyDescriptor.setPagingStyle(descriptor.getPagingStyle());
+			if (descriptor.getPathComponents() != null) {
+				copyDescriptor.setPathComponents(new ArrayList<String>(
+						descriptor.getPathComponents()));
+			}
+			copyDescriptor.setParentAbsolutePath(descriptor
+					.getParentAbsolutePath());
+			copyDescriptor.setPageSizeUtilized(descriptor
+					.getPageSizeUtilized());
+			copyDescriptor.setObjStat(descriptor.getObjStat());
+			copyDescriptor.setCollectionsComplete(descriptor
+					.isCollectionsComplete());
+			copyDescriptor.setOffset(descriptor.getOffset());
+			copyDescriptor.setCount(descriptor.getCount());
+			copyDescriptor.setTotalRecords(descriptor.getTotalRecords());
+			copyDescriptor.setDataObjectsComplete(descriptor
+					.isDataObjectsComplete());
+			copyDescriptor.setDataObjectsOffset(descriptor
+					.getDataObjectsOffset());
+			copyDescriptor.setDataObjectsCount(descriptor
+					.getDataObjectsCount());
+			copyDescriptor.setDataObjectsTotalRecords(descriptor
+					.getDataObjectsTotalRecords());
+			copy.setPagingAwareCollectionListingDescriptor(copyDescriptor);
+		}
+
+		return copy;
+	}
+
+	private String computeKey(final IRODSAccount irodsAccount,
+			final String uniqueName, final String queryString, final int offset) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(irodsAccount.getHost());
+		sb.append(':');
+		sb.append(irodsAccount.getZone());
+		sb.append(':');
+		sb.append(irodsAccount.getUserName());
+		sb.append(':');
+		sb.append(uniqueName == null ? "" : uniqueName);
+		sb.append(':');
+		sb.append(offset);
+		sb.append(':');
+		sb.append(normalizeQuery(queryString));
+		return sb.toString();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getTtlMillis() {
+		return ttlMillis;
+	}
+
+	public int getMaxResultSize() {
+		return maxResultSize;
+	}
+
+}
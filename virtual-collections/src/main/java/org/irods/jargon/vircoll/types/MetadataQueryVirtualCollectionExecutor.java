@@ -17,6 +17,14 @@ public class MetadataQueryVirtualCollectionExecutor extends
 	static Logger log = LoggerFactory
 			.getLogger(MetadataQueryVirtualCollectionExecutor.class);
 
+	/**
+	 * Optional cache of query results, <code>null</code> to run the query
+	 * every time
+	 */
+	private MetadataQueryResultCache metadataQueryResultCache = null;
+
+	private MetadataQueryService metadataQueryService = null;
+
 	/**
 	 * Create an instance of an executor for Metadata Queries
 	 * 
@@ -37,8 +45,14 @@ public class MetadataQueryVirtualCollectionExecutor extends
 
 	}
 
-	/*
-	 * (non-Javadoc)
+	/**
+	 * Run the metadata query. If a {@link MetadataQueryResultCache} is
+	 * configured, unexpired results for the same virtual collection, query
+	 * and offset are returned from it rather than queried again.
+	 * <p/>
+	 * Note that the metadata query service does not page, so the
+	 * <code>offset</code> is ignored by the query itself and the complete
+	 * results are returned (and cached) whatever the offset.
 	 * 
 	 * @see org.irods.jargon.vircoll.AbstractVirtualCollection#queryAll(int)
 	 */
@@ -46,16 +60,64 @@ public class MetadataQueryVirtualCollectionExecutor extends
 	public PagingAwareCollectionListing queryAll(final int offset)
 			throws VirtualCollectionException {
 		log.info("queryAll()");
-		MetadataQueryService metadataQueryService = new MetadataQueryServiceImpl(
-				this.getIrodsAccessObjectFactory(), this.getIrodsAccount());
+
+		String queryString = this.getCollection().getQueryString();
+		String uniqueName = this.getCollection().getUniqueName();
+
+		if (metadataQueryResultCache != null && queryString != null) {
+			PagingAwareCollectionListing cached = metadataQueryResultCache
+					.lookup(getIrodsAccount(), uniqueName, queryString, offset);
+			if (cached != null) {
+				log.debug("cached results for:{}", uniqueName);
+				return cached;
+			}
+		}
+
+		PagingAwareCollectionListing listing;
 		try {
-			return metadataQueryService.executeQuery(this.getCollection()
-					.getQueryString());
+			listing = getMetadataQueryService().executeQuery(queryString);
 		} catch (MetadataQueryException e) {
 			log.error("error executing query:{}", this.getCollection(), e);
 			throw new VirtualCollectionException("unable to execute query", e);
 		}
 
+		if (metadataQueryResultCache != null && queryString != null) {
+			metadataQueryResultCache.record(getIrodsAccount(), uniqueName,
+					queryString, offset, listing);
+		}
+
+		return listing;
+
+	}
+
+	/**
+	 * The query service holds no state beyond the account, so one is built on
+	 * first use and kept
+	 */
+	private synchronized MetadataQueryService getMetadataQueryService() {
+		if (metadataQueryService == null) {
+			metadataQueryService = new MetadataQueryServiceImpl(
+					this.getIrodsAccessObjectFactory(), this.getIrodsAccount());
+		}
+		return metadataQueryService;
+	}
+
+	/**
+	 * @return the {@link MetadataQueryResultCache}, or <code>null</code> if
+	 *         results are not cached
+	 */
+	public MetadataQueryResultCache getMetadataQueryResultCache() {
+		return metadataQueryResultCache;
+	}
+
+	/**
+	 * @param metadataQueryResultCache
+	 *            {@link MetadataQueryResultCache} to hold query results, may
+	 *            be <code>null</code> to run the query every time
+	 */
+	public void setMetadataQueryResultCache(
+			final MetadataQueryResultCache metadataQueryResultCache) {
+		this.metadataQueryResultCache = metadataQueryResultCache;
 	}
 
 }
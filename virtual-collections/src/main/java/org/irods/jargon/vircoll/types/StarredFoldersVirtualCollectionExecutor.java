@@ -5,17 +5,31 @@ package org.irods.jargon.vircoll.types;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.irods.jargon.core.connection.IRODSAccount;
 import org.irods.jargon.core.exception.JargonException;
 import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
 import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry;
 import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry.ObjectType;
+import org.irods.jargon.core.query.GenQueryBuilderException;
+import org.irods.jargon.core.query.GenQueryField.SelectFieldTypes;
+import org.irods.jargon.core.query.IRODSGenQueryBuilder;
+import org.irods.jargon.core.query.IRODSGenQueryFromBuilder;
+import org.irods.jargon.core.query.IRODSQueryResultSet;
+import org.irods.jargon.core.query.JargonQueryException;
 import org.irods.jargon.core.query.PagingAwareCollectionListing;
+import org.irods.jargon.core.query.PagingAwareCollectionListingDescriptor;
+import org.irods.jargon.core.query.QueryConditionOperators;
+import org.irods.jargon.core.query.RodsGenQueryEnum;
 import org.irods.jargon.core.utils.CollectionAndPath;
 import org.irods.jargon.core.utils.MiscIRODSUtils;
 import org.irods.jargon.usertagging.domain.IRODSStarredFileOrCollection;
 import org.irods.jargon.usertagging.starring.IRODSStarringService;
+import org.irods.jargon.usertagging.tags.UserTaggingConstants;
 import org.irods.jargon.vircoll.exception.VirtualCollectionException;
 import org.irods.jargon.vircoll.exception.VirtualCollectionRuntimeException;
 import org.irods.jargon.vircoll.impl.VirtualCollectionExecutorImpl;
@@ -33,6 +47,32 @@ public class StarredFoldersVirtualCollectionExecutor extends
 
 	private final IRODSStarringService irodsStarringService;
 
+	/**
+	 * Optional executor on which starred data objects are queried in parallel
+	 * with starred collections, <code>null</code> to query them one after the
+	 * other
+	 */
+	private ExecutorService executorService = null;
+
+	/**
+	 * The data object half of a page: the data objects from the offset
+	 * matching a combined offset, and the number of starred collections that
+	 * offset was found from, which is only meaningful if the combined offset
+	 * is past the starred collections
+	 */
+	private static class DataObjectsPage {
+		private final int collectionCount;
+		private final int offset;
+		private final List<CollectionAndDataObjectListingEntry> dataObjects;
+
+		DataObjectsPage(final int collectionCount, final int offset,
+				final List<CollectionAndDataObjectListingEntry> dataObjects) {
+			this.collectionCount = collectionCount;
+			this.offset = offset;
+			this.dataObjects = dataObjects;
+		}
+	}
+
 	static Logger log = LoggerFactory
 			.getLogger(StarredFoldersVirtualCollectionExecutor.class);
 
@@ -62,22 +102,38 @@ public class StarredFoldersVirtualCollectionExecutor extends
 		this.irodsStarringService = irodsStarringService;
 	}
 
-	/*
-	 * (non-Javadoc)
+	/**
+	 * Query a page of starred folders. As in
+	 * {@link CollectionBasedVirtualCollectionExecutor}, the offset counts
+	 * starred collections first and then starred data objects. Starred
+	 * collections are listed from the offset; once they run out, the data
+	 * objects are listed from the start. If the offset is past the starred
+	 * collections, only the data objects are listed, from the offset less the
+	 * number of starred collections, which is found with a single count
+	 * query, so a deep page costs the same as the first.
+	 * <p/>
+	 * If an <code>ExecutorService</code> is configured, the data object half
+	 * of the page (the count of starred collections, if the offset is not 0,
+	 * then the data objects from the offset it gives) is queried on it while
+	 * the calling thread queries the starred collections. A page that reaches
+	 * the end of the collections, or that lies past them, then costs about one
+	 * round of queries rather than two. The data objects are discarded if the
+	 * page does not need them.
 	 * 
 	 * @see org.irods.jargon.vircoll.AbstractVirtualCollection#queryAll(int)
 	 */
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see
-	 * org.irods.jargon.vircoll.impl.StarredFoldersVirtualCollection#queryAll
-	 * (int)
-	 */
 	@Override
 	public PagingAwareCollectionListing queryAll(final int offset)
 			throws VirtualCollectionException {
 
+		log.info("queryAll()");
+
+		if (offset < 0) {
+			throw new IllegalArgumentException("offset must be 0 or greater");
+		}
+
+		log.info("offset:{}", offset);
+
 		PagingAwareCollectionListing listing;
 		try {
 			listing = buildInitialPagingAwareCollectionListing();
@@ -88,15 +144,183 @@ public class StarredFoldersVirtualCollectionExecutor extends
 			throw new VirtualCollectionRuntimeException(
 					"unable to build collection listing template", e);
 		}
-		log.info("queryAll()");
-		log.info("adding colls");
-		this.addAndCharacterizeCollectionListingForSplitListing(listing,
-				queryCollections(0));
-		log.info("adding data objects");
-		this.addAndCharacterizeDataObjectListingForSplitListing(listing,
-				queryDataObjects(0));
-		return listing;
 
+		Future<DataObjectsPage> dataObjectsFuture = null;
+		if (executorService != null) {
+			dataObjectsFuture = executorService
+					.submit(new Callable<DataObjectsPage>() {
+						@Override
+						public DataObjectsPage call()
+								throws VirtualCollectionException {
+							return queryDataObjectsPage(offset);
+						}
+					});
+		}
+
+		try {
+			List<CollectionAndDataObjectListingEntry> collections = queryCollections(offset);
+
+			if (!collections.isEmpty()) {
+				log.info("adding colls");
+				addAndCharacterizeCollectionListingForSplitListing(listing,
+						collections);
+				if (collections.get(collections.size() - 1).isLastResult()) {
+					log.info("adding data objects");
+					// the offset is within the collections, so the data object
+					// half was queried from 0
+					addDataObjects(listing,
+							dataObjectsFuture == null ? queryDataObjects(0)
+									: awaitQuery(dataObjectsFuture).dataObjects,
+							0);
+				}
+				return listing;
+			}
+
+			DataObjectsPage dataObjectsPage = dataObjectsFuture == null ? queryDataObjectsPage(offset)
+					: awaitQuery(dataObjectsFuture);
+			log.debug("offset is past the {} starred collections",
+					dataObjectsPage.collectionCount);
+			PagingAwareCollectionListingDescriptor descriptor = listing
+					.getPagingAwareCollectionListingDescriptor();
+			descriptor.setOffset(dataObjectsPage.collectionCount);
+			descriptor.setCount(0);
+			descriptor.setTotalRecords(dataObjectsPage.collectionCount);
+			descriptor.setCollectionsComplete(true);
+
+			log.info("adding data objects");
+			addDataObjects(listing, dataObjectsPage.dataObjects,
+					dataObjectsPage.offset);
+			return listing;
+
+		} finally {
+			// a no-op if it was used, and not needed if it was not
+			if (dataObjectsFuture != null) {
+				dataObjectsFuture.cancel(true);
+			}
+		}
+
+	}
+
+	/**
+	 * Query the data object half of a page at a combined offset. Unless the
+	 * offset is 0, the starred collections are counted, and the data objects
+	 * are listed from the offset less that count, or from the start if the
+	 * offset is within the collections.
+	 */
+	private DataObjectsPage queryDataObjectsPage(final int offset)
+			throws VirtualCollectionException {
+		int collectionCount = offset == 0 ? 0 : countStarredCollections();
+		int dataObjectsOffset = Math.max(offset - collectionCount, 0);
+		return new DataObjectsPage(collectionCount, dataObjectsOffset,
+				queryDataObjects(dataObjectsOffset));
+	}
+
+	private DataObjectsPage awaitQuery(final Future<DataObjectsPage> future)
+			throws VirtualCollectionException {
+		try {
+			return future.get();
+		} catch (ExecutionException ee) {
+			log.error("error listing starred data objects", ee.getCause());
+			if (ee.getCause() instanceof VirtualCollectionException) {
+				throw (VirtualCollectionException) ee.getCause();
+			} else if (ee.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ee.getCause();
+			}
+			throw new VirtualCollectionRuntimeException(
+					"underlying irods genquery error", ee.getCause());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			log.error("interrupted listing starred data objects", ie);
+			throw new VirtualCollectionException(
+					"interrupted listing starred data objects", ie);
+		}
+	}
+
+	/**
+	 * Add a page of data objects, or, if the offset is past the last starred
+	 * data object, mark the data objects as complete
+	 */
+	private void addDataObjects(final PagingAwareCollectionListing listing,
+			final List<CollectionAndDataObjectListingEntry> dataObjects,
+			final int offset) throws VirtualCollectionException {
+		if (!dataObjects.isEmpty()) {
+			addAndCharacterizeDataObjectListingForSplitListing(listing,
+					dataObjects);
+			return;
+		}
+
+		PagingAwareCollectionListingDescriptor descriptor = listing
+				.getPagingAwareCollectionListingDescriptor();
+		descriptor.setDataObjectsOffset(offset);
+		descriptor.setDataObjectsCount(0);
+		descriptor.setDataObjectsComplete(true);
+	}
+
+	/**
+	 * Count the collections starred by the user with one count query on the
+	 * star AVU. This is only needed when an offset is past the end of them,
+	 * and the starring service has no count query.
+	 */
+	private int countStarredCollections() {
+		log.info("countStarredCollections()");
+
+		IRODSGenQueryBuilder builder = new IRODSGenQueryBuilder(true, null);
+		try {
+			builder.addSelectAsAgregateGenQueryValue(
+					RodsGenQueryEnum.COL_COLL_ID, SelectFieldTypes.COUNT)
+					.addConditionAsGenQueryField(
+							RodsGenQueryEnum.COL_META_COLL_ATTR_UNITS,
+							QueryConditionOperators.EQUAL,
+							UserTaggingConstants.STAR_AVU_UNIT)
+					.addConditionAsGenQueryField(
+							RodsGenQueryEnum.COL_META_COLL_ATTR_VALUE,
+							QueryConditionOperators.EQUAL,
+							getIrodsAccount().getUserName());
+			IRODSGenQueryFromBuilder query = builder
+					.exportIRODSQueryFromBuilder(1);
+			IRODSQueryResultSet resultSet = getIrodsAccessObjectFactory()
+					.getIRODSGenQueryExecutor(getIrodsAccount())
+					.executeIRODSQueryAndCloseResult(query, 0);
+			if (resultSet.getResults().isEmpty()) {
+				return 0;
+			}
+			return Integer.parseInt(resultSet.getResults().get(0)
+					.getColumn(0));
+		} catch (GenQueryBuilderException e) {
+			log.error("error building query to count starred collections", e);
+			throw new VirtualCollectionRuntimeException(
+					"error building query to count starred collections", e);
+		} catch (JargonQueryException e) {
+			log.error("error counting starred collections", e);
+			throw new VirtualCollectionRuntimeException(
+					"underlying irods genquery error", e);
+		} catch (JargonException e) {
+			log.error("error counting starred collections", e);
+			throw new VirtualCollectionRuntimeException(
+					"underlying irods genquery error", e);
+		}
+	}
+
+	/**
+	 * @return the <code>ExecutorService</code> on which starred data objects
+	 *         are queried, or <code>null</code> if all queries run on the
+	 *         calling thread
+	 */
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+
+	/**
+	 * @param executorService
+	 *            <code>ExecutorService</code> on which starred data objects
+	 *            are queried while the calling thread queries starred
+	 *            collections. Each pool thread obtains its own iRODS
+	 *            connection, which the caller is responsible for closing when
+	 *            the pool is shut down. May be <code>null</code> to run all
+	 *            queries on the calling thread.
+	 */
+	public void setExecutorService(final ExecutorService executorService) {
+		this.executorService = executorService;
 	}
 
 	private List<CollectionAndDataObjectListingEntry> queryCollections(
@@ -145,7 +369,7 @@ public class StarredFoldersVirtualCollectionExecutor extends
 		try {
 			starred = irodsStarringService.listStarredDataObjects(offset);
 		} catch (JargonException e) {
-			log.error("error listing starred collections", e);
+			log.error("error listing starred data objects", e);
 			throw new VirtualCollectionRuntimeException(
 					"underlying irods genquery error", e);
 		}
@@ -169,6 +393,7 @@ public class StarredFoldersVirtualCollectionExecutor extends
 			entry.setParentPath(collAndPath.getCollectionParent());
 			entry.setPathOrName(collAndPath.getChildName());
 			entry.setDescription(collAndPath.getChildName());
+			entry.setTotalRecords(coll.getTotalRecords());
 			entries.add(entry);
 		}
 
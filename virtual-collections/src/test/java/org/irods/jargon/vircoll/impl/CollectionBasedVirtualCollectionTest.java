@@ -1,8 +1,13 @@
 package org.irods.jargon.vircoll.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Assert;
 
 import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.connection.JargonProperties;
+import org.irods.jargon.core.connection.SettableJargonProperties;
 import org.irods.jargon.core.exception.JargonException;
 import org.irods.jargon.core.pub.CollectionAndDataObjectListAndSearchAO;
 import org.irods.jargon.core.pub.CollectionPagerAO;
@@ -10,6 +15,7 @@ import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
 import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry;
 import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry.ObjectType;
 import org.irods.jargon.core.query.PagingAwareCollectionListing;
+import org.irods.jargon.core.query.PagingAwareCollectionListingDescriptor;
 import org.irods.jargon.testutils.TestingPropertiesHelper;
 import org.irods.jargon.vircoll.types.CollectionBasedVirtualCollection;
 import org.irods.jargon.vircoll.types.CollectionBasedVirtualCollectionExecutor;
@@ -246,4 +252,126 @@ public class CollectionBasedVirtualCollectionTest {
 
 	}
 
+	@Test
+	public void testQueryAllWithOffsetPastCollections() throws Exception {
+		String testPath = "/a/collection/here";
+		String dataName = "data.txt";
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		JargonProperties jargonProperties = new SettableJargonProperties();
+		Mockito.when(irodsAccessObjectFactory.getJargonProperties())
+				.thenReturn(jargonProperties);
+
+		CollectionBasedVirtualCollection virColl = new CollectionBasedVirtualCollection(
+				"blah", testPath);
+
+		CollectionAndDataObjectListAndSearchAO collectionAndDataObjectListAndSearchAO = Mockito
+				.mock(CollectionAndDataObjectListAndSearchAO.class);
+
+		List<CollectionAndDataObjectListingEntry> dataObjects = new ArrayList<CollectionAndDataObjectListingEntry>();
+		CollectionAndDataObjectListingEntry entry = new CollectionAndDataObjectListingEntry();
+		entry.setCount(3);
+		entry.setLastResult(true);
+		entry.setObjectType(ObjectType.DATA_OBJECT);
+		entry.setParentPath(testPath);
+		entry.setPathOrName(dataName);
+		entry.setTotalRecords(3);
+		dataObjects.add(entry);
+
+		Mockito.when(
+				collectionAndDataObjectListAndSearchAO
+						.listCollectionsUnderPath(testPath, 5)).thenReturn(
+				new ArrayList<CollectionAndDataObjectListingEntry>());
+		Mockito.when(
+				collectionAndDataObjectListAndSearchAO
+						.countCollectionsUnderPath(testPath)).thenReturn(3);
+		Mockito.when(
+				collectionAndDataObjectListAndSearchAO
+						.listDataObjectsUnderPath(testPath, 2)).thenReturn(
+				dataObjects);
+
+		Mockito.when(
+				irodsAccessObjectFactory
+						.getCollectionAndDataObjectListAndSearchAO(irodsAccount))
+				.thenReturn(collectionAndDataObjectListAndSearchAO);
+
+		CollectionBasedVirtualCollectionExecutor executor = new CollectionBasedVirtualCollectionExecutor(
+				virColl, irodsAccessObjectFactory, irodsAccount);
+
+		PagingAwareCollectionListing actual = executor.queryAll(5);
+
+		Assert.assertNotNull(actual);
+		Assert.assertFalse(actual.getCollectionAndDataObjectListingEntries()
+				.isEmpty());
+		Assert.assertEquals(testPath, actual
+				.getPagingAwareCollectionListingDescriptor()
+				.getParentAbsolutePath());
+		Assert.assertTrue(actual.getPagingAwareCollectionListingDescriptor()
+				.isCollectionsComplete());
+		Mockito.verify(collectionAndDataObjectListAndSearchAO)
+				.listDataObjectsUnderPath(testPath, 2);
+
+	}
+
+	@Test
+	public void testQueryNextPage() throws Exception {
+		String testPath = "/a/collection/here";
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		CollectionBasedVirtualCollection virColl = new CollectionBasedVirtualCollection(
+				"blah", testPath);
+
+		CollectionPagerAO collectionPagerAO = Mockito
+				.mock(CollectionPagerAO.class);
+
+		PagingAwareCollectionListingDescriptor descriptor = new PagingAwareCollectionListingDescriptor();
+		descriptor.setParentAbsolutePath(testPath);
+		descriptor.setOffset(0);
+		descriptor.setCount(500);
+
+		PagingAwareCollectionListing listing = new PagingAwareCollectionListing();
+
+		Mockito.when(collectionPagerAO.retrieveNextPage(descriptor))
+				.thenReturn(listing);
+
+		Mockito.when(
+				irodsAccessObjectFactory.getCollectionPagerAO(irodsAccount))
+				.thenReturn(collectionPagerAO);
+
+		CollectionBasedVirtualCollectionExecutor executor = new CollectionBasedVirtualCollectionExecutor(
+				virColl, irodsAccessObjectFactory, irodsAccount);
+
+		PagingAwareCollectionListing actual = executor.queryNextPage(descriptor);
+
+		Assert.assertSame(listing, actual);
+
+	}
+
+	@Test(expected = JargonException.class)
+	public void testQueryNextPageNotUnderRoot() throws Exception {
+		String testPath = "/a/collection/here";
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		CollectionBasedVirtualCollection virColl = new CollectionBasedVirtualCollection(
+				"blah", testPath);
+
+		PagingAwareCollectionListingDescriptor descriptor = new PagingAwareCollectionListingDescriptor();
+		descriptor.setParentAbsolutePath("/blahdeblah/helllo");
+
+		CollectionBasedVirtualCollectionExecutor executor = new CollectionBasedVirtualCollectionExecutor(
+				virColl, irodsAccessObjectFactory, irodsAccount);
+
+		executor.queryNextPage(descriptor);
+
+	}
+
 }
@@ -2,6 +2,8 @@ package org.irods.jargon.vircoll.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Assert;
 
@@ -10,10 +12,15 @@ import org.irods.jargon.core.connection.JargonProperties;
 import org.irods.jargon.core.connection.SettableJargonProperties;
 import org.irods.jargon.core.pub.CollectionPagerAO;
 import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
+import org.irods.jargon.core.pub.IRODSGenQueryExecutor;
 import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry;
 import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry.ObjectType;
+import org.irods.jargon.core.query.IRODSGenQueryFromBuilder;
+import org.irods.jargon.core.query.IRODSQueryResultRow;
+import org.irods.jargon.core.query.IRODSQueryResultSet;
 import org.irods.jargon.core.query.MetaDataAndDomainData.MetadataDomain;
 import org.irods.jargon.core.query.PagingAwareCollectionListing;
+import org.irods.jargon.core.query.PagingAwareCollectionListingDescriptor;
 import org.irods.jargon.core.utils.CollectionAndPath;
 import org.irods.jargon.core.utils.MiscIRODSUtils;
 import org.irods.jargon.testutils.TestingPropertiesHelper;
@@ -27,6 +34,31 @@ import org.mockito.Mockito;
 
 public class StarredFoldersVirtualCollectionImplTest {
 
+	/**
+	 * Answer the count query on starred collections with the given count
+	 */
+	private static IRODSGenQueryExecutor mockStarredCollectionCount(
+			final IRODSAccessObjectFactory irodsAccessObjectFactory,
+			final IRODSAccount irodsAccount, final int count) throws Exception {
+		IRODSQueryResultRow row = Mockito.mock(IRODSQueryResultRow.class);
+		Mockito.when(row.getColumn(0)).thenReturn(String.valueOf(count));
+		List<IRODSQueryResultRow> rows = new ArrayList<IRODSQueryResultRow>();
+		rows.add(row);
+		IRODSQueryResultSet resultSet = Mockito.mock(IRODSQueryResultSet.class);
+		Mockito.when(resultSet.getResults()).thenReturn(rows);
+		IRODSGenQueryExecutor irodsGenQueryExecutor = Mockito
+				.mock(IRODSGenQueryExecutor.class);
+		Mockito.when(
+				irodsGenQueryExecutor.executeIRODSQueryAndCloseResult(
+						Mockito.any(IRODSGenQueryFromBuilder.class),
+						Mockito.eq(0))).thenReturn(resultSet);
+		Mockito.when(irodsAccount.getUserName()).thenReturn("bob");
+		Mockito.when(
+				irodsAccessObjectFactory.getIRODSGenQueryExecutor(irodsAccount))
+				.thenReturn(irodsGenQueryExecutor);
+		return irodsGenQueryExecutor;
+	}
+
 	@Test
 	public void testQueryCollectionsWithPathHint() throws Exception {
 
@@ -147,4 +179,244 @@ public class StarredFoldersVirtualCollectionImplTest {
 				actualEntry.getObjectType());
 
 	}
+
+	@Test
+	public void testQueryAllWithOffsetInParallel() throws Exception {
+
+		String testPath = "/a/collection/here";
+		String testDataPath = "/a/collection/here/data.txt";
+		String descr = "test";
+		int offset = 10;
+		IRODSAccount irodsAccount = Mockito.mock(IRODSAccount.class);
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		JargonProperties jargonProperties = new SettableJargonProperties();
+		Mockito.when(irodsAccessObjectFactory.getJargonProperties())
+				.thenReturn(jargonProperties);
+
+		IRODSStarringService irodsStarringService = Mockito
+				.mock(IRODSStarringService.class);
+
+		StarredFoldersVirtualCollection virColl = new StarredFoldersVirtualCollection();
+
+		StarredFoldersVirtualCollectionExecutor executor = new StarredFoldersVirtualCollectionExecutor(
+				virColl, irodsAccessObjectFactory, irodsAccount,
+				irodsStarringService);
+
+		List<IRODSStarredFileOrCollection> collections = new ArrayList<IRODSStarredFileOrCollection>();
+		IRODSStarredFileOrCollection lastCollection = new IRODSStarredFileOrCollection(
+				MetadataDomain.COLLECTION, testPath, descr, "bob");
+		lastCollection.setLastResult(true);
+		collections.add(lastCollection);
+		List<IRODSStarredFileOrCollection> dataObjects = new ArrayList<IRODSStarredFileOrCollection>();
+		dataObjects.add(new IRODSStarredFileOrCollection(MetadataDomain.DATA,
+				testDataPath, descr, "bob"));
+
+		Mockito.when(irodsStarringService.listStarredCollections(offset))
+				.thenReturn(collections);
+		Mockito.when(irodsStarringService.listStarredDataObjects(0))
+				.thenReturn(dataObjects);
+		mockStarredCollectionCount(irodsAccessObjectFactory, irodsAccount,
+				offset + 1);
+
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			executor.setExecutorService(executorService);
+			PagingAwareCollectionListing actual = executor.queryAll(offset);
+			Assert.assertNotNull(actual);
+			Assert.assertEquals(2, actual
+					.getCollectionAndDataObjectListingEntries().size());
+			Assert.assertEquals(
+					CollectionAndDataObjectListingEntry.ObjectType.COLLECTION,
+					actual.getCollectionAndDataObjectListingEntries().get(0)
+							.getObjectType());
+			Assert.assertEquals(
+					CollectionAndDataObjectListingEntry.ObjectType.DATA_OBJECT,
+					actual.getCollectionAndDataObjectListingEntries().get(1)
+							.getObjectType());
+		} finally {
+			executorService.shutdown();
+		}
+
+		Mockito.verify(irodsStarringService).listStarredCollections(offset);
+		Mockito.verify(irodsStarringService).listStarredDataObjects(0);
+
+	}
+
+	@Test
+	public void testQueryAllWithOffsetPastCollectionsInParallel()
+			throws Exception {
+
+		String descr = "test";
+		int offset = 5;
+		IRODSAccount irodsAccount = Mockito.mock(IRODSAccount.class);
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		JargonProperties jargonProperties = new SettableJargonProperties();
+		Mockito.when(irodsAccessObjectFactory.getJargonProperties())
+				.thenReturn(jargonProperties);
+
+		IRODSStarringService irodsStarringService = Mockito
+				.mock(IRODSStarringService.class);
+
+		StarredFoldersVirtualCollection virColl = new StarredFoldersVirtualCollection();
+
+		StarredFoldersVirtualCollectionExecutor executor = new StarredFoldersVirtualCollectionExecutor(
+				virColl, irodsAccessObjectFactory, irodsAccount,
+				irodsStarringService);
+
+		List<IRODSStarredFileOrCollection> dataObjects = new ArrayList<IRODSStarredFileOrCollection>();
+		dataObjects.add(new IRODSStarredFileOrCollection(MetadataDomain.DATA,
+				"/a/coll0/data.txt", descr, "bob"));
+
+		Mockito.when(irodsStarringService.listStarredCollections(offset))
+				.thenReturn(new ArrayList<IRODSStarredFileOrCollection>());
+		Mockito.when(irodsStarringService.listStarredDataObjects(offset - 3))
+				.thenReturn(dataObjects);
+		mockStarredCollectionCount(irodsAccessObjectFactory, irodsAccount, 3);
+
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			executor.setExecutorService(executorService);
+			PagingAwareCollectionListing actual = executor.queryAll(offset);
+			Assert.assertEquals(1, actual
+					.getCollectionAndDataObjectListingEntries().size());
+			PagingAwareCollectionListingDescriptor descriptor = actual
+					.getPagingAwareCollectionListingDescriptor();
+			Assert.assertTrue(descriptor.isCollectionsComplete());
+			Assert.assertEquals(3, descriptor.getTotalRecords());
+		} finally {
+			executorService.shutdown();
+		}
+
+		Mockito.verify(irodsStarringService).listStarredDataObjects(offset - 3);
+		Mockito.verify(irodsStarringService, Mockito.never())
+				.listStarredDataObjects(0);
+
+	}
+
+	@Test
+	public void testQueryAllWithOffsetPastCollections() throws Exception {
+
+		String descr = "test";
+		int offset = 5;
+		IRODSAccount irodsAccount = Mockito.mock(IRODSAccount.class);
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		JargonProperties jargonProperties = new SettableJargonProperties();
+		Mockito.when(irodsAccessObjectFactory.getJargonProperties())
+				.thenReturn(jargonProperties);
+
+		IRODSStarringService irodsStarringService = Mockito
+				.mock(IRODSStarringService.class);
+
+		StarredFoldersVirtualCollection virColl = new StarredFoldersVirtualCollection();
+
+		StarredFoldersVirtualCollectionExecutor executor = new StarredFoldersVirtualCollectionExecutor(
+				virColl, irodsAccessObjectFactory, irodsAccount,
+				irodsStarringService);
+
+		List<IRODSStarredFileOrCollection> collections = new ArrayList<IRODSStarredFileOrCollection>();
+		for (int i = 0; i < 3; i++) {
+			collections.add(new IRODSStarredFileOrCollection(
+					MetadataDomain.COLLECTION, "/a/coll" + i, descr, "bob"));
+		}
+		collections.get(2).setLastResult(true);
+		List<IRODSStarredFileOrCollection> dataObjects = new ArrayList<IRODSStarredFileOrCollection>();
+		dataObjects.add(new IRODSStarredFileOrCollection(MetadataDomain.DATA,
+				"/a/coll0/data.txt", descr, "bob"));
+
+		Mockito.when(irodsStarringService.listStarredCollections(offset))
+				.thenReturn(new ArrayList<IRODSStarredFileOrCollection>());
+		Mockito.when(irodsStarringService.listStarredCollections(0))
+				.thenReturn(collections);
+		Mockito.when(irodsStarringService.listStarredDataObjects(offset - 3))
+				.thenReturn(dataObjects);
+		mockStarredCollectionCount(irodsAccessObjectFactory, irodsAccount, 3);
+
+		PagingAwareCollectionListing actual = executor.queryAll(offset);
+		Assert.assertEquals(1, actual
+				.getCollectionAndDataObjectListingEntries().size());
+		Assert.assertEquals(
+				CollectionAndDataObjectListingEntry.ObjectType.DATA_OBJECT,
+				actual.getCollectionAndDataObjectListingEntries().get(0)
+						.getObjectType());
+		PagingAwareCollectionListingDescriptor descriptor = actual
+				.getPagingAwareCollectionListingDescriptor();
+		Assert.assertTrue(descriptor.isCollectionsComplete());
+		Assert.assertEquals(3, descriptor.getTotalRecords());
+		Assert.assertEquals(3, descriptor.getOffset());
+
+		Mockito.verify(irodsStarringService).listStarredDataObjects(offset - 3);
+		Mockito.verify(irodsStarringService, Mockito.never())
+				.listStarredCollections(0);
+
+	}
+
+	@Test
+	public void testQueryAllWithOffsetPastDataObjects() throws Exception {
+
+		String descr = "test";
+		int offset = 20;
+		IRODSAccount irodsAccount = Mockito.mock(IRODSAccount.class);
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		JargonProperties jargonProperties = new SettableJargonProperties();
+		Mockito.when(irodsAccessObjectFactory.getJargonProperties())
+				.thenReturn(jargonProperties);
+
+		IRODSStarringService irodsStarringService = Mockito
+				.mock(IRODSStarringService.class);
+
+		StarredFoldersVirtualCollection virColl = new StarredFoldersVirtualCollection();
+
+		StarredFoldersVirtualCollectionExecutor executor = new StarredFoldersVirtualCollectionExecutor(
+				virColl, irodsAccessObjectFactory, irodsAccount,
+				irodsStarringService);
+
+		List<IRODSStarredFileOrCollection> collections = new ArrayList<IRODSStarredFileOrCollection>();
+		IRODSStarredFileOrCollection collection = new IRODSStarredFileOrCollection(
+				MetadataDomain.COLLECTION, "/a/coll", descr, "bob");
+		collection.setLastResult(true);
+		collections.add(collection);
+		List<IRODSStarredFileOrCollection> dataObjects = new ArrayList<IRODSStarredFileOrCollection>();
+		for (int i = 0; i < 2; i++) {
+			dataObjects.add(new IRODSStarredFileOrCollection(
+					MetadataDomain.DATA, "/a/coll/data" + i + ".txt", descr,
+					"bob"));
+		}
+		dataObjects.get(1).setLastResult(true);
+
+		Mockito.when(irodsStarringService.listStarredCollections(offset))
+				.thenReturn(new ArrayList<IRODSStarredFileOrCollection>());
+		Mockito.when(irodsStarringService.listStarredCollections(0))
+				.thenReturn(collections);
+		Mockito.when(irodsStarringService.listStarredDataObjects(offset - 1))
+				.thenReturn(new ArrayList<IRODSStarredFileOrCollection>());
+		Mockito.when(irodsStarringService.listStarredDataObjects(0))
+				.thenReturn(dataObjects);
+		IRODSGenQueryExecutor irodsGenQueryExecutor = mockStarredCollectionCount(
+				irodsAccessObjectFactory, irodsAccount, 1);
+
+		PagingAwareCollectionListing actual = executor.queryAll(offset);
+		Assert.assertTrue(actual.getCollectionAndDataObjectListingEntries()
+				.isEmpty());
+		PagingAwareCollectionListingDescriptor descriptor = actual
+				.getPagingAwareCollectionListingDescriptor();
+		Assert.assertEquals(1, descriptor.getTotalRecords());
+		Assert.assertTrue(descriptor.isDataObjectsComplete());
+		Assert.assertEquals(offset - 1, descriptor.getDataObjectsOffset());
+
+		Mockito.verify(irodsGenQueryExecutor).executeIRODSQueryAndCloseResult(
+				Mockito.any(IRODSGenQueryFromBuilder.class), Mockito.eq(0));
+		Mockito.verify(irodsStarringService, Mockito.never())
+				.listStarredCollections(0);
+		Mockito.verify(irodsStarringService, Mockito.never())
+				.listStarredDataObjects(0);
+
+	}
 }
@@ -0,0 +1,32 @@
+package org.irods.jargon.vircoll.impl;
+
+import org.irods.jargon.vircoll.AbstractVirtualCollection;
+import org.irods.jargon.vircoll.AbstractVirtualCollectionExecutor;
+
+/**
+ * Provider registered in the test resources to check discovery through
+ * <code>ServiceLoader</code>. Its executor keeps the given virtual collection
+ * and falls back to the default path listing.
+ */
+public class TestingVirtualCollectionExecutorProvider implements
+		VirtualCollectionExecutorProvider {
+
+	public static final String MY_TYPE = "TESTING_PROVIDER";
+
+	@Override
+	public String getType() {
+		return MY_TYPE;
+	}
+
+	@Override
+	public AbstractVirtualCollectionExecutor<?> instanceExecutor(
+			final AbstractVirtualCollection virtualCollection,
+			final VirtualCollectionFactoryImpl virtualCollectionFactory) {
+		return new VirtualCollectionExecutorImpl<AbstractVirtualCollection>(
+				virtualCollectionFactory.getIrodsAccount(),
+				virtualCollectionFactory.getIrodsAccessObjectFactory(),
+				virtualCollection) {
+		};
+	}
+
+}
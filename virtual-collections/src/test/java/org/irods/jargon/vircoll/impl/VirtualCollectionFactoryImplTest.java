@@ -0,0 +1,172 @@
+package org.irods.jargon.vircoll.impl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.exception.DataNotFoundException;
+import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
+import org.irods.jargon.testutils.TestingPropertiesHelper;
+import org.irods.jargon.vircoll.AbstractVirtualCollection;
+import org.irods.jargon.vircoll.AbstractVirtualCollectionExecutor;
+import org.irods.jargon.vircoll.types.CollectionBasedVirtualCollection;
+import org.irods.jargon.vircoll.types.MetadataQueryVirtualCollection;
+import org.irods.jargon.vircoll.types.StarredFoldersVirtualCollection;
+import org.irods.jargon.vircoll.types.StarredFoldersVirtualCollectionExecutor;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class VirtualCollectionFactoryImplTest {
+
+	@Test
+	public void testInstanceExecutorIsCached() throws Exception {
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		VirtualCollectionFactoryImpl factory = new VirtualCollectionFactoryImpl(
+				irodsAccessObjectFactory, irodsAccount);
+
+		AbstractVirtualCollectionExecutor<?> first = factory
+				.instanceExecutorBasedOnVirtualCollection(new StarredFoldersVirtualCollection());
+		AbstractVirtualCollectionExecutor<?> second = factory
+				.instanceExecutorBasedOnVirtualCollection(new StarredFoldersVirtualCollection());
+
+		Assert.assertTrue(first instanceof StarredFoldersVirtualCollectionExecutor);
+		Assert.assertSame(first, second);
+	}
+
+	@Test
+	public void testStarredExecutorGetsExecutorService() throws Exception {
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		VirtualCollectionFactoryImpl factory = new VirtualCollectionFactoryImpl(
+				irodsAccessObjectFactory, irodsAccount);
+		AbstractVirtualCollectionExecutor<?> before = factory
+				.instanceExecutorBasedOnVirtualCollection(new StarredFoldersVirtualCollection());
+
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			factory.setExecutorService(executorService);
+			StarredFoldersVirtualCollectionExecutor executor = (StarredFoldersVirtualCollectionExecutor) factory
+					.instanceExecutorBasedOnVirtualCollection(new StarredFoldersVirtualCollection());
+			Assert.assertNotSame("cached executor should be dropped", before,
+					executor);
+			Assert.assertSame(executorService, executor.getExecutorService());
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	@Test
+	public void testInstanceExecutorAfterRemoveCachedExecutor()
+			throws Exception {
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		VirtualCollectionFactoryImpl factory = new VirtualCollectionFactoryImpl(
+				irodsAccessObjectFactory, irodsAccount);
+
+		AbstractVirtualCollection virColl = new StarredFoldersVirtualCollection();
+		AbstractVirtualCollectionExecutor<?> first = factory
+				.instanceExecutorBasedOnVirtualCollection(virColl);
+		factory.removeCachedExecutor(virColl.getUniqueName());
+		AbstractVirtualCollectionExecutor<?> second = factory
+				.instanceExecutorBasedOnVirtualCollection(virColl);
+
+		Assert.assertNotSame(first, second);
+	}
+
+	@Test
+	public void testInstanceExecutorChangedDefinitionNotReused()
+			throws Exception {
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		VirtualCollectionFactoryImpl factory = new VirtualCollectionFactoryImpl(
+				irodsAccessObjectFactory, irodsAccount);
+
+		AbstractVirtualCollectionExecutor<?> first = factory
+				.instanceExecutorBasedOnVirtualCollection(new CollectionBasedVirtualCollection(
+						"home", "/a/home"));
+		AbstractVirtualCollectionExecutor<?> second = factory
+				.instanceExecutorBasedOnVirtualCollection(new CollectionBasedVirtualCollection(
+						"home", "/another/home"));
+
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals("/another/home",
+				((CollectionBasedVirtualCollection) second.getCollection())
+						.getRootPath());
+	}
+
+	@Test
+	public void testInstanceExecutorNoUniqueNameNotCached() throws Exception {
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		VirtualCollectionFactoryImpl factory = new VirtualCollectionFactoryImpl(
+				irodsAccessObjectFactory, irodsAccount);
+
+		MetadataQueryVirtualCollection virColl = new MetadataQueryVirtualCollection(
+				"query");
+		AbstractVirtualCollectionExecutor<?> first = factory
+				.instanceExecutorBasedOnVirtualCollection(virColl);
+		AbstractVirtualCollectionExecutor<?> second = factory
+				.instanceExecutorBasedOnVirtualCollection(virColl);
+
+		Assert.assertNotSame(first, second);
+	}
+
+	@Test(expected = DataNotFoundException.class)
+	public void testInstanceExecutorUnknownType() throws Exception {
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		VirtualCollectionFactoryImpl factory = new VirtualCollectionFactoryImpl(
+				irodsAccessObjectFactory, irodsAccount);
+
+		AbstractVirtualCollection virColl = new StarredFoldersVirtualCollection();
+		virColl.setType("NOT_A_TYPE");
+		factory.instanceExecutorBasedOnVirtualCollection(virColl);
+	}
+
+	@Test
+	public void testInstanceExecutorFromDiscoveredProvider() throws Exception {
+		IRODSAccount irodsAccount = TestingPropertiesHelper
+				.buildBogusIrodsAccount();
+		IRODSAccessObjectFactory irodsAccessObjectFactory = Mockito
+				.mock(IRODSAccessObjectFactory.class);
+
+		Assert.assertTrue(VirtualCollectionFactoryImpl.getSupportedTypes()
+				.contains(TestingVirtualCollectionExecutorProvider.MY_TYPE));
+		Assert.assertTrue(VirtualCollectionFactoryImpl.getSupportedTypes()
+				.contains(StarredFoldersVirtualCollection.MY_TYPE));
+
+		VirtualCollectionFactoryImpl factory = new VirtualCollectionFactoryImpl(
+				irodsAccessObjectFactory, irodsAccount);
+
+		AbstractVirtualCollection virColl = new StarredFoldersVirtualCollection();
+		virColl.setType(TestingVirtualCollectionExecutorProvider.MY_TYPE);
+		AbstractVirtualCollectionExecutor<?> executor = factory
+				.instanceExecutorBasedOnVirtualCollection(virColl);
+
+		Assert.assertSame("executor should keep the virtual collection",
+				virColl, executor.getCollection());
+		Assert.assertSame("executor should be cached", executor,
+				factory.instanceExecutorBasedOnVirtualCollection(virColl));
+	}
+
+}
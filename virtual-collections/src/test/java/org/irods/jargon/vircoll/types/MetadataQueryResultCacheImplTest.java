@@ -0,0 +1,147 @@
+package org.irods.jargon.vircoll.types;
+
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry;
+import org.irods.jargon.core.query.PagingAwareCollectionListing;
+import org.irods.jargon.core.query.PagingAwareCollectionListingDescriptor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetadataQueryResultCacheImplTest {
+
+	private static class SettableClockCache extends
+			MetadataQueryResultCacheImpl {
+		private long now = 1000L;
+
+		SettableClockCache(final int maxEntries, final long ttlMillis,
+				final int maxResultSize) {
+			super(maxEntries, ttlMillis, maxResultSize);
+		}
+
+		@Override
+		long currentTimeMillis() {
+			return now;
+		}
+	}
+
+	private static IRODSAccount buildAccount(final String userName)
+			throws Exception {
+		return IRODSAccount.instance("host", 1247, userName, "password",
+				"/zone/home/" + userName, "zone", "");
+	}
+
+	private static PagingAwareCollectionListing buildListing(final int size) {
+		PagingAwareCollectionListing listing = new PagingAwareCollectionListing();
+		for (int i = 0; i < size; i++) {
+			listing.getCollectionAndDataObjectListingEntries().add(
+					new CollectionAndDataObjectListingEntry());
+		}
+		return listing;
+	}
+
+	@Test
+	public void testRecordAndLookup() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		MetadataQueryResultCacheImpl cache = new MetadataQueryResultCacheImpl();
+		PagingAwareCollectionListing listing = buildListing(2);
+		cache.record(irodsAccount, "vc1", "{\"a\": 1}", 0, listing);
+		PagingAwareCollectionListing actual = cache.lookup(irodsAccount,
+				"vc1", "{\"a\": 1}", 0);
+		Assert.assertNotNull("listing should be cached", actual);
+		Assert.assertEquals(2, actual
+				.getCollectionAndDataObjectListingEntries().size());
+		Assert.assertNull(cache.lookup(irodsAccount, "vc1", "{\"a\": 1}", 10));
+		Assert.assertNull(cache.lookup(irodsAccount, "vc2", "{\"a\": 1}", 0));
+		Assert.assertNull("results leaked to another user", cache.lookup(
+				buildAccount("test2"), "vc1", "{\"a\": 1}", 0));
+	}
+
+	@Test
+	public void testLookupNormalizesWhitespaceOutsideStrings()
+			throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		MetadataQueryResultCacheImpl cache = new MetadataQueryResultCacheImpl();
+		PagingAwareCollectionListing listing = buildListing(1);
+		cache.record(irodsAccount, "vc1", "{\"attr\": \"a b\"}", 0, listing);
+		Assert.assertNotNull(cache.lookup(irodsAccount, "vc1",
+				"{ \"attr\":\n\t\"a b\" }", 0));
+		Assert.assertNull("whitespace inside a string is significant",
+				cache.lookup(irodsAccount, "vc1", "{\"attr\": \"ab\"}", 0));
+	}
+
+	@Test
+	public void testRecordAndLookupCopy() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		MetadataQueryResultCacheImpl cache = new MetadataQueryResultCacheImpl();
+		PagingAwareCollectionListing recorded = buildListing(2);
+		PagingAwareCollectionListingDescriptor descriptor = new PagingAwareCollectionListingDescriptor();
+		descriptor.setOffset(0);
+		recorded.setPagingAwareCollectionListingDescriptor(descriptor);
+		cache.record(irodsAccount, "vc1", "q", 0, recorded);
+		recorded.getCollectionAndDataObjectListingEntries().clear();
+
+		PagingAwareCollectionListing first = cache.lookup(irodsAccount, "vc1",
+				"q", 0);
+		Assert.assertEquals("record should store a copy", 2, first
+				.getCollectionAndDataObjectListingEntries().size());
+		first.getCollectionAndDataObjectListingEntries().remove(0);
+		first.getPagingAwareCollectionListingDescriptor().setOffset(10);
+
+		PagingAwareCollectionListing second = cache.lookup(irodsAccount,
+				"vc1", "q", 0);
+		Assert.assertNotSame("lookup should return a new copy", first,
+				second);
+		Assert.assertEquals("lookup should return a copy", 2, second
+				.getCollectionAndDataObjectListingEntries().size());
+		Assert.assertEquals("descriptor should be copied", 0, second
+				.getPagingAwareCollectionListingDescriptor().getOffset());
+	}
+
+	@Test
+	public void testEntryExpires() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		SettableClockCache cache = new SettableClockCache(10, 100L, 10);
+		cache.record(irodsAccount, "vc1", "q", 0, buildListing(1));
+		cache.now += 99L;
+		Assert.assertNotNull(cache.lookup(irodsAccount, "vc1", "q", 0));
+		cache.now += 1L;
+		Assert.assertNull(cache.lookup(irodsAccount, "vc1", "q", 0));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testLargeResultNotCached() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		MetadataQueryResultCacheImpl cache = new MetadataQueryResultCacheImpl(
+				10, 1000L, 2);
+		cache.record(irodsAccount, "vc1", "q", 0, buildListing(3));
+		Assert.assertNull(cache.lookup(irodsAccount, "vc1", "q", 0));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		MetadataQueryResultCacheImpl cache = new MetadataQueryResultCacheImpl(
+				2, 1000L, 10);
+		cache.record(irodsAccount, "vc1", "q", 0, buildListing(1));
+		cache.record(irodsAccount, "vc2", "q", 0, buildListing(1));
+		cache.lookup(irodsAccount, "vc1", "q", 0);
+		cache.record(irodsAccount, "vc3", "q", 0, buildListing(1));
+		Assert.assertNotNull(cache.lookup(irodsAccount, "vc1", "q", 0));
+		Assert.assertNull(cache.lookup(irodsAccount, "vc2", "q", 0));
+	}
+
+	@Test
+	public void testInvalidateByUniqueName() throws Exception {
+		IRODSAccount irodsAccount = buildAccount("test1");
+		MetadataQueryResultCacheImpl cache = new MetadataQueryResultCacheImpl();
+		cache.record(irodsAccount, "vc1", "q", 0, buildListing(1));
+		cache.record(irodsAccount, "vc1", "q", 10, buildListing(1));
+		cache.record(buildAccount("test2"), "vc1", "q", 0, buildListing(1));
+		cache.record(irodsAccount, "vc2", "q", 0, buildListing(1));
+		cache.invalidate("vc1");
+		Assert.assertEquals(1, cache.size());
+		Assert.assertNotNull(cache.lookup(irodsAccount, "vc2", "q", 0));
+	}
+
+}
@@ -5,6 +5,8 @@ import org.irods.jargon.vircoll.impl.MetadataQueryVirtualCollectionTest;
 import org.irods.jargon.vircoll.impl.StarredFoldersVirtualCollectionImplTest;
 import org.irods.jargon.vircoll.impl.TemporaryQueryServiceImplTest;
 import org.irods.jargon.vircoll.impl.VirtualCollectionDiscoveryServiceImplTest;
+import org.irods.jargon.vircoll.impl.VirtualCollectionFactoryImplTest;
+import org.irods.jargon.vircoll.types.MetadataQueryResultCacheImplTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -13,7 +15,9 @@ import org.junit.runners.Suite;
 		StarredFoldersVirtualCollectionImplTest.class,
 		VirtualCollectionDiscoveryServiceImplTest.class,
 		MetadataQueryVirtualCollectionTest.class,
-		TemporaryQueryServiceImplTest.class })
+		TemporaryQueryServiceImplTest.class,
+		VirtualCollectionFactoryImplTest.class,
+		MetadataQueryResultCacheImplTest.class })
 public class AllTests {
 
 }